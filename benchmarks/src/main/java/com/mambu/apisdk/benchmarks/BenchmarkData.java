@@ -0,0 +1,314 @@
+package com.mambu.apisdk.benchmarks;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.apache.commons.codec.binary.Base64;
+
+import com.mambu.accounts.shared.model.AccountHolderType;
+import com.mambu.accounts.shared.model.AccountState;
+import com.mambu.apisdk.util.GsonUtils;
+import com.mambu.clients.shared.model.Client;
+import com.mambu.core.shared.model.Money;
+import com.mambu.core.shared.model.SearchResult;
+import com.mambu.loans.shared.model.LoanAccount;
+import com.mambu.loans.shared.model.LoanAccount.RepaymentPeriodUnit;
+import com.mambu.loans.shared.model.LoanTransaction;
+import com.mambu.loans.shared.model.LoanTransactionType;
+import com.mambu.savings.shared.model.SavingsAccount;
+import com.mambu.savings.shared.model.SavingsTransaction;
+import com.mambu.savings.shared.model.SavingsTransactionType;
+import com.mambu.savings.shared.model.SavingsType;
+
+/**
+ * Payloads used by the benchmarks. The payloads are generated once, in the benchmarks' setup methods, and are formatted
+ * as the responses returned by the Mambu API
+ */
+public class BenchmarkData {
+
+	// Keys shared by the generated entities, formatted as Mambu encoded keys
+	private static final String BRANCH_KEY = "8a33ad2c3c3c4b34013c3ca1c6f40a21";
+	private static final String USER_KEY = "8a33ad2c3c3c4b34013c3ca1c6f40a99";
+	private static final String LOAN_PRODUCT_KEY = "8a33ad2c3c3c4b34013c3ca1c6f40b01";
+	private static final String SAVINGS_PRODUCT_KEY = "8a33ad2c3c3c4b34013c3ca1c6f40b02";
+
+	/**
+	 * Create a list of clients with realistic field values
+	 * 
+	 * @param count
+	 *            number of clients
+	 * @return list of clients
+	 */
+	public static List<Client> makeClients(int count) {
+		return makeClients(0, count, 0);
+	}
+
+	/**
+	 * Create a page of clients with realistic field values
+	 * 
+	 * @param first
+	 *            index of the first client, giving its id
+	 * @param count
+	 *            number of clients
+	 * @param notesLength
+	 *            length of the clients' notes or zero for the generated notes
+	 * @return list of clients
+	 */
+	public static List<Client> makeClients(int first, int count, int notesLength) {
+
+		List<Client> clients = new ArrayList<Client>(count);
+		Date now = new Date();
+		for (int i = first; i < first + count; i++) {
+			Client client = new Client();
+			client.setId(String.valueOf(100000 + i));
+			client.setFirstName("First" + i);
+			client.setMiddleName("Middle" + i);
+			client.setLastName("Last" + i);
+			client.setEmailAddress("client" + i + "@example.com");
+			client.setHomePhone("+49 30 " + (1000000 + i));
+			client.setMobilePhone1("+49 170 " + (1000000 + i));
+			client.setAssignedBranchKey(BRANCH_KEY);
+			client.setAssignedUserKey(USER_KEY);
+			client.setNotes(makeNotes("Client created for the benchmark, number " + i, notesLength));
+			client.setBirthDate(now);
+			client.setCreationDate(now);
+			client.setLastModifiedDate(now);
+			client.setLoanCycle(i % 5);
+			client.setGroupLoanCycle(0);
+			clients.add(client);
+		}
+		return clients;
+	}
+
+	/**
+	 * Create a page of active loan accounts of the generated clients
+	 * 
+	 * @param first
+	 *            index of the first account, giving its id
+	 * @param count
+	 *            number of accounts
+	 * @param notesLength
+	 *            length of the accounts' notes or zero for the generated notes
+	 * @return list of loan accounts
+	 */
+	public static List<LoanAccount> makeLoanAccounts(int first, int count, int notesLength) {
+
+		List<LoanAccount> accounts = new ArrayList<LoanAccount>(count);
+		Date now = new Date();
+		for (int i = first; i < first + count; i++) {
+			LoanAccount account = new LoanAccount();
+			account.setId("L" + (100000 + i));
+			account.setEncodedKey(makeEncodedKey(2, i));
+			account.setLoanName("Business loan");
+			account.setAccountHolderKey(makeEncodedKey(1, i));
+			account.setAccountHolderType(AccountHolderType.CLIENT);
+			account.setAccountState(AccountState.ACTIVE);
+			account.setProductTypeKey(LOAN_PRODUCT_KEY);
+			account.setAssignedBranchKey(BRANCH_KEY);
+			account.setAssignedUserKey(USER_KEY);
+			account.setLoanAmount(new BigDecimal(5000 + 100 * (i % 50)));
+			account.setPrincipalBalance(new BigDecimal(2500 + 50 * (i % 50)));
+			account.setPrincipalDue(new BigDecimal(250));
+			account.setInterestDue(new BigDecimal("31.25"));
+			account.setFeesDue(BigDecimal.ZERO);
+			account.setPenaltyDue(BigDecimal.ZERO);
+			account.setInterestRate(new BigDecimal("7.5"));
+			account.setRepaymentInstallments(12);
+			account.setRepaymentPeriodCount(1);
+			account.setRepaymentPeriodUnit(RepaymentPeriodUnit.MONTHS);
+			account.setGracePeriod(0);
+			account.setNotes(makeNotes("Loan account created for the benchmark, number " + i, notesLength));
+			account.setCreationDate(now);
+			account.setApprovedDate(now);
+			account.setDisbursementDate(now);
+			account.setLastModifiedDate(now);
+			accounts.add(account);
+		}
+		return accounts;
+	}
+
+	/**
+	 * Create a page of repayments of a loan account
+	 * 
+	 * @param first
+	 *            index of the first transaction, giving its id
+	 * @param count
+	 *            number of transactions
+	 * @param notesLength
+	 *            length of the transactions' comments or zero for the generated comments
+	 * @return list of loan transactions
+	 */
+	public static List<LoanTransaction> makeLoanTransactions(int first, int count, int notesLength) {
+
+		List<LoanTransaction> transactions = new ArrayList<LoanTransaction>(count);
+		Date now = new Date();
+		for (int i = first; i < first + count; i++) {
+			LoanTransaction transaction = new LoanTransaction();
+			transaction.setTransactionId(Long.valueOf(1000000 + i));
+			transaction.setEncodedKey(makeEncodedKey(3, i));
+			transaction.setParentAccountKey(makeEncodedKey(2, 0));
+			transaction.setType(LoanTransactionType.REPAYMENT);
+			transaction.setAmount(new Money(281.25));
+			transaction.setBalance(new Money(5000 - 250 * (i % 20)));
+			transaction.setPrincipalAmount(new BigDecimal(250));
+			transaction.setInterestAmount(new BigDecimal("31.25"));
+			transaction.setFeesAmount(BigDecimal.ZERO);
+			transaction.setPenaltyAmount(BigDecimal.ZERO);
+			transaction.setBranchKey(BRANCH_KEY);
+			transaction.setUserKey(USER_KEY);
+			transaction.setComment(makeNotes("Repayment number " + i, notesLength));
+			transaction.setCreationDate(now);
+			transaction.setEntryDate(now);
+			transactions.add(transaction);
+		}
+		return transactions;
+	}
+
+	/**
+	 * Create a page of active savings accounts of the generated clients
+	 * 
+	 * @param first
+	 *            index of the first account, giving its id
+	 * @param count
+	 *            number of accounts
+	 * @param notesLength
+	 *            length of the accounts' notes or zero for the generated notes
+	 * @return list of savings accounts
+	 */
+	public static List<SavingsAccount> makeSavingsAccounts(int first, int count, int notesLength) {
+
+		List<SavingsAccount> accounts = new ArrayList<SavingsAccount>(count);
+		Date now = new Date();
+		for (int i = first; i < first + count; i++) {
+			SavingsAccount account = new SavingsAccount();
+			account.setId("S" + (100000 + i));
+			account.setName("Savings account");
+			account.setAccountHolderKey(makeEncodedKey(1, i));
+			account.setAccountHolderType(AccountHolderType.CLIENT);
+			account.setAccountState(AccountState.ACTIVE);
+			account.setAccountType(SavingsType.REGULAR_SAVINGS);
+			account.setProductTypeKey(SAVINGS_PRODUCT_KEY);
+			account.setAssignedBranchKey(BRANCH_KEY);
+			account.setAssignedUserKey(USER_KEY);
+			account.setBalance(new Money(1000 + 10 * (i % 100)));
+			account.setNotes(makeNotes("Savings account created for the benchmark, number " + i, notesLength));
+			account.setCreationDate(now);
+			account.setActivationDate(now);
+			account.setLastModifiedDate(now);
+			accounts.add(account);
+		}
+		return accounts;
+	}
+
+	/**
+	 * Create a page of deposits to a savings account
+	 * 
+	 * @param first
+	 *            index of the first transaction
+	 * @param count
+	 *            number of transactions
+	 * @param notesLength
+	 *            length of the transactions' comments or zero for the generated comments
+	 * @return list of savings transactions
+	 */
+	public static List<SavingsTransaction> makeSavingsTransactions(int first, int count, int notesLength) {
+
+		List<SavingsTransaction> transactions = new ArrayList<SavingsTransaction>(count);
+		Date now = new Date();
+		for (int i = first; i < first + count; i++) {
+			SavingsTransaction transaction = new SavingsTransaction();
+			transaction.setParentAccountKey(makeEncodedKey(4, 0));
+			transaction.setType(SavingsTransactionType.DEPOSIT);
+			transaction.setAmount(new Money(100));
+			transaction.setBalance(new Money(1000 + 100 * i));
+			transaction.setBranchKey(BRANCH_KEY);
+			transaction.setUserKey(USER_KEY);
+			transaction.setComment(makeNotes("Deposit number " + i, notesLength));
+			transaction.setCreationDate(now);
+			transaction.setEntryDate(now);
+			transactions.add(transaction);
+		}
+		return transactions;
+	}
+
+	/**
+	 * Create the results of a search, as returned by GET api/search
+	 * 
+	 * @param query
+	 *            search query, used as the results' display string
+	 * @param limit
+	 *            number of results of each type
+	 * @return search results by type
+	 */
+	public static Map<SearchResult.Type, List<SearchResult>> makeSearchResults(String query, int limit) {
+
+		Map<SearchResult.Type, List<SearchResult>> results = new LinkedHashMap<SearchResult.Type, List<SearchResult>>();
+		SearchResult.Type[] types = { SearchResult.Type.CLIENT, SearchResult.Type.LOAN_ACCOUNT,
+				SearchResult.Type.SAVINGS_ACCOUNT };
+		for (int t = 0; t < types.length; t++) {
+			List<SearchResult> list = new ArrayList<SearchResult>(limit);
+			for (int i = 0; i < limit; i++) {
+				list.add(new SearchResult(types[t], String.valueOf(100000 + i), makeEncodedKey(t + 1, i), query + " "
+						+ i));
+			}
+			results.put(types[t], list);
+		}
+		return results;
+	}
+
+	/**
+	 * Create the response for a document or image download: a JSON string with the base64 encoded content, e.g.
+	 * "data:application/pdf;base64,JVBERi0..."
+	 * 
+	 * @param size
+	 *            size of the content in bytes, before the encoding
+	 * @return JSON string
+	 */
+	public static String makeDocumentJson(int size) {
+
+		byte[] content = new byte[size];
+		new Random(size).nextBytes(content);
+		return "\"data:application/pdf;base64," + new String(Base64.encodeBase64(content, false)) + "\"";
+	}
+
+	/**
+	 * Create the JSON response for a list of clients, as returned by GET api/clients
+	 * 
+	 * @param count
+	 *            number of clients
+	 * @return JSON string
+	 */
+	public static String makeClientsJson(int count) {
+		return GsonUtils.createGson().toJson(makeClients(count));
+	}
+
+	/**
+	 * Create the JSON response for a successful DELETE or PATCH request
+	 * 
+	 * @return JSON string
+	 */
+	public static String makeSuccessMessageJson() {
+		return "{\"returnCode\":0,\"returnStatus\":\"SUCCESS\"}";
+	}
+
+	private static String makeEncodedKey(int entityType, int index) {
+		String suffix = Integer.toHexString(entityType) + Integer.toHexString(0x1000000 + index);
+		return "8a33ad2c3c3c4b34013c3ca1" + suffix.substring(suffix.length() - 8);
+	}
+
+	private static String makeNotes(String notes, int length) {
+		if (notes.length() >= length) {
+			return notes;
+		}
+		StringBuilder padded = new StringBuilder(length).append(notes).append(' ');
+		while (padded.length() < length) {
+			padded.append((char) ('a' + padded.length() % 26));
+		}
+		return padded.toString();
+	}
+}
@@ -0,0 +1,66 @@
+package com.mambu.apisdk.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.codec.binary.Base64;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mambu.api.server.handler.documents.model.JSONDocument;
+import com.mambu.apisdk.util.ParamsMap;
+import com.mambu.apisdk.util.ServiceHelper;
+import com.mambu.docs.shared.model.Document;
+import com.mambu.docs.shared.model.OwnerType;
+
+/**
+ * Measures creating the params for uploading a document whose base64 encoded content is held in memory. The JSON
+ * string of the request is as large as the encoded content, so the allocation rate reported by "-prof gc" shows the
+ * copies made of the content
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx1g")
+public class DocumentJsonBenchmark {
+
+	// Size of the document before the base64 encoding
+	@Param({ "65536", "1048576", "8388608" })
+	public int documentSize;
+
+	private JSONDocument jsonDocument;
+
+	@Setup
+	public void setUp() {
+
+		Document document = new Document();
+		document.setName("contract");
+		document.setOriginalFilename("contract.pdf");
+		document.setType("pdf");
+		document.setDocumentHolderKey("8a33ad2c3c3c4b34013c3ca121000000");
+		document.setDocumentHolderType(OwnerType.LOAN_ACCOUNT);
+
+		byte[] content = new byte[documentSize];
+		new Random(documentSize).nextBytes(content);
+
+		jsonDocument = new JSONDocument();
+		jsonDocument.setDocument(document);
+		jsonDocument.setDocumentContent(new String(Base64.encodeBase64(content, false)));
+	}
+
+	@Benchmark
+	public ParamsMap makeParamsForDocumentJson() {
+		return ServiceHelper.makeParamsForDocumentJson(jsonDocument);
+	}
+}
@@ -0,0 +1,89 @@
+package com.mambu.apisdk.benchmarks;
+
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.reflect.TypeToken;
+import com.mambu.apisdk.exception.MambuApiResponseMessage;
+import com.mambu.apisdk.util.GsonUtils;
+import com.mambu.clients.shared.model.Client;
+
+/**
+ * Compares creating a new Gson instance for every conversion (as GsonUtils did before caching its instances) with using
+ * the cached instance returned by GsonUtils.createGson(). Run with "-prof gc" to see the allocation rate per operation
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GsonBenchmark {
+
+	private static final Type clientListType = new TypeToken<List<Client>>() {
+	}.getType();
+
+	// Number of clients in the response
+	@Param({ "1", "50" })
+	public int clients;
+
+	private String clientsJson;
+	private String messageJson;
+	private MambuApiResponseMessage message;
+
+	@Setup
+	public void setUp() {
+		clientsJson = BenchmarkData.makeClientsJson(clients);
+		messageJson = BenchmarkData.makeSuccessMessageJson();
+		message = new MambuApiResponseMessage(0, "SUCCESS", "");
+	}
+
+	private static Gson newGson() {
+		return new GsonBuilder().setDateFormat(GsonUtils.defaultDateTimeFormat).create();
+	}
+
+	@Benchmark
+	public List<Client> clientsNewGson() {
+		return newGson().fromJson(clientsJson, clientListType);
+	}
+
+	@Benchmark
+	public List<Client> clientsCachedGson() {
+		return GsonUtils.createGson().fromJson(clientsJson, clientListType);
+	}
+
+	@Benchmark
+	public MambuApiResponseMessage parseMessageNewGson() {
+		return newGson().fromJson(messageJson, MambuApiResponseMessage.class);
+	}
+
+	@Benchmark
+	public MambuApiResponseMessage parseMessageCachedGson() {
+		return GsonUtils.createGson().fromJson(messageJson, MambuApiResponseMessage.class);
+	}
+
+	@Benchmark
+	public String toJsonNewGson() {
+		return newGson().toJson(message, MambuApiResponseMessage.class);
+	}
+
+	@Benchmark
+	public String toJsonCachedGson() {
+		return GsonUtils.createGson().toJson(message, MambuApiResponseMessage.class);
+	}
+}
@@ -0,0 +1,77 @@
+package com.mambu.apisdk.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mambu.apisdk.util.ApiDefinition;
+import com.mambu.apisdk.util.ApiDefinition.ApiType;
+import com.mambu.apisdk.util.ApiResponseReader;
+import com.mambu.apisdk.util.GsonUtils;
+import com.mambu.clients.shared.model.Client;
+import com.mambu.loans.shared.model.LoanAccount;
+import com.mambu.loans.shared.model.LoanTransaction;
+import com.mambu.savings.shared.model.SavingsTransaction;
+
+/**
+ * Measures decoding the list responses of the most used entities, as the SDK does it: with ApiResponseReader, from a
+ * reader for the response bytes. Run with "-prof gc" to see the allocation rate per decoded response
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonDecodingBenchmark {
+
+	@Param({ "clients", "loanAccounts", "loanTransactions", "savingsTransactions" })
+	public String entities;
+
+	// Number of entities in the response. 50 is the default page size of the Mambu API
+	@Param({ "1", "50" })
+	public int count;
+
+	private ApiDefinition apiDefinition;
+	private byte[] response;
+
+	@Setup
+	public void setUp() throws IOException {
+
+		List<?> list;
+		if ("clients".equals(entities)) {
+			apiDefinition = new ApiDefinition(ApiType.GET_LIST, Client.class);
+			list = BenchmarkData.makeClients(0, count, 0);
+		} else if ("loanAccounts".equals(entities)) {
+			apiDefinition = new ApiDefinition(ApiType.GET_LIST, LoanAccount.class);
+			list = BenchmarkData.makeLoanAccounts(0, count, 0);
+		} else if ("loanTransactions".equals(entities)) {
+			apiDefinition = new ApiDefinition(ApiType.GET_LIST, LoanTransaction.class);
+			list = BenchmarkData.makeLoanTransactions(0, count, 0);
+		} else {
+			apiDefinition = new ApiDefinition(ApiType.GET_LIST, SavingsTransaction.class);
+			list = BenchmarkData.makeSavingsTransactions(0, count, 0);
+		}
+		response = GsonUtils.createGson().toJson(list).getBytes("UTF-8");
+	}
+
+	@Benchmark
+	public List<?> decode() throws IOException {
+		return ApiResponseReader.readResponse(new InputStreamReader(new ByteArrayInputStream(response), "UTF-8"),
+				apiDefinition);
+	}
+}
@@ -0,0 +1,101 @@
+package com.mambu.apisdk.benchmarks;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mambu.apisdk.MambuAPIService;
+import com.mambu.apisdk.exception.MambuApiException;
+import com.mambu.apisdk.util.APIData;
+import com.mambu.apisdk.util.ApiDefinition;
+import com.mambu.apisdk.util.ApiDefinition.ApiType;
+import com.mambu.apisdk.util.AsyncExecutionSettings;
+import com.mambu.apisdk.util.AsyncExecutor;
+import com.mambu.apisdk.util.ParamsMap;
+import com.mambu.apisdk.util.RequestExecutorImpl;
+import com.mambu.apisdk.util.ServiceExecutor;
+import com.mambu.apisdk.util.URLHelper;
+import com.mambu.clients.shared.model.Client;
+import com.mambu.loans.shared.model.LoanAccount;
+import com.mambu.loans.shared.model.LoanTransaction;
+
+/**
+ * Measures the full ServiceExecutor.execute() round trip against a local StubServer answering without latency: creating
+ * the URL, sending the request, and reading and decoding the response. Run with "-prof gc" to see the allocation rate
+ * per API call
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ServiceExecutorBenchmark {
+
+	// Request and response logging would dominate the measurements. Responses are decoded from the stream at the
+	// default INFO level too, so turning logging off leaves out only the log output
+	private static final Logger sdkLogger = Logger.getLogger("com.mambu.apisdk");
+
+	private final ApiDefinition getClient = new ApiDefinition(ApiType.GET_ENTITY, Client.class);
+	private final ApiDefinition getClients = new ApiDefinition(ApiType.GET_LIST, Client.class);
+	private final ApiDefinition getLoanTransactions = new ApiDefinition(ApiType.GET_OWNED_ENTITIES, LoanAccount.class,
+			LoanTransaction.class);
+
+	private StubServer server;
+	private RequestExecutorImpl executor;
+	private AsyncExecutor asyncExecutor;
+	private ServiceExecutor serviceExecutor;
+	private ParamsMap pageParams;
+
+	@Setup
+	public void setUp() throws IOException {
+		sdkLogger.setLevel(Level.WARNING);
+
+		server = new StubServer(new StubServerSettings(0L, 4));
+		URLHelper urlHelper = server.createUrlHelper();
+		executor = new RequestExecutorImpl(urlHelper);
+		asyncExecutor = new AsyncExecutor(new AsyncExecutionSettings());
+		serviceExecutor = new ServiceExecutor(new MambuAPIService("127.0.0.1", "user", "password", executor,
+				urlHelper, asyncExecutor));
+
+		pageParams = new ParamsMap();
+		pageParams.addParam(APIData.OFFSET, "0");
+		pageParams.addParam(APIData.LIMIT, "50");
+	}
+
+	@TearDown
+	public void tearDown() {
+		asyncExecutor.shutdown();
+		executor.shutdown();
+		server.stop();
+	}
+
+	@Benchmark
+	public Client getClient() throws MambuApiException {
+		return serviceExecutor.execute(getClient, "100001");
+	}
+
+	@Benchmark
+	public List<Client> getClientsPage() throws MambuApiException {
+		return serviceExecutor.execute(getClients, pageParams);
+	}
+
+	@Benchmark
+	public List<LoanTransaction> getLoanTransactionsPage() throws MambuApiException {
+		return serviceExecutor.execute(getLoanTransactions, "L100001", pageParams);
+	}
+}
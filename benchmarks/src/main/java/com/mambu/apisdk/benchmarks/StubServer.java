@@ -0,0 +1,377 @@
+package com.mambu.apisdk.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URLDecoder;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.mambu.apisdk.util.GsonUtils;
+import com.mambu.apisdk.util.URLHelper;
+import com.mambu.clients.shared.model.Client;
+import com.mambu.clients.shared.model.ClientExpanded;
+import com.mambu.docs.shared.model.Document;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Local HTTP server standing in for a Mambu tenant. Used by the benchmarks to exercise the HTTP transport, the retries
+ * and the throughput of the SDK without a sandbox. The server answers the API endpoints of the clients, loan and
+ * savings accounts, their transactions, documents, images and search with generated JSON:
+ *
+ * <pre>
+ * GET clients, loans, savings                    a page of the entities, honouring the offset and limit params
+ * GET clients/{id}/loans, clients/{id}/savings   a page of the client's accounts
+ * GET loans/{id}/transactions, savings/{id}/transactions, loans/transactions, savings/transactions
+ * GET clients/{id}, loans/{id}, savings/{id}     the entity
+ * GET documents/{id}, images/{key}               the base64 encoded content
+ * GET search                                     the results for the query and limit params
+ * POST, PUT                                      the created or updated entity
+ * PATCH, DELETE                                  a success message
+ * </pre>
+ *
+ * Lists have StubServerSettings.getEntityCount() entities, so paging through them ends. The generated responses are
+ * cached: the server side cost of a request is the latency only. The latency, the failed and throttled requests and
+ * the payload sizes are configured with StubServerSettings, which must not be changed while the server runs
+ */
+public class StubServer {
+
+	static {
+		// The server writes the headers and the body separately. Without TCP_NODELAY small responses are delayed by
+		// the Nagle's algorithm, hiding the client side costs the benchmarks measure
+		System.setProperty("sun.net.httpserver.nodelay", "true");
+	}
+
+	private static final String API_PATH = "/api/";
+
+	private static final byte[] SUCCESS = BenchmarkData.makeSuccessMessageJson().getBytes();
+	private static final byte[] NOT_FOUND = "{\"returnCode\":-1,\"returnStatus\":\"INVALID_API_OPERATION\"}"
+			.getBytes();
+	private static final byte[] SERVER_ERROR = "{\"returnCode\":-1,\"returnStatus\":\"INTERNAL_SERVER_ERROR\"}"
+			.getBytes();
+	private static final byte[] TOO_MANY_REQUESTS = "{\"returnCode\":-1,\"returnStatus\":\"TOO_MANY_REQUESTS\"}"
+			.getBytes();
+
+	private final StubServerSettings settings;
+	private final HttpServer server;
+	private final ExecutorService executor;
+
+	// Generated responses by request
+	private final ConcurrentMap<String, byte[]> responses = new ConcurrentHashMap<String, byte[]>();
+
+	private final AtomicLong requests = new AtomicLong();
+	private final AtomicLong failedRequests = new AtomicLong();
+	private final AtomicLong throttledRequests = new AtomicLong();
+
+	/**
+	 * Start the server on a free local port
+	 *
+	 * @param settings
+	 *            server settings
+	 */
+	public StubServer(StubServerSettings settings) throws IOException {
+
+		if (settings == null) {
+			throw new IllegalArgumentException("Settings must not be null");
+		}
+		this.settings = settings;
+		// The backlog accepts a connection per thread, so that many concurrent connects are not refused
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), settings.getThreads());
+		server.createContext(API_PATH, new HttpHandler() {
+
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				try {
+					respond(exchange);
+				} finally {
+					exchange.close();
+				}
+			}
+		});
+		executor = Executors.newFixedThreadPool(settings.getThreads());
+		server.setExecutor(executor);
+		server.start();
+	}
+
+	/**
+	 * Get the base URL of the server's API endpoint, e.g. http://127.0.0.1:12345/api/
+	 */
+	public String getApiUrl() {
+		return "http://127.0.0.1:" + server.getAddress().getPort() + API_PATH;
+	}
+
+	/**
+	 * Create a URLHelper for the server. URLHelper creates https URLs for the tenant's domain, the server accepts plain
+	 * http requests
+	 *
+	 * @return URL helper creating the URLs of the server's API endpoint
+	 */
+	public URLHelper createUrlHelper() {
+
+		final int port = server.getAddress().getPort();
+		return new URLHelper("127.0.0.1:" + port) {
+
+			@Override
+			public String createUrl(String details) {
+				details = details == null ? "" : details;
+				try {
+					return new URI("http", null, "127.0.0.1", port, API_PATH + details, null, null).toString();
+				} catch (URISyntaxException e) {
+					throw new IllegalArgumentException("Invalid url details=" + details, e);
+				}
+			}
+		};
+	}
+
+	/**
+	 * Get the number of the requests received, including the failed and throttled ones
+	 */
+	public long getRequests() {
+		return requests.get();
+	}
+
+	/**
+	 * Get the number of the requests failed with 500
+	 */
+	public long getFailedRequests() {
+		return failedRequests.get();
+	}
+
+	/**
+	 * Get the number of the requests throttled with 429
+	 */
+	public long getThrottledRequests() {
+		return throttledRequests.get();
+	}
+
+	public StubServerSettings getSettings() {
+		return settings;
+	}
+
+	public void stop() {
+		server.stop(0);
+		executor.shutdownNow();
+	}
+
+	private void respond(HttpExchange exchange) throws IOException {
+
+		requests.incrementAndGet();
+		drain(exchange.getRequestBody());
+
+		Random random = ThreadLocalRandom.current();
+		if (settings.getThrottleRate() > 0.0 && random.nextDouble() < settings.getThrottleRate()) {
+			throttledRequests.incrementAndGet();
+			exchange.getResponseHeaders().set("Retry-After", String.valueOf(settings.getRetryAfterSeconds()));
+			send(exchange, 429, TOO_MANY_REQUESTS);
+			return;
+		}
+		long latencyMillis = getLatencyMillis(random);
+		if (latencyMillis > 0) {
+			try {
+				Thread.sleep(latencyMillis);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+		if (settings.getErrorRate() > 0.0 && random.nextDouble() < settings.getErrorRate()) {
+			failedRequests.incrementAndGet();
+			send(exchange, 500, SERVER_ERROR);
+			return;
+		}
+
+		String method = exchange.getRequestMethod();
+		String path = exchange.getRequestURI().getPath().substring(API_PATH.length());
+		Map<String, String> params = getParams(exchange.getRequestURI().getRawQuery());
+
+		String key = method + " " + path + "?" + params;
+		byte[] response = responses.get(key);
+		if (response == null) {
+			response = makeResponse(method, path.split("/"), params);
+			if (response != null) {
+				responses.putIfAbsent(key, response);
+			}
+		}
+		if (response == null) {
+			send(exchange, 404, NOT_FOUND);
+		} else {
+			send(exchange, 200, response);
+		}
+	}
+
+	/**
+	 * Generate the response of a request
+	 *
+	 * @return the response or null if the server has no such endpoint
+	 */
+	private byte[] makeResponse(String method, String[] path, Map<String, String> params) {
+
+		if ("PATCH".equals(method) || "DELETE".equals(method)) {
+			return SUCCESS;
+		}
+		boolean isGet = "GET".equals(method);
+		String resource = path[0];
+		int notesLength = settings.getNotesLength();
+
+		if ("search".equals(resource) && path.length == 1 && isGet) {
+			int limit = getIntParam(params, "limit", settings.getDefaultPageSize());
+			return toJson(BenchmarkData.makeSearchResults(params.get("query"), limit));
+		}
+		if (("documents".equals(resource) || "images".equals(resource)) && path.length == 2 && isGet) {
+			return toJsonBytes(BenchmarkData.makeDocumentJson(settings.getDocumentSize()));
+		}
+		if ("documents".equals(resource) && path.length == 1) {
+			Document document = new Document();
+			document.setName("document");
+			document.setOriginalFilename("document.pdf");
+			document.setType("pdf");
+			document.setFileSize(Long.valueOf(settings.getDocumentSize()));
+			return toJson(document);
+		}
+
+		// Entities of the clients, loans and savings resources. The last collection in the path gives the entity type
+		String collection;
+		String id = null;
+		if (path.length == 1) {
+			collection = resource;
+		} else if (path.length == 2 && "transactions".equals(path[1])) {
+			collection = resource + "/transactions";
+		} else if (path.length == 2) {
+			collection = resource;
+			id = path[1];
+		} else if (path.length == 3 && "clients".equals(resource)) {
+			collection = path[2];
+		} else if (path.length == 3) {
+			collection = resource + "/" + path[2];
+		} else {
+			return null;
+		}
+		boolean isList = isGet && id == null;
+		int first = 0;
+		int count = 1;
+		if (isList) {
+			first = getIntParam(params, "offset", 0);
+			int limit = getIntParam(params, "limit", settings.getDefaultPageSize());
+			count = Math.max(0, Math.min(limit, settings.getEntityCount() - first));
+		} else if (id != null) {
+			first = getIndex(id);
+		}
+
+		List<?> entities;
+		if ("clients".equals(collection)) {
+			List<Client> clients = BenchmarkData.makeClients(first, count, notesLength);
+			if (!isGet) {
+				// Clients are created and updated as ClientExpanded
+				return toJson(new ClientExpanded(clients.get(0)));
+			}
+			entities = clients;
+		} else if ("loans".equals(collection)) {
+			entities = BenchmarkData.makeLoanAccounts(first, count, notesLength);
+		} else if ("savings".equals(collection)) {
+			entities = BenchmarkData.makeSavingsAccounts(first, count, notesLength);
+		} else if ("loans/transactions".equals(collection)) {
+			entities = BenchmarkData.makeLoanTransactions(first, count, notesLength);
+		} else if ("savings/transactions".equals(collection)) {
+			entities = BenchmarkData.makeSavingsTransactions(first, count, notesLength);
+		} else {
+			return null;
+		}
+		return isList ? toJson(entities) : toJson(entities.get(0));
+	}
+
+	private long getLatencyMillis(Random random) {
+
+		long latencyMillis = settings.getLatencyMillis();
+		switch (settings.getLatencyDistribution()) {
+		case UNIFORM:
+			return (long) (random.nextDouble() * 2 * latencyMillis);
+		case EXPONENTIAL:
+			return (long) (-Math.log(1.0 - random.nextDouble()) * latencyMillis);
+		default:
+			return latencyMillis;
+		}
+	}
+
+	/**
+	 * Get the index of the generated entity for an id. The ids of the generated entities end with 100000 + index, other
+	 * ids are mapped to the index given by their digits
+	 */
+	private static int getIndex(String id) {
+		String digits = id.replaceAll("\\D", "");
+		if (digits.length() == 0) {
+			return 0;
+		}
+		try {
+			return (int) (Long.parseLong(digits) % 100000L);
+		} catch (NumberFormatException e) {
+			return 0;
+		}
+	}
+
+	private static int getIntParam(Map<String, String> params, String name, int defaultValue) {
+		String value = params.get(name);
+		if (value == null) {
+			return defaultValue;
+		}
+		try {
+			return Math.max(0, Integer.parseInt(value));
+		} catch (NumberFormatException e) {
+			return defaultValue;
+		}
+	}
+
+	private static Map<String, String> getParams(String query) throws IOException {
+		Map<String, String> params = new HashMap<String, String>();
+		if (query == null) {
+			return params;
+		}
+		for (String param : query.split("&")) {
+			int index = param.indexOf('=');
+			if (index > 0) {
+				params.put(URLDecoder.decode(param.substring(0, index), "UTF-8"),
+						URLDecoder.decode(param.substring(index + 1), "UTF-8"));
+			}
+		}
+		return params;
+	}
+
+	private static byte[] toJson(Object object) {
+		return toJsonBytes(GsonUtils.createGson().toJson(object));
+	}
+
+	private static byte[] toJsonBytes(String json) {
+		try {
+			return json.getBytes("UTF-8");
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static void send(HttpExchange exchange, int status, byte[] content) throws IOException {
+		exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+		exchange.sendResponseHeaders(status, content.length);
+		OutputStream body = exchange.getResponseBody();
+		body.write(content);
+		body.close();
+	}
+
+	private static void drain(InputStream input) throws IOException {
+		byte[] buffer = new byte[4096];
+		while (input.read(buffer) != -1) {
+		}
+		input.close();
+	}
+}
@@ -0,0 +1,180 @@
+package com.mambu.apisdk.benchmarks;
+
+/**
+ * Settings of a StubServer: the latency of its responses, the share of the requests failed or throttled, and the size
+ * of the generated payloads. The defaults answer every request immediately and successfully
+ */
+public class StubServerSettings {
+
+	/**
+	 * Distribution of the response latency
+	 */
+	public enum LatencyDistribution {
+		// Every response is delayed by the latency
+		FIXED,
+		// Uniformly distributed between zero and twice the latency
+		UNIFORM,
+		// Exponentially distributed with the latency as mean, giving a long tail of slow responses
+		EXPONENTIAL
+	}
+
+	// Number of threads handling the requests. Each delayed response occupies a thread
+	private int threads = 16;
+
+	private long latencyMillis = 0L;
+	private LatencyDistribution latencyDistribution = LatencyDistribution.FIXED;
+
+	// Share of the requests failed with 500 and throttled with 429, between 0 and 1
+	private double errorRate = 0.0;
+	private double throttleRate = 0.0;
+	private int retryAfterSeconds = 1;
+
+	// Number of the entities in each list, and the page size when the request has no limit param (as in Mambu)
+	private int entityCount = 50;
+	private int defaultPageSize = 50;
+	// Length of the entities' notes, to grow the payloads. Zero keeps the generated notes
+	private int notesLength = 0;
+	// Size of the downloaded documents and images in bytes, before the base64 encoding
+	private int documentSize = 64 * 1024;
+
+	public StubServerSettings() {
+	}
+
+	/**
+	 * Create settings for responses with a fixed latency
+	 *
+	 * @param latencyMillis
+	 *            delay before each response is sent
+	 * @param threads
+	 *            number of threads handling the requests. Must be at least the number of concurrent requests
+	 */
+	public StubServerSettings(long latencyMillis, int threads) {
+		setLatencyMillis(latencyMillis);
+		setThreads(threads);
+	}
+
+	public int getThreads() {
+		return threads;
+	}
+
+	public void setThreads(int threads) {
+		if (threads <= 0) {
+			throw new IllegalArgumentException("Threads must be greater than zero");
+		}
+		this.threads = threads;
+	}
+
+	public long getLatencyMillis() {
+		return latencyMillis;
+	}
+
+	/**
+	 * Set the latency of the responses, the mean of the latency distribution
+	 */
+	public void setLatencyMillis(long latencyMillis) {
+		if (latencyMillis < 0) {
+			throw new IllegalArgumentException("Latency must not be negative");
+		}
+		this.latencyMillis = latencyMillis;
+	}
+
+	public LatencyDistribution getLatencyDistribution() {
+		return latencyDistribution;
+	}
+
+	public void setLatencyDistribution(LatencyDistribution latencyDistribution) {
+		if (latencyDistribution == null) {
+			throw new IllegalArgumentException("Latency distribution must not be null");
+		}
+		this.latencyDistribution = latencyDistribution;
+	}
+
+	public double getErrorRate() {
+		return errorRate;
+	}
+
+	/**
+	 * Set the share of the requests failed with 500 after the latency
+	 */
+	public void setErrorRate(double errorRate) {
+		this.errorRate = checkRate(errorRate);
+	}
+
+	public double getThrottleRate() {
+		return throttleRate;
+	}
+
+	/**
+	 * Set the share of the requests throttled with 429 and a Retry-After header. Throttled requests are answered
+	 * immediately
+	 */
+	public void setThrottleRate(double throttleRate) {
+		this.throttleRate = checkRate(throttleRate);
+	}
+
+	public int getRetryAfterSeconds() {
+		return retryAfterSeconds;
+	}
+
+	public void setRetryAfterSeconds(int retryAfterSeconds) {
+		if (retryAfterSeconds < 0) {
+			throw new IllegalArgumentException("Retry-After must not be negative");
+		}
+		this.retryAfterSeconds = retryAfterSeconds;
+	}
+
+	public int getEntityCount() {
+		return entityCount;
+	}
+
+	/**
+	 * Set the number of the entities in each list. Lists are returned in pages, so paging through a list ends after
+	 * this number of entities
+	 */
+	public void setEntityCount(int entityCount) {
+		if (entityCount < 0) {
+			throw new IllegalArgumentException("Entity count must not be negative");
+		}
+		this.entityCount = entityCount;
+	}
+
+	public int getDefaultPageSize() {
+		return defaultPageSize;
+	}
+
+	public void setDefaultPageSize(int defaultPageSize) {
+		if (defaultPageSize <= 0) {
+			throw new IllegalArgumentException("Page size must be greater than zero");
+		}
+		this.defaultPageSize = defaultPageSize;
+	}
+
+	public int getNotesLength() {
+		return notesLength;
+	}
+
+	public void setNotesLength(int notesLength) {
+		if (notesLength < 0) {
+			throw new IllegalArgumentException("Notes length must not be negative");
+		}
+		this.notesLength = notesLength;
+	}
+
+	public int getDocumentSize() {
+		return documentSize;
+	}
+
+	public void setDocumentSize(int documentSize) {
+		if (documentSize < 0) {
+			throw new IllegalArgumentException("Document size must not be negative");
+		}
+		this.documentSize = documentSize;
+	}
+
+	private static double checkRate(double rate) {
+		if (rate < 0.0 || rate > 1.0) {
+			throw new IllegalArgumentException("Rate must be between 0 and 1");
+		}
+		return rate;
+	}
+}
@@ -0,0 +1,130 @@
+package com.mambu.apisdk.benchmarks;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mambu.apisdk.MambuAPIService;
+import com.mambu.apisdk.exception.MambuApiException;
+import com.mambu.apisdk.util.ApiDefinition;
+import com.mambu.apisdk.util.ApiDefinition.ApiType;
+import com.mambu.apisdk.util.AsyncExecutionSettings;
+import com.mambu.apisdk.util.AsyncExecutor;
+import com.mambu.apisdk.util.ConnectionPoolSettings;
+import com.mambu.apisdk.util.NonBlockingRequestExecutor;
+import com.mambu.apisdk.util.RequestExecutor;
+import com.mambu.apisdk.util.RequestExecutorImpl;
+import com.mambu.apisdk.util.URLHelper;
+import com.mambu.clients.shared.model.Client;
+
+/**
+ * Compares the blocking RequestExecutorImpl with the NonBlockingRequestExecutor against a local stub server. The
+ * concurrent benchmarks send a batch of asynchronous requests and wait for all of them: the blocking executor needs a
+ * thread per request in flight, the non-blocking one sends them all from its I/O dispatch threads. The highly
+ * concurrent benchmark keeps HIGH_CONCURRENCY requests in flight, where the threads of the blocking executor dominate.
+ * Run with "-prof gc" to compare the allocation rate per request
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransportBenchmark {
+
+	// Number of requests in flight for the concurrent and the highly concurrent benchmarks
+	private static final int CONCURRENCY = 32;
+	private static final int HIGH_CONCURRENCY = 1024;
+
+	// Request and response logging would dominate the measurements
+	private static final Logger sdkLogger = Logger.getLogger("com.mambu.apisdk");
+
+	@Param({ "blocking", "nonBlocking" })
+	public String transport;
+
+	// Server side latency of each response
+	@Param({ "0", "20" })
+	public long latencyMillis;
+
+	private final ApiDefinition getClients = new ApiDefinition(ApiType.GET_LIST, Client.class);
+
+	private StubServer server;
+	private RequestExecutor executor;
+	private AsyncExecutor asyncExecutor;
+	private MambuAPIService service;
+	private String clientsUrl;
+
+	@Setup
+	public void setUp() throws IOException {
+		sdkLogger.setLevel(Level.WARNING);
+
+		StubServerSettings serverSettings = new StubServerSettings(latencyMillis, HIGH_CONCURRENCY + 4);
+		serverSettings.setEntityCount(10);
+		server = new StubServer(serverSettings);
+		clientsUrl = server.getApiUrl() + "clients";
+
+		URLHelper urlHelper = new URLHelper("127.0.0.1");
+		ConnectionPoolSettings poolSettings = new ConnectionPoolSettings(HIGH_CONCURRENCY, HIGH_CONCURRENCY);
+		if ("blocking".equals(transport)) {
+			executor = new RequestExecutorImpl(urlHelper, poolSettings);
+		} else {
+			executor = new NonBlockingRequestExecutor(urlHelper, poolSettings);
+		}
+		asyncExecutor = new AsyncExecutor(new AsyncExecutionSettings(HIGH_CONCURRENCY, HIGH_CONCURRENCY));
+		service = new MambuAPIService("127.0.0.1", "user", "password", executor, urlHelper, asyncExecutor);
+	}
+
+	@TearDown
+	public void tearDown() {
+		asyncExecutor.shutdown();
+		executor.shutdown();
+		server.stop();
+	}
+
+	@Benchmark
+	public List<Client> singleRequest() throws MambuApiException {
+		return service.executeRequest(clientsUrl, null, getClients);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(CONCURRENCY)
+	public int concurrentRequests() throws Exception {
+		return sendConcurrently(CONCURRENCY);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(HIGH_CONCURRENCY)
+	public int highlyConcurrentRequests() throws Exception {
+		return sendConcurrently(HIGH_CONCURRENCY);
+	}
+
+	private int sendConcurrently(int concurrency) throws Exception {
+		List<Future<List<Client>>> futures = new ArrayList<Future<List<Client>>>(concurrency);
+		for (int i = 0; i < concurrency; i++) {
+			futures.add(service.<List<Client>> executeRequestAsync(clientsUrl, null, getClients, null));
+		}
+		int received = 0;
+		for (Future<List<Client>> future : futures) {
+			received += future.get().size();
+		}
+		return received;
+	}
+}
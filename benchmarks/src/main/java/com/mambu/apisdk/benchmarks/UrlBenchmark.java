@@ -0,0 +1,70 @@
+package com.mambu.apisdk.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mambu.apisdk.util.APIData;
+import com.mambu.apisdk.util.ParamsMap;
+import com.mambu.apisdk.util.URLHelper;
+
+/**
+ * Measures building the URL of an API request: encoding the request params and creating the URL for the API path,
+ * which the SDK does for every request. Run with "-prof gc" to see the allocation rate per URL
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UrlBenchmark {
+
+	private static final String API_PATH = "loans/L100001/transactions";
+
+	private URLHelper urlHelper;
+	private ParamsMap params;
+	private String url;
+
+	@Setup
+	public void setUp() {
+		urlHelper = new URLHelper("demo.mambu.com");
+
+		// Params of a repayment, with the values needing encoding
+		params = new ParamsMap();
+		params.addParam(APIData.TYPE, APIData.TYPE_REPAYMENT);
+		params.addParam(APIData.AMOUNT, "281.25");
+		params.addParam(APIData.DATE, "2015-02-16");
+		params.addParam(APIData.PAYMENT_METHOD, "CASH");
+		params.addParam(APIData.RECEIPT_NUMBER, "R-100001/2015");
+		params.addParam(APIData.NOTES, "Repayment for February & March, received by Müller");
+		params.addParam(APIData.OFFSET, "0");
+		params.addParam(APIData.LIMIT, "50");
+
+		url = urlHelper.createUrl(API_PATH);
+	}
+
+	@Benchmark
+	public String paramsUrlString() {
+		return params.getURLString();
+	}
+
+	@Benchmark
+	public String createUrl() {
+		return urlHelper.createUrl(API_PATH);
+	}
+
+	@Benchmark
+	public String createUrlWithParams() {
+		return urlHelper.createUrlWithParams(url, params);
+	}
+}
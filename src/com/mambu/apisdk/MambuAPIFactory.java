@@ -1,5 +1,7 @@
 package com.mambu.apisdk;
 
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 import java.util.logging.Logger;
 
 import com.google.inject.Guice;
@@ -17,6 +19,9 @@ import com.mambu.apisdk.services.SavingsService;
 import com.mambu.apisdk.services.SearchService;
 import com.mambu.apisdk.services.TasksService;
 import com.mambu.apisdk.services.UsersService;
+import com.mambu.apisdk.util.AsyncExecutor;
+import com.mambu.apisdk.util.MambuApiCallback;
+import com.mambu.apisdk.util.RequestExecutor;
 
 /**
  * Factory for creating Mambu API Services in a singleton fashion.
@@ -54,7 +59,57 @@ public class MambuAPIFactory {
 	 *            the password used by the user
 	 */
 	public static void setUp(String domain, String username, String password) {
-		injector = Guice.createInjector(new MambuAPIModule(domain, username, password));
+		setUp(new MambuAPIModule(domain, username, password));
+	}
+
+	/***
+	 * Set up the factory with a pre-configured Guice Module. Use this method to specify additional module settings,
+	 * such as the connection pool settings. Services obtained before this call keep using the previous set up, call
+	 * shutdown() first to close its pooled connections if they are no longer needed
+	 * 
+	 * @param module
+	 *            Mambu API module with the data required for accessing the remote server
+	 */
+	public static void setUp(MambuAPIModule module) {
+		if (module == null) {
+			throw new IllegalArgumentException("Module must not be null");
+		}
+		injector = Guice.createInjector(module);
+	}
+
+	/***
+	 * Shut down the factory, closing all pooled connections and stopping the asynchronous execution threads. The
+	 * factory must be set up again before getting services
+	 */
+	public static void shutdown() {
+		if (injector != null) {
+			injector.getInstance(AsyncExecutor.class).shutdown();
+			injector.getInstance(RequestExecutor.class).shutdown();
+			injector = null;
+		}
+	}
+
+	/***
+	 * Execute a service call asynchronously. Any service call can be executed this way, for example:
+	 * 
+	 * MambuAPIFactory.executeAsync(new Callable<LoanAccount>() { public LoanAccount call() throws MambuApiException {
+	 * return loansService.getLoanAccount(accountId); } }, callback);
+	 * 
+	 * The number of calls in flight is limited by the AsyncExecutionSettings of the module used to set up the factory.
+	 * When the limit is reached this method blocks until one of the calls completes
+	 * 
+	 * @param call
+	 *            the service call to execute
+	 * @param callback
+	 *            callback to be notified when the call completes. Can be null
+	 * 
+	 * @return future for the call's result
+	 * 
+	 * @throws MambuApiException
+	 */
+	public static <R> Future<R> executeAsync(Callable<R> call, MambuApiCallback<R> callback) throws MambuApiException {
+		validateFactorySetUp();
+		return injector.getInstance(MambuAPIService.class).executeAsync(call, callback);
 	}
 
 	/***
@@ -3,12 +3,43 @@
  */
 package com.mambu.apisdk;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 import com.google.inject.AbstractModule;
+import com.google.inject.Injector;
+import com.google.inject.Provides;
+import com.google.inject.Singleton;
 import com.mambu.apisdk.model.Domain;
 import com.mambu.apisdk.model.Password;
 import com.mambu.apisdk.model.Username;
+import com.mambu.apisdk.util.AbstractRequestExecutor;
+import com.mambu.apisdk.util.AdaptiveConcurrencyLimiter;
+import com.mambu.apisdk.util.AdaptiveConcurrencyRequestExecutor;
+import com.mambu.apisdk.util.AdaptiveConcurrencySettings;
+import com.mambu.apisdk.util.AsyncExecutionSettings;
+import com.mambu.apisdk.util.AsyncRequestExecutor;
+import com.mambu.apisdk.util.Bulkhead;
+import com.mambu.apisdk.util.BulkheadRequestExecutor;
+import com.mambu.apisdk.util.BulkheadSettings;
+import com.mambu.apisdk.util.CoalescingRequestExecutor;
+import com.mambu.apisdk.util.ConnectionPoolSettings;
+import com.mambu.apisdk.util.HedgePolicy;
+import com.mambu.apisdk.util.HedgingRequestExecutor;
+import com.mambu.apisdk.util.InterceptingRequestExecutor;
+import com.mambu.apisdk.util.MetricsRegistry;
+import com.mambu.apisdk.util.RateLimitSettings;
+import com.mambu.apisdk.util.RateLimiter;
+import com.mambu.apisdk.util.RateLimitingRequestExecutor;
+import com.mambu.apisdk.util.RequestCoalescer;
 import com.mambu.apisdk.util.RequestExecutor;
 import com.mambu.apisdk.util.RequestExecutorImpl;
+import com.mambu.apisdk.util.RequestInterceptor;
+import com.mambu.apisdk.util.ResponseCache;
+import com.mambu.apisdk.util.RetryPolicy;
+import com.mambu.apisdk.util.RetryingRequestExecutor;
+import com.mambu.apisdk.util.TimeoutSettings;
 
 /**
  * Configuration class for the Guice bindings
@@ -22,6 +53,33 @@ public class MambuAPIModule extends AbstractModule {
 	private final String password;
 	private final String domain;
 
+	// Settings for the pool of HTTP connections shared by all services created with this module
+	private ConnectionPoolSettings connectionPoolSettings = new ConnectionPoolSettings();
+	// Connect, socket and request timeouts for the HTTP requests sent by the services created with this module
+	private TimeoutSettings timeoutSettings = new TimeoutSettings();
+	// Settings for the asynchronous requests executed by the services created with this module
+	private AsyncExecutionSettings asyncExecutionSettings = new AsyncExecutionSettings();
+	// Implementation of the RequestExecutor used by the services created with this module
+	private Class<? extends RequestExecutor> requestExecutorClass = RequestExecutorImpl.class;
+	// Policy for retrying failed requests. Null if failed requests are not retried
+	private RetryPolicy retryPolicy;
+	// Client side rate limits for the requests to the domain. Null if the requests are not rate limited
+	private RateLimitSettings rateLimitSettings;
+	// Coalescer for concurrent identical GET requests. Null if requests are not coalesced
+	private RequestCoalescer requestCoalescer;
+	// Cache for the responses to the GET requests. Null if responses are not cached
+	private ResponseCache responseCache;
+	// Concurrency limits per group of requests. Null if the requests are not isolated by bulkheads
+	private BulkheadSettings bulkheadSettings;
+	// Adaptive limit of the concurrent requests to the domain. Null if the concurrency is not limited
+	private AdaptiveConcurrencySettings adaptiveConcurrencySettings;
+	// Policy for hedging slow GET requests. Null if requests are not hedged
+	private HedgePolicy hedgePolicy;
+	// Registry of the request metrics and of the gauges of the decorators. Null if the metrics are not collected
+	private MetricsRegistry metricsRegistry;
+	// Interceptors of the requests, the outermost one first
+	private final List<RequestInterceptor> requestInterceptors = new ArrayList<RequestInterceptor>();
+
 	/***
 	 * Constructor required for setting up the date used for the wrapper to connect to the remote server
 	 * 
@@ -40,6 +98,255 @@ public class MambuAPIModule extends AbstractModule {
 
 	}
 
+	/***
+	 * Set the settings for the pool of HTTP connections used to connect to the remote server. Must be set before the
+	 * module is used to create an injector
+	 * 
+	 * @param connectionPoolSettings
+	 *            connection pool settings
+	 */
+	public void setConnectionPoolSettings(ConnectionPoolSettings connectionPoolSettings) {
+		if (connectionPoolSettings == null) {
+			throw new IllegalArgumentException("Connection pool settings must not be null");
+		}
+		this.connectionPoolSettings = connectionPoolSettings;
+	}
+
+	public ConnectionPoolSettings getConnectionPoolSettings() {
+		return connectionPoolSettings;
+	}
+
+	/***
+	 * Set the timeouts for the HTTP requests: the connect and socket timeouts and the request timeouts per
+	 * ApiDefinition. Must be set before the module is used to create an injector
+	 * 
+	 * @param timeoutSettings
+	 *            timeout settings
+	 */
+	public void setTimeoutSettings(TimeoutSettings timeoutSettings) {
+		if (timeoutSettings == null) {
+			throw new IllegalArgumentException("Timeout settings must not be null");
+		}
+		this.timeoutSettings = timeoutSettings;
+	}
+
+	public TimeoutSettings getTimeoutSettings() {
+		return timeoutSettings;
+	}
+
+	/***
+	 * Set the settings for the asynchronous execution of API requests: the executor and the limit of requests in
+	 * flight. Must be set before the module is used to create an injector
+	 * 
+	 * @param asyncExecutionSettings
+	 *            asynchronous execution settings
+	 */
+	public void setAsyncExecutionSettings(AsyncExecutionSettings asyncExecutionSettings) {
+		if (asyncExecutionSettings == null) {
+			throw new IllegalArgumentException("Async execution settings must not be null");
+		}
+		this.asyncExecutionSettings = asyncExecutionSettings;
+	}
+
+	public AsyncExecutionSettings getAsyncExecutionSettings() {
+		return asyncExecutionSettings;
+	}
+
+	/***
+	 * Set the implementation of the RequestExecutor used to send the API requests to the remote server. The default is
+	 * the RequestExecutorImpl, which blocks the calling thread. Use the NonBlockingRequestExecutor to execute the
+	 * asynchronous requests without a thread per request. Must be set before the module is used to create an injector
+	 * 
+	 * @param requestExecutorClass
+	 *            request executor implementation class
+	 */
+	public void setRequestExecutorClass(Class<? extends RequestExecutor> requestExecutorClass) {
+		if (requestExecutorClass == null) {
+			throw new IllegalArgumentException("Request executor class must not be null");
+		}
+		this.requestExecutorClass = requestExecutorClass;
+	}
+
+	public Class<? extends RequestExecutor> getRequestExecutorClass() {
+		return requestExecutorClass;
+	}
+
+	/***
+	 * Set the policy for retrying failed API requests. By default failed requests are not retried. Must be set before
+	 * the module is used to create an injector
+	 * 
+	 * @param retryPolicy
+	 *            retry policy
+	 */
+	public void setRetryPolicy(RetryPolicy retryPolicy) {
+		if (retryPolicy == null) {
+			throw new IllegalArgumentException("Retry policy must not be null");
+		}
+		this.retryPolicy = retryPolicy;
+	}
+
+	public RetryPolicy getRetryPolicy() {
+		return retryPolicy;
+	}
+
+	/***
+	 * Set the client side rate limits for the requests to the domain. The limits are shared with all other modules for
+	 * the same domain and the settings of the first of them are used (see RateLimiter.getTenantLimiter()). By default
+	 * the requests are not rate limited. Must be set before the module is used to create an injector
+	 * 
+	 * @param rateLimitSettings
+	 *            rate limit settings
+	 */
+	public void setRateLimitSettings(RateLimitSettings rateLimitSettings) {
+		if (rateLimitSettings == null) {
+			throw new IllegalArgumentException("Rate limit settings must not be null");
+		}
+		this.rateLimitSettings = rateLimitSettings;
+	}
+
+	public RateLimitSettings getRateLimitSettings() {
+		return rateLimitSettings;
+	}
+
+	/***
+	 * Set the coalescer for concurrent identical GET requests. Identical requests made while one is in flight share its
+	 * HTTP request and its decoded result. The coalescer counts the requests saved. By default requests are not
+	 * coalesced. Must be set before the module is used to create an injector
+	 * 
+	 * @param requestCoalescer
+	 *            request coalescer
+	 */
+	public void setRequestCoalescer(RequestCoalescer requestCoalescer) {
+		if (requestCoalescer == null) {
+			throw new IllegalArgumentException("Request coalescer must not be null");
+		}
+		this.requestCoalescer = requestCoalescer;
+	}
+
+	public RequestCoalescer getRequestCoalescer() {
+		return requestCoalescer;
+	}
+
+	/***
+	 * Set the cache for the responses to the GET requests. Cached responses are revalidated with conditional requests
+	 * or served for their time to live, see ResponseCache. The cache keeps the hit and miss statistics per
+	 * ApiDefinition. By default responses are not cached. Requires a requestExecutorClass extending the
+	 * AbstractRequestExecutor. Must be set before the module is used to create an injector
+	 * 
+	 * @param responseCache
+	 *            response cache
+	 */
+	public void setResponseCache(ResponseCache responseCache) {
+		if (responseCache == null) {
+			throw new IllegalArgumentException("Response cache must not be null");
+		}
+		this.responseCache = responseCache;
+	}
+
+	public ResponseCache getResponseCache() {
+		return responseCache;
+	}
+
+	/***
+	 * Set the bulkheads isolating groups of requests: each group of ApiDefinitions or end points has its own limit of
+	 * concurrent requests and its own queue, so that slow requests (e.g. document downloads) can't starve the others.
+	 * By default the requests are not isolated. Must be set before the module is used to create an injector
+	 * 
+	 * @param bulkheadSettings
+	 *            bulkhead settings
+	 */
+	public void setBulkheadSettings(BulkheadSettings bulkheadSettings) {
+		if (bulkheadSettings == null) {
+			throw new IllegalArgumentException("Bulkhead settings must not be null");
+		}
+		this.bulkheadSettings = bulkheadSettings;
+	}
+
+	public BulkheadSettings getBulkheadSettings() {
+		return bulkheadSettings;
+	}
+
+	/***
+	 * Set the adaptive limit of the concurrent requests to the domain: the limit grows while the tenant responds fast
+	 * and shrinks when it slows down or responds with 429 or 5xx. The limit is shared with all other modules for the
+	 * same domain and the settings of the first of them are used (see AdaptiveConcurrencyLimiter.getTenantLimiter()).
+	 * By default the concurrency is not limited. Must be set before the module is used to create an injector
+	 * 
+	 * @param adaptiveConcurrencySettings
+	 *            adaptive concurrency settings
+	 */
+	public void setAdaptiveConcurrencySettings(AdaptiveConcurrencySettings adaptiveConcurrencySettings) {
+		if (adaptiveConcurrencySettings == null) {
+			throw new IllegalArgumentException("Adaptive concurrency settings must not be null");
+		}
+		this.adaptiveConcurrencySettings = adaptiveConcurrencySettings;
+	}
+
+	public AdaptiveConcurrencySettings getAdaptiveConcurrencySettings() {
+		return adaptiveConcurrencySettings;
+	}
+
+	/***
+	 * Set the policy for hedging slow GET requests: a GET request not answered within a percentile of the recent
+	 * response times is sent again and the first response wins. Hedging requires an asynchronous request executor (see
+	 * setRequestExecutorClass()). By default requests are not hedged. Must be set before the module is used to create
+	 * an injector
+	 * 
+	 * @param hedgePolicy
+	 *            hedge policy
+	 */
+	public void setHedgePolicy(HedgePolicy hedgePolicy) {
+		if (hedgePolicy == null) {
+			throw new IllegalArgumentException("Hedge policy must not be null");
+		}
+		this.hedgePolicy = hedgePolicy;
+	}
+
+	public HedgePolicy getHedgePolicy() {
+		return hedgePolicy;
+	}
+
+	/***
+	 * Set the registry of the request metrics: calls, errors, bytes and phase latencies per tenant and ApiDefinition.
+	 * The gauges of the response cache, the adaptive concurrency limit, the bulkheads, the rate limiter, the hedging
+	 * and the request coalescer are registered in it too, named after the domain. By default the metrics are not
+	 * collected. Requires a requestExecutorClass extending the AbstractRequestExecutor. Must be set before the module is
+	 * used to create an injector
+	 * 
+	 * @param metricsRegistry
+	 *            metrics registry
+	 */
+	public void setMetricsRegistry(MetricsRegistry metricsRegistry) {
+		if (metricsRegistry == null) {
+			throw new IllegalArgumentException("Metrics registry must not be null");
+		}
+		this.metricsRegistry = metricsRegistry;
+	}
+
+	public MetricsRegistry getMetricsRegistry() {
+		return metricsRegistry;
+	}
+
+	/***
+	 * Add an interceptor of the requests. The interceptors are called in the order they were added, before the request
+	 * is passed to the request coalescing and the other decorators, so they see each API call once. The interceptors
+	 * also run around the non-blocking asynchronous requests, without occupying a thread while a request is in flight.
+	 * Must be added before the module is used to create an injector
+	 * 
+	 * @param requestInterceptor
+	 *            request interceptor
+	 */
+	public void addRequestInterceptor(RequestInterceptor requestInterceptor) {
+		if (requestInterceptor == null) {
+			throw new IllegalArgumentException("Request interceptor must not be null");
+		}
+		requestInterceptors.add(requestInterceptor);
+	}
+
+	public List<RequestInterceptor> getRequestInterceptors() {
+		return Collections.unmodifiableList(requestInterceptors);
+	}
+
 	/***
 	 * Define the bindings used in the wrapper application
 	 */
@@ -50,8 +357,92 @@ public class MambuAPIModule extends AbstractModule {
 		bindConstant().annotatedWith(Password.class).to(password);
 		bindConstant().annotatedWith(Domain.class).to(domain);
 
-		bind(RequestExecutor.class).to(RequestExecutorImpl.class);
+		bind(ConnectionPoolSettings.class).toInstance(connectionPoolSettings);
+		bind(TimeoutSettings.class).toInstance(timeoutSettings);
+		bind(AsyncExecutionSettings.class).toInstance(asyncExecutionSettings);
+
+	}
+
+	/***
+	 * Provide the RequestExecutor used by all services: an instance of the requestExecutorClass, decorated with the
+	 * adaptive concurrency limit, the bulkheads, the rate limiting, the hedging, the retries and the request coalescing
+	 * if they are set. Each retry and each hedge waits for the rate limiter, coalesced requests share the retries of the
+	 * request in flight. Requests hold their bulkhead permit only while they are sent, not while waiting for the rate
+	 * limiter or for a retry. The adaptive limit is innermost, so that it measures the response times of the tenant
+	 * only. The metrics are collected by the request executor, so each retry and each hedge is a call of its own. The
+	 * request interceptors are outermost
+	 * 
+	 * @param injector
+	 *            injector creating the request executor
+	 * @return request executor
+	 */
+	@Provides
+	@Singleton
+	RequestExecutor provideRequestExecutor(Injector injector) {
+
+		RequestExecutor executor = injector.getInstance(requestExecutorClass);
+		if (responseCache != null) {
+			if (!(executor instanceof AbstractRequestExecutor)) {
+				throw new IllegalStateException("Response cache requires a request executor extending "
+						+ AbstractRequestExecutor.class.getSimpleName());
+			}
+			((AbstractRequestExecutor) executor).setResponseCache(responseCache);
+			registerGauges("responseCache", responseCache);
+		}
+		if (metricsRegistry != null) {
+			if (!(executor instanceof AbstractRequestExecutor)) {
+				throw new IllegalStateException("Metrics registry requires a request executor extending "
+						+ AbstractRequestExecutor.class.getSimpleName());
+			}
+			((AbstractRequestExecutor) executor).setMetricsRegistry(metricsRegistry);
+		}
+		if (adaptiveConcurrencySettings != null) {
+			AdaptiveConcurrencyLimiter limiter = AdaptiveConcurrencyLimiter.getTenantLimiter(domain,
+					adaptiveConcurrencySettings);
+			executor = AdaptiveConcurrencyRequestExecutor.decorate(executor, limiter);
+			registerGauges("adaptiveConcurrency", limiter);
+		}
+		if (bulkheadSettings != null) {
+			BulkheadRequestExecutor bulkheadExecutor = BulkheadRequestExecutor.decorate(executor, bulkheadSettings);
+			for (Bulkhead bulkhead : bulkheadExecutor.getBulkheads().values()) {
+				registerGauges("bulkhead." + bulkhead.getName(), bulkhead);
+			}
+			executor = bulkheadExecutor;
+		}
+		if (rateLimitSettings != null) {
+			RateLimiter rateLimiter = RateLimiter.getTenantLimiter(domain, rateLimitSettings);
+			executor = RateLimitingRequestExecutor.decorate(executor, rateLimiter, timeoutSettings);
+			registerGauges("rateLimiter", rateLimiter);
+		}
+		if (hedgePolicy != null) {
+			if (!(executor instanceof AsyncRequestExecutor)) {
+				throw new IllegalStateException("Hedging requires a request executor implementing "
+						+ AsyncRequestExecutor.class.getSimpleName());
+			}
+			executor = new HedgingRequestExecutor((AsyncRequestExecutor) executor, hedgePolicy);
+			registerGauges("hedging", executor);
+		}
+		if (retryPolicy != null) {
+			executor = RetryingRequestExecutor.decorate(executor, retryPolicy, timeoutSettings);
+		}
+		if (requestCoalescer != null) {
+			executor = CoalescingRequestExecutor.decorate(executor, requestCoalescer);
+			registerGauges("requestCoalescer", requestCoalescer);
+		}
+		if (!requestInterceptors.isEmpty()) {
+			executor = InterceptingRequestExecutor.decorate(executor, requestInterceptors, timeoutSettings);
+		}
+		return executor;
+	}
 
+	/***
+	 * Register the gauges of a component in the metrics registry, if it is set. The gauges are named after the domain
+	 * and the component, e.g. "demo.mambu.com.adaptiveConcurrency.limit"
+	 */
+	private void registerGauges(String component, Object object) {
+		if (metricsRegistry != null) {
+			metricsRegistry.registerGauges(domain + "." + component, object);
+		}
 	}
 
 }
@@ -2,6 +2,8 @@ package com.mambu.apisdk;
 
 import java.io.IOException;
 import java.net.MalformedURLException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
@@ -9,6 +11,12 @@ import com.mambu.apisdk.exception.MambuApiException;
 import com.mambu.apisdk.model.Domain;
 import com.mambu.apisdk.model.Password;
 import com.mambu.apisdk.model.Username;
+import com.mambu.apisdk.util.ApiDefinition;
+import com.mambu.apisdk.util.AsyncExecutionSettings;
+import com.mambu.apisdk.util.AsyncExecutor;
+import com.mambu.apisdk.util.AsyncRequestExecutor;
+import com.mambu.apisdk.util.Deadline;
+import com.mambu.apisdk.util.MambuApiCallback;
 import com.mambu.apisdk.util.ParamsMap;
 import com.mambu.apisdk.util.RequestExecutor;
 import com.mambu.apisdk.util.RequestExecutor.Method;
@@ -25,6 +33,22 @@ public class MambuAPIService {
 
 	private RequestExecutor executor;
 	private URLHelper urlHelper;
+	private AsyncExecutor asyncExecutor;
+
+	/**
+	 * Creates a Mambu API Service class with default asynchronous execution settings
+	 * 
+	 * @param username
+	 *            username to connect with to the apis
+	 * @param password
+	 *            password to connect with to the apis
+	 * @param domainName
+	 *            based domain name for the tenant (eg: mytenant.mambu.com)
+	 */
+	public MambuAPIService(@Domain String domainName, @Username String username, @Password String password,
+			RequestExecutor executor, URLHelper urlHelper) {
+		this(domainName, username, password, executor, urlHelper, new AsyncExecutor(new AsyncExecutionSettings()));
+	}
 
 	/**
 	 * Creates a Mambu API Service class
@@ -35,13 +59,16 @@ public class MambuAPIService {
 	 *            password to connect with to the apis
 	 * @param domainName
 	 *            based domain name for the tenant (eg: mytenant.mambu.com)
+	 * @param asyncExecutor
+	 *            executor for the asynchronous API requests
 	 */
 	@Inject
 	public MambuAPIService(@Domain String domainName, @Username String username, @Password String password,
-			RequestExecutor executor, URLHelper urlHelper) {
+			RequestExecutor executor, URLHelper urlHelper, AsyncExecutor asyncExecutor) {
 
 		this.urlHelper = urlHelper;
 		this.executor = executor;
+		this.asyncExecutor = asyncExecutor;
 
 		executor.setAuthorization(username, password);
 	}
@@ -124,6 +151,84 @@ public class MambuAPIService {
 		return executor.executeRequest(urlString, method, contentTypeFormat);
 	}
 
+	/**
+	 * Executes the request for a given url and parameters using the method and content type specified by the
+	 * apiDefinition. The response is decoded into the result specified by the apiDefinition
+	 * 
+	 * @param urlString
+	 * @param params
+	 * @param apiDefinition
+	 * 
+	 * @return result object, which will be an API specific object, a list of objects, a Boolean or the response String
+	 * 
+	 * @throws MambuApiException
+	 */
+	public <R> R executeRequest(String urlString, ParamsMap params, ApiDefinition apiDefinition)
+			throws MambuApiException {
+		return executor.executeRequest(urlString, params, apiDefinition);
+	}
+
+	/**
+	 * Executes the request for a given url and parameters as specified by the apiDefinition, which must complete by the
+	 * deadline. The request is aborted when the deadline expires
+	 * 
+	 * @param urlString
+	 * @param params
+	 * @param apiDefinition
+	 * @param deadline
+	 *            deadline for the request. Can be null
+	 * 
+	 * @return result object, which will be an API specific object, a list of objects, a Boolean or the response String
+	 * 
+	 * @throws MambuApiException
+	 */
+	public <R> R executeRequest(String urlString, ParamsMap params, ApiDefinition apiDefinition, Deadline deadline)
+			throws MambuApiException {
+		return executor.executeRequest(urlString, params, apiDefinition, deadline);
+	}
+
+	/**
+	 * Executes the API request asynchronously. The number of requests in flight is limited by the
+	 * AsyncExecutionSettings, when the limit is reached this method blocks until one of the requests completes
+	 * 
+	 * @param request
+	 *            API request to execute
+	 * @param callback
+	 *            callback to be notified when the request completes. Can be null
+	 * 
+	 * @return future for the request's result
+	 */
+	public <R> Future<R> executeAsync(Callable<R> request, MambuApiCallback<R> callback) {
+		return asyncExecutor.submit(request, callback);
+	}
+
+	/**
+	 * Executes the request for a given url and parameters asynchronously. With an AsyncRequestExecutor the request is
+	 * sent without blocking a thread while waiting for the response, otherwise it is executed on the thread pool as
+	 * any other asynchronous request. The number of requests in flight is limited by the AsyncExecutionSettings
+	 * 
+	 * @param urlString
+	 * @param params
+	 * @param apiDefinition
+	 * @param callback
+	 *            callback to be notified when the request completes. Can be null
+	 * 
+	 * @return future for the result decoded as specified by the apiDefinition
+	 */
+	public <R> Future<R> executeRequestAsync(final String urlString, final ParamsMap params,
+			final ApiDefinition apiDefinition, MambuApiCallback<R> callback) {
+
+		if (executor instanceof AsyncRequestExecutor) {
+			return asyncExecutor.submit((AsyncRequestExecutor) executor, urlString, params, apiDefinition, callback);
+		}
+		return asyncExecutor.submit(new Callable<R>() {
+			@Override
+			public R call() throws MambuApiException {
+				return executor.executeRequest(urlString, params, apiDefinition);
+			}
+		}, callback);
+	}
+
 	/**
 	 * Creates the URL for the request executor
 	 * 
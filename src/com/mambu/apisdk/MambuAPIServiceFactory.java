@@ -1,5 +1,8 @@
 package com.mambu.apisdk;
 
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+
 import com.google.inject.Guice;
 import com.google.inject.Injector;
 import com.mambu.apisdk.exception.MambuApiException;
@@ -15,6 +18,9 @@ import com.mambu.apisdk.services.SavingsService;
 import com.mambu.apisdk.services.SearchService;
 import com.mambu.apisdk.services.TasksService;
 import com.mambu.apisdk.services.UsersService;
+import com.mambu.apisdk.util.AsyncExecutor;
+import com.mambu.apisdk.util.MambuApiCallback;
+import com.mambu.apisdk.util.RequestExecutor;
 
 /**
  * Factory for creating Mambu API Service objects that have fixed a tenant's Mambu credentials
@@ -47,10 +53,51 @@ public final class MambuAPIServiceFactory {
 	 * @return factory object to create API service objects which are bound to the given credentials
 	 */
 	public static MambuAPIServiceFactory getFactory(String domain, String username, String password) {
-		Injector injector = Guice.createInjector(new MambuAPIModule(domain, username, password));
+		return getFactory(new MambuAPIModule(domain, username, password));
+	}
+
+	/***
+	 * Set up the Guice Module with a pre-configured MambuAPIModule, returning a factory object to retrieve Mambu API
+	 * services that have Mambu credentials and module settings (e.g. connection pool settings) built-in
+	 * 
+	 * @param module
+	 *            Mambu API module with the tenant's credentials and settings
+	 * 
+	 * @return factory object to create API service objects which are bound to the given module
+	 */
+	public static MambuAPIServiceFactory getFactory(MambuAPIModule module) {
+		if (module == null) {
+			throw new IllegalArgumentException("Module must not be null");
+		}
+		Injector injector = Guice.createInjector(module);
 		return new MambuAPIServiceFactory(injector);
 	}
 
+	/***
+	 * Shut down this factory, closing all pooled connections and stopping the asynchronous execution threads used by
+	 * the services obtained from it. Services obtained from this factory must not be used after the factory was shut
+	 * down
+	 */
+	public void shutdown() {
+		injector.getInstance(AsyncExecutor.class).shutdown();
+		injector.getInstance(RequestExecutor.class).shutdown();
+	}
+
+	/***
+	 * Execute a service call asynchronously, non-static version of
+	 * {@link MambuAPIFactory#executeAsync(Callable, MambuApiCallback)}
+	 * 
+	 * @param call
+	 *            the service call to execute
+	 * @param callback
+	 *            callback to be notified when the call completes. Can be null
+	 * 
+	 * @return future for the call's result
+	 */
+	public <R> Future<R> executeAsync(Callable<R> call, MambuApiCallback<R> callback) {
+		return injector.getInstance(MambuAPIService.class).executeAsync(call, callback);
+	}
+
 	/***
 	 * Get an instance of the ClientService class, non-static version of {@link MambuAPIFactory#getClientService()}
 	 * 
@@ -12,6 +12,8 @@ public class MambuApiException extends Exception {
 
 	Integer errorCode;
 	String errorMessage;
+	// Delay requested by the Retry-After header of the error response, if it had one
+	Long retryAfterMillis;
 
 	public MambuApiException(Exception e) {
 		super(e);
@@ -80,6 +82,20 @@ public class MambuApiException extends Exception {
 		this.errorMessage = errorMessage;
 	}
 
+	/**
+	 * Get the delay requested by the Retry-After header of the error response, e.g. of a 429 (Too Many Requests) or 503
+	 * (Service Unavailable) response
+	 * 
+	 * @return delay in milliseconds or null if the response had no valid Retry-After header
+	 */
+	public Long getRetryAfterMillis() {
+		return retryAfterMillis;
+	}
+
+	public void setRetryAfterMillis(Long retryAfterMillis) {
+		this.retryAfterMillis = retryAfterMillis;
+	}
+
 	@Override
 	public String getMessage() {
 		return getErrorMessage();
@@ -15,6 +15,7 @@ import com.mambu.apisdk.util.APIData;
 import com.mambu.apisdk.util.ApiDefinition;
 import com.mambu.apisdk.util.ApiDefinition.ApiType;
 import com.mambu.apisdk.util.DateUtils;
+import com.mambu.apisdk.util.PagingIterator;
 import com.mambu.apisdk.util.ParamsMap;
 import com.mambu.apisdk.util.ServiceExecutor;
 
@@ -125,4 +126,30 @@ public class AccountingService {
 
 		return serviceExecutor.execute(getGLJournalEntries, params);
 	}
+
+	/**
+	 * Returns all GLJournalEntries of a specific date-range page by page. The next page is requested in the background
+	 * while the current one is processed
+	 * 
+	 * @param fromDate
+	 *            range starting from
+	 * @param toDate
+	 *            range ending at
+	 * @param pageSize
+	 *            number of entries requested with each request. Must be greater than zero
+	 * 
+	 * @return iterator over the GLJournalEntries
+	 */
+	public PagingIterator<GLJournalEntry> getGLJournalEntriesPaged(Date fromDate, Date toDate, int pageSize) {
+
+		if (fromDate == null || toDate == null) {
+			throw new IllegalArgumentException("fromDate and toDate must not be null");
+		}
+
+		ParamsMap params = new ParamsMap();
+		params.put(APIData.FROM, DateUtils.FORMAT.format(fromDate));
+		params.put(APIData.TO, DateUtils.FORMAT.format(toDate));
+
+		return serviceExecutor.executePaged(getGLJournalEntries, params, pageSize);
+	}
 }
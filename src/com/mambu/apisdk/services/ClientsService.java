@@ -3,7 +3,10 @@
  */
 package com.mambu.apisdk.services;
 
+import java.io.File;
+import java.io.InputStream;
 import java.util.List;
+import java.util.concurrent.Future;
 
 import com.google.inject.Inject;
 import com.mambu.accounts.shared.model.AccountHolderType;
@@ -13,6 +16,10 @@ import com.mambu.apisdk.exception.MambuApiException;
 import com.mambu.apisdk.util.APIData;
 import com.mambu.apisdk.util.ApiDefinition;
 import com.mambu.apisdk.util.ApiDefinition.ApiType;
+import com.mambu.apisdk.util.DocumentContentSink;
+import com.mambu.apisdk.util.DocumentContentSource;
+import com.mambu.apisdk.util.MambuApiCallback;
+import com.mambu.apisdk.util.PagingIterator;
 import com.mambu.apisdk.util.ParamsMap;
 import com.mambu.apisdk.util.RequestExecutor.ContentType;
 import com.mambu.apisdk.util.ServiceExecutor;
@@ -83,9 +90,9 @@ public class ClientsService {
 	private final static ApiDefinition getClientDocuments = new ApiDefinition(ApiType.GET_OWNED_ENTITIES, Client.class,
 			Document.class);
 	// Post Client Profile Documents. POST clients/client_id/documents/PROFILE_PICTURE or
-	// clients/client_id/documents/SIGNATURE
+	// clients/client_id/documents/SIGNATURE. These requests need JSON content type (POST_OWNED_ENTITY uses WWW_FORM)
 	private final static ApiDefinition postClientProfileFile = new ApiDefinition(ApiType.POST_OWNED_ENTITY,
-			Client.class, Document.class, Boolean.class);
+			Client.class, Document.class, Boolean.class).withContentType(ContentType.JSON);
 	// Get profile picture or signature file for a Client. GET /api/clients/{ID}/documents/PROFILE_PICTURE or GET
 	// /api/clients/{ID}/documents/SIGNATURE
 	private final static ApiDefinition getClientProfileFile = new ApiDefinition(ApiType.GET_OWNED_ENTITY, Client.class,
@@ -134,6 +141,20 @@ public class ClientsService {
 		return serviceExecutor.execute(getClient, clientId);
 	}
 
+	/**
+	 * Requests a client by their Mambu ID asynchronously
+	 * 
+	 * @param clientId
+	 *            the id of the client
+	 * @param callback
+	 *            callback to be notified when the request completes. Can be null
+	 * 
+	 * @return future for the Mambu client model
+	 */
+	public Future<Client> getClientAsync(String clientId, MambuApiCallback<Client> callback) {
+		return serviceExecutor.executeAsync(getClient, clientId, callback);
+	}
+
 	/**
 	 * Requests a client by their Last name and first name
 	 * 
@@ -207,6 +228,25 @@ public class ClientsService {
 
 	}
 
+	/**
+	 * Requests all active or inactive clients page by page. The next page is requested in the background while the
+	 * current one is processed
+	 * 
+	 * @param active
+	 *            True if active Clients should retrieved, false for inactive Clients
+	 * @param pageSize
+	 *            number of Clients requested with each request. Must be greater than zero
+	 * 
+	 * @return iterator over the Mambu clients
+	 */
+	public PagingIterator<Client> getClientsPaged(boolean active, int pageSize) {
+
+		ParamsMap params = new ParamsMap();
+		params.addParam(CLIENT_STATE, (active ? APIData.ACTIVE : APIData.INACTIVE));
+
+		return serviceExecutor.executePaged(getClientsList, params, pageSize);
+	}
+
 	/**
 	 * Requests a client by their Document ID and Last name
 	 * 
@@ -242,6 +282,20 @@ public class ClientsService {
 		return serviceExecutor.execute(getClientDetails, clientId);
 	}
 
+	/**
+	 * Returns a client with their full details asynchronously
+	 * 
+	 * @param clientId
+	 *            the id of the client
+	 * @param callback
+	 *            callback to be notified when the request completes. Can be null
+	 * 
+	 * @return future for the retrieved expanded client
+	 */
+	public Future<ClientExpanded> getClientDetailsAsync(String clientId, MambuApiCallback<ClientExpanded> callback) {
+		return serviceExecutor.executeAsync(getClientDetails, clientId, callback);
+	}
+
 	/**
 	 * Requests a group by it's Mambu ID
 	 * 
@@ -728,6 +782,22 @@ public class ClientsService {
 
 	}
 
+	/***
+	 * Get client profile picture file and write it to a file, file channel or output stream. The base64 encoded picture
+	 * is decoded while the response is read
+	 * 
+	 * @param clientId
+	 *            the encoded key or id of the Mambu Client
+	 * @param sink
+	 *            destination of the decoded picture file. E.g. DocumentContentSink.toFile(file)
+	 * @return number of bytes written
+	 * @throws MambuApiException
+	 */
+	public long getClientProfilePictureFile(String clientId, DocumentContentSink sink) throws MambuApiException {
+		// Example. GET /api/clients/{ID}/documents/PROFILE_PICTURE
+		return getClientProfileFile(clientId, APIData.PROFILE_PICTURE, sink);
+	}
+
 	/***
 	 * Get client signature API response message containing image type indicator and the base64 encoded signature file
 	 * 
@@ -770,6 +840,34 @@ public class ClientsService {
 
 	}
 
+	/***
+	 * Get client signature file and write it to a file, file channel or output stream. The base64 encoded signature is
+	 * decoded while the response is read
+	 * 
+	 * @param clientId
+	 *            the encoded key or id of the Mambu Client
+	 * @param sink
+	 *            destination of the decoded signature file. E.g. DocumentContentSink.toFile(file)
+	 * @return number of bytes written
+	 * @throws MambuApiException
+	 */
+	public long getClientSignatureFile(String clientId, DocumentContentSink sink) throws MambuApiException {
+		// Example. GET /api/clients/{ID}/documents/SIGNATURE
+		return getClientProfileFile(clientId, APIData.SIGNATURE, sink);
+	}
+
+	private long getClientProfileFile(String clientId, String documentType, DocumentContentSink sink)
+			throws MambuApiException {
+		if (sink == null) {
+			throw new IllegalArgumentException("Client file content sink cannot be null");
+		}
+		ParamsMap params = new ParamsMap();
+		params.setDocumentContentSink(sink);
+
+		Long written = serviceExecutor.execute(getClientProfileFile, clientId, documentType, params);
+		return written;
+	}
+
 	/****
 	 * Upload client profile picture file
 	 * 
@@ -792,9 +890,6 @@ public class ClientsService {
 		// Make JSON document and add it to the ParamsMap
 		ParamsMap paramsMap = ServiceHelper.makeParamsForDocumentJson(pictureDocument);
 
-		// Update ApiDefintion (we need to use JSON content)
-		postClientProfileFile.setContentType(ContentType.JSON);
-
 		// Execute with PROFILE_PICTURE as an api endpoint
 		final String documentType = APIData.PROFILE_PICTURE;
 		return serviceExecutor.execute(postClientProfileFile, clientId, documentType, paramsMap);
@@ -822,14 +917,105 @@ public class ClientsService {
 		// Make JSON document and add it to the ParamsMap
 		ParamsMap paramsMap = ServiceHelper.makeParamsForDocumentJson(signatureDocument);
 
-		// Update ApiDefintion (we need to use JSON content type and it's set to WWW_FORM)
-		postClientProfileFile.setContentType(ContentType.JSON);
-
 		// Execute with SIGNATURE as an api endpoint
 		final String documentType = APIData.SIGNATURE;
 		return serviceExecutor.execute(postClientProfileFile, clientId, documentType, paramsMap);
 	}
 
+	/****
+	 * Upload client profile picture from a file. The file is base64 encoded while it is sent, so large files are not
+	 * loaded into memory
+	 * 
+	 * @param clientId
+	 *            the id or encoded key of the client
+	 * @param pictureDocument
+	 *            document with the name and the type of the picture
+	 * @param file
+	 *            the picture file
+	 * 
+	 * @return success or failure
+	 * 
+	 * @throws MambuApiException
+	 */
+	public boolean uploadClientProfilePicture(String clientId, Document pictureDocument, File file)
+			throws MambuApiException {
+		return uploadClientProfileFile(clientId, APIData.PROFILE_PICTURE, pictureDocument,
+				DocumentContentSource.fromFile(file));
+	}
+
+	/****
+	 * Upload client profile picture from a stream. The stream is base64 encoded while it is sent and is closed when the
+	 * request completes
+	 * 
+	 * @param clientId
+	 *            the id or encoded key of the client
+	 * @param pictureDocument
+	 *            document with the name and the type of the picture
+	 * @param content
+	 *            stream with the picture
+	 * 
+	 * @return success or failure
+	 * 
+	 * @throws MambuApiException
+	 */
+	public boolean uploadClientProfilePicture(String clientId, Document pictureDocument, InputStream content)
+			throws MambuApiException {
+		return uploadClientProfileFile(clientId, APIData.PROFILE_PICTURE, pictureDocument,
+				DocumentContentSource.fromStream(content));
+	}
+
+	/****
+	 * Upload client signature from a file. The file is base64 encoded while it is sent, so large files are not loaded
+	 * into memory
+	 * 
+	 * @param clientId
+	 *            the id or encoded key of the client
+	 * @param signatureDocument
+	 *            document with the name and the type of the signature file
+	 * @param file
+	 *            the signature file
+	 * 
+	 * @return success or failure
+	 * 
+	 * @throws MambuApiException
+	 */
+	public boolean uploadClientSignatureFile(String clientId, Document signatureDocument, File file)
+			throws MambuApiException {
+		return uploadClientProfileFile(clientId, APIData.SIGNATURE, signatureDocument,
+				DocumentContentSource.fromFile(file));
+	}
+
+	/****
+	 * Upload client signature from a stream. The stream is base64 encoded while it is sent and is closed when the
+	 * request completes
+	 * 
+	 * @param clientId
+	 *            the id or encoded key of the client
+	 * @param signatureDocument
+	 *            document with the name and the type of the signature file
+	 * @param content
+	 *            stream with the signature file
+	 * 
+	 * @return success or failure
+	 * 
+	 * @throws MambuApiException
+	 */
+	public boolean uploadClientSignatureFile(String clientId, Document signatureDocument, InputStream content)
+			throws MambuApiException {
+		return uploadClientProfileFile(clientId, APIData.SIGNATURE, signatureDocument,
+				DocumentContentSource.fromStream(content));
+	}
+
+	private boolean uploadClientProfileFile(String clientId, String documentType, Document document,
+			DocumentContentSource content) throws MambuApiException {
+		if (document == null) {
+			throw new IllegalArgumentException("Document cannot be null");
+		}
+		ParamsMap paramsMap = ServiceHelper.makeParamsForDocumentJson(document, content);
+
+		return serviceExecutor.execute(postClientProfileFile, clientId, documentType, paramsMap);
+	}
+
 	/***
 	 * Delete client profile picture file
 	 * 
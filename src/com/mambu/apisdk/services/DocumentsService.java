@@ -3,6 +3,9 @@
  */
 package com.mambu.apisdk.services;
 
+import java.io.File;
+import java.io.InputStream;
+
 import com.google.inject.Inject;
 import com.mambu.api.server.handler.documents.model.JSONDocument;
 import com.mambu.apisdk.MambuAPIService;
@@ -12,6 +15,8 @@ import com.mambu.apisdk.util.APIData.IMAGE_SIZE_TYPE;
 import com.mambu.apisdk.util.ApiDefinition;
 import com.mambu.apisdk.util.ApiDefinition.ApiReturnFormat;
 import com.mambu.apisdk.util.ApiDefinition.ApiType;
+import com.mambu.apisdk.util.DocumentContentSink;
+import com.mambu.apisdk.util.DocumentContentSource;
 import com.mambu.apisdk.util.ParamsMap;
 import com.mambu.apisdk.util.ServiceExecutor;
 import com.mambu.apisdk.util.ServiceHelper;
@@ -31,14 +36,18 @@ public class DocumentsService {
 	// Our serviceExecutor
 	private ServiceExecutor serviceExecutor;
 	// Get Document
-	private final static ApiDefinition getDocument = new ApiDefinition(ApiType.GET_ENTITY, Document.class);
+	// The getDocument API must just return the response as is
+	private final static ApiDefinition getDocument = new ApiDefinition(ApiType.GET_ENTITY, Document.class)
+			.withApiReturnFormat(ApiReturnFormat.RESPONSE_STRING);
 	// Create Document. The input entity is a JSONDocument and Mambu returns a Document class
 	private final static ApiDefinition createDocument = new ApiDefinition(ApiType.CREATE_JSON_ENTITY,
 			JSONDocument.class, Document.class);
 	// Delete Document
 	private final static ApiDefinition deleteDocument = new ApiDefinition(ApiType.DELETE_ENTITY, Document.class);
 	// Get Image
-	private final static ApiDefinition getImage = new ApiDefinition(ApiType.GET_ENTITY, Image.class);
+	// For the getImage API we just need the response string as is to extract the encoded image
+	private final static ApiDefinition getImage = new ApiDefinition(ApiType.GET_ENTITY, Image.class)
+			.withApiReturnFormat(ApiReturnFormat.RESPONSE_STRING);
 
 	/***
 	 * Create a new documents service
@@ -74,6 +83,49 @@ public class DocumentsService {
 		return serviceExecutor.execute(createDocument, paramsMap);
 	}
 
+	/***
+	 * Upload new Document with the content read from a file. The file is base64 encoded while it is sent, so large
+	 * files are not loaded into memory
+	 * 
+	 * @param document
+	 *            the new document object containing all mandatory fields
+	 * @param file
+	 *            the file to upload
+	 * 
+	 * @return the new document parsed as an object returned from the API call
+	 * 
+	 * @throws MambuApiException
+	 */
+	public Document uploadDocument(Document document, File file) throws MambuApiException {
+		return uploadDocument(document, DocumentContentSource.fromFile(file));
+	}
+
+	/***
+	 * Upload new Document with the content read from a stream. The stream is base64 encoded while it is sent and is
+	 * closed when the request completes
+	 * 
+	 * @param document
+	 *            the new document object containing all mandatory fields
+	 * @param content
+	 *            stream with the document content
+	 * 
+	 * @return the new document parsed as an object returned from the API call
+	 * 
+	 * @throws MambuApiException
+	 */
+	public Document uploadDocument(Document document, InputStream content) throws MambuApiException {
+		return uploadDocument(document, DocumentContentSource.fromStream(content));
+	}
+
+	private Document uploadDocument(Document document, DocumentContentSource content) throws MambuApiException {
+		if (document == null) {
+			throw new IllegalArgumentException("Document cannot be null");
+		}
+		ParamsMap paramsMap = ServiceHelper.makeParamsForDocumentJson(document, content);
+
+		return serviceExecutor.execute(createDocument, paramsMap);
+	}
+
 	/***
 	 * Get base64 encoded document data by document id. A typical scenario would be getting a list of attachments for a
 	 * client/group/account via getDocuments() API and then retrieving a specific document (attachment) by its id with
@@ -89,11 +141,34 @@ public class DocumentsService {
 	public String getDocument(String documentId) throws MambuApiException {
 		// Get document. Example: GET /api/documents/documentId
 		// See MBU-5084
-		// The getDocument API must just return the response as is
-		getDocument.setApiReturnFormat(ApiReturnFormat.RESPONSE_STRING);
 		return serviceExecutor.execute(getDocument, documentId);
 	}
 
+	/***
+	 * Get document content by document id and write it to a file, file channel or output stream. The base64 encoded
+	 * content is decoded while the response is read, so large documents are not loaded into memory
+	 * 
+	 * @param documentId
+	 *            the encoded key or id of the document
+	 * @param sink
+	 *            destination of the decoded document content. E.g. DocumentContentSink.toFile(file)
+	 * 
+	 * @return number of bytes written
+	 * 
+	 * @throws MambuApiException
+	 */
+	public long getDocument(String documentId, DocumentContentSink sink) throws MambuApiException {
+		// Example: GET /api/documents/documentId
+		if (sink == null) {
+			throw new IllegalArgumentException("Document content sink cannot be null");
+		}
+		ParamsMap params = new ParamsMap();
+		params.setDocumentContentSink(sink);
+
+		Long written = serviceExecutor.execute(getDocument, documentId, params);
+		return written;
+	}
+
 	/***
 	 * Delete document by its Id
 	 * 
@@ -132,8 +207,6 @@ public class DocumentsService {
 			params.put(SIZE, sizeType.name());
 		}
 
-		// For this API we just need the response string as is to extract the encoded image
-		getImage.setApiReturnFormat(ApiReturnFormat.RESPONSE_STRING);
 		String apiResponse = serviceExecutor.execute(getImage, imageKey, params);
 
 		// Get only the encoded part. Mambu returns data in the following format: "data:image/jpg;base64,/9j...."
@@ -145,4 +218,35 @@ public class DocumentsService {
 		return base64EncodedString;
 	}
 
+	/***
+	 * Get an Image file using file's encoded key and the preferred image size and write it to a file, file channel or
+	 * output stream. The base64 encoded image is decoded while the response is read
+	 * 
+	 * @param imageKey
+	 *            a key to access image file (e.g. client's profile picture key: client.getProfilePictureKey())
+	 * @param sizeType
+	 *            a desired size to be returned. E.g LARGE, MEDIUM, SMALL_THUMB, TINY_THUMB. Can be null to get full
+	 *            size
+	 * @param sink
+	 *            destination of the decoded image file. E.g. DocumentContentSink.toFile(file)
+	 * 
+	 * @return number of bytes written
+	 * 
+	 * @throws MambuApiException
+	 */
+	public long getImage(String imageKey, IMAGE_SIZE_TYPE sizeType, DocumentContentSink sink)
+			throws MambuApiException {
+		if (sink == null) {
+			throw new IllegalArgumentException("Image content sink cannot be null");
+		}
+		ParamsMap params = new ParamsMap();
+		params.setDocumentContentSink(sink);
+		if (sizeType != null) {
+			params.put(SIZE, sizeType.name());
+		}
+
+		Long written = serviceExecutor.execute(getImage, imageKey, params);
+		return written;
+	}
+
 }
\ No newline at end of file
@@ -4,6 +4,7 @@
 package com.mambu.apisdk.services;
 
 import java.util.List;
+import java.util.concurrent.Future;
 
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
@@ -15,6 +16,9 @@ import com.mambu.apisdk.model.LoanAccountExpanded;
 import com.mambu.apisdk.util.APIData;
 import com.mambu.apisdk.util.ApiDefinition;
 import com.mambu.apisdk.util.ApiDefinition.ApiType;
+import com.mambu.apisdk.util.MambuApiCallback;
+import com.mambu.apisdk.util.PageConsumer;
+import com.mambu.apisdk.util.PagingIterator;
 import com.mambu.apisdk.util.ParamsMap;
 import com.mambu.apisdk.util.ServiceExecutor;
 import com.mambu.apisdk.util.ServiceHelper;
@@ -141,6 +145,20 @@ public class LoansService {
 		return serviceExecutor.execute(getAccount, accountId);
 	}
 
+	/***
+	 * Get a loan account by its id asynchronously
+	 * 
+	 * @param accountId
+	 *            the id of the account
+	 * @param callback
+	 *            callback to be notified when the request completes. Can be null
+	 * 
+	 * @return future for the loan account
+	 */
+	public Future<LoanAccount> getLoanAccountAsync(String accountId, MambuApiCallback<LoanAccount> callback) {
+		return serviceExecutor.executeAsync(getAccount, accountId, callback);
+	}
+
 	/***
 	 * Get all the loan accounts for a given client
 	 * 
@@ -364,6 +382,20 @@ public class LoansService {
 		return serviceExecutor.execute(getAccount, accountId);
 	}
 
+	/***
+	 * Get loan account with full details asynchronously
+	 * 
+	 * @param accountId
+	 *            the id of the account
+	 * @param callback
+	 *            callback to be notified when the request completes. Can be null
+	 * 
+	 * @return future for the loan account
+	 */
+	public Future<LoanAccount> getLoanAccountDetailsAsync(String accountId, MambuApiCallback<LoanAccount> callback) {
+		return serviceExecutor.executeAsync(getAccount, accountId, callback);
+	}
+
 	/***
 	 * Create a new LoanAccount using LoanAccountExpanded object and sending it as a JSON API. This API allows creating
 	 * LoanAccount with details, including creating custom fields.
@@ -477,6 +509,46 @@ public class LoansService {
 		return serviceExecutor.execute(getAccountTransactions, accountId, paramsMap);
 	}
 
+	/***
+	 * Get all loan account Transactions by Loan id, requesting them page by page. The next page is requested in the
+	 * background while the current one is processed
+	 * 
+	 * @param accountId
+	 *            the id of the account
+	 * @param pageSize
+	 *            number of transactions requested with each request. Must be greater than zero
+	 * 
+	 * @return iterator over the loan account transactions
+	 */
+	public PagingIterator<LoanTransaction> getLoanAccountTransactionsPaged(String accountId, int pageSize) {
+		ParamsMap paramsMap = null;
+		return serviceExecutor.executePaged(getAccountTransactions, accountId, paramsMap, pageSize);
+	}
+
+	/***
+	 * Get loan account Transactions by Loan id and offset and limit asynchronously
+	 * 
+	 * @param accountId
+	 *            the id of the account
+	 * @param offset
+	 *            first transaction number
+	 * @param limit
+	 *            last transaction number
+	 * @param callback
+	 *            callback to be notified when the request completes. Can be null
+	 * 
+	 * @return future for the list of loan account transactions
+	 */
+	public Future<List<LoanTransaction>> getLoanAccountTransactionsAsync(String accountId, String offset,
+			String limit, MambuApiCallback<List<LoanTransaction>> callback) {
+
+		ParamsMap paramsMap = new ParamsMap();
+		paramsMap.put(APIData.OFFSET, offset);
+		paramsMap.put(APIData.LIMIT, limit);
+
+		return serviceExecutor.executeAsync(getAccountTransactions, accountId, paramsMap, callback);
+	}
+
 	/**
 	 * Requests a list of loan transactions for a custom view, limited by offset/limit
 	 * 
@@ -499,6 +571,55 @@ public class LoansService {
 
 	}
 
+	/**
+	 * Requests all loan transactions for a custom view, with several page requests in flight at the same time. Pages
+	 * are passed to the consumer as they arrive, not necessarily in the offset order
+	 * 
+	 * @param customViewKey
+	 *            the key of the Custom View to filter loan transactions
+	 * @param pageSize
+	 *            number of transactions requested with each request. Must be greater than zero
+	 * @param parallelism
+	 *            maximum number of page requests in flight. Must be greater than zero
+	 * @param consumer
+	 *            consumer for the pages of loan transactions
+	 * 
+	 * @throws MambuApiException
+	 */
+	public void getLoanTransactionsByCustomView(String customViewKey, int pageSize, int parallelism,
+			PageConsumer<LoanTransaction> consumer) throws MambuApiException {
+		String offset = null;
+		String limit = null;
+		ParamsMap params = ServiceHelper.makeParamsForGetByCustomView(customViewKey, offset, limit);
+		String objectId = null;
+		serviceExecutor.executePagedInParallel(getAllLoanTransactions, objectId, params, pageSize, parallelism,
+				consumer);
+	}
+
+	/**
+	 * Requests all loan transactions for a custom view, with several page requests in flight at the same time
+	 * 
+	 * @param customViewKey
+	 *            the key of the Custom View to filter loan transactions
+	 * @param pageSize
+	 *            number of transactions requested with each request. Must be greater than zero
+	 * @param parallelism
+	 *            maximum number of page requests in flight. Must be greater than zero
+	 * 
+	 * @return the list of all Mambu loan transactions for the custom view
+	 * 
+	 * @throws MambuApiException
+	 */
+	public List<LoanTransaction> getAllLoanTransactionsByCustomView(String customViewKey, int pageSize,
+			int parallelism) throws MambuApiException {
+		String offset = null;
+		String limit = null;
+		ParamsMap params = ServiceHelper.makeParamsForGetByCustomView(customViewKey, offset, limit);
+		String objectId = null;
+		return serviceExecutor.executeAllPagesInParallel(getAllLoanTransactions, objectId, params, pageSize,
+				parallelism);
+	}
+
 	/****
 	 * Make Repayment for a loan account
 	 * 
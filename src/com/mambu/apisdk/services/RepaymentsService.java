@@ -12,6 +12,7 @@ import com.mambu.apisdk.exception.MambuApiException;
 import com.mambu.apisdk.util.APIData;
 import com.mambu.apisdk.util.ApiDefinition;
 import com.mambu.apisdk.util.ApiDefinition.ApiType;
+import com.mambu.apisdk.util.PagingIterator;
 import com.mambu.apisdk.util.ParamsMap;
 import com.mambu.apisdk.util.ServiceExecutor;
 import com.mambu.loans.shared.model.LoanAccount;
@@ -39,8 +40,9 @@ public class RepaymentsService {
 	private final static ApiDefinition getRepaymentsForLoan = new ApiDefinition(ApiType.GET_OWNED_ENTITIES,
 			LoanAccount.class, Repayment.class);
 	// Update Loan Repayments. PATCH JSON /api/loans/loan_id/repayments
-	private static ApiDefinition updateRepaymentsForLoan = new ApiDefinition(ApiType.PATCH_OWNED_ENTITIES,
-			LoanAccount.class, Repayment.class);
+	// This API accepts JSON requests with the dates in "yyyy-MM-dd" format only
+	private final static ApiDefinition updateRepaymentsForLoan = new ApiDefinition(ApiType.PATCH_OWNED_ENTITIES,
+			LoanAccount.class, Repayment.class).withJsonDateTimeFormat(APIData.yyyyMmddFormat);
 
 	/***
 	 * Create a new repayments service
@@ -79,6 +81,27 @@ public class RepaymentsService {
 		return serviceExecutor.execute(getRepaymments, paramsMap);
 	}
 
+	/***
+	 * Get all loan account Repayments between FromDate and ToDate page by page. The next page is requested in the
+	 * background while the current one is processed
+	 * 
+	 * @param dueFomString
+	 * @param dueToString
+	 * @param pageSize
+	 *            number of repayments requested with each request. Must be greater than zero
+	 * 
+	 * @return iterator over the Repayments
+	 */
+	public PagingIterator<Repayment> getRapaymentsDueFromToPaged(String dueFromString, String dueToString,
+			int pageSize) {
+
+		ParamsMap paramsMap = new ParamsMap();
+		paramsMap.put(DUE_FROM, dueFromString);
+		paramsMap.put(DUE_TO, dueToString);
+
+		return serviceExecutor.executePaged(getRepaymments, paramsMap, pageSize);
+	}
+
 	/***
 	 * Get a all Repayments by Loan account id with an offset and limit parameters
 	 * 
@@ -121,8 +144,6 @@ public class RepaymentsService {
 			throws MambuApiException {
 		// Available since Mambu 3.9
 		// API example: PATCH -d JSONLoanRepayments_object /api/loans/loan_id/repayments. Returns list of Repayments
-		// This API accepts JSON requests with the dates in "yyyy-MM-dd" format only
-		updateRepaymentsForLoan.setJsonDateTimeFormat(APIData.yyyyMmddFormat);
 		return serviceExecutor.executeJson(updateRepaymentsForLoan, repayments, accountId);
 
 	}
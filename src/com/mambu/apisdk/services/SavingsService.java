@@ -4,6 +4,7 @@
 package com.mambu.apisdk.services;
 
 import java.util.List;
+import java.util.concurrent.Future;
 
 import com.google.inject.Inject;
 import com.mambu.accounts.shared.model.Account.Type;
@@ -14,6 +15,9 @@ import com.mambu.apisdk.exception.MambuApiException;
 import com.mambu.apisdk.util.APIData;
 import com.mambu.apisdk.util.ApiDefinition;
 import com.mambu.apisdk.util.ApiDefinition.ApiType;
+import com.mambu.apisdk.util.MambuApiCallback;
+import com.mambu.apisdk.util.PageConsumer;
+import com.mambu.apisdk.util.PagingIterator;
 import com.mambu.apisdk.util.ParamsMap;
 import com.mambu.apisdk.util.ServiceExecutor;
 import com.mambu.apisdk.util.ServiceHelper;
@@ -134,6 +138,20 @@ public class SavingsService {
 		return serviceExecutor.execute(getAccount, accountId);
 	}
 
+	/***
+	 * Get a savings account by its id asynchronously
+	 * 
+	 * @param accountId
+	 *            the id of the account
+	 * @param callback
+	 *            callback to be notified when the request completes. Can be null
+	 * 
+	 * @return future for the savings account
+	 */
+	public Future<SavingsAccount> getSavingsAccountAsync(String accountId, MambuApiCallback<SavingsAccount> callback) {
+		return serviceExecutor.executeAsync(getAccount, accountId, callback);
+	}
+
 	/***
 	 * Get a savings account with full details by its id
 	 * 
@@ -149,6 +167,21 @@ public class SavingsService {
 		return serviceExecutor.execute(getAccountDetails, accountId);
 	}
 
+	/***
+	 * Get a savings account with full details by its id asynchronously
+	 * 
+	 * @param accountId
+	 *            the id of the account
+	 * @param callback
+	 *            callback to be notified when the request completes. Can be null
+	 * 
+	 * @return future for the savings account
+	 */
+	public Future<SavingsAccount> getSavingsAccountDetailsAsync(String accountId,
+			MambuApiCallback<SavingsAccount> callback) {
+		return serviceExecutor.executeAsync(getAccountDetails, accountId, callback);
+	}
+
 	/***
 	 * Get all the savings accounts for a given client
 	 * 
@@ -233,6 +266,30 @@ public class SavingsService {
 		return serviceExecutor.execute(getAccountTransactions, accountId, paramsMap);
 	}
 
+	/***
+	 * Get savings account transactions by account id, offset and limit asynchronously
+	 * 
+	 * @param accountId
+	 *            the id of the account
+	 * @param offset
+	 *            first transaction number
+	 * @param limit
+	 *            last transaction number
+	 * @param callback
+	 *            callback to be notified when the request completes. Can be null
+	 * 
+	 * @return future for the list of savings transactions
+	 */
+	public Future<List<SavingsTransaction>> getSavingsAccountTransactionsAsync(String accountId, String offset,
+			String limit, MambuApiCallback<List<SavingsTransaction>> callback) {
+
+		ParamsMap paramsMap = new ParamsMap();
+		paramsMap.put(OFFSET, offset);
+		paramsMap.put(LIMIT, limit);
+
+		return serviceExecutor.executeAsync(getAccountTransactions, accountId, paramsMap, callback);
+	}
+
 	/**
 	 * Requests a list of savings transactions for a custom view, limited by offset/limit
 	 * 
@@ -254,6 +311,25 @@ public class SavingsService {
 		return serviceExecutor.execute(getAllSavingsTransactions, params);
 	}
 
+	/**
+	 * Requests all savings transactions for a custom view page by page. The next page is requested in the background
+	 * while the current one is processed
+	 * 
+	 * @param customViewKey
+	 *            the key of the Custom View to filter savings transactions
+	 * @param pageSize
+	 *            number of transactions requested with each request. Must be greater than zero
+	 * 
+	 * @return iterator over the Mambu savings transactions
+	 */
+	public PagingIterator<SavingsTransaction> getSavingsTransactionsByCustomViewPaged(String customViewKey,
+			int pageSize) {
+		String offset = null;
+		String limit = null;
+		ParamsMap params = ServiceHelper.makeParamsForGetByCustomView(customViewKey, offset, limit);
+		return serviceExecutor.executePaged(getAllSavingsTransactions, params, pageSize);
+	}
+
 	/****
 	 * Make a withdrawal from an account.
 	 * 
@@ -522,6 +598,53 @@ public class SavingsService {
 
 	}
 
+	/**
+	 * Requests all savings accounts for a custom view, with several page requests in flight at the same time. Pages
+	 * are passed to the consumer as they arrive, not necessarily in the offset order
+	 * 
+	 * @param customViewKey
+	 *            the key of the Custom View to filter savings accounts
+	 * @param pageSize
+	 *            number of accounts requested with each request. Must be greater than zero
+	 * @param parallelism
+	 *            maximum number of page requests in flight. Must be greater than zero
+	 * @param consumer
+	 *            consumer for the pages of savings accounts
+	 * 
+	 * @throws MambuApiException
+	 */
+	public void getSavingsAccountsByCustomView(String customViewKey, int pageSize, int parallelism,
+			PageConsumer<SavingsAccount> consumer) throws MambuApiException {
+		String offset = null;
+		String limit = null;
+		ParamsMap params = ServiceHelper.makeParamsForGetByCustomView(customViewKey, offset, limit);
+		String objectId = null;
+		serviceExecutor.executePagedInParallel(getAccountsList, objectId, params, pageSize, parallelism, consumer);
+	}
+
+	/**
+	 * Requests all savings accounts for a custom view, with several page requests in flight at the same time
+	 * 
+	 * @param customViewKey
+	 *            the key of the Custom View to filter savings accounts
+	 * @param pageSize
+	 *            number of accounts requested with each request. Must be greater than zero
+	 * @param parallelism
+	 *            maximum number of page requests in flight. Must be greater than zero
+	 * 
+	 * @return the list of all Mambu savings accounts for the custom view
+	 * 
+	 * @throws MambuApiException
+	 */
+	public List<SavingsAccount> getAllSavingsAccountsByCustomView(String customViewKey, int pageSize, int parallelism)
+			throws MambuApiException {
+		String offset = null;
+		String limit = null;
+		ParamsMap params = ServiceHelper.makeParamsForGetByCustomView(customViewKey, offset, limit);
+		String objectId = null;
+		return serviceExecutor.executeAllPagesInParallel(getAccountsList, objectId, params, pageSize, parallelism);
+	}
+
 	// Savings Products
 	/***
 	 * Get a list of Savings Products
@@ -15,6 +15,7 @@ import com.mambu.apisdk.util.APIData;
 import com.mambu.apisdk.util.ApiDefinition;
 import com.mambu.apisdk.util.ApiDefinition.ApiType;
 import com.mambu.apisdk.util.DateUtils;
+import com.mambu.apisdk.util.PagingIterator;
 import com.mambu.apisdk.util.ParamsMap;
 import com.mambu.apisdk.util.ServiceExecutor;
 import com.mambu.tasks.shared.model.Task;
@@ -183,6 +184,33 @@ public class TasksService {
 		return serviceExecutor.execute(getTasks, paramsMap);
 	}
 
+	/***
+	 * Get all tasks matching the specified criteria page by page. The next page is requested in the background while
+	 * the current one is processed. See getTasks() for the criteria
+	 * 
+	 * @param username
+	 *            username, encodedKey or user id
+	 * @param clientId
+	 *            client encodedKey or id
+	 * @param taskStatus
+	 *            task status
+	 * @param pageSize
+	 *            number of tasks requested with each request. Must be greater than zero
+	 * 
+	 * @return iterator over the tasks matching specified criteria
+	 */
+	public PagingIterator<Task> getTasksPaged(String username, String clientId, TaskStatus taskStatus, int pageSize) {
+
+		ParamsMap paramsMap = new ParamsMap();
+		paramsMap.addParam(APIData.USERNAME, username);
+		paramsMap.addParam(APIData.CLIENT_ID, clientId);
+		if (taskStatus != null) {
+			paramsMap.addParam(APIData.STATUS, taskStatus.name());
+		}
+
+		return serviceExecutor.executePaged(getTasks, paramsMap, pageSize);
+	}
+
 	/***
 	 * Delete task by its Id
 	 * 
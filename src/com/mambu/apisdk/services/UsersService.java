@@ -10,6 +10,7 @@ import com.mambu.apisdk.exception.MambuApiException;
 import com.mambu.apisdk.util.APIData;
 import com.mambu.apisdk.util.ApiDefinition;
 import com.mambu.apisdk.util.ApiDefinition.ApiType;
+import com.mambu.apisdk.util.PagingIterator;
 import com.mambu.apisdk.util.ParamsMap;
 import com.mambu.apisdk.util.ServiceExecutor;
 import com.mambu.apisdk.util.ServiceHelper;
@@ -78,6 +79,19 @@ public class UsersService {
 		return serviceExecutor.execute(getUsers, params);
 	}
 
+	/**
+	 * Get all the users page by page. The next page is requested in the background while the current one is processed
+	 * 
+	 * @param pageSize
+	 *            number of users requested with each request. Must be greater than zero
+	 * 
+	 * @return iterator over all Users
+	 */
+	public PagingIterator<User> getUsersPaged(int pageSize) {
+		ParamsMap params = null;
+		return serviceExecutor.executePaged(getUsers, params, pageSize);
+	}
+
 	/**
 	 * Get users (first 50 per default)
 	 * 
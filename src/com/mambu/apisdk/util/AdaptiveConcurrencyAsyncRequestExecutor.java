@@ -0,0 +1,55 @@
+package com.mambu.apisdk.util;
+
+import java.util.concurrent.Future;
+
+import com.mambu.apisdk.exception.MambuApiException;
+
+/**
+ * Adaptive concurrency decorator for an AsyncRequestExecutor. Asynchronous requests over the limit don't block a
+ * thread: they are queued and passed to the delegate when a request to the tenant completes. The response time is
+ * measured from the start of the request by the delegate, not from the time it was queued
+ */
+public class AdaptiveConcurrencyAsyncRequestExecutor extends AdaptiveConcurrencyRequestExecutor implements
+		AsyncRequestExecutor {
+
+	private final AsyncRequestExecutor asyncDelegate;
+
+	/**
+	 * Create adaptive concurrency executor
+	 *
+	 * @param delegate
+	 *            asynchronous request executor executing the requests
+	 * @param limiter
+	 *            concurrency limiter for the tenant
+	 */
+	public AdaptiveConcurrencyAsyncRequestExecutor(AsyncRequestExecutor delegate, AdaptiveConcurrencyLimiter limiter) {
+		super(delegate, limiter);
+		this.asyncDelegate = delegate;
+	}
+
+	@Override
+	public <R> Future<R> executeRequestAsync(final String urlString, final ParamsMap params,
+			final ApiDefinition apiDefinition, final MambuApiCallback<R> callback) {
+
+		return limiter.executeAsync(new Bulkhead.AsyncRequest<R>() {
+			@Override
+			public Future<R> start(final MambuApiCallback<R> requestCallback) {
+				final long start = System.nanoTime();
+				return asyncDelegate.executeRequestAsync(urlString, params, apiDefinition, new MambuApiCallback<R>() {
+
+					@Override
+					public void onSuccess(R decoded) {
+						limiter.onCompleted(System.nanoTime() - start, null);
+						requestCallback.onSuccess(decoded);
+					}
+
+					@Override
+					public void onFailure(MambuApiException exception) {
+						limiter.onCompleted(System.nanoTime() - start, exception);
+						requestCallback.onFailure(exception);
+					}
+				});
+			}
+		}, callback, urlString);
+	}
+}
@@ -0,0 +1,272 @@
+package com.mambu.apisdk.util;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.mambu.apisdk.exception.MambuApiException;
+
+/**
+ * Adaptive limit of the concurrent API requests to one tenant (AIMD: additive increase, multiplicative decrease). The
+ * limiter tracks a short term and a long term average of the response times. While the tenant responds as fast as
+ * usual and the requests use at least half of the limit, the limit grows by one for each limit's worth of successful
+ * responses. The limit is multiplied by the backoff ratio when the tenant responds with 429 (Too Many Requests) or 5xx,
+ * a request fails with an I/O error or a timeout, or the short term average exceeds the long term average by more
+ * than the latency tolerance; at most once per short term response time, so that a burst of errors caused by one
+ * overload is counted once. Requests over the limit wait in a FIFO queue, like in a Bulkhead
+ *
+ * One AdaptiveConcurrencyLimiter is shared by all executors for the same tenant domain. The tenant's limiter is created
+ * with the settings of the first executor; different settings of the other executors are logged and ignored. The
+ * current limit can be read from the tenant's limiter: AdaptiveConcurrencyLimiter.getTenantLimiter(domain).getLimit().
+ * The limiter is kept until it is removed with AdaptiveConcurrencyLimiter.removeTenantLimiter(domain)
+ */
+public class AdaptiveConcurrencyLimiter {
+
+	// Weights of a new response time in the short term and the long term averages
+	private final static double SHORT_TERM_WEIGHT = 0.1;
+	private final static double LONG_TERM_WEIGHT = 0.01;
+
+	private final static Logger LOGGER = Logger.getLogger(AdaptiveConcurrencyLimiter.class.getName());
+
+	// Limiters by the tenant domain
+	private final static ConcurrentMap<String, AdaptiveConcurrencyLimiter> tenantLimiters = new ConcurrentHashMap<String, AdaptiveConcurrencyLimiter>();
+
+	private final String domain;
+	private final AdaptiveConcurrencySettings settings;
+	// Settings the limiter was created with
+	private final String settingsDescription;
+	private final Bulkhead bulkhead;
+
+	// Guarded by this
+	private double limit;
+	private double shortTermLatencyNanos;
+	private double longTermLatencyNanos;
+	private long lastDecreaseNanos;
+	private long decreases;
+
+	/**
+	 * Create adaptive concurrency limiter
+	 *
+	 * @param domain
+	 *            tenant domain, used in the error messages
+	 * @param settings
+	 *            adaptive concurrency settings
+	 */
+	public AdaptiveConcurrencyLimiter(String domain, AdaptiveConcurrencySettings settings) {
+		if (settings == null) {
+			throw new IllegalArgumentException("Adaptive concurrency settings must not be null");
+		}
+		this.domain = domain;
+		this.settings = settings;
+		this.settingsDescription = settings.toString();
+		this.limit = settings.getInitialLimit();
+		this.bulkhead = new Bulkhead("adaptive limit " + domain, settings.getInitialLimit(),
+				settings.getMaxQueuedRequests(), settings.getMaxWaitMillis());
+	}
+
+	/**
+	 * Get the limiter for the tenant domain, creating it with the settings if the domain has none yet. If the tenant's
+	 * limiter was created with other settings, a warning is logged and the existing limiter is returned
+	 *
+	 * @param domain
+	 *            tenant domain
+	 * @param settings
+	 *            adaptive concurrency settings used if the limiter is created
+	 * @return the tenant's limiter
+	 */
+	public static AdaptiveConcurrencyLimiter getTenantLimiter(String domain, AdaptiveConcurrencySettings settings) {
+		if (domain == null) {
+			throw new IllegalArgumentException("Domain must not be null");
+		}
+		AdaptiveConcurrencyLimiter limiter = tenantLimiters.get(domain);
+		if (limiter == null) {
+			AdaptiveConcurrencyLimiter created = new AdaptiveConcurrencyLimiter(domain, settings);
+			limiter = tenantLimiters.putIfAbsent(domain, created);
+			if (limiter == null) {
+				return created;
+			}
+		}
+		if (settings != null && !limiter.settingsDescription.equals(settings.toString())
+				&& LOGGER.isLoggable(Level.WARNING)) {
+			LOGGER.warning("Adaptive concurrency limiter for domain=" + domain + " already exists with settings "
+					+ limiter.settingsDescription + ", ignoring the settings " + settings);
+		}
+		return limiter;
+	}
+
+	/**
+	 * Get the limiter for the tenant domain
+	 *
+	 * @param domain
+	 *            tenant domain
+	 * @return the tenant's limiter or null if the concurrency of the requests to the tenant is not limited
+	 */
+	public static AdaptiveConcurrencyLimiter getTenantLimiter(String domain) {
+		return tenantLimiters.get(domain);
+	}
+
+	/**
+	 * Remove the limiter of the tenant domain. Executors already using it keep using it, executors created later get a
+	 * new limiter
+	 *
+	 * @param domain
+	 *            tenant domain
+	 * @return the removed limiter or null if the concurrency of the requests to the tenant was not limited
+	 */
+	public static AdaptiveConcurrencyLimiter removeTenantLimiter(String domain) {
+		return tenantLimiters.remove(domain);
+	}
+
+	/**
+	 * Take a permit for a request, waiting for at most the maximum wait and not beyond the deadline. The permit must be
+	 * returned with release() after the outcome of the request was recorded with onCompleted()
+	 *
+	 * @param deadline
+	 *            deadline of the request or null if it has none
+	 * @throws MambuApiException
+	 *             if the queue is full, no permit was returned in time or the thread was interrupted
+	 */
+	public void acquire(Deadline deadline) throws MambuApiException {
+		bulkhead.acquire(deadline);
+	}
+
+	/**
+	 * Return a permit
+	 */
+	public void release() {
+		bulkhead.release();
+	}
+
+	/**
+	 * Execute an asynchronous request when a permit is available. The permit is returned when the request completes;
+	 * the request must record its outcome with onCompleted() before it notifies its callback
+	 */
+	<R> Future<R> executeAsync(Bulkhead.AsyncRequest<R> request, MambuApiCallback<R> callback, String urlString) {
+		return bulkhead.executeAsync(request, callback, urlString);
+	}
+
+	/**
+	 * Record the outcome of a request holding a permit and adjust the limit
+	 *
+	 * @param latencyNanos
+	 *            response time in nanoseconds
+	 * @param exception
+	 *            exception of a failed request or null if the request succeeded
+	 */
+	public void onCompleted(long latencyNanos, MambuApiException exception) {
+
+		int inFlight = bulkhead.getActiveRequests();
+		synchronized (this) {
+			if (exception == null) {
+				if (longTermLatencyNanos == 0) {
+					shortTermLatencyNanos = latencyNanos;
+					longTermLatencyNanos = latencyNanos;
+				} else {
+					shortTermLatencyNanos += SHORT_TERM_WEIGHT * (latencyNanos - shortTermLatencyNanos);
+					longTermLatencyNanos += LONG_TERM_WEIGHT * (latencyNanos - longTermLatencyNanos);
+				}
+				if (shortTermLatencyNanos > settings.getLatencyTolerance() * longTermLatencyNanos) {
+					decrease();
+				} else if (inFlight * 2 >= limit) {
+					// Grow only while the limit is used, otherwise it would grow without bounds at a low load
+					limit = Math.min(settings.getMaxLimit(), limit + 1.0 / limit);
+				}
+			} else if (isOverloaded(exception)) {
+				decrease();
+			} else {
+				// Client errors and cancelled requests say nothing about the load of the tenant
+				return;
+			}
+		}
+		bulkhead.setMaxConcurrentRequests(getLimit());
+	}
+
+	// Called with the lock held
+	private void decrease() {
+		long now = System.nanoTime();
+		if (decreases > 0 && now - lastDecreaseNanos < shortTermLatencyNanos) {
+			// The requests in flight were sent before the last decrease
+			return;
+		}
+		limit = Math.max(settings.getMinLimit(), limit * settings.getBackoffRatio());
+		lastDecreaseNanos = now;
+		decreases++;
+	}
+
+	private static boolean isOverloaded(MambuApiException exception) {
+		Integer status = exception.getErrorCode();
+		if (status != null && (status == 429 || status >= 500)) {
+			return true;
+		}
+		for (Throwable cause = exception.getCause(); cause != null; cause = cause.getCause()) {
+			if (cause instanceof IOException || cause instanceof TimeoutException) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	public String getDomain() {
+		return domain;
+	}
+
+	/**
+	 * Get the current limit of the concurrent requests to the tenant
+	 */
+	public synchronized int getLimit() {
+		return (int) limit;
+	}
+
+	/**
+	 * Get the number of requests holding a permit
+	 */
+	public int getInFlightRequests() {
+		return bulkhead.getActiveRequests();
+	}
+
+	/**
+	 * Get the number of requests waiting for a permit
+	 */
+	public int getQueuedRequests() {
+		return bulkhead.getQueuedRequests();
+	}
+
+	/**
+	 * Get the number of requests rejected because the queue was full or they waited too long
+	 */
+	public long getRejectedRequests() {
+		return bulkhead.getRejectedRequests();
+	}
+
+	/**
+	 * Get the number of times the limit was decreased
+	 */
+	public synchronized long getDecreases() {
+		return decreases;
+	}
+
+	/**
+	 * Get the short term average response time in milliseconds
+	 */
+	public synchronized double getShortTermLatencyMillis() {
+		return shortTermLatencyNanos / TimeUnit.MILLISECONDS.toNanos(1);
+	}
+
+	/**
+	 * Get the long term average response time in milliseconds
+	 */
+	public synchronized double getLongTermLatencyMillis() {
+		return longTermLatencyNanos / TimeUnit.MILLISECONDS.toNanos(1);
+	}
+
+	@Override
+	public String toString() {
+		return "AdaptiveConcurrencyLimiter " + domain + ": limit=" + getLimit() + " inFlight="
+				+ getInFlightRequests() + " queued=" + getQueuedRequests();
+	}
+}
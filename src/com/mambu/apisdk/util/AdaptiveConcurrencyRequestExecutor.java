@@ -0,0 +1,166 @@
+package com.mambu.apisdk.util;
+
+import com.mambu.apisdk.exception.MambuApiException;
+
+/**
+ * Request executor decorator limiting the concurrent requests to a tenant with an AdaptiveConcurrencyLimiter. Each
+ * request holds a permit of the limiter while it is executed by the delegate, and its response time and outcome
+ * adjust the limit. Use AdaptiveConcurrencyRequestExecutor.decorate() to keep the asynchronous execution of an
+ * AsyncRequestExecutor.
+ *
+ * Adaptive concurrency limits are enabled for all services created with a MambuAPIModule by setting its adaptive
+ * concurrency settings: mambuAPIModule.setAdaptiveConcurrencySettings(new AdaptiveConcurrencySettings())
+ */
+public class AdaptiveConcurrencyRequestExecutor implements RequestExecutor {
+
+	protected final RequestExecutor delegate;
+	protected final AdaptiveConcurrencyLimiter limiter;
+
+	/**
+	 * Create adaptive concurrency executor
+	 *
+	 * @param delegate
+	 *            request executor executing the requests
+	 * @param limiter
+	 *            concurrency limiter for the tenant
+	 */
+	public AdaptiveConcurrencyRequestExecutor(RequestExecutor delegate, AdaptiveConcurrencyLimiter limiter) {
+		if (delegate == null || limiter == null) {
+			throw new IllegalArgumentException("Request executor and concurrency limiter must not be null");
+		}
+		this.delegate = delegate;
+		this.limiter = limiter;
+	}
+
+	/**
+	 * Decorate the request executor with an adaptive concurrency limit. The returned executor is an
+	 * AsyncRequestExecutor if the delegate is one
+	 *
+	 * @param delegate
+	 *            request executor executing the requests
+	 * @param limiter
+	 *            concurrency limiter for the tenant
+	 * @return adaptive concurrency request executor
+	 */
+	public static AdaptiveConcurrencyRequestExecutor decorate(RequestExecutor delegate,
+			AdaptiveConcurrencyLimiter limiter) {
+		if (delegate instanceof AsyncRequestExecutor) {
+			return new AdaptiveConcurrencyAsyncRequestExecutor((AsyncRequestExecutor) delegate, limiter);
+		}
+		return new AdaptiveConcurrencyRequestExecutor(delegate, limiter);
+	}
+
+	public AdaptiveConcurrencyLimiter getLimiter() {
+		return limiter;
+	}
+
+	@Override
+	public void setAuthorization(String username, String password) {
+		delegate.setAuthorization(username, password);
+	}
+
+	@Override
+	public String executeRequest(String urlString, Method method) throws MambuApiException {
+		limiter.acquire(null);
+		long start = System.nanoTime();
+		try {
+			String response = delegate.executeRequest(urlString, method);
+			limiter.onCompleted(System.nanoTime() - start, null);
+			return response;
+		} catch (MambuApiException e) {
+			limiter.onCompleted(System.nanoTime() - start, e);
+			throw e;
+		} finally {
+			limiter.release();
+		}
+	}
+
+	@Override
+	public String executeRequest(String urlString, ParamsMap params, Method method) throws MambuApiException {
+		limiter.acquire(null);
+		long start = System.nanoTime();
+		try {
+			String response = delegate.executeRequest(urlString, params, method);
+			limiter.onCompleted(System.nanoTime() - start, null);
+			return response;
+		} catch (MambuApiException e) {
+			limiter.onCompleted(System.nanoTime() - start, e);
+			throw e;
+		} finally {
+			limiter.release();
+		}
+	}
+
+	@Override
+	public String executeRequest(String urlString, Method method, ContentType contentTypeFormat)
+			throws MambuApiException {
+		limiter.acquire(null);
+		long start = System.nanoTime();
+		try {
+			String response = delegate.executeRequest(urlString, method, contentTypeFormat);
+			limiter.onCompleted(System.nanoTime() - start, null);
+			return response;
+		} catch (MambuApiException e) {
+			limiter.onCompleted(System.nanoTime() - start, e);
+			throw e;
+		} finally {
+			limiter.release();
+		}
+	}
+
+	@Override
+	public String executeRequest(String urlString, ParamsMap params, Method method, ContentType contentTypeFormat)
+			throws MambuApiException {
+		limiter.acquire(null);
+		long start = System.nanoTime();
+		try {
+			String response = delegate.executeRequest(urlString, params, method, contentTypeFormat);
+			limiter.onCompleted(System.nanoTime() - start, null);
+			return response;
+		} catch (MambuApiException e) {
+			limiter.onCompleted(System.nanoTime() - start, e);
+			throw e;
+		} finally {
+			limiter.release();
+		}
+	}
+
+	@Override
+	public <R> R executeRequest(String urlString, ParamsMap params, ApiDefinition apiDefinition)
+			throws MambuApiException {
+		limiter.acquire(null);
+		long start = System.nanoTime();
+		try {
+			R result = delegate.executeRequest(urlString, params, apiDefinition);
+			limiter.onCompleted(System.nanoTime() - start, null);
+			return result;
+		} catch (MambuApiException e) {
+			limiter.onCompleted(System.nanoTime() - start, e);
+			throw e;
+		} finally {
+			limiter.release();
+		}
+	}
+
+	@Override
+	public <R> R executeRequest(String urlString, ParamsMap params, ApiDefinition apiDefinition, Deadline deadline)
+			throws MambuApiException {
+		limiter.acquire(deadline);
+		long start = System.nanoTime();
+		try {
+			R result = delegate.executeRequest(urlString, params, apiDefinition, deadline);
+			limiter.onCompleted(System.nanoTime() - start, null);
+			return result;
+		} catch (MambuApiException e) {
+			limiter.onCompleted(System.nanoTime() - start, e);
+			throw e;
+		} finally {
+			limiter.release();
+		}
+	}
+
+	@Override
+	public void shutdown() {
+		delegate.shutdown();
+	}
+}
@@ -0,0 +1,128 @@
+package com.mambu.apisdk.util;
+
+/**
+ * Settings for the AdaptiveConcurrencyLimiter, which adjusts the number of requests in flight to a tenant to the
+ * observed latency and errors (AIMD: additive increase, multiplicative decrease). The limit starts at the initial
+ * limit, grows by one per limit's worth of fast successful responses and is multiplied by the backoff ratio when the
+ * tenant responds with 429 (Too Many Requests) or 5xx, the request fails with an I/O error or the recent latency grows
+ * above latencyTolerance times the long term latency
+ */
+public class AdaptiveConcurrencySettings {
+
+	// Default values
+	public final static int DEFAULT_INITIAL_LIMIT = 10;
+	public final static int DEFAULT_MIN_LIMIT = 1;
+	public final static int DEFAULT_MAX_LIMIT = 100;
+	public final static double DEFAULT_BACKOFF_RATIO = 0.75;
+	public final static double DEFAULT_LATENCY_TOLERANCE = 2.0;
+	public final static int DEFAULT_MAX_QUEUED_REQUESTS = 1000;
+	public final static long DEFAULT_MAX_WAIT_MILLIS = 30000L;
+
+	// Limit of requests in flight before any response was observed
+	private int initialLimit = DEFAULT_INITIAL_LIMIT;
+	// Bounds of the limit
+	private int minLimit = DEFAULT_MIN_LIMIT;
+	private int maxLimit = DEFAULT_MAX_LIMIT;
+	// Factor the limit is multiplied by when the tenant is overloaded
+	private double backoffRatio = DEFAULT_BACKOFF_RATIO;
+	// How much the recent latency may exceed the long term latency before the limit is decreased
+	private double latencyTolerance = DEFAULT_LATENCY_TOLERANCE;
+	// Requests waiting for the limit: maximum number and maximum wait of the synchronous requests
+	private int maxQueuedRequests = DEFAULT_MAX_QUEUED_REQUESTS;
+	private long maxWaitMillis = DEFAULT_MAX_WAIT_MILLIS;
+
+	/**
+	 * Create adaptive concurrency settings with default values
+	 */
+	public AdaptiveConcurrencySettings() {
+	}
+
+	/**
+	 * Create adaptive concurrency settings with the specified limits
+	 *
+	 * @param initialLimit
+	 *            initial limit of requests in flight
+	 * @param minLimit
+	 *            minimum limit. Must be greater than zero
+	 * @param maxLimit
+	 *            maximum limit. Must not be less than the minimum limit
+	 */
+	public AdaptiveConcurrencySettings(int initialLimit, int minLimit, int maxLimit) {
+		if (minLimit < 1) {
+			throw new IllegalArgumentException("minLimit must be greater than zero");
+		}
+		if (maxLimit < minLimit) {
+			throw new IllegalArgumentException("maxLimit must not be less than minLimit");
+		}
+		if (initialLimit < minLimit || initialLimit > maxLimit) {
+			throw new IllegalArgumentException("initialLimit must be between minLimit and maxLimit");
+		}
+		this.initialLimit = initialLimit;
+		this.minLimit = minLimit;
+		this.maxLimit = maxLimit;
+	}
+
+	public int getInitialLimit() {
+		return initialLimit;
+	}
+
+	public int getMinLimit() {
+		return minLimit;
+	}
+
+	public int getMaxLimit() {
+		return maxLimit;
+	}
+
+	public double getBackoffRatio() {
+		return backoffRatio;
+	}
+
+	public void setBackoffRatio(double backoffRatio) {
+		if (backoffRatio <= 0 || backoffRatio >= 1) {
+			throw new IllegalArgumentException("backoffRatio must be between zero and one");
+		}
+		this.backoffRatio = backoffRatio;
+	}
+
+	public double getLatencyTolerance() {
+		return latencyTolerance;
+	}
+
+	public void setLatencyTolerance(double latencyTolerance) {
+		if (latencyTolerance <= 1) {
+			throw new IllegalArgumentException("latencyTolerance must be greater than one");
+		}
+		this.latencyTolerance = latencyTolerance;
+	}
+
+	public int getMaxQueuedRequests() {
+		return maxQueuedRequests;
+	}
+
+	public void setMaxQueuedRequests(int maxQueuedRequests) {
+		if (maxQueuedRequests < 0) {
+			throw new IllegalArgumentException("maxQueuedRequests must not be negative");
+		}
+		this.maxQueuedRequests = maxQueuedRequests;
+	}
+
+	public long getMaxWaitMillis() {
+		return maxWaitMillis;
+	}
+
+	public void setMaxWaitMillis(long maxWaitMillis) {
+		if (maxWaitMillis < 0) {
+			throw new IllegalArgumentException("maxWaitMillis must not be negative");
+		}
+		this.maxWaitMillis = maxWaitMillis;
+	}
+
+	@Override
+	public String toString() {
+		return "initialLimit=" + initialLimit + " minLimit=" + minLimit + " maxLimit=" + maxLimit + " backoffRatio="
+				+ backoffRatio + " latencyTolerance=" + latencyTolerance + " maxQueuedRequests=" + maxQueuedRequests
+				+ " maxWaitMillis=" + maxWaitMillis;
+	}
+
+}
@@ -0,0 +1,250 @@
+package com.mambu.apisdk.util;
+
+import com.mambu.apisdk.exception.MambuApiException;
+import com.mambu.apisdk.util.ApiDefinition.ApiType;
+import com.mambu.apisdk.util.RequestExecutor.Method;
+
+/**
+ * Event of a completed API call, passed to the ApiCallListeners registered with ApiCallEvents. An HTTP_REQUEST event is
+ * fired by the request executor for each HTTP request sent, including each retry and hedge. A SERVICE_CALL event is
+ * fired by the ServiceExecutor for each synchronous API call, when the call returns. It covers the whole call,
+ * including the waits for the limiters and the retries, and sums up the HTTP requests sent for the call by the calling
+ * thread
+ *
+ * The serialization time is the time spent encoding the request params and decoding the response. The network time is
+ * the time spent resolving the host, connecting, sending the request and waiting for the response headers. The JSON of
+ * the objects sent with executeJson() is written while the request is sent, so it is part of the network time
+ */
+public class ApiCallEvent {
+
+	/**
+	 * Kind of the event
+	 */
+	public enum Kind {
+		// An API call made with the ServiceExecutor
+		SERVICE_CALL,
+		// An HTTP request sent by the request executor
+		HTTP_REQUEST
+	}
+
+	private final Kind kind;
+	private final ApiType apiType;
+	private final String apiDefinition;
+	private final String endpoint;
+	private final Method method;
+	private final String threadName;
+	private final long startTimeMillis;
+	private final long startNanos;
+
+	private int status;
+	private boolean failed;
+	private int requests;
+	private long bytesSent;
+	private long bytesReceived;
+	private long serializationNanos;
+	private long networkNanos;
+	private long durationNanos = -1L;
+
+	// SERVICE_CALL event of the current thread when this one started, restored when this one ends
+	ApiCallEvent enclosing;
+
+	/**
+	 * Create the event of a call
+	 *
+	 * @param kind
+	 *            kind of the event
+	 * @param apiDefinition
+	 *            API definition of the call. Can be null
+	 * @param urlString
+	 *            URL of the call
+	 * @param method
+	 *            HTTP method of the call
+	 * @param startNanos
+	 *            System.nanoTime() when the call started
+	 */
+	ApiCallEvent(Kind kind, ApiDefinition apiDefinition, String urlString, Method method, long startNanos) {
+		this.kind = kind;
+		this.apiType = (apiDefinition == null) ? null : apiDefinition.getApiType();
+		this.apiDefinition = (apiDefinition == null) ? MetricsRegistry.NO_API_DEFINITION : apiDefinition.toString();
+		this.endpoint = getPath(urlString);
+		this.method = method;
+		this.threadName = Thread.currentThread().getName();
+		this.startTimeMillis = System.currentTimeMillis();
+		this.startNanos = startNanos;
+	}
+
+	/**
+	 * Get the path of the URL, without the scheme, host and query
+	 */
+	static String getPath(String urlString) {
+		if (urlString == null) {
+			return null;
+		}
+		int start = urlString.indexOf("://");
+		start = (start == -1) ? 0 : urlString.indexOf('/', start + 3);
+		if (start == -1) {
+			return "/";
+		}
+		int end = urlString.indexOf('?', start);
+		return (end == -1) ? urlString.substring(start) : urlString.substring(start, end);
+	}
+
+	synchronized void setStatus(int status) {
+		this.status = status;
+	}
+
+	synchronized void addBytesSent(long bytes) {
+		bytesSent += bytes;
+	}
+
+	synchronized void addBytesReceived(long bytes) {
+		bytesReceived += bytes;
+	}
+
+	synchronized void addSerializationNanos(long nanos) {
+		serializationNanos += nanos;
+	}
+
+	synchronized void addNetworkNanos(long nanos) {
+		networkNanos += nanos;
+	}
+
+	/**
+	 * Add a completed HTTP request sent for this SERVICE_CALL. Requests completing after this call ended are ignored
+	 */
+	synchronized void addRequest(ApiCallEvent request) {
+		if (isCompleted()) {
+			return;
+		}
+		requests++;
+		status = request.getStatus();
+		bytesSent += request.getBytesSent();
+		bytesReceived += request.getBytesReceived();
+		serializationNanos += request.getSerializationNanos();
+		networkNanos += request.getNetworkNanos();
+	}
+
+	/**
+	 * Complete the event
+	 *
+	 * @param failure
+	 *            exception the call failed with or null if it succeeded
+	 * @return false if the event was already completed
+	 */
+	synchronized boolean complete(MambuApiException failure) {
+		if (isCompleted()) {
+			return false;
+		}
+		durationNanos = System.nanoTime() - startNanos;
+		if (failure != null) {
+			failed = true;
+			Integer errorCode = failure.getErrorCode();
+			status = (errorCode != null && errorCode.intValue() >= 100) ? errorCode.intValue() : 0;
+		}
+		if (kind == Kind.HTTP_REQUEST) {
+			requests = 1;
+		}
+		return true;
+	}
+
+	public Kind getKind() {
+		return kind;
+	}
+
+	/**
+	 * Get the API type of the call or null if the call has no ApiDefinition
+	 */
+	public ApiType getApiType() {
+		return apiType;
+	}
+
+	/**
+	 * Get the name of the API definition of the call (see ApiDefinition.toString())
+	 */
+	public String getApiDefinition() {
+		return apiDefinition;
+	}
+
+	/**
+	 * Get the URL path of the call, e.g. "/api/loans/8a33af/transactions"
+	 */
+	public String getEndpoint() {
+		return endpoint;
+	}
+
+	public Method getMethod() {
+		return method;
+	}
+
+	/**
+	 * Get the name of the thread which started the call
+	 */
+	public String getThreadName() {
+		return threadName;
+	}
+
+	/**
+	 * Get the System.currentTimeMillis() when the call started
+	 */
+	public long getStartTimeMillis() {
+		return startTimeMillis;
+	}
+
+	/**
+	 * Get the HTTP status of the response or 0 if the call failed without a response
+	 */
+	public synchronized int getStatus() {
+		return status;
+	}
+
+	public synchronized boolean isFailed() {
+		return failed;
+	}
+
+	/**
+	 * Get the number of HTTP requests sent for the call. 0 for a SERVICE_CALL served from the response cache
+	 */
+	public synchronized int getRequests() {
+		return requests;
+	}
+
+	/**
+	 * Get the number of request body bytes sent
+	 */
+	public synchronized long getBytesSent() {
+		return bytesSent;
+	}
+
+	/**
+	 * Get the number of response body bytes received
+	 */
+	public synchronized long getBytesReceived() {
+		return bytesReceived;
+	}
+
+	public synchronized long getSerializationNanos() {
+		return serializationNanos;
+	}
+
+	public synchronized long getNetworkNanos() {
+		return networkNanos;
+	}
+
+	/**
+	 * Get the duration of the call or -1 while the call has not completed
+	 */
+	public synchronized long getDurationNanos() {
+		return durationNanos;
+	}
+
+	private boolean isCompleted() {
+		return durationNanos != -1L;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return kind + " " + method + " " + endpoint + " (" + apiDefinition + "): status=" + status + " requests="
+				+ requests + " bytesSent=" + bytesSent + " bytesReceived=" + bytesReceived + " serializationNanos="
+				+ serializationNanos + " networkNanos=" + networkNanos + " durationNanos=" + durationNanos;
+	}
+}
@@ -0,0 +1,123 @@
+package com.mambu.apisdk.util;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.mambu.apisdk.exception.MambuApiException;
+
+/**
+ * Registry of the ApiCallListeners notified of the API calls made by the ServiceExecutor and the request executors (see
+ * ApiCallEvent). The listeners are global, like the profilers they feed. While no listener is registered no events
+ * are created, so the API calls only pay for reading a volatile flag
+ */
+public final class ApiCallEvents {
+
+	private final static Logger LOGGER = Logger.getLogger(ApiCallEvents.class.getName());
+
+	private final static CopyOnWriteArrayList<ApiCallListener> listeners = new CopyOnWriteArrayList<ApiCallListener>();
+	private static volatile boolean enabled;
+
+	// SERVICE_CALL event of the API call made by the current thread
+	private final static ThreadLocal<ApiCallEvent> currentServiceCall = new ThreadLocal<ApiCallEvent>();
+
+	private ApiCallEvents() {
+	}
+
+	/**
+	 * Register a listener
+	 *
+	 * @param listener
+	 *            listener to notify of the API calls
+	 */
+	public static void addListener(ApiCallListener listener) {
+		if (listener == null) {
+			throw new IllegalArgumentException("Listener must not be null");
+		}
+		listeners.add(listener);
+		enabled = true;
+	}
+
+	/**
+	 * Unregister a listener
+	 *
+	 * @param listener
+	 *            listener registered with addListener()
+	 */
+	public static void removeListener(ApiCallListener listener) {
+		listeners.remove(listener);
+		enabled = !listeners.isEmpty();
+	}
+
+	/**
+	 * Check if any listener is registered
+	 */
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Start the SERVICE_CALL event of an API call made by the current thread
+	 *
+	 * @param apiDefinition
+	 *            API definition of the call
+	 * @param urlString
+	 *            URL of the call
+	 * @return event or null if no listener is registered
+	 */
+	static ApiCallEvent startServiceCall(ApiDefinition apiDefinition, String urlString) {
+		if (!enabled) {
+			return null;
+		}
+		ApiCallEvent event = new ApiCallEvent(ApiCallEvent.Kind.SERVICE_CALL, apiDefinition, urlString,
+				apiDefinition.getMethod(), System.nanoTime());
+		event.enclosing = currentServiceCall.get();
+		currentServiceCall.set(event);
+		return event;
+	}
+
+	/**
+	 * End the SERVICE_CALL event started by startServiceCall() and notify the listeners
+	 *
+	 * @param event
+	 *            event of the call or null
+	 * @param failure
+	 *            exception the call failed with or null if it succeeded
+	 */
+	static void endServiceCall(ApiCallEvent event, MambuApiException failure) {
+		if (event == null) {
+			return;
+		}
+		if (event.enclosing == null) {
+			currentServiceCall.remove();
+		} else {
+			currentServiceCall.set(event.enclosing);
+			event.enclosing = null;
+		}
+		if (event.complete(failure)) {
+			fire(event);
+		}
+	}
+
+	/**
+	 * Get the SERVICE_CALL event of the API call made by the current thread
+	 *
+	 * @return event or null if the current thread is not making an API call with the ServiceExecutor
+	 */
+	static ApiCallEvent getCurrentServiceCall() {
+		return currentServiceCall.get();
+	}
+
+	/**
+	 * Notify the listeners of a completed call. Listener failures are logged
+	 */
+	static void fire(ApiCallEvent event) {
+		for (ApiCallListener listener : listeners) {
+			try {
+				listener.apiCallCompleted(event);
+			} catch (RuntimeException e) {
+				LOGGER.log(Level.WARNING, "API call listener failed for " + event.getEndpoint(), e);
+			}
+		}
+	}
+}
@@ -0,0 +1,31 @@
+package com.mambu.apisdk.util;
+
+/**
+ * Listener notified of the completed API calls, registered with ApiCallEvents.addListener(). Called by the thread
+ * completing the call, so it must be fast and must not block, e.g. it should only commit the event to a profiler or
+ * update counters
+ *
+ * For example, on Java 11+ the events can be recorded by the Java Flight Recorder with a jdk.jfr.Event subclass having
+ * the same fields as the ApiCallEvent:
+ *
+ * <pre>
+ * public void apiCallCompleted(ApiCallEvent event) {
+ * 	MambuCallEvent jfrEvent = new MambuCallEvent();
+ * 	if (jfrEvent.isEnabled()) {
+ * 		jfrEvent.apiType = String.valueOf(event.getApiType());
+ * 		...
+ * 		jfrEvent.commit();
+ * 	}
+ * }
+ * </pre>
+ */
+public interface ApiCallListener {
+
+	/**
+	 * Called when an API call completes
+	 *
+	 * @param event
+	 *            event of the call
+	 */
+	void apiCallCompleted(ApiCallEvent event);
+}
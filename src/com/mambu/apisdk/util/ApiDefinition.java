@@ -1,5 +1,7 @@
 package com.mambu.apisdk.util;
 
+import java.lang.reflect.Type;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -76,6 +78,11 @@ import com.mambu.tasks.shared.model.Task;
  * example, when specifying the ApiType.GetEntityDetails type, the fullDetails parameter will be added automatically for
  * this definition.
  * 
+ * ApiDefinition is immutable: the URL path parts, the HTTP parameters and the type of the expected response are all
+ * resolved when the definition is created. API definitions can therefore be defined once (as static constants in the
+ * service classes) and used concurrently by many threads. To use a different return format, content type or JSON date
+ * format, create a modified copy with withApiReturnFormat(), withContentType() or withJsonDateTimeFormat()
+ * 
  * 
  * @author mdanilkis
  * 
@@ -222,25 +229,30 @@ public class ApiDefinition {
 		OBJECT, COLLECTION, BOOLEAN, RESPONSE_STRING
 	}
 
-	private ApiType apiType;
+	// All API definition parameters are resolved when the definition is created and cannot be modified afterwards.
+	// This allows the same (typically static) ApiDefinition to be used by many threads at the same time
+	private final ApiType apiType;
 
-	private Method method;
-	private ContentType contentType;
+	private final Method method;
+	private final ContentType contentType;
 
 	// URL path details in the format: endPoint/objectID/relatedEntity
-	private String endPoint;
+	private final String endPoint;
 	// The 'relatedEntity' part of the URL path
-	private String relatedEntity;
-	// API return format. Specified in the ApiType but can be modified
-	private ApiReturnFormat returnFormat;
+	private final String relatedEntity;
+	// API return format. Specified in the ApiType but can be changed for a copy of this definition
+	private final ApiReturnFormat returnFormat;
 
-	private Class<?> entityClass;
+	private final Class<?> entityClass;
 	// The class of the object returned by Mambu
-	private Class<?> returnClass;
+	private final Class<?> returnClass;
+	// The type Mambu's response is converted to: the returnClass for OBJECT return format, the collection type for the
+	// returnClass for COLLECTION return format, Boolean or String for BOOLEAN and RESPONSE_STRING formats
+	private final Type returnType;
 	// Date time format for the output JSON strings. Mambu supports ISO-8601 "yyyy-MM-dd'T'HH:mm:ssZ". This is the
 	// default. ApiDefinition allows optionally setting this format for a specific API definition. For example, to use a
 	// shorter date only format, like "yyyy-MM-dd"
-	private String jsonDateTimeFormat = GsonUtils.defaultDateTimeFormat;
+	private final String jsonDateTimeFormat;
 
 	/**
 	 * Constructor used with ApiType requests for which only one entity class needs to be specified, Example GET
@@ -250,8 +262,8 @@ public class ApiDefinition {
 	 *            determines API's endpoint (e.g. LoanAccount for loans/)
 	 */
 	public ApiDefinition(ApiType apiType, Class<?> entityClass) {
-		this.relatedEntity = null; // no related entity
-		initDefintion(apiType, entityClass, null);
+		// no related entity
+		this(apiType, entityClass, (String) null, null);
 	}
 
 	/**
@@ -265,8 +277,8 @@ public class ApiDefinition {
 	 */
 
 	public ApiDefinition(ApiType apiType, Class<?> entityClass, Class<?> resultClass) {
-		this.relatedEntity = null; // the related entity name to be determined by the specified resultClass
-		initDefintion(apiType, entityClass, resultClass);
+		// the related entity name to be determined by the specified resultClass
+		this(apiType, entityClass, (String) null, resultClass);
 	}
 
 	/**
@@ -284,8 +296,7 @@ public class ApiDefinition {
 	 */
 
 	public ApiDefinition(ApiType apiType, Class<?> entityClass, Class<?> relatedEntity, Class<?> resultClass) {
-		this.relatedEntity = getApiEndPoint(relatedEntity);
-		initDefintion(apiType, entityClass, resultClass);
+		this(apiType, entityClass, getApiEndPoint(relatedEntity), resultClass);
 	}
 
 	/**
@@ -295,13 +306,16 @@ public class ApiDefinition {
 	 *            API type
 	 * @param entityClass
 	 *            entity class which identifies the api's end point
+	 * @param relatedEntity
+	 *            the 'relatedEntity' part of the URL path. If null, it is derived from the resultClass for the API types
+	 *            which need it
 	 * @param resultClass
 	 *            the class for the objects returned by the api. Needed for ApiType.GetOwnedEntities and is optional for
 	 *            CREATE and UPDATE ApiTypes. For all other API types entity class determines also the result class
 	 * 
 	 */
 
-	private void initDefintion(ApiType apiType, Class<?> entityClass, Class<?> resultClass) {
+	private ApiDefinition(ApiType apiType, Class<?> entityClass, String relatedEntity, Class<?> resultClass) {
 
 		if (apiType == null) {
 			throw new IllegalArgumentException("apiType must not be null");
@@ -314,9 +328,11 @@ public class ApiDefinition {
 		this.entityClass = entityClass;
 		this.contentType = apiType.getContentType();
 		this.method = apiType.getMethod();
+		this.jsonDateTimeFormat = GsonUtils.defaultDateTimeFormat;
 
 		// Get defaults from the ApiType
-		returnFormat = apiType.getApiReturnFormat();
+		ApiReturnFormat returnFormat = apiType.getApiReturnFormat();
+		Class<?> returnClass = null;
 
 		// Get the end point for the entityClass
 		this.endPoint = getApiEndPoint(entityClass);
@@ -391,66 +407,127 @@ public class ApiDefinition {
 			returnClass = entityClass;
 			break;
 		}
+		this.relatedEntity = relatedEntity;
+		this.returnFormat = returnFormat;
+		this.returnClass = returnClass;
+		this.returnType = getReturnType(returnFormat, returnClass);
+	}
+
+	/**
+	 * Copy constructor used to create a copy of the API definition with some of its parameters changed
+	 * 
+	 * @param apiDefinition
+	 *            API definition to copy
+	 * @param contentType
+	 *            content type for the copy
+	 * @param returnFormat
+	 *            return format for the copy
+	 * @param jsonDateTimeFormat
+	 *            date time format for the copy
+	 */
+	private ApiDefinition(ApiDefinition apiDefinition, ContentType contentType, ApiReturnFormat returnFormat,
+			String jsonDateTimeFormat) {
+
+		if (contentType == null) {
+			throw new IllegalArgumentException("contentType must not be null");
+		}
+		if (returnFormat == null) {
+			throw new IllegalArgumentException("returnFormat must not be null");
+		}
+		this.apiType = apiDefinition.apiType;
+		this.method = apiDefinition.method;
+		this.contentType = contentType;
+		this.endPoint = apiDefinition.endPoint;
+		this.relatedEntity = apiDefinition.relatedEntity;
+		this.returnFormat = returnFormat;
+		this.entityClass = apiDefinition.entityClass;
+		this.returnClass = apiDefinition.returnClass;
+		this.returnType = getReturnType(returnFormat, returnClass);
+		this.jsonDateTimeFormat = jsonDateTimeFormat;
+	}
+
+	/**
+	 * Get the type Mambu's response is to be converted to for the specified return format and return class
+	 * 
+	 * @param returnFormat
+	 *            return format
+	 * @param returnClass
+	 *            return class
+	 * @return type for the response
+	 */
+	private static Type getReturnType(ApiReturnFormat returnFormat, Class<?> returnClass) {
+		switch (returnFormat) {
+		case OBJECT:
+			return returnClass;
+		case COLLECTION:
+			return ServiceExecutor.getCollectionType(returnClass);
+		case BOOLEAN:
+			return Boolean.class;
+		case RESPONSE_STRING:
+			return String.class;
+		}
+		throw new IllegalArgumentException("Return format " + returnFormat + " is not supported");
 	}
 
 	// apiEndPointsMap maps Mambu classes to the corresponding Mambu API URL path endpoints.
 	private final static Map<Class<?>, String> apiEndPointsMap;
 	static {
-		apiEndPointsMap = new HashMap<Class<?>, String>();
+		Map<Class<?>, String> endPointsMap = new HashMap<Class<?>, String>();
 
-		apiEndPointsMap.put(Client.class, APIData.CLIENTS);
-		apiEndPointsMap.put(ClientExpanded.class, APIData.CLIENTS);
-		apiEndPointsMap.put(Group.class, APIData.GROUPS);
-		apiEndPointsMap.put(GroupExpanded.class, APIData.GROUPS);
+		endPointsMap.put(Client.class, APIData.CLIENTS);
+		endPointsMap.put(ClientExpanded.class, APIData.CLIENTS);
+		endPointsMap.put(Group.class, APIData.GROUPS);
+		endPointsMap.put(GroupExpanded.class, APIData.GROUPS);
 
-		apiEndPointsMap.put(ClientRole.class, APIData.CLIENT_TYPES);
-		apiEndPointsMap.put(GroupRoleName.class, APIData.GROUP_ROLE_NAMES);
+		endPointsMap.put(ClientRole.class, APIData.CLIENT_TYPES);
+		endPointsMap.put(GroupRoleName.class, APIData.GROUP_ROLE_NAMES);
 
-		apiEndPointsMap.put(LoanAccount.class, APIData.LOANS);
-		apiEndPointsMap.put(LoanAccountExpanded.class, APIData.LOANS);
-		apiEndPointsMap.put(LoanTransaction.class, APIData.TRANSACTIONS);
-		apiEndPointsMap.put(Repayment.class, APIData.REPAYMENTS);
+		endPointsMap.put(LoanAccount.class, APIData.LOANS);
+		endPointsMap.put(LoanAccountExpanded.class, APIData.LOANS);
+		endPointsMap.put(LoanTransaction.class, APIData.TRANSACTIONS);
+		endPointsMap.put(Repayment.class, APIData.REPAYMENTS);
 
-		apiEndPointsMap.put(SavingsAccount.class, APIData.SAVINGS);
-		apiEndPointsMap.put(JSONSavingsAccount.class, APIData.SAVINGS);
-		apiEndPointsMap.put(SavingsTransaction.class, APIData.TRANSACTIONS);
+		endPointsMap.put(SavingsAccount.class, APIData.SAVINGS);
+		endPointsMap.put(JSONSavingsAccount.class, APIData.SAVINGS);
+		endPointsMap.put(SavingsTransaction.class, APIData.TRANSACTIONS);
 
-		apiEndPointsMap.put(Branch.class, APIData.BRANCHES);
-		apiEndPointsMap.put(User.class, APIData.USERS);
-		apiEndPointsMap.put(Centre.class, APIData.CENTRES);
-		apiEndPointsMap.put(Currency.class, APIData.CURRENCIES);
-		apiEndPointsMap.put(TransactionChannel.class, APIData.TRANSACTION_CHANNELS);
+		endPointsMap.put(Branch.class, APIData.BRANCHES);
+		endPointsMap.put(User.class, APIData.USERS);
+		endPointsMap.put(Centre.class, APIData.CENTRES);
+		endPointsMap.put(Currency.class, APIData.CURRENCIES);
+		endPointsMap.put(TransactionChannel.class, APIData.TRANSACTION_CHANNELS);
 
-		apiEndPointsMap.put(Task.class, APIData.TASKS);
-		apiEndPointsMap.put(JSONTask.class, APIData.TASKS);
+		endPointsMap.put(Task.class, APIData.TASKS);
+		endPointsMap.put(JSONTask.class, APIData.TASKS);
 
-		apiEndPointsMap.put(LoanProduct.class, APIData.LOANPRODUCTS);
-		apiEndPointsMap.put(SavingsProduct.class, APIData.SAVINGSRODUCTS);
+		endPointsMap.put(LoanProduct.class, APIData.LOANPRODUCTS);
+		endPointsMap.put(SavingsProduct.class, APIData.SAVINGSRODUCTS);
 
-		apiEndPointsMap.put(JSONLoanRepayments.class, APIData.SCHEDULE);
+		endPointsMap.put(JSONLoanRepayments.class, APIData.SCHEDULE);
 
-		apiEndPointsMap.put(Document.class, APIData.DOCUMENTS);
-		apiEndPointsMap.put(JSONDocument.class, APIData.DOCUMENTS);
+		endPointsMap.put(Document.class, APIData.DOCUMENTS);
+		endPointsMap.put(JSONDocument.class, APIData.DOCUMENTS);
 
-		apiEndPointsMap.put(CustomFieldSet.class, APIData.CUSTOM_FIELD_SETS);
-		apiEndPointsMap.put(CustomField.class, APIData.CUSTOM_FIELDS);
-		apiEndPointsMap.put(CustomFieldValue.class, APIData.CUSTOM_INFORMATION);
+		endPointsMap.put(CustomFieldSet.class, APIData.CUSTOM_FIELD_SETS);
+		endPointsMap.put(CustomField.class, APIData.CUSTOM_FIELDS);
+		endPointsMap.put(CustomFieldValue.class, APIData.CUSTOM_INFORMATION);
 
-		apiEndPointsMap.put(GLAccount.class, APIData.GLACCOUNTS);
-		apiEndPointsMap.put(GLJournalEntry.class, APIData.GLJOURNALENTRIES);
-		apiEndPointsMap.put(Indicator.class, APIData.INDICATORS);
+		endPointsMap.put(GLAccount.class, APIData.GLACCOUNTS);
+		endPointsMap.put(GLJournalEntry.class, APIData.GLJOURNALENTRIES);
+		endPointsMap.put(Indicator.class, APIData.INDICATORS);
 
-		apiEndPointsMap.put(CustomView.class, APIData.VIEWS);
-		apiEndPointsMap.put(JSONActivity.class, APIData.ACTIVITIES);
+		endPointsMap.put(CustomView.class, APIData.VIEWS);
+		endPointsMap.put(JSONActivity.class, APIData.ACTIVITIES);
 
-		apiEndPointsMap.put(Image.class, APIData.IMAGES);
+		endPointsMap.put(Image.class, APIData.IMAGES);
 
-		apiEndPointsMap.put(SearchResult.class, APIData.SEARCH);
+		endPointsMap.put(SearchResult.class, APIData.SEARCH);
 
+		apiEndPointsMap = Collections.unmodifiableMap(endPointsMap);
 	}
 
 	// Get an Api endpoint for a Mambu class
-	private String getApiEndPoint(Class<?> entityClass) {
+	private static String getApiEndPoint(Class<?> entityClass) {
 
 		if (entityClass == null) {
 			throw new IllegalArgumentException("Entity Class cannot be NULL");
@@ -503,32 +580,57 @@ public class ApiDefinition {
 		return returnClass;
 	}
 
-	// Setters for params which can be modified
-	public void setApiType(ApiType apiType) {
-		this.apiType = apiType;
+	public Type getReturnType() {
+		return returnType;
 	}
 
-	public void setEndPoint(String endPoint) {
-		this.endPoint = endPoint;
-	}
-
-	public void setApiReturnFormat(ApiReturnFormat returnFormat) {
-		this.returnFormat = returnFormat;
+	public String getJsonDateTimeFormat() {
+		return jsonDateTimeFormat;
 	}
 
-	public void setContentType(ContentType contentType) {
-		this.contentType = contentType;
+	// Copies with modified params. ApiDefinition cannot be modified, these methods return a new ApiDefinition
+	/**
+	 * Get a copy of this API definition with a different return format. For example, to get the response for a
+	 * GET_ENTITY request as a string
+	 * 
+	 * @param returnFormat
+	 *            return format
+	 * @return new API definition
+	 */
+	public ApiDefinition withApiReturnFormat(ApiReturnFormat returnFormat) {
+		return new ApiDefinition(this, contentType, returnFormat, jsonDateTimeFormat);
 	}
 
-	public void setMethod(Method method) {
-		this.method = method;
+	/**
+	 * Get a copy of this API definition with a different content type. For example, to post a JSON request for an
+	 * ApiType using WWW_FORM content type
+	 * 
+	 * @param contentType
+	 *            content type
+	 * @return new API definition
+	 */
+	public ApiDefinition withContentType(ContentType contentType) {
+		return new ApiDefinition(this, contentType, returnFormat, jsonDateTimeFormat);
 	}
 
-	public void setJsonDateTimeFormat(String dateTimeFormat) {
-		this.jsonDateTimeFormat = dateTimeFormat;
+	/**
+	 * Get a copy of this API definition with a different date time format for the output JSON strings
+	 * 
+	 * @param dateTimeFormat
+	 *            date time format. E.g. "yyyy-MM-dd"
+	 * @return new API definition
+	 */
+	public ApiDefinition withJsonDateTimeFormat(String dateTimeFormat) {
+		return new ApiDefinition(this, contentType, returnFormat, dateTimeFormat);
 	}
 
-	public String getJsonDateTimeFormat() {
-		return jsonDateTimeFormat;
+	/**
+	 * Get the name of this API definition: its API type and end point, e.g. "GET_RELATED_ENTITIES loans/transactions".
+	 * Used to report the statistics per API definition
+	 */
+	@Override
+	public String toString() {
+		String name = apiType.name() + " " + endPoint;
+		return (relatedEntity == null) ? name : name + "/" + relatedEntity;
 	}
 }
@@ -0,0 +1,200 @@
+package com.mambu.apisdk.util;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.mambu.apisdk.exception.MambuApiException;
+
+/**
+ * Metrics of the API requests with one ApiDefinition to one tenant: the number of calls and errors, the errors by the
+ * HTTP status and by the Mambu returnStatus, the request and response body bytes and the latency histograms of the
+ * request phases. Obtained from the MetricsRegistry, e.g. metricsRegistry.getMetrics(domain, apiDefinition)
+ */
+public class ApiMetrics implements ApiMetricsMXBean {
+
+	/**
+	 * Phases of an API request
+	 */
+	public enum Phase {
+		// Resolving the tenant's host name. Only for the requests which open a new connection
+		DNS,
+		// Opening a new connection, including the TLS handshake
+		CONNECT,
+		// Sending the request and waiting for the response headers, including the DNS and connect phases
+		REQUEST,
+		// Reading and decoding the response body
+		PARSE
+	}
+
+	// Error status of the failures without an HTTP response, e.g. I/O errors and timeouts
+	public final static String NO_STATUS = "NO_STATUS";
+
+	private final String tenant;
+	private final String apiDefinition;
+
+	private final AtomicLong calls = new AtomicLong();
+	private final AtomicLong errors = new AtomicLong();
+	private final ConcurrentMap<String, AtomicLong> errorsByStatus = new ConcurrentHashMap<String, AtomicLong>();
+	private final ConcurrentMap<String, AtomicLong> errorsByReturnStatus = new ConcurrentHashMap<String, AtomicLong>();
+	private final AtomicLong bytesSent = new AtomicLong();
+	private final AtomicLong bytesReceived = new AtomicLong();
+	private final LatencyHistogram[] latencies = new LatencyHistogram[Phase.values().length];
+
+	ApiMetrics(String tenant, String apiDefinition) {
+		this.tenant = tenant;
+		this.apiDefinition = apiDefinition;
+		for (int i = 0; i < latencies.length; i++) {
+			latencies[i] = new LatencyHistogram();
+		}
+	}
+
+	/**
+	 * Record a completed call
+	 *
+	 * @param failure
+	 *            exception the call failed with or null if it succeeded
+	 */
+	void recordCall(MambuApiException failure) {
+		calls.incrementAndGet();
+		if (failure == null) {
+			return;
+		}
+		errors.incrementAndGet();
+		Integer errorCode = failure.getErrorCode();
+		boolean hasStatus = errorCode != null && errorCode.intValue() >= 100;
+		increment(errorsByStatus, hasStatus ? errorCode.toString() : NO_STATUS);
+		String returnStatus = hasStatus ? RetryPolicy.getReturnStatus(failure) : null;
+		if (returnStatus != null) {
+			increment(errorsByReturnStatus, returnStatus);
+		}
+	}
+
+	void recordLatency(Phase phase, long nanos) {
+		latencies[phase.ordinal()].record(nanos);
+	}
+
+	void addBytesSent(long bytes) {
+		bytesSent.addAndGet(bytes);
+	}
+
+	void addBytesReceived(long bytes) {
+		bytesReceived.addAndGet(bytes);
+	}
+
+	private static void increment(ConcurrentMap<String, AtomicLong> counters, String key) {
+		AtomicLong counter = counters.get(key);
+		if (counter == null) {
+			AtomicLong created = new AtomicLong();
+			counter = counters.putIfAbsent(key, created);
+			if (counter == null) {
+				counter = created;
+			}
+		}
+		counter.incrementAndGet();
+	}
+
+	private static Map<String, Long> getCounts(ConcurrentMap<String, AtomicLong> counters) {
+		Map<String, Long> counts = new TreeMap<String, Long>();
+		for (Map.Entry<String, AtomicLong> counter : counters.entrySet()) {
+			counts.put(counter.getKey(), counter.getValue().get());
+		}
+		return Collections.unmodifiableMap(counts);
+	}
+
+	@Override
+	public String getTenant() {
+		return tenant;
+	}
+
+	/**
+	 * Get the name of the API definition (see ApiDefinition.toString())
+	 */
+	@Override
+	public String getApiDefinition() {
+		return apiDefinition;
+	}
+
+	/**
+	 * Get the number of completed calls, including the failed ones and the ones served from the response cache
+	 */
+	@Override
+	public long getCalls() {
+		return calls.get();
+	}
+
+	@Override
+	public long getErrors() {
+		return errors.get();
+	}
+
+	/**
+	 * Get the number of failed calls by the HTTP status of their response, NO_STATUS for the calls which failed without
+	 * a response
+	 */
+	@Override
+	public Map<String, Long> getErrorsByStatus() {
+		return getCounts(errorsByStatus);
+	}
+
+	/**
+	 * Get the number of failed calls by the Mambu returnStatus of their response (e.g. "INVALID_LOAN_ACCOUNT_ID")
+	 */
+	@Override
+	public Map<String, Long> getErrorsByReturnStatus() {
+		return getCounts(errorsByReturnStatus);
+	}
+
+	/**
+	 * Get the number of request body bytes sent
+	 */
+	@Override
+	public long getBytesSent() {
+		return bytesSent.get();
+	}
+
+	/**
+	 * Get the number of response body bytes received
+	 */
+	@Override
+	public long getBytesReceived() {
+		return bytesReceived.get();
+	}
+
+	/**
+	 * Get the latency histogram of a request phase
+	 */
+	public LatencyHistogram getLatency(Phase phase) {
+		return latencies[phase.ordinal()];
+	}
+
+	@Override
+	public LatencyHistogram.Snapshot getDnsLatency() {
+		return getLatency(Phase.DNS).getSnapshot();
+	}
+
+	@Override
+	public LatencyHistogram.Snapshot getConnectLatency() {
+		return getLatency(Phase.CONNECT).getSnapshot();
+	}
+
+	@Override
+	public LatencyHistogram.Snapshot getRequestLatency() {
+		return getLatency(Phase.REQUEST).getSnapshot();
+	}
+
+	@Override
+	public LatencyHistogram.Snapshot getParseLatency() {
+		return getLatency(Phase.PARSE).getSnapshot();
+	}
+
+	@Override
+	public String toString() {
+		return tenant + " " + apiDefinition + ": calls=" + getCalls() + " errors=" + getErrors() + " bytesSent="
+				+ getBytesSent() + " bytesReceived=" + getBytesReceived() + " request=[" + getLatency(Phase.REQUEST)
+				+ "]";
+	}
+}
@@ -0,0 +1,34 @@
+package com.mambu.apisdk.util;
+
+import java.util.Map;
+
+/**
+ * JMX view of the metrics of the API requests with one ApiDefinition to one tenant. See
+ * MetricsRegistry.registerMBeans()
+ */
+public interface ApiMetricsMXBean {
+
+	String getTenant();
+
+	String getApiDefinition();
+
+	long getCalls();
+
+	long getErrors();
+
+	Map<String, Long> getErrorsByStatus();
+
+	Map<String, Long> getErrorsByReturnStatus();
+
+	long getBytesSent();
+
+	long getBytesReceived();
+
+	LatencyHistogram.Snapshot getDnsLatency();
+
+	LatencyHistogram.Snapshot getConnectLatency();
+
+	LatencyHistogram.Snapshot getRequestLatency();
+
+	LatencyHistogram.Snapshot getParseLatency();
+}
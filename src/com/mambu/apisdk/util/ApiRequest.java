@@ -0,0 +1,176 @@
+package com.mambu.apisdk.util;
+
+import com.mambu.apisdk.util.RequestExecutor.ContentType;
+import com.mambu.apisdk.util.RequestExecutor.Method;
+
+/**
+ * API request passed through the RequestInterceptors of an InterceptingRequestExecutor. An interceptor can change the
+ * request before passing it on with chain.proceed(request). The params of the request are copied before they are
+ * changed with setParam() or setHeader(), so the params map of the caller is not changed
+ */
+public class ApiRequest {
+
+	private String urlString;
+	private ParamsMap params;
+	private Method method;
+	private ContentType contentType;
+	private final ApiDefinition apiDefinition;
+	private Deadline deadline;
+	// True once the params were copied for this request
+	private boolean paramsCopied;
+
+	/**
+	 * Create the request
+	 *
+	 * @param urlString
+	 *            URL of the request
+	 * @param params
+	 *            params of the request. Can be null
+	 * @param method
+	 *            method of the request
+	 * @param contentType
+	 *            content type of the request
+	 * @param apiDefinition
+	 *            API definition of the request. Null for the requests returning the response string
+	 * @param deadline
+	 *            deadline of the request. Can be null
+	 */
+	ApiRequest(String urlString, ParamsMap params, Method method, ContentType contentType,
+			ApiDefinition apiDefinition, Deadline deadline) {
+		this.urlString = urlString;
+		this.params = params;
+		this.method = method;
+		this.contentType = contentType;
+		this.apiDefinition = apiDefinition;
+		this.deadline = deadline;
+	}
+
+	public String getUrlString() {
+		return urlString;
+	}
+
+	public void setUrlString(String urlString) {
+		if (urlString == null) {
+			throw new IllegalArgumentException("URL must not be null");
+		}
+		this.urlString = urlString;
+	}
+
+	/**
+	 * Get the params of the request
+	 *
+	 * @return params or null if the request has none
+	 */
+	public ParamsMap getParams() {
+		return params;
+	}
+
+	/**
+	 * Replace the params of the request
+	 *
+	 * @param params
+	 *            params or null
+	 */
+	public void setParams(ParamsMap params) {
+		this.params = params;
+		this.paramsCopied = false;
+	}
+
+	/**
+	 * Set a param of the request, e.g. a param required by a proxy
+	 *
+	 * @param name
+	 *            param name
+	 * @param value
+	 *            param value
+	 */
+	public void setParam(String name, String value) {
+		copyParams().put(name, value);
+	}
+
+	/**
+	 * Set an HTTP header of the request (see ParamsMap.setHeader())
+	 *
+	 * @param name
+	 *            header name
+	 * @param value
+	 *            header value or null to remove the header
+	 */
+	public void setHeader(String name, String value) {
+		copyParams().setHeader(name, value);
+	}
+
+	private ParamsMap copyParams() {
+		if (!paramsCopied) {
+			params = (params == null) ? new ParamsMap() : new ParamsMap(params);
+			paramsCopied = true;
+		}
+		return params;
+	}
+
+	/**
+	 * Get the method of the request. The method of a request with an ApiDefinition is the method of its ApiDefinition
+	 */
+	public Method getMethod() {
+		return (apiDefinition == null) ? method : apiDefinition.getMethod();
+	}
+
+	/**
+	 * Set the method of a request without an ApiDefinition
+	 */
+	public void setMethod(Method method) {
+		if (apiDefinition != null) {
+			throw new IllegalStateException("The method of a request with an ApiDefinition can't be changed");
+		}
+		this.method = method;
+	}
+
+	/**
+	 * Get the content type of the request. The content type of a request with an ApiDefinition is the content type of
+	 * its ApiDefinition
+	 */
+	public ContentType getContentType() {
+		return (apiDefinition == null) ? contentType : apiDefinition.getContentType();
+	}
+
+	/**
+	 * Set the content type of a request without an ApiDefinition
+	 */
+	public void setContentType(ContentType contentType) {
+		if (apiDefinition != null) {
+			throw new IllegalStateException("The content type of a request with an ApiDefinition can't be changed");
+		}
+		this.contentType = contentType;
+	}
+
+	/**
+	 * Get the API definition of the request
+	 *
+	 * @return API definition or null for a request returning the response string
+	 */
+	public ApiDefinition getApiDefinition() {
+		return apiDefinition;
+	}
+
+	public Deadline getDeadline() {
+		return deadline;
+	}
+
+	/**
+	 * Set the deadline of a request with an ApiDefinition
+	 *
+	 * @param deadline
+	 *            deadline or null if the request is bounded only by the executor's timeouts
+	 */
+	public void setDeadline(Deadline deadline) {
+		if (apiDefinition == null && deadline != null) {
+			throw new IllegalStateException("Only a request with an ApiDefinition can have a deadline");
+		}
+		this.deadline = deadline;
+	}
+
+	@Override
+	public String toString() {
+		return getMethod() + " " + urlString;
+	}
+}
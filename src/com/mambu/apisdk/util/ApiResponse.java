@@ -0,0 +1,107 @@
+package com.mambu.apisdk.util;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Response of an API request passed back through the RequestInterceptors of an InterceptingRequestExecutor: the HTTP
+ * status and headers of the Mambu response and the result of the request
+ *
+ * The result of a request with an ApiDefinition is the result decoded as specified by the ApiDefinition, the result of
+ * a request without one is the response string. The status is UNKNOWN_STATUS and there are no headers if the response
+ * was not received for this request, e.g. if it was served from the response cache or shared by a coalesced request
+ */
+public class ApiResponse {
+
+	/**
+	 * Status of a response which was not received from Mambu for the request
+	 */
+	public static final int UNKNOWN_STATUS = -1;
+
+	private final int status;
+	private final Map<String, String> headers;
+	private final Object result;
+
+	/**
+	 * Create a response without an HTTP status, e.g. for a result returned by an interceptor without executing the
+	 * request
+	 *
+	 * @param result
+	 *            result of the request
+	 */
+	public ApiResponse(Object result) {
+		this(UNKNOWN_STATUS, null, result);
+	}
+
+	/**
+	 * Create the response
+	 *
+	 * @param status
+	 *            HTTP status code or UNKNOWN_STATUS
+	 * @param headers
+	 *            HTTP headers by their name. Can be null
+	 * @param result
+	 *            result of the request
+	 */
+	public ApiResponse(int status, Map<String, String> headers, Object result) {
+		this.status = status;
+		this.headers = (headers == null || headers.isEmpty()) ? Collections.<String, String> emptyMap() : Collections
+				.unmodifiableMap(new LinkedHashMap<String, String>(headers));
+		this.result = result;
+	}
+
+	/**
+	 * Get the HTTP status code of the response
+	 *
+	 * @return status code or UNKNOWN_STATUS if the response was not received for this request
+	 */
+	public int getStatus() {
+		return status;
+	}
+
+	/**
+	 * Get the HTTP headers of the response. The first value is kept for a header sent more than once
+	 *
+	 * @return headers by their name
+	 */
+	public Map<String, String> getHeaders() {
+		return headers;
+	}
+
+	/**
+	 * Get an HTTP header of the response
+	 *
+	 * @param name
+	 *            header name, not case sensitive
+	 * @return header value or null if the response has no such header
+	 */
+	public String getHeader(String name) {
+		for (Map.Entry<String, String> header : headers.entrySet()) {
+			if (header.getKey().equalsIgnoreCase(name)) {
+				return header.getValue();
+			}
+		}
+		return null;
+	}
+
+	public Object getResult() {
+		return result;
+	}
+
+	/**
+	 * Make a response with the same status and headers and another result, e.g. a result changed by an interceptor
+	 *
+	 * @param result
+	 *            the new result
+	 * @return response with the result
+	 */
+	public ApiResponse withResult(Object result) {
+		return new ApiResponse(status, headers, result);
+	}
+
+	@Override
+	public String toString() {
+		return "ApiResponse [status=" + status + ", headers=" + headers + ", result=" + result + "]";
+	}
+}
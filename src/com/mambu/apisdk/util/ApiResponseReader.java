@@ -0,0 +1,156 @@
+package com.mambu.apisdk.util;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Reader;
+import java.lang.reflect.Type;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.mambu.apisdk.exception.MambuApiResponseMessage;
+import com.mambu.apisdk.util.ApiDefinition.ApiReturnFormat;
+
+/**
+ * ApiResponseReader provides helper methods for converting Mambu API responses into the objects specified by the
+ * request's ApiDefinition. JSON responses are decoded directly from the response stream with a Gson JsonReader, without
+ * creating an intermediate response string. A response string is only created for the ApiReturnFormat.RESPONSE_STRING
+ * API definitions.
+ */
+public class ApiResponseReader {
+
+	// Size of the buffer used when reading a response into a string
+	private final static int READ_BUFFER_SIZE = 8192;
+
+	/**
+	 * Read the API response and convert it into the result specified by the ApiDefinition
+	 *
+	 * @param reader
+	 *            reader for the response content
+	 * @param apiDefinition
+	 *            API definition for the request
+	 *
+	 * @return object result object, which will be an API specific object, a list of objects, a Boolean or the response
+	 *         String, as defined by the ApiDefinition's return format. Null is returned for an empty response
+	 *
+	 * @throws IOException
+	 */
+	@SuppressWarnings("unchecked")
+	public static <R> R readResponse(Reader reader, ApiDefinition apiDefinition) throws IOException {
+
+		if (apiDefinition == null) {
+			throw new IllegalArgumentException("ApiDefinition cannot be NULL");
+		}
+
+		ApiReturnFormat returnFormat = apiDefinition.getApiReturnFormat();
+		switch (returnFormat) {
+		case OBJECT:
+		case COLLECTION:
+			// Get Single Object or a list of Objects from the response. The type is resolved by the ApiDefinition
+			return (R) readJson(reader, apiDefinition.getReturnType());
+		case BOOLEAN:
+			// Get result as a boolean
+			return (R) readBoolean(reader);
+		case RESPONSE_STRING:
+			// Return the response string as is, with no additional processing.
+			return (R) readString(reader);
+		default:
+			throw new IllegalArgumentException("Return format " + returnFormat + " is not supported");
+		}
+	}
+
+	/**
+	 * Decode the JSON response into an object of the specified type
+	 *
+	 * @param reader
+	 *            reader for the JSON response
+	 * @param type
+	 *            type of the object (or collection) represented by the JSON
+	 *
+	 * @return object or null if the response was empty
+	 */
+	private static Object readJson(Reader reader, Type type) throws IOException {
+
+		JsonReader jsonReader = new JsonReader(reader);
+		jsonReader.setLenient(true);
+		// Mambu returns an empty response for some requests. Treat it as null, as Gson does for an empty string
+		if (isEmptyDocument(jsonReader)) {
+			return null;
+		}
+		return GsonUtils.createGson().fromJson(jsonReader, type);
+	}
+
+	/**
+	 * Get a boolean value represented by Mambu's response. Mambu's response to such requests is formatted as
+	 * MambuApiResponseMessage with the return code equal to zero for a successful request
+	 *
+	 * @param reader
+	 *            reader for the JSON response
+	 *
+	 * @return true if the response represents a successful request
+	 */
+	private static Boolean readBoolean(Reader reader) throws IOException {
+
+		MambuApiResponseMessage response;
+		try {
+			JsonReader jsonReader = new JsonReader(reader);
+			jsonReader.setLenient(true);
+			if (isEmptyDocument(jsonReader)) {
+				return false;
+			}
+			response = GsonUtils.createGson().fromJson(jsonReader, MambuApiResponseMessage.class);
+		} catch (JsonParseException e) {
+			// Not all responses are properly formatted response messages (JsonSyntaxException is a JsonParseException)
+			return false;
+		} catch (IllegalStateException e) {
+			// JsonReader reports non-object responses (e.g. a plain string) as an IllegalStateException
+			return false;
+		}
+		return response != null && response.getReturnCode() == 0;
+	}
+
+	/**
+	 * Check if the JSON document is empty
+	 *
+	 * @param jsonReader
+	 *            JSON reader positioned at the start of the document
+	 * @return true if the document has no content
+	 */
+	private static boolean isEmptyDocument(JsonReader jsonReader) throws IOException {
+		try {
+			return jsonReader.peek() == JsonToken.END_DOCUMENT;
+		} catch (EOFException e) {
+			return true;
+		}
+	}
+
+	/**
+	 * Reads the response into a String. Line terminators are not included into the resulting string
+	 *
+	 * @param reader
+	 *            reader for the response content
+	 *
+	 * @return response string
+	 *
+	 * @throws IOException
+	 */
+	public static String readString(Reader reader) throws IOException {
+
+		StringBuilder response = new StringBuilder();
+		char[] buffer = new char[READ_BUFFER_SIZE];
+		int count;
+		while ((count = reader.read(buffer)) != -1) {
+			int start = 0;
+			// Skip line terminators, Mambu responses are expected as a single line
+			for (int i = 0; i < count; i++) {
+				char c = buffer[i];
+				if (c == '\n' || c == '\r') {
+					response.append(buffer, start, i - start);
+					start = i + 1;
+				}
+			}
+			response.append(buffer, start, count - start);
+		}
+		return response.toString();
+	}
+}
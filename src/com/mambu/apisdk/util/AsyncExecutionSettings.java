@@ -0,0 +1,83 @@
+package com.mambu.apisdk.util;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Settings for the asynchronous execution of API requests. One AsyncExecutor is created per MambuAPIModule (i.e. per
+ * tenant) and all services obtained from the same MambuAPIFactory or MambuAPIServiceFactory share it.
+ * 
+ * The number of requests in flight (submitted and not yet completed) is limited by the maxInFlightRequests. When the
+ * limit is reached, submitting a new asynchronous request blocks until one of the requests in flight completes. Note
+ * that the requests in flight also need HTTP connections, so the connection pool settings may need to be increased
+ * together with the number of threads
+ */
+public class AsyncExecutionSettings {
+
+	// Default values
+	public final static int DEFAULT_THREAD_COUNT = 10;
+	public final static int DEFAULT_MAX_IN_FLIGHT_REQUESTS = 100;
+
+	// Number of threads executing the asynchronous requests. Not used if an executor service is provided
+	private int threadCount = DEFAULT_THREAD_COUNT;
+	// Maximum number of asynchronous requests submitted and not yet completed
+	private int maxInFlightRequests = DEFAULT_MAX_IN_FLIGHT_REQUESTS;
+	// Application provided executor service. If null, the SDK creates its own thread pool
+	private ExecutorService executorService;
+
+	/**
+	 * Create asynchronous execution settings with default values
+	 */
+	public AsyncExecutionSettings() {
+	}
+
+	/**
+	 * Create asynchronous execution settings with the specified number of threads and the in flight requests limit
+	 * 
+	 * @param threadCount
+	 *            number of threads executing the requests. Must be greater than zero
+	 * @param maxInFlightRequests
+	 *            maximum number of requests in flight. Must be greater than zero
+	 */
+	public AsyncExecutionSettings(int threadCount, int maxInFlightRequests) {
+		setThreadCount(threadCount);
+		setMaxInFlightRequests(maxInFlightRequests);
+	}
+
+	public int getThreadCount() {
+		return threadCount;
+	}
+
+	public void setThreadCount(int threadCount) {
+		if (threadCount < 1) {
+			throw new IllegalArgumentException("threadCount must be greater than zero");
+		}
+		this.threadCount = threadCount;
+	}
+
+	public int getMaxInFlightRequests() {
+		return maxInFlightRequests;
+	}
+
+	public void setMaxInFlightRequests(int maxInFlightRequests) {
+		if (maxInFlightRequests < 1) {
+			throw new IllegalArgumentException("maxInFlightRequests must be greater than zero");
+		}
+		this.maxInFlightRequests = maxInFlightRequests;
+	}
+
+	public ExecutorService getExecutorService() {
+		return executorService;
+	}
+
+	/**
+	 * Set the executor service to execute the asynchronous requests with. The executor service is owned by the
+	 * application: the SDK doesn't shut it down
+	 * 
+	 * @param executorService
+	 *            executor service or null to use the SDK's own thread pool
+	 */
+	public void setExecutorService(ExecutorService executorService) {
+		this.executorService = executorService;
+	}
+
+}
@@ -0,0 +1,265 @@
+package com.mambu.apisdk.util;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.mambu.apisdk.exception.MambuApiException;
+
+/**
+ * AsyncExecutor executes API requests asynchronously, limiting the number of requests in flight as specified by the
+ * AsyncExecutionSettings. Requests are executed on the application's executor service, if one was provided in the
+ * settings, or on a thread pool created when the first asynchronous request is submitted. Requests sent through an
+ * AsyncRequestExecutor are executed by the request executor itself, without occupying a thread while in flight
+ */
+@Singleton
+public class AsyncExecutor {
+
+	private final static Logger LOGGER = Logger.getLogger(AsyncExecutor.class.getName());
+
+	private final AsyncExecutionSettings settings;
+	// Permits for the requests in flight
+	private final Semaphore inFlightPermits;
+	// Executor service used for the requests. Created on first use, unless provided by the settings
+	private ExecutorService executorService;
+	private boolean isShutdown = false;
+
+	/***
+	 * Create an AsyncExecutor with the specified settings
+	 * 
+	 * @param settings
+	 *            asynchronous execution settings
+	 */
+	@Inject
+	public AsyncExecutor(AsyncExecutionSettings settings) {
+		if (settings == null) {
+			throw new IllegalArgumentException("Async execution settings must not be null");
+		}
+		this.settings = settings;
+		this.inFlightPermits = new Semaphore(settings.getMaxInFlightRequests());
+		this.executorService = settings.getExecutorService();
+	}
+
+	/***
+	 * Submit an API request for asynchronous execution. If the maximum number of requests is already in flight, this
+	 * method blocks until one of them completes
+	 * 
+	 * Cancelling the returned future reports a CancellationException to the callback's onFailure(). A request cancelled
+	 * while running stays in flight until it returns, as the cancellation doesn't interrupt a request blocked in I/O
+	 * 
+	 * @param request
+	 *            the API request to execute
+	 * @param callback
+	 *            callback to be notified when the request completes. Can be null
+	 * 
+	 * @return future for the request's result. If the request fails, the future's get() method throws an
+	 *         ExecutionException with the MambuApiException as its cause
+	 * 
+	 * @throws RejectedExecutionException
+	 *             if the executor was shut down or the calling thread was interrupted while waiting
+	 */
+	public <R> Future<R> submit(final Callable<R> request, final MambuApiCallback<R> callback) {
+
+		if (request == null) {
+			throw new IllegalArgumentException("Request must not be null");
+		}
+		ExecutorService executor = getExecutorService();
+
+		acquirePermit();
+		// Set by the task when it starts the request, or when it is cancelled before it started. The permit is released
+		// when the started request returns, as a task cancelled while running is still blocked in the request
+		final AtomicBoolean started = new AtomicBoolean();
+		// The callback is notified exactly once, with the cancellation if the task is cancelled before it completed
+		final AtomicBoolean notified = new AtomicBoolean();
+		// The request runs with the current span of the calling thread, if any
+		FutureTask<R> task = new FutureTask<R>(TraceContext.wrap(new Callable<R>() {
+
+			@Override
+			public R call() throws Exception {
+				if (!started.compareAndSet(false, true)) {
+					// Cancelled before it started. The permit was released by done()
+					return null;
+				}
+				try {
+					R result;
+					try {
+						result = request.call();
+					} catch (Exception e) {
+						if (notified.compareAndSet(false, true)) {
+							notifyFailure(callback, e);
+						}
+						throw e;
+					}
+					if (notified.compareAndSet(false, true)) {
+						notifySuccess(callback, result);
+					}
+					return result;
+				} finally {
+					inFlightPermits.release();
+				}
+			}
+		})) {
+
+			@Override
+			protected void done() {
+				if (!isCancelled()) {
+					return;
+				}
+				if (started.compareAndSet(false, true)) {
+					inFlightPermits.release();
+				}
+				if (notified.compareAndSet(false, true)) {
+					notifyFailure(callback, new CancellationException("Request was cancelled"));
+				}
+			}
+		};
+		try {
+			executor.execute(task);
+		} catch (RuntimeException e) {
+			inFlightPermits.release();
+			throw e;
+		}
+		return task;
+	}
+
+	/***
+	 * Submit an API request for asynchronous execution by the non-blocking request executor. If the maximum number of
+	 * requests is already in flight, this method blocks until one of them completes
+	 * 
+	 * @param requestExecutor
+	 *            request executor sending the request
+	 * @param urlString
+	 *            the url to execute on
+	 * @param params
+	 *            map of parameters
+	 * @param apiDefinition
+	 *            API definition for the request
+	 * @param callback
+	 *            callback to be notified when the request completes. Can be null
+	 * 
+	 * @return future for the request's result. If the request fails, the future's get() method throws an
+	 *         ExecutionException with the MambuApiException as its cause
+	 * 
+	 * @throws RejectedExecutionException
+	 *             if the executor was shut down or the calling thread was interrupted while waiting
+	 */
+	public <R> Future<R> submit(AsyncRequestExecutor requestExecutor, String urlString, ParamsMap params,
+			ApiDefinition apiDefinition, final MambuApiCallback<R> callback) {
+
+		if (requestExecutor == null) {
+			throw new IllegalArgumentException("Request executor must not be null");
+		}
+		checkNotShutdown();
+
+		acquirePermit();
+		try {
+			return requestExecutor.executeRequestAsync(urlString, params, apiDefinition, new MambuApiCallback<R>() {
+
+				@Override
+				public void onSuccess(R result) {
+					inFlightPermits.release();
+					notifySuccess(callback, result);
+				}
+
+				@Override
+				public void onFailure(MambuApiException exception) {
+					inFlightPermits.release();
+					notifyFailure(callback, exception);
+				}
+			});
+		} catch (RuntimeException e) {
+			inFlightPermits.release();
+			throw e;
+		}
+	}
+
+	/***
+	 * Get the number of requests which can still be submitted without blocking
+	 * 
+	 * @return number of available in flight permits
+	 */
+	public int getAvailablePermits() {
+		return inFlightPermits.availablePermits();
+	}
+
+	/***
+	 * Shut down the thread pool created by this executor. The executor service provided by the application is not shut
+	 * down. Requests already submitted are completed
+	 */
+	public synchronized void shutdown() {
+		isShutdown = true;
+		if (executorService != null && executorService != settings.getExecutorService()) {
+			executorService.shutdown();
+		}
+	}
+
+	private void acquirePermit() {
+		try {
+			inFlightPermits.acquire();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RejectedExecutionException("Interrupted while waiting for a request to complete", e);
+		}
+	}
+
+	private synchronized void checkNotShutdown() {
+		if (isShutdown) {
+			throw new RejectedExecutionException("Async executor was shut down");
+		}
+	}
+
+	private synchronized ExecutorService getExecutorService() {
+		checkNotShutdown();
+		if (executorService == null) {
+			executorService = Executors.newFixedThreadPool(settings.getThreadCount(), new ThreadFactory() {
+
+				private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "mambu-async-" + threadNumber.getAndIncrement());
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return executorService;
+	}
+
+	private static <R> void notifySuccess(MambuApiCallback<R> callback, R result) {
+		if (callback == null) {
+			return;
+		}
+		try {
+			callback.onSuccess(result);
+		} catch (RuntimeException e) {
+			// The request succeeded, callback errors must not change its result
+			LOGGER.log(Level.WARNING, "Callback failed", e);
+		}
+	}
+
+	private static <R> void notifyFailure(MambuApiCallback<R> callback, Exception exception) {
+		if (callback == null) {
+			return;
+		}
+		MambuApiException mambuException = (exception instanceof MambuApiException) ? (MambuApiException) exception
+				: new MambuApiException(exception);
+		try {
+			callback.onFailure(mambuException);
+		} catch (RuntimeException e) {
+			LOGGER.log(Level.WARNING, "Callback failed", e);
+		}
+	}
+}
@@ -0,0 +1,30 @@
+package com.mambu.apisdk.util;
+
+import java.util.concurrent.Future;
+
+/**
+ * Interface for request executors which execute requests without blocking the calling thread. Asynchronous API
+ * requests sent through such an executor don't occupy a thread while waiting for the Mambu response
+ */
+public interface AsyncRequestExecutor extends RequestExecutor {
+
+	/**
+	 * Executes a request with given url and params asynchronously. The method returns immediately, the result is
+	 * delivered to the callback and to the returned Future. Failures are reported to the callback and to the Future
+	 * (as the cause of the ExecutionException) and are not thrown by this method
+	 *
+	 * @param urlString
+	 *            the url to execute on. eg: https://demo.mambu.com/api/clients
+	 * @param params
+	 *            map of parameters
+	 * @param apiDefinition
+	 *            API definition for the request. Specifies the request's method and content type and the result to be
+	 *            decoded from the response
+	 * @param callback
+	 *            callback notified when the request completes. Can be null
+	 *
+	 * @return future for the result decoded as specified by the apiDefinition
+	 */
+	public <R> Future<R> executeRequestAsync(String urlString, ParamsMap params, ApiDefinition apiDefinition,
+			MambuApiCallback<R> callback);
+}
@@ -0,0 +1,169 @@
+package com.mambu.apisdk.util;
+
+import java.io.BufferedInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.apache.commons.codec.binary.Base64InputStream;
+
+/**
+ * Decoder for the API responses with base64 encoded files, e.g. "data:image/jpg;base64,/9j/4AAQSkZJR...". The response
+ * is read as a stream: the part up to the base64 indicator is skipped, the JSON string escapes (e.g. the escaped CRLFs
+ * between the lines of the encoded content) are removed and the content is decoded until the end of the string. See
+ * also ServiceHelper.getContentForBase64EncodedMessage() for the same format read from a string
+ */
+final class Base64ContentDecoder {
+
+	private final static byte[] BASE64_INDICATOR = APIData.BASE64_ENCODING_INDICATOR.getBytes();
+	private final static int BUFFER_SIZE = 8192;
+
+	private Base64ContentDecoder() {
+	}
+
+	/**
+	 * Decode the base64 encoded content of the response into the sink
+	 *
+	 * @param response
+	 *            response stream
+	 * @param sink
+	 *            destination of the decoded content
+	 * @return number of decoded bytes written to the sink
+	 * @throws IOException
+	 *             if the response has no base64 encoded content or can't be read, or the sink can't be written
+	 */
+	static long decode(InputStream response, DocumentContentSink sink) throws IOException {
+
+		InputStream in = new BufferedInputStream(response, BUFFER_SIZE);
+		if (!skipPastIndicator(in)) {
+			throw new IOException("Response has no base64 encoded content");
+		}
+		InputStream decoded = new Base64InputStream(new JsonStringInputStream(in), false);
+		OutputStream out = sink.openStream();
+		long written = 0;
+		try {
+			byte[] buffer = new byte[BUFFER_SIZE];
+			int read;
+			while ((read = decoded.read(buffer)) != -1) {
+				out.write(buffer, 0, read);
+				written += read;
+			}
+		} finally {
+			out.close();
+		}
+		return written;
+	}
+
+	/**
+	 * Skip the response up to and including the base64 indicator
+	 *
+	 * @return false if the response has no indicator
+	 */
+	private static boolean skipPastIndicator(InputStream in) throws IOException {
+		// The first character of the indicator doesn't occur again in it, so a mismatch restarts the match
+		int matched = 0;
+		int c;
+		while ((c = in.read()) != -1) {
+			if (c == BASE64_INDICATOR[matched]) {
+				matched++;
+				if (matched == BASE64_INDICATOR.length) {
+					return true;
+				}
+			} else {
+				matched = (c == BASE64_INDICATOR[0]) ? 1 : 0;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * The characters of a JSON string up to its closing quote, with the escapes of the non base64 characters removed
+	 */
+	private static class JsonStringInputStream extends FilterInputStream {
+
+		private boolean ended;
+
+		private JsonStringInputStream(InputStream in) {
+			super(in);
+		}
+
+		@Override
+		public int read() throws IOException {
+			while (!ended) {
+				int c = in.read();
+				if (c == -1 || c == '"') {
+					ended = true;
+					break;
+				}
+				if (c != '\\') {
+					return c;
+				}
+				int escaped = in.read();
+				if (escaped == '/') {
+					return escaped;
+				}
+				if (escaped == 'u') {
+					// E.g. the '=' padding escaped as a unicode escape
+					int unescaped = readHex();
+					if (unescaped < 128) {
+						return unescaped;
+					}
+				}
+				// Escaped line breaks and other characters which are not part of the content
+			}
+			return -1;
+		}
+
+		private int readHex() throws IOException {
+			int value = 0;
+			for (int i = 0; i < 4; i++) {
+				int digit = Character.digit(in.read(), 16);
+				if (digit < 0) {
+					throw new IOException("Invalid unicode escape in the base64 encoded content");
+				}
+				value = value * 16 + digit;
+			}
+			return value;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (len == 0) {
+				return 0;
+			}
+			int count = 0;
+			while (count < len) {
+				int c = read();
+				if (c == -1) {
+					break;
+				}
+				b[off + count++] = (byte) c;
+				if (in.available() == 0) {
+					// Don't block for more input once some bytes were read
+					break;
+				}
+			}
+			return (count == 0) ? -1 : count;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			long skipped = 0;
+			while (skipped < n && read() != -1) {
+				skipped++;
+			}
+			return skipped;
+		}
+
+		@Override
+		public int available() throws IOException {
+			return 0;
+		}
+
+		@Override
+		public boolean markSupported() {
+			return false;
+		}
+	}
+}
@@ -0,0 +1,100 @@
+package com.mambu.apisdk.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.io.UnsupportedEncodingException;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.apache.commons.codec.binary.Base64InputStream;
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.protocol.HTTP;
+
+/**
+ * HTTP entity for a JSONDocument whose content is streamed from a DocumentContentSource. The entity is the JSON of the
+ * document with an empty documentContent value, with the base64 encoded content inserted into that value while the
+ * entity is read. Only a small buffer of the content is held in memory at any time. The content is encoded without line
+ * breaks
+ */
+class Base64DocumentEntity extends AbstractHttpEntity {
+
+	// The documentContent value the content is inserted into
+	private final static String CONTENT_PAIR = "\"documentContent\":\"\"";
+	private final static int BUFFER_SIZE = 8192;
+
+	private final byte[] jsonBeforeContent;
+	private final byte[] jsonAfterContent;
+	private final DocumentContentSource contentSource;
+
+	/**
+	 * Create the entity
+	 *
+	 * @param json
+	 *            JSON string of the JSONDocument with an empty documentContent value
+	 * @param contentSource
+	 *            source of the document content
+	 * @throws UnsupportedEncodingException
+	 *             if UTF-8 is not supported
+	 */
+	Base64DocumentEntity(String json, DocumentContentSource contentSource) throws UnsupportedEncodingException {
+		int position = json.lastIndexOf(CONTENT_PAIR);
+		if (position < 0) {
+			throw new IllegalArgumentException("JSON string has no empty documentContent value");
+		}
+		int insertPosition = position + CONTENT_PAIR.length() - 1;
+		this.jsonBeforeContent = json.substring(0, insertPosition).getBytes(HTTP.UTF_8);
+		this.jsonAfterContent = json.substring(insertPosition).getBytes(HTTP.UTF_8);
+		this.contentSource = contentSource;
+		setContentType("application/json; charset=UTF-8");
+	}
+
+	@Override
+	public boolean isRepeatable() {
+		return contentSource.isRepeatable();
+	}
+
+	/**
+	 * Get the length of the entity: the JSON envelope and four base64 characters for every three bytes of content
+	 */
+	@Override
+	public long getContentLength() {
+		long length = contentSource.getLength();
+		if (length < 0) {
+			return -1L;
+		}
+		return jsonBeforeContent.length + 4 * ((length + 2) / 3) + jsonAfterContent.length;
+	}
+
+	@Override
+	public InputStream getContent() throws IOException {
+		InputStream base64Content = new Base64InputStream(contentSource.openStream(), true, 0, null);
+		return new SequenceInputStream(Collections.enumeration(Arrays.asList(new ByteArrayInputStream(
+				jsonBeforeContent), base64Content, new ByteArrayInputStream(jsonAfterContent))));
+	}
+
+	@Override
+	public void writeTo(OutputStream outstream) throws IOException {
+		if (outstream == null) {
+			throw new IllegalArgumentException("Output stream may not be null");
+		}
+		InputStream content = getContent();
+		try {
+			byte[] buffer = new byte[BUFFER_SIZE];
+			int read;
+			while ((read = content.read(buffer)) != -1) {
+				outstream.write(buffer, 0, read);
+			}
+			outstream.flush();
+		} finally {
+			content.close();
+		}
+	}
+
+	@Override
+	public boolean isStreaming() {
+		return !contentSource.isRepeatable();
+	}
+}
@@ -0,0 +1,372 @@
+package com.mambu.apisdk.util;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.http.concurrent.BasicFuture;
+import org.apache.http.concurrent.FutureCallback;
+
+import com.mambu.apisdk.exception.MambuApiException;
+
+/**
+ * Concurrency limit of a group of API requests (see BulkheadSettings). A request takes a permit before it is sent and
+ * returns it when it completes. When all permits are taken, requests wait in a FIFO queue: synchronous requests block
+ * for at most the group's maximum wait, asynchronous requests are started when a permit is returned. Requests made
+ * when the queue is full are rejected with a MambuApiException caused by a RejectedExecutionException
+ */
+public class Bulkhead {
+
+	private final static Logger LOGGER = Logger.getLogger(Bulkhead.class.getName());
+
+	private final String name;
+	private final int maxQueuedRequests;
+	private final long maxWaitNanos;
+
+	// Guarded by this
+	private int maxConcurrentRequests;
+	private int activeRequests;
+	private final LinkedList<Waiter> queue = new LinkedList<Waiter>();
+	private long rejectedRequests;
+
+	/**
+	 * Create bulkhead for a group of requests
+	 *
+	 * @param group
+	 *            limits of the group
+	 */
+	public Bulkhead(BulkheadSettings.Group group) {
+		this(group.getName(), group.getMaxConcurrentRequests(), group.getMaxQueuedRequests(), group
+				.getMaxWaitMillis());
+	}
+
+	Bulkhead(String name, int maxConcurrentRequests, int maxQueuedRequests, long maxWaitMillis) {
+		this.name = name;
+		this.maxConcurrentRequests = maxConcurrentRequests;
+		this.maxQueuedRequests = maxQueuedRequests;
+		this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+	}
+
+	/**
+	 * Request waiting for a permit. Synchronous requests have no start task
+	 */
+	private static class Waiter {
+		private final Runnable start;
+		private boolean granted;
+
+		private Waiter(Runnable start) {
+			this.start = start;
+		}
+	}
+
+	/**
+	 * Asynchronous request, started when it gets a permit
+	 */
+	interface AsyncRequest<R> {
+		Future<R> start(MambuApiCallback<R> callback);
+	}
+
+	/**
+	 * Take a permit, waiting for at most the maximum wait of the group and not beyond the deadline. The permit must be
+	 * returned with release()
+	 *
+	 * @param deadline
+	 *            deadline of the request or null if it has none
+	 * @throws MambuApiException
+	 *             if the queue is full, no permit was returned in time or the thread was interrupted
+	 */
+	public void acquire(Deadline deadline) throws MambuApiException {
+
+		Waiter waiter;
+		synchronized (this) {
+			if (activeRequests < maxConcurrentRequests && queue.isEmpty()) {
+				activeRequests++;
+				return;
+			}
+			checkQueue();
+			waiter = new Waiter(null);
+			queue.add(waiter);
+
+			long waitNanos = maxWaitNanos;
+			boolean limitedByDeadline = false;
+			if (deadline != null && deadline.getRemainingNanos() < waitNanos) {
+				waitNanos = deadline.getRemainingNanos();
+				limitedByDeadline = true;
+			}
+			long waitUntil = System.nanoTime() + waitNanos;
+			try {
+				while (!waiter.granted) {
+					long remaining = waitUntil - System.nanoTime();
+					if (remaining <= 0) {
+						queue.remove(waiter);
+						rejectedRequests++;
+						if (limitedByDeadline) {
+							throw new MambuApiException(new TimeoutException(
+									"Deadline exceeded while waiting in the bulkhead " + name));
+						}
+						throw new MambuApiException(new RejectedExecutionException("Bulkhead " + name
+								+ " is full, no request completed in time"));
+					}
+					TimeUnit.NANOSECONDS.timedWait(this, remaining);
+				}
+				return;
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				if (!waiter.granted) {
+					queue.remove(waiter);
+					throw new MambuApiException(e);
+				}
+			}
+		}
+		// Interrupted after the permit was passed to this request: pass it on
+		release();
+		throw new MambuApiException(new InterruptedException("Interrupted while waiting in the bulkhead " + name));
+	}
+
+	/**
+	 * Start an asynchronous request when a permit is available: immediately, or when one of the requests in flight
+	 * returns its permit. The request must return the permit with release() when it completes. See also
+	 * executeAsync(), which returns the permit itself
+	 *
+	 * @param start
+	 *            task starting the request. Must not throw exceptions
+	 * @throws MambuApiException
+	 *             if the queue is full
+	 */
+	public void start(Runnable start) throws MambuApiException {
+		synchronized (this) {
+			if (activeRequests >= maxConcurrentRequests || !queue.isEmpty()) {
+				checkQueue();
+				queue.add(new Waiter(TraceContext.wrap(start)));
+				return;
+			}
+			activeRequests++;
+		}
+		start.run();
+	}
+
+	/**
+	 * Return a permit. The permit is passed to the first request in the queue, if any
+	 */
+	public void release() {
+		List<Runnable> starts;
+		synchronized (this) {
+			activeRequests--;
+			starts = grantPermits();
+		}
+		for (Runnable start : starts) {
+			start.run();
+		}
+	}
+
+	/**
+	 * Change the number of permits. With more permits the queued requests are started, with fewer permits the
+	 * requests in flight complete before new requests are started
+	 *
+	 * @param maxConcurrentRequests
+	 *            maximum number of concurrent requests. Must be greater than zero
+	 */
+	void setMaxConcurrentRequests(int maxConcurrentRequests) {
+		if (maxConcurrentRequests < 1) {
+			throw new IllegalArgumentException("maxConcurrentRequests must be greater than zero");
+		}
+		List<Runnable> starts;
+		synchronized (this) {
+			this.maxConcurrentRequests = maxConcurrentRequests;
+			starts = grantPermits();
+		}
+		for (Runnable start : starts) {
+			start.run();
+		}
+	}
+
+	/**
+	 * Pass the available permits to the queued requests. Called with the lock held
+	 *
+	 * @return start tasks of the asynchronous requests which got a permit, to be run without the lock
+	 */
+	private List<Runnable> grantPermits() {
+		List<Runnable> starts = null;
+		boolean notify = false;
+		while (activeRequests < maxConcurrentRequests && !queue.isEmpty()) {
+			Waiter next = queue.poll();
+			next.granted = true;
+			activeRequests++;
+			if (next.start == null) {
+				notify = true;
+			} else {
+				if (starts == null) {
+					starts = new ArrayList<Runnable>();
+				}
+				starts.add(next.start);
+			}
+		}
+		if (notify) {
+			notifyAll();
+		}
+		return (starts == null) ? new ArrayList<Runnable>(0) : starts;
+	}
+
+	/**
+	 * Execute an asynchronous request when a permit is available. The permit is returned when the request completes.
+	 * Requests rejected by the bulkhead are reported to the callback and the returned future. A queued request
+	 * cancelled before it was started is never sent
+	 *
+	 * @param request
+	 *            the request
+	 * @param callback
+	 *            callback notified with the result. Can be null
+	 * @param urlString
+	 *            request URL, for logging
+	 * @return future for the result of the request
+	 */
+	<R> Future<R> executeAsync(final AsyncRequest<R> request, final MambuApiCallback<R> callback,
+			final String urlString) {
+
+		// The started request
+		final Future<?>[] current = new Future<?>[1];
+		final BasicFuture<R> result = new BasicFuture<R>(new FutureCallback<R>() {
+
+			@Override
+			public void completed(R decoded) {
+				notifyCallback(callback, decoded, null, urlString);
+			}
+
+			@Override
+			public void failed(Exception e) {
+				notifyCallback(callback, null, (MambuApiException) e, urlString);
+			}
+
+			@Override
+			public void cancelled() {
+				Future<?> started;
+				synchronized (current) {
+					started = current[0];
+				}
+				if (started != null) {
+					started.cancel(true);
+				}
+				notifyCallback(callback, null, new MambuApiException(new CancellationException(
+						"Request was cancelled")), urlString);
+			}
+		});
+
+		Runnable start = new Runnable() {
+			@Override
+			public void run() {
+				if (result.isDone()) {
+					// Cancelled while queued
+					release();
+					return;
+				}
+				final AtomicBoolean released = new AtomicBoolean();
+				MambuApiCallback<R> requestCallback = new MambuApiCallback<R>() {
+
+					@Override
+					public void onSuccess(R decoded) {
+						if (released.compareAndSet(false, true)) {
+							release();
+						}
+						result.completed(decoded);
+					}
+
+					@Override
+					public void onFailure(MambuApiException exception) {
+						if (released.compareAndSet(false, true)) {
+							release();
+						}
+						result.failed(exception);
+					}
+				};
+				Future<R> started;
+				try {
+					started = request.start(requestCallback);
+				} catch (RuntimeException e) {
+					requestCallback.onFailure(new MambuApiException(e));
+					return;
+				}
+				synchronized (current) {
+					current[0] = started;
+				}
+				if (result.isCancelled()) {
+					// Cancelled while starting
+					started.cancel(true);
+				}
+			}
+		};
+		try {
+			start(start);
+		} catch (MambuApiException e) {
+			result.failed(e);
+		}
+		return result;
+	}
+
+	private static <R> void notifyCallback(MambuApiCallback<R> callback, R decoded, MambuApiException exception,
+			String urlString) {
+		if (callback == null) {
+			return;
+		}
+		try {
+			if (exception == null) {
+				callback.onSuccess(decoded);
+			} else {
+				callback.onFailure(exception);
+			}
+		} catch (RuntimeException e) {
+			LOGGER.log(Level.WARNING, "Callback failed for url=" + urlString, e);
+		}
+	}
+
+	// Called with the lock held
+	private void checkQueue() throws MambuApiException {
+		if (queue.size() >= maxQueuedRequests) {
+			rejectedRequests++;
+			throw new MambuApiException(new RejectedExecutionException("Bulkhead " + name + " is full: "
+					+ activeRequests + " requests in flight, " + queue.size() + " queued"));
+		}
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public synchronized int getMaxConcurrentRequests() {
+		return maxConcurrentRequests;
+	}
+
+	/**
+	 * Get the number of requests holding a permit
+	 */
+	public synchronized int getActiveRequests() {
+		return activeRequests;
+	}
+
+	/**
+	 * Get the number of requests waiting for a permit
+	 */
+	public synchronized int getQueuedRequests() {
+		return queue.size();
+	}
+
+	/**
+	 * Get the number of requests rejected because the queue was full or they waited too long
+	 */
+	public synchronized long getRejectedRequests() {
+		return rejectedRequests;
+	}
+
+	@Override
+	public String toString() {
+		return "Bulkhead " + name + ": active=" + getActiveRequests() + " queued=" + getQueuedRequests()
+				+ " rejected=" + getRejectedRequests();
+	}
+}
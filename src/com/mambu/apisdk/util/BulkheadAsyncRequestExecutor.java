@@ -0,0 +1,47 @@
+package com.mambu.apisdk.util;
+
+import java.util.concurrent.Future;
+
+/**
+ * Bulkhead decorator for an AsyncRequestExecutor. Asynchronous requests don't block a thread while their group is
+ * full: they are queued and passed to the delegate when a request of the group completes. Requests rejected by the
+ * bulkhead are reported to the callback and the returned future. A queued request cancelled before it was started is
+ * never sent
+ */
+public class BulkheadAsyncRequestExecutor extends BulkheadRequestExecutor implements AsyncRequestExecutor {
+
+	private final AsyncRequestExecutor asyncDelegate;
+
+	/**
+	 * Create bulkhead executor
+	 *
+	 * @param delegate
+	 *            asynchronous request executor executing the requests
+	 * @param settings
+	 *            bulkhead settings
+	 */
+	public BulkheadAsyncRequestExecutor(AsyncRequestExecutor delegate, BulkheadSettings settings) {
+		super(delegate, settings);
+		this.asyncDelegate = delegate;
+	}
+
+	@Override
+	public <R> Future<R> executeRequestAsync(final String urlString, final ParamsMap params,
+			final ApiDefinition apiDefinition, final MambuApiCallback<R> callback) {
+
+		if (apiDefinition == null) {
+			throw new IllegalArgumentException("ApiDefinition cannot be NULL");
+		}
+		Bulkhead bulkhead = getBulkhead(apiDefinition);
+		if (bulkhead == null) {
+			return asyncDelegate.executeRequestAsync(urlString, params, apiDefinition, callback);
+		}
+
+		return bulkhead.executeAsync(new Bulkhead.AsyncRequest<R>() {
+			@Override
+			public Future<R> start(MambuApiCallback<R> requestCallback) {
+				return asyncDelegate.executeRequestAsync(urlString, params, apiDefinition, requestCallback);
+			}
+		}, callback, urlString);
+	}
+}
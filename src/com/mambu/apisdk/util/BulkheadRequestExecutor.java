@@ -0,0 +1,179 @@
+package com.mambu.apisdk.util;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.mambu.apisdk.exception.MambuApiException;
+
+/**
+ * Request executor decorator isolating groups of requests with bulkheads. Each request of a group holds one of the
+ * group's permits while it is executed by the delegate; requests without a group are passed to the delegate
+ * unchanged. Use BulkheadRequestExecutor.decorate() to keep the asynchronous execution of an AsyncRequestExecutor.
+ *
+ * Bulkheads are enabled for all services created with a MambuAPIModule by setting its bulkhead settings:
+ * mambuAPIModule.setBulkheadSettings(bulkheadSettings)
+ */
+public class BulkheadRequestExecutor implements RequestExecutor {
+
+	protected final RequestExecutor delegate;
+	protected final BulkheadSettings settings;
+	// Bulkheads by the group name
+	private final Map<String, Bulkhead> bulkheads = new LinkedHashMap<String, Bulkhead>();
+
+	/**
+	 * Create bulkhead executor with a bulkhead for each group in the settings
+	 *
+	 * @param delegate
+	 *            request executor executing the requests
+	 * @param settings
+	 *            bulkhead settings
+	 */
+	public BulkheadRequestExecutor(RequestExecutor delegate, BulkheadSettings settings) {
+		if (delegate == null || settings == null) {
+			throw new IllegalArgumentException("Request executor and bulkhead settings must not be null");
+		}
+		this.delegate = delegate;
+		this.settings = settings;
+		for (BulkheadSettings.Group group : settings.getGroups()) {
+			bulkheads.put(group.getName(), new Bulkhead(group));
+		}
+	}
+
+	/**
+	 * Decorate the request executor with bulkheads. The returned executor is an AsyncRequestExecutor if the delegate
+	 * is one
+	 *
+	 * @param delegate
+	 *            request executor executing the requests
+	 * @param settings
+	 *            bulkhead settings
+	 * @return bulkhead request executor
+	 */
+	public static BulkheadRequestExecutor decorate(RequestExecutor delegate, BulkheadSettings settings) {
+		if (delegate instanceof AsyncRequestExecutor) {
+			return new BulkheadAsyncRequestExecutor((AsyncRequestExecutor) delegate, settings);
+		}
+		return new BulkheadRequestExecutor(delegate, settings);
+	}
+
+	/**
+	 * Get the bulkhead of a group, e.g. to monitor its active and queued requests
+	 *
+	 * @param group
+	 *            group name
+	 * @return bulkhead or null if there is no such group
+	 */
+	public Bulkhead getBulkhead(String group) {
+		return bulkheads.get(group);
+	}
+
+	/**
+	 * Get all bulkheads
+	 *
+	 * @return bulkheads by the group name
+	 */
+	public Map<String, Bulkhead> getBulkheads() {
+		return Collections.unmodifiableMap(bulkheads);
+	}
+
+	/**
+	 * Get the bulkhead for the requests with an API definition
+	 *
+	 * @param apiDefinition
+	 *            API definition or null for the requests without one
+	 * @return bulkhead or null if such requests are not limited
+	 */
+	protected Bulkhead getBulkhead(ApiDefinition apiDefinition) {
+		String group = settings.getGroup(apiDefinition);
+		return (group == null) ? null : bulkheads.get(group);
+	}
+
+	@Override
+	public void setAuthorization(String username, String password) {
+		delegate.setAuthorization(username, password);
+	}
+
+	@Override
+	public String executeRequest(String urlString, Method method) throws MambuApiException {
+		Bulkhead bulkhead = acquire(null, null);
+		try {
+			return delegate.executeRequest(urlString, method);
+		} finally {
+			release(bulkhead);
+		}
+	}
+
+	@Override
+	public String executeRequest(String urlString, ParamsMap params, Method method) throws MambuApiException {
+		Bulkhead bulkhead = acquire(null, null);
+		try {
+			return delegate.executeRequest(urlString, params, method);
+		} finally {
+			release(bulkhead);
+		}
+	}
+
+	@Override
+	public String executeRequest(String urlString, Method method, ContentType contentTypeFormat)
+			throws MambuApiException {
+		Bulkhead bulkhead = acquire(null, null);
+		try {
+			return delegate.executeRequest(urlString, method, contentTypeFormat);
+		} finally {
+			release(bulkhead);
+		}
+	}
+
+	@Override
+	public String executeRequest(String urlString, ParamsMap params, Method method, ContentType contentTypeFormat)
+			throws MambuApiException {
+		Bulkhead bulkhead = acquire(null, null);
+		try {
+			return delegate.executeRequest(urlString, params, method, contentTypeFormat);
+		} finally {
+			release(bulkhead);
+		}
+	}
+
+	@Override
+	public <R> R executeRequest(String urlString, ParamsMap params, ApiDefinition apiDefinition)
+			throws MambuApiException {
+		Bulkhead bulkhead = acquire(apiDefinition, null);
+		try {
+			return delegate.executeRequest(urlString, params, apiDefinition);
+		} finally {
+			release(bulkhead);
+		}
+	}
+
+	@Override
+	public <R> R executeRequest(String urlString, ParamsMap params, ApiDefinition apiDefinition, Deadline deadline)
+			throws MambuApiException {
+		Bulkhead bulkhead = acquire(apiDefinition, deadline);
+		try {
+			return delegate.executeRequest(urlString, params, apiDefinition, deadline);
+		} finally {
+			release(bulkhead);
+		}
+	}
+
+	@Override
+	public void shutdown() {
+		delegate.shutdown();
+	}
+
+	private Bulkhead acquire(ApiDefinition apiDefinition, Deadline deadline) throws MambuApiException {
+		Bulkhead bulkhead = getBulkhead(apiDefinition);
+		if (bulkhead != null) {
+			bulkhead.acquire(deadline);
+		}
+		return bulkhead;
+	}
+
+	private static void release(Bulkhead bulkhead) {
+		if (bulkhead != null) {
+			bulkhead.release();
+		}
+	}
+}
@@ -0,0 +1,204 @@
+package com.mambu.apisdk.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Settings for the bulkheads isolating groups of API requests from each other. Each group has its own limit of
+ * concurrent requests and its own queue, so slow requests of one group (e.g. document downloads or long activity
+ * ranges) can't take all threads and pooled connections needed by the latency-critical requests of another group (e.g.
+ * client lookups and repayments).
+ *
+ * Requests are assigned to a group by their ApiDefinition, by their end point or else to the default group. Requests
+ * without a group are not limited. Example:
+ *
+ * BulkheadSettings settings = new BulkheadSettings();
+ * settings.addGroup("documents", 4);
+ * settings.assignEndPoint(APIData.DOCUMENTS, "documents");
+ * settings.assignEndPoint(APIData.ACTIVITIES, "documents");
+ * mambuAPIModule.setBulkheadSettings(settings);
+ *
+ * The sum of the group limits should stay below ConnectionPoolSettings.getMaxConnectionsPerRoute(), so that each group
+ * always finds a free connection
+ */
+public class BulkheadSettings {
+
+	// Default values
+	public final static int DEFAULT_MAX_QUEUED_REQUESTS = 100;
+	public final static long DEFAULT_MAX_WAIT_MILLIS = 10000L;
+
+	// Groups by their name, in the order they were added
+	private final Map<String, Group> groups = new LinkedHashMap<String, Group>();
+	// Group names by the ApiDefinition name (see ApiDefinition.toString()) and by the end point
+	private final Map<String, String> apiDefinitionGroups = new LinkedHashMap<String, String>();
+	private final Map<String, String> endPointGroups = new LinkedHashMap<String, String>();
+	// Group of the requests not assigned to any group. Null if they are not limited
+	private String defaultGroup;
+
+	/**
+	 * Create bulkhead settings without any groups
+	 */
+	public BulkheadSettings() {
+	}
+
+	/**
+	 * Add a group with the default queue size and maximum wait
+	 *
+	 * @param name
+	 *            group name
+	 * @param maxConcurrentRequests
+	 *            maximum number of requests of the group executed concurrently. Must be greater than zero
+	 */
+	public void addGroup(String name, int maxConcurrentRequests) {
+		addGroup(name, maxConcurrentRequests, DEFAULT_MAX_QUEUED_REQUESTS, DEFAULT_MAX_WAIT_MILLIS);
+	}
+
+	/**
+	 * Add a group
+	 *
+	 * @param name
+	 *            group name
+	 * @param maxConcurrentRequests
+	 *            maximum number of requests of the group executed concurrently. Must be greater than zero
+	 * @param maxQueuedRequests
+	 *            maximum number of requests waiting for one of the concurrent requests to complete. Requests made when
+	 *            the queue is full are rejected
+	 * @param maxWaitMillis
+	 *            maximum time a synchronous request waits in the queue before it is rejected
+	 */
+	public void addGroup(String name, int maxConcurrentRequests, int maxQueuedRequests, long maxWaitMillis) {
+		if (name == null) {
+			throw new IllegalArgumentException("Group name must not be null");
+		}
+		if (maxConcurrentRequests < 1) {
+			throw new IllegalArgumentException("maxConcurrentRequests must be greater than zero");
+		}
+		if (maxQueuedRequests < 0) {
+			throw new IllegalArgumentException("maxQueuedRequests must not be negative");
+		}
+		if (maxWaitMillis < 0) {
+			throw new IllegalArgumentException("maxWaitMillis must not be negative");
+		}
+		groups.put(name, new Group(name, maxConcurrentRequests, maxQueuedRequests, maxWaitMillis));
+	}
+
+	/**
+	 * Assign all requests to an API end point to a group
+	 *
+	 * @param endPoint
+	 *            API end point, as returned by ApiDefinition.getEndPoint(), e.g. APIData.DOCUMENTS
+	 * @param group
+	 *            name of an added group
+	 */
+	public void assignEndPoint(String endPoint, String group) {
+		if (endPoint == null) {
+			throw new IllegalArgumentException("endPoint must not be null");
+		}
+		endPointGroups.put(endPoint, checkGroup(group));
+	}
+
+	/**
+	 * Assign the requests with an API definition to a group. API definitions are matched by their type, end point and
+	 * related entity (see ApiDefinition.toString()). This assignment takes precedence over the end point assignment
+	 *
+	 * @param apiDefinition
+	 *            API definition
+	 * @param group
+	 *            name of an added group
+	 */
+	public void assignApiDefinition(ApiDefinition apiDefinition, String group) {
+		if (apiDefinition == null) {
+			throw new IllegalArgumentException("apiDefinition must not be null");
+		}
+		apiDefinitionGroups.put(apiDefinition.toString(), checkGroup(group));
+	}
+
+	/**
+	 * Set the group of the requests not assigned to any group, including the requests without an ApiDefinition
+	 *
+	 * @param group
+	 *            name of an added group or null to not limit such requests
+	 */
+	public void setDefaultGroup(String group) {
+		this.defaultGroup = (group == null) ? null : checkGroup(group);
+	}
+
+	public String getDefaultGroup() {
+		return defaultGroup;
+	}
+
+	/**
+	 * Get the group of the requests with an API definition
+	 *
+	 * @param apiDefinition
+	 *            API definition or null for the requests without one
+	 * @return group name or null if the requests are not limited
+	 */
+	public String getGroup(ApiDefinition apiDefinition) {
+		if (apiDefinition != null) {
+			String group = apiDefinitionGroups.get(apiDefinition.toString());
+			if (group == null) {
+				group = endPointGroups.get(apiDefinition.getEndPoint());
+			}
+			if (group != null) {
+				return group;
+			}
+		}
+		return defaultGroup;
+	}
+
+	/**
+	 * Get the groups
+	 *
+	 * @return groups in the order they were added
+	 */
+	public Collection<Group> getGroups() {
+		List<Group> added = new ArrayList<Group>(groups.values());
+		return Collections.unmodifiableList(added);
+	}
+
+	private String checkGroup(String group) {
+		if (group == null || !groups.containsKey(group)) {
+			throw new IllegalArgumentException("Unknown group " + group + ", the group must be added first");
+		}
+		return group;
+	}
+
+	/**
+	 * Limits of a group of requests
+	 */
+	public static class Group {
+
+		private final String name;
+		private final int maxConcurrentRequests;
+		private final int maxQueuedRequests;
+		private final long maxWaitMillis;
+
+		private Group(String name, int maxConcurrentRequests, int maxQueuedRequests, long maxWaitMillis) {
+			this.name = name;
+			this.maxConcurrentRequests = maxConcurrentRequests;
+			this.maxQueuedRequests = maxQueuedRequests;
+			this.maxWaitMillis = maxWaitMillis;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public int getMaxConcurrentRequests() {
+			return maxConcurrentRequests;
+		}
+
+		public int getMaxQueuedRequests() {
+			return maxQueuedRequests;
+		}
+
+		public long getMaxWaitMillis() {
+			return maxWaitMillis;
+		}
+	}
+}
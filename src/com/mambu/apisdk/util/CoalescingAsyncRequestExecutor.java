@@ -0,0 +1,46 @@
+package com.mambu.apisdk.util;
+
+import java.util.concurrent.Future;
+
+/**
+ * Coalescing decorator for an AsyncRequestExecutor. Asynchronous GET requests identical to a request in flight are
+ * completed with their own result decoded from its response, without sending another HTTP request. Cancelling the
+ * returned future notifies the callback but doesn't cancel the request shared with other callers
+ */
+public class CoalescingAsyncRequestExecutor extends CoalescingRequestExecutor implements AsyncRequestExecutor {
+
+	private final AsyncRequestExecutor asyncDelegate;
+
+	/**
+	 * Create coalescing executor
+	 *
+	 * @param delegate
+	 *            asynchronous request executor executing the requests
+	 * @param coalescer
+	 *            request coalescer
+	 */
+	public CoalescingAsyncRequestExecutor(AsyncRequestExecutor delegate, RequestCoalescer coalescer) {
+		super(delegate, coalescer);
+		this.asyncDelegate = delegate;
+	}
+
+	@Override
+	public <R> Future<R> executeRequestAsync(final String urlString, final ParamsMap params,
+			final ApiDefinition apiDefinition, MambuApiCallback<R> callback) {
+
+		if (apiDefinition == null) {
+			throw new IllegalArgumentException("ApiDefinition cannot be NULL");
+		}
+		if (!isCoalescable(params, apiDefinition)) {
+			return asyncDelegate.executeRequestAsync(urlString, params, apiDefinition, callback);
+		}
+		final ApiDefinition responseDefinition = getResponseDefinition(apiDefinition);
+		return coalescer.executeAsync(makeKey(urlString, params, apiDefinition),
+				new RequestCoalescer.AsyncRequest<String>() {
+					@Override
+					public void start(MambuApiCallback<String> requestCallback) {
+						asyncDelegate.executeRequestAsync(urlString, params, responseDefinition, requestCallback);
+					}
+				}, apiDefinition, callback);
+	}
+}
@@ -0,0 +1,186 @@
+package com.mambu.apisdk.util;
+
+import org.apache.commons.codec.digest.DigestUtils;
+
+import com.mambu.apisdk.exception.MambuApiException;
+import com.mambu.apisdk.util.ApiDefinition.ApiReturnFormat;
+
+/**
+ * Request executor decorator coalescing concurrent identical GET requests with a RequestCoalescer. Other requests are
+ * passed to the delegate unchanged. The coalesced requests share the response string and each of them decodes its own
+ * result, so the entities returned to one caller can be modified without affecting the others. Use
+ * CoalescingRequestExecutor.decorate() to keep the asynchronous execution of an AsyncRequestExecutor
+ */
+public class CoalescingRequestExecutor implements RequestExecutor {
+
+	protected final RequestExecutor delegate;
+	protected final RequestCoalescer coalescer;
+	// Digest of the credentials set for the requests, so that the requests of different users are not coalesced
+	protected volatile String credentials;
+
+	/**
+	 * Create coalescing executor
+	 *
+	 * @param delegate
+	 *            request executor executing the requests
+	 * @param coalescer
+	 *            request coalescer
+	 */
+	public CoalescingRequestExecutor(RequestExecutor delegate, RequestCoalescer coalescer) {
+		if (delegate == null || coalescer == null) {
+			throw new IllegalArgumentException("Request executor and request coalescer must not be null");
+		}
+		this.delegate = delegate;
+		this.coalescer = coalescer;
+	}
+
+	/**
+	 * Decorate the request executor with request coalescing. The returned executor is an AsyncRequestExecutor if the
+	 * delegate is one
+	 *
+	 * @param delegate
+	 *            request executor executing the requests
+	 * @param coalescer
+	 *            request coalescer
+	 * @return coalescing request executor
+	 */
+	public static CoalescingRequestExecutor decorate(RequestExecutor delegate, RequestCoalescer coalescer) {
+		if (delegate instanceof AsyncRequestExecutor) {
+			return new CoalescingAsyncRequestExecutor((AsyncRequestExecutor) delegate, coalescer);
+		}
+		return new CoalescingRequestExecutor(delegate, coalescer);
+	}
+
+	@Override
+	public void setAuthorization(String username, String password) {
+		credentials = DigestUtils.sha256Hex(username + ":" + password);
+		delegate.setAuthorization(username, password);
+	}
+
+	@Override
+	public String executeRequest(final String urlString, final Method method) throws MambuApiException {
+		if (method != Method.GET) {
+			return delegate.executeRequest(urlString, method);
+		}
+		String key = RequestCoalescer.makeKey(credentials, method, urlString, null, null, null);
+		return coalescer.execute(key, new RequestCoalescer.Request<String>() {
+			@Override
+			public String execute() throws MambuApiException {
+				return delegate.executeRequest(urlString, method);
+			}
+		});
+	}
+
+	@Override
+	public String executeRequest(final String urlString, final ParamsMap params, final Method method)
+			throws MambuApiException {
+		if (method != Method.GET) {
+			return delegate.executeRequest(urlString, params, method);
+		}
+		String key = RequestCoalescer.makeKey(credentials, method, urlString, params, null, null);
+		return coalescer.execute(key, new RequestCoalescer.Request<String>() {
+			@Override
+			public String execute() throws MambuApiException {
+				return delegate.executeRequest(urlString, params, method);
+			}
+		});
+	}
+
+	@Override
+	public String executeRequest(final String urlString, final Method method, final ContentType contentTypeFormat)
+			throws MambuApiException {
+		if (method != Method.GET) {
+			return delegate.executeRequest(urlString, method, contentTypeFormat);
+		}
+		String key = RequestCoalescer.makeKey(credentials, method, urlString, null, contentTypeFormat, null);
+		return coalescer.execute(key, new RequestCoalescer.Request<String>() {
+			@Override
+			public String execute() throws MambuApiException {
+				return delegate.executeRequest(urlString, method, contentTypeFormat);
+			}
+		});
+	}
+
+	@Override
+	public String executeRequest(final String urlString, final ParamsMap params, final Method method,
+			final ContentType contentTypeFormat) throws MambuApiException {
+		if (method != Method.GET) {
+			return delegate.executeRequest(urlString, params, method, contentTypeFormat);
+		}
+		String key = RequestCoalescer.makeKey(credentials, method, urlString, params, contentTypeFormat, null);
+		return coalescer.execute(key, new RequestCoalescer.Request<String>() {
+			@Override
+			public String execute() throws MambuApiException {
+				return delegate.executeRequest(urlString, params, method, contentTypeFormat);
+			}
+		});
+	}
+
+	@Override
+	public <R> R executeRequest(final String urlString, final ParamsMap params, final ApiDefinition apiDefinition)
+			throws MambuApiException {
+		if (!isCoalescable(params, apiDefinition)) {
+			return delegate.executeRequest(urlString, params, apiDefinition);
+		}
+		final ApiDefinition responseDefinition = getResponseDefinition(apiDefinition);
+		return coalescer.execute(makeKey(urlString, params, apiDefinition), new RequestCoalescer.Request<String>() {
+			@Override
+			public String execute() throws MambuApiException {
+				return delegate.executeRequest(urlString, params, responseDefinition);
+			}
+		}, apiDefinition, null);
+	}
+
+	/*
+	 * A request waiting for an identical request in flight waits at most until its own deadline. The request in flight
+	 * is bounded by the deadline of the caller which sent it
+	 */
+	@Override
+	public <R> R executeRequest(final String urlString, final ParamsMap params, final ApiDefinition apiDefinition,
+			final Deadline deadline) throws MambuApiException {
+		if (!isCoalescable(params, apiDefinition)) {
+			return delegate.executeRequest(urlString, params, apiDefinition, deadline);
+		}
+		final ApiDefinition responseDefinition = getResponseDefinition(apiDefinition);
+		return coalescer.execute(makeKey(urlString, params, apiDefinition), new RequestCoalescer.Request<String>() {
+			@Override
+			public String execute() throws MambuApiException {
+				return delegate.executeRequest(urlString, params, responseDefinition, deadline);
+			}
+		}, apiDefinition, deadline);
+	}
+
+	@Override
+	public void shutdown() {
+		delegate.shutdown();
+	}
+
+	public RequestCoalescer getCoalescer() {
+		return coalescer;
+	}
+
+	/**
+	 * Only GET requests are coalesced. Requests decoding the response into a content sink are not coalesced, as each of
+	 * them writes to its own sink
+	 */
+	protected static boolean isCoalescable(ParamsMap params, ApiDefinition apiDefinition) {
+		return apiDefinition != null && apiDefinition.getMethod() == Method.GET
+				&& AbstractRequestExecutor.getDocumentContentSink(params) == null;
+	}
+
+	/**
+	 * The coalesced requests share the response string, not the decoded result, so each caller gets its own entities.
+	 * The request in flight is sent with a copy of the API definition returning the response string
+	 */
+	protected static ApiDefinition getResponseDefinition(ApiDefinition apiDefinition) {
+		if (apiDefinition.getApiReturnFormat() == ApiReturnFormat.RESPONSE_STRING) {
+			return apiDefinition;
+		}
+		return apiDefinition.withApiReturnFormat(ApiReturnFormat.RESPONSE_STRING);
+	}
+
+	protected String makeKey(String urlString, ParamsMap params, ApiDefinition apiDefinition) {
+		return RequestCoalescer.makeKey(credentials, apiDefinition.getMethod(), urlString, params,
+				apiDefinition.getContentType(), apiDefinition);
+	}
+}
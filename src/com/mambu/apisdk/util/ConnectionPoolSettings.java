@@ -0,0 +1,125 @@
+package com.mambu.apisdk.util;
+
+/**
+ * Settings for the pool of HTTP connections used by the RequestExecutorImpl and the NonBlockingRequestExecutor. One pool is created per MambuAPIModule
+ * (i.e. per tenant) and all services obtained from the same MambuAPIFactory or MambuAPIServiceFactory share it.
+ *
+ * The default values are suitable for most applications. Applications executing many concurrent API requests against
+ * the same tenant may need to increase the maximum number of connections per route (all requests to a tenant use the
+ * same route)
+ */
+public class ConnectionPoolSettings {
+
+	// Default values
+	public final static int DEFAULT_MAX_TOTAL_CONNECTIONS = 20;
+	public final static int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 10;
+	public final static long DEFAULT_KEEP_ALIVE_MILLIS = 30000L;
+	public final static long DEFAULT_IDLE_TIMEOUT_MILLIS = 60000L;
+	public final static long DEFAULT_IDLE_CHECK_INTERVAL_MILLIS = 5000L;
+	public final static int DEFAULT_IO_THREAD_COUNT = Runtime.getRuntime().availableProcessors();
+	public final static int DEFAULT_WORKER_THREAD_COUNT = Runtime.getRuntime().availableProcessors();
+
+	// Maximum number of connections in the pool
+	private int maxTotalConnections = DEFAULT_MAX_TOTAL_CONNECTIONS;
+	// Maximum number of connections to the same route (the same tenant)
+	private int maxConnectionsPerRoute = DEFAULT_MAX_CONNECTIONS_PER_ROUTE;
+	// How long a connection is kept alive if the server's response doesn't specify the Keep-Alive timeout
+	private long keepAliveMillis = DEFAULT_KEEP_ALIVE_MILLIS;
+	// Connections idle for longer than this time are evicted from the pool
+	private long idleTimeoutMillis = DEFAULT_IDLE_TIMEOUT_MILLIS;
+	// How often the pool is checked for expired and idle connections. Zero or negative value disables eviction
+	private long idleCheckIntervalMillis = DEFAULT_IDLE_CHECK_INTERVAL_MILLIS;
+	// Number of I/O dispatch threads used by the NonBlockingRequestExecutor
+	private int ioThreadCount = DEFAULT_IO_THREAD_COUNT;
+	// Number of threads decoding the asynchronous responses and notifying their callbacks in the
+	// NonBlockingRequestExecutor, so that the I/O dispatch threads are not blocked by them
+	private int workerThreadCount = DEFAULT_WORKER_THREAD_COUNT;
+
+	/**
+	 * Create connection pool settings with default values
+	 */
+	public ConnectionPoolSettings() {
+	}
+
+	/**
+	 * Create connection pool settings with the specified connection limits and default timeouts
+	 *
+	 * @param maxTotalConnections
+	 *            maximum number of connections in the pool. Must be greater than zero
+	 * @param maxConnectionsPerRoute
+	 *            maximum number of connections per route. Must be greater than zero
+	 */
+	public ConnectionPoolSettings(int maxTotalConnections, int maxConnectionsPerRoute) {
+		setMaxTotalConnections(maxTotalConnections);
+		setMaxConnectionsPerRoute(maxConnectionsPerRoute);
+	}
+
+	public int getMaxTotalConnections() {
+		return maxTotalConnections;
+	}
+
+	public void setMaxTotalConnections(int maxTotalConnections) {
+		if (maxTotalConnections < 1) {
+			throw new IllegalArgumentException("maxTotalConnections must be greater than zero");
+		}
+		this.maxTotalConnections = maxTotalConnections;
+	}
+
+	public int getMaxConnectionsPerRoute() {
+		return maxConnectionsPerRoute;
+	}
+
+	public void setMaxConnectionsPerRoute(int maxConnectionsPerRoute) {
+		if (maxConnectionsPerRoute < 1) {
+			throw new IllegalArgumentException("maxConnectionsPerRoute must be greater than zero");
+		}
+		this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+	}
+
+	public long getKeepAliveMillis() {
+		return keepAliveMillis;
+	}
+
+	public void setKeepAliveMillis(long keepAliveMillis) {
+		this.keepAliveMillis = keepAliveMillis;
+	}
+
+	public long getIdleTimeoutMillis() {
+		return idleTimeoutMillis;
+	}
+
+	public void setIdleTimeoutMillis(long idleTimeoutMillis) {
+		this.idleTimeoutMillis = idleTimeoutMillis;
+	}
+
+	public long getIdleCheckIntervalMillis() {
+		return idleCheckIntervalMillis;
+	}
+
+	public void setIdleCheckIntervalMillis(long idleCheckIntervalMillis) {
+		this.idleCheckIntervalMillis = idleCheckIntervalMillis;
+	}
+
+	public int getIoThreadCount() {
+		return ioThreadCount;
+	}
+
+	public void setIoThreadCount(int ioThreadCount) {
+		if (ioThreadCount < 1) {
+			throw new IllegalArgumentException("ioThreadCount must be greater than zero");
+		}
+		this.ioThreadCount = ioThreadCount;
+	}
+
+	public int getWorkerThreadCount() {
+		return workerThreadCount;
+	}
+
+	public void setWorkerThreadCount(int workerThreadCount) {
+		if (workerThreadCount < 1) {
+			throw new IllegalArgumentException("workerThreadCount must be greater than zero");
+		}
+		this.workerThreadCount = workerThreadCount;
+	}
+
+}
@@ -0,0 +1,101 @@
+package com.mambu.apisdk.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import com.mambu.apisdk.exception.MambuApiException;
+
+/**
+ * Point in time by which an API request must complete. The deadline is passed with the request through the request
+ * executors to the HTTP transport: rate limiting and retries don't wait beyond it, and the HTTP request is aborted when
+ * it expires. A request which missed its deadline fails with a MambuApiException caused by a TimeoutException.
+ *
+ * Example: serviceExecutor.execute(apiDefinition, objectId, null, params, Deadline.after(5, TimeUnit.SECONDS))
+ */
+public final class Deadline {
+
+	// Expiry time as returned by System.nanoTime()
+	private final long expiresAtNanos;
+
+	private Deadline(long expiresAtNanos) {
+		this.expiresAtNanos = expiresAtNanos;
+	}
+
+	/**
+	 * Create deadline expiring after the timeout from now
+	 *
+	 * @param timeout
+	 *            time until the deadline. Zero or negative value creates an expired deadline
+	 * @param unit
+	 *            time unit of the timeout
+	 * @return deadline
+	 */
+	public static Deadline after(long timeout, TimeUnit unit) {
+		if (unit == null) {
+			throw new IllegalArgumentException("Time unit must not be null");
+		}
+		return new Deadline(System.nanoTime() + unit.toNanos(timeout));
+	}
+
+	/**
+	 * Get the earlier of two deadlines
+	 *
+	 * @param first
+	 *            deadline or null for no deadline
+	 * @param second
+	 *            deadline or null for no deadline
+	 * @return the earlier deadline or null if both are null
+	 */
+	public static Deadline earliest(Deadline first, Deadline second) {
+		if (first == null) {
+			return second;
+		}
+		if (second == null) {
+			return first;
+		}
+		// Compare the difference to be safe from the nanoTime overflow
+		return (first.expiresAtNanos - second.expiresAtNanos <= 0) ? first : second;
+	}
+
+	/**
+	 * Get the time remaining until the deadline
+	 *
+	 * @return remaining time in nanoseconds. Zero or negative if the deadline expired
+	 */
+	public long getRemainingNanos() {
+		return expiresAtNanos - System.nanoTime();
+	}
+
+	/**
+	 * Get the time remaining until the deadline, rounded up to a whole millisecond
+	 *
+	 * @return remaining time in milliseconds. Zero or negative if the deadline expired
+	 */
+	public long getRemainingMillis() {
+		long remaining = getRemainingNanos();
+		if (remaining <= 0) {
+			return TimeUnit.NANOSECONDS.toMillis(remaining);
+		}
+		return TimeUnit.NANOSECONDS.toMillis(remaining + TimeUnit.MILLISECONDS.toNanos(1) - 1);
+	}
+
+	public boolean isExpired() {
+		return getRemainingNanos() <= 0;
+	}
+
+	/**
+	 * Make the exception reported for a request which missed its deadline
+	 *
+	 * @param urlString
+	 *            request URL
+	 * @return MambuApiException caused by a TimeoutException
+	 */
+	static MambuApiException makeTimeoutException(String urlString) {
+		return new MambuApiException(new TimeoutException("Deadline exceeded for url=" + urlString));
+	}
+
+	@Override
+	public String toString() {
+		return "Deadline in " + getRemainingMillis() + " ms";
+	}
+}
@@ -0,0 +1,129 @@
+package com.mambu.apisdk.util;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+
+/**
+ * Destination of the binary content of a downloaded document or image. The base64 encoded content of the API response
+ * is decoded while the response is read and only the decoded bytes are written, without holding the response in
+ * memory. A request writing to a file or a file channel can be retried: each attempt overwrites the content written by
+ * the previous one. A request writing to an output stream is not retried, as the partial content of a failed attempt
+ * can't be taken back
+ */
+public final class DocumentContentSink {
+
+	private final File file;
+	private final FileChannel channel;
+	private final long channelStart;
+	private final OutputStream stream;
+
+	private DocumentContentSink(File file, FileChannel channel, long channelStart, OutputStream stream) {
+		this.file = file;
+		this.channel = channel;
+		this.channelStart = channelStart;
+		this.stream = stream;
+	}
+
+	/**
+	 * Create a sink writing to a file. An existing file is overwritten
+	 *
+	 * @param file
+	 *            the file to write
+	 * @return document content sink
+	 */
+	public static DocumentContentSink toFile(File file) {
+		if (file == null) {
+			throw new IllegalArgumentException("File must not be null");
+		}
+		return new DocumentContentSink(file, null, 0L, null);
+	}
+
+	/**
+	 * Create a sink writing to a file channel, starting at its current position. The channel is not closed
+	 *
+	 * @param channel
+	 *            the channel to write
+	 * @return document content sink
+	 * @throws IOException
+	 *             if the position of the channel can't be read
+	 */
+	public static DocumentContentSink toChannel(FileChannel channel) throws IOException {
+		if (channel == null) {
+			throw new IllegalArgumentException("Channel must not be null");
+		}
+		return new DocumentContentSink(null, channel, channel.position(), null);
+	}
+
+	/**
+	 * Create a sink writing to an output stream. The stream is flushed but not closed
+	 *
+	 * @param stream
+	 *            the stream to write
+	 * @return document content sink
+	 */
+	public static DocumentContentSink toStream(OutputStream stream) {
+		if (stream == null) {
+			throw new IllegalArgumentException("Stream must not be null");
+		}
+		return new DocumentContentSink(null, null, 0L, stream);
+	}
+
+	/**
+	 * Open the sink for writing the content of a response. Content written by a previous attempt to a file or a channel
+	 * is discarded
+	 *
+	 * @return stream to write the content to. Must be closed by the caller
+	 * @throws IOException
+	 *             if the file can't be opened or the channel can't be positioned
+	 */
+	public OutputStream openStream() throws IOException {
+		if (file != null) {
+			return new FileOutputStream(file);
+		}
+		if (channel != null) {
+			if (channel.size() > channelStart) {
+				channel.truncate(channelStart);
+			}
+			channel.position(channelStart);
+			return new NonClosingOutputStream(Channels.newOutputStream(channel));
+		}
+		return new NonClosingOutputStream(stream);
+	}
+
+	/**
+	 * Check whether the content can be written more than once, e.g. by a retried request
+	 */
+	public boolean isRepeatable() {
+		return stream == null;
+	}
+
+	@Override
+	public String toString() {
+		return "DocumentContentSink [" + (file != null ? "file=" + file : channel != null ? "channel" : "stream") + "]";
+	}
+
+	/**
+	 * Output stream which is flushed but not closed when it is closed
+	 */
+	private static class NonClosingOutputStream extends FilterOutputStream {
+
+		private NonClosingOutputStream(OutputStream out) {
+			super(out);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+		}
+
+		@Override
+		public void close() throws IOException {
+			flush();
+		}
+	}
+}
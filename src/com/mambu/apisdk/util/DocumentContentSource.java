@@ -0,0 +1,111 @@
+package com.mambu.apisdk.util;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Source of the binary content of a document uploaded without loading it into memory. The content is base64 encoded
+ * while the request is sent (see ServiceHelper.makeParamsForDocumentJson(Document, DocumentContentSource)). A file can
+ * be read any number of times, so requests uploading a file can be retried; a stream can be read only once
+ */
+public final class DocumentContentSource {
+
+	private final File file;
+	private final InputStream stream;
+	private final long length;
+	// Set when the stream was read
+	private boolean consumed;
+
+	private DocumentContentSource(File file, InputStream stream, long length) {
+		this.file = file;
+		this.stream = stream;
+		this.length = length;
+	}
+
+	/**
+	 * Create a source reading a file
+	 *
+	 * @param file
+	 *            the file to upload
+	 * @return document content source
+	 */
+	public static DocumentContentSource fromFile(File file) {
+		if (file == null) {
+			throw new IllegalArgumentException("File must not be null");
+		}
+		if (!file.isFile()) {
+			throw new IllegalArgumentException("File " + file + " does not exist or is not a file");
+		}
+		return new DocumentContentSource(file, null, file.length());
+	}
+
+	/**
+	 * Create a source reading a stream of unknown length. The stream is closed when the request was sent
+	 *
+	 * @param stream
+	 *            stream with the content to upload
+	 * @return document content source
+	 */
+	public static DocumentContentSource fromStream(InputStream stream) {
+		return fromStream(stream, -1L);
+	}
+
+	/**
+	 * Create a source reading a stream. The stream is closed when the request was sent
+	 *
+	 * @param stream
+	 *            stream with the content to upload
+	 * @param length
+	 *            number of bytes in the stream or -1 if it is not known
+	 * @return document content source
+	 */
+	public static DocumentContentSource fromStream(InputStream stream, long length) {
+		if (stream == null) {
+			throw new IllegalArgumentException("Stream must not be null");
+		}
+		return new DocumentContentSource(null, stream, length);
+	}
+
+	/**
+	 * Open the content for reading
+	 *
+	 * @return stream with the content. Must be closed by the caller
+	 * @throws IOException
+	 *             if the file can't be opened or the stream was already read
+	 */
+	public InputStream openStream() throws IOException {
+		if (file != null) {
+			return new FileInputStream(file);
+		}
+		synchronized (this) {
+			if (consumed) {
+				throw new IOException("Document content stream can be read only once");
+			}
+			consumed = true;
+		}
+		return stream;
+	}
+
+	/**
+	 * Get the number of bytes of the content
+	 *
+	 * @return length or -1 if it is not known
+	 */
+	public long getLength() {
+		return length;
+	}
+
+	/**
+	 * Check whether the content can be read more than once
+	 */
+	public boolean isRepeatable() {
+		return file != null;
+	}
+
+	@Override
+	public String toString() {
+		return "DocumentContentSource [" + (file != null ? "file=" + file : "stream") + ", length=" + length + "]";
+	}
+}
@@ -3,40 +3,61 @@
  */
 package com.mambu.apisdk.util;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 
 /**
  * Utill class for gson formatting
  * 
+ * Gson instances are immutable and thread-safe, so one instance is created per date/time format and shared by all
+ * callers. This avoids re-creating Gson's type adapters for every API request and every JSON message
+ * 
  * @author ipenciuc
  * 
  */
 public class GsonUtils {
 
 	public static String defaultDateTimeFormat = "yyyy-MM-dd'T'HH:mm:ssZ";
-	private static GsonBuilder gsonBuilder = new GsonBuilder().setDateFormat(defaultDateTimeFormat);
+
+	// Gson instances already created, by their date/time format
+	private static final ConcurrentMap<String, Gson> gsonByDateTimeFormat = new ConcurrentHashMap<String, Gson>();
 
 	/***
-	 * Creates a GSON instance from the builder with the default date/time format
+	 * Gets the GSON instance with the default date/time format
 	 * 
 	 * @return the GSON instance
 	 */
 	public static Gson createGson() {
 		// Create with default params
-		gsonBuilder = gsonBuilder.setDateFormat(defaultDateTimeFormat);
-		return gsonBuilder.create();
+		return createGson(defaultDateTimeFormat);
 	}
 
 	/***
-	 * Creates a GSON instance from the builder specifying custom date/time format
+	 * Gets the GSON instance specifying custom date/time format. The same instance is returned for the same format and
+	 * it can be safely shared across threads
+	 * 
+	 * @param dateTimeFormat
+	 *            date/time format. If null, the default date/time format is used
 	 * 
 	 * @return the GSON instance
 	 */
 	public static Gson createGson(String dateTimeFormat) {
-		// Create with the specified dateTimeFormat
-		gsonBuilder = gsonBuilder.setDateFormat(dateTimeFormat);
-		return gsonBuilder.create();
+		if (dateTimeFormat == null) {
+			dateTimeFormat = defaultDateTimeFormat;
+		}
+		Gson gson = gsonByDateTimeFormat.get(dateTimeFormat);
+		if (gson == null) {
+			// Create with the specified dateTimeFormat. If another thread created it first, use that instance instead
+			Gson newGson = new GsonBuilder().setDateFormat(dateTimeFormat).create();
+			gson = gsonByDateTimeFormat.putIfAbsent(dateTimeFormat, newGson);
+			if (gson == null) {
+				gson = newGson;
+			}
+		}
+		return gson;
 	}
 
 }
@@ -0,0 +1,174 @@
+package com.mambu.apisdk.util;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import com.mambu.apisdk.util.RequestExecutor.Method;
+
+/**
+ * Policy for hedging the GET requests (see HedgingRequestExecutor). When a GET request has not been answered within
+ * the given percentile of the recent response times of its API definition, an identical request is sent; the first
+ * response wins and the other request is cancelled. Only GET ApiDefinitions are hedged, and the hedges are limited by
+ * the budget ratio: at most one hedge per 1 / budgetRatio requests, so that hedging can't double the load
+ */
+public class HedgePolicy {
+
+	// Default values
+	public final static double DEFAULT_PERCENTILE = 95.0;
+	public final static double DEFAULT_BUDGET_RATIO = 0.05;
+	public final static int DEFAULT_MIN_SAMPLES = 20;
+	public final static int DEFAULT_WINDOW_SIZE = 200;
+	public final static long DEFAULT_MIN_DELAY_MILLIS = 10L;
+
+	// Percentile of the response times after which a hedge is sent
+	private double percentile = DEFAULT_PERCENTILE;
+	// Percentiles for the end points which need another one. Keyed by the end point, e.g. APIData.CLIENTS
+	private final Map<String, Double> endPointPercentiles = new HashMap<String, Double>();
+	// End points which are never hedged
+	private final Set<String> excludedEndPoints = new HashSet<String>();
+	// Maximum number of hedges per request
+	private double budgetRatio = DEFAULT_BUDGET_RATIO;
+	// Number of response times needed before the requests of an API definition are hedged
+	private int minSamples = DEFAULT_MIN_SAMPLES;
+	// Number of recent response times the percentile is computed from
+	private int windowSize = DEFAULT_WINDOW_SIZE;
+	// Minimum delay before a hedge is sent
+	private long minDelayMillis = DEFAULT_MIN_DELAY_MILLIS;
+
+	/**
+	 * Create hedge policy with default values
+	 */
+	public HedgePolicy() {
+	}
+
+	/**
+	 * Create hedge policy
+	 *
+	 * @param percentile
+	 *            percentile of the response times after which a hedge is sent, e.g. 95.0
+	 * @param budgetRatio
+	 *            maximum number of hedges per request, e.g. 0.05
+	 */
+	public HedgePolicy(double percentile, double budgetRatio) {
+		setPercentile(percentile);
+		setBudgetRatio(budgetRatio);
+	}
+
+	/**
+	 * Get the percentile of the response times after which a request is hedged
+	 *
+	 * @param apiDefinition
+	 *            API definition of the request
+	 * @return percentile or null if the request is not hedged
+	 */
+	public Double getPercentile(ApiDefinition apiDefinition) {
+		if (apiDefinition == null || apiDefinition.getMethod() != Method.GET) {
+			return null;
+		}
+		String endPoint = apiDefinition.getEndPoint();
+		if (excludedEndPoints.contains(endPoint)) {
+			return null;
+		}
+		Double endPointPercentile = endPointPercentiles.get(endPoint);
+		return (endPointPercentile == null) ? percentile : endPointPercentile;
+	}
+
+	public double getPercentile() {
+		return percentile;
+	}
+
+	public void setPercentile(double percentile) {
+		checkPercentile(percentile);
+		this.percentile = percentile;
+	}
+
+	/**
+	 * Set the percentile for the GET requests to an end point
+	 *
+	 * @param endPoint
+	 *            end point, e.g. APIData.LOANS
+	 * @param percentile
+	 *            percentile of the response times after which a hedge is sent
+	 */
+	public void setPercentile(String endPoint, double percentile) {
+		if (endPoint == null) {
+			throw new IllegalArgumentException("End point must not be null");
+		}
+		checkPercentile(percentile);
+		endPointPercentiles.put(endPoint, percentile);
+	}
+
+	public Map<String, Double> getEndPointPercentiles() {
+		return Collections.unmodifiableMap(endPointPercentiles);
+	}
+
+	/**
+	 * Never hedge the requests to an end point, e.g. because its responses are large
+	 *
+	 * @param endPoint
+	 *            end point, e.g. APIData.DOCUMENTS
+	 */
+	public void excludeEndPoint(String endPoint) {
+		if (endPoint == null) {
+			throw new IllegalArgumentException("End point must not be null");
+		}
+		excludedEndPoints.add(endPoint);
+	}
+
+	public Set<String> getExcludedEndPoints() {
+		return Collections.unmodifiableSet(excludedEndPoints);
+	}
+
+	public double getBudgetRatio() {
+		return budgetRatio;
+	}
+
+	public void setBudgetRatio(double budgetRatio) {
+		if (budgetRatio <= 0 || budgetRatio > 1) {
+			throw new IllegalArgumentException("budgetRatio must be greater than zero and not greater than one");
+		}
+		this.budgetRatio = budgetRatio;
+	}
+
+	public int getMinSamples() {
+		return minSamples;
+	}
+
+	public void setMinSamples(int minSamples) {
+		if (minSamples < 1) {
+			throw new IllegalArgumentException("minSamples must be greater than zero");
+		}
+		this.minSamples = minSamples;
+	}
+
+	public int getWindowSize() {
+		return windowSize;
+	}
+
+	public void setWindowSize(int windowSize) {
+		if (windowSize < 1) {
+			throw new IllegalArgumentException("windowSize must be greater than zero");
+		}
+		this.windowSize = windowSize;
+	}
+
+	public long getMinDelayMillis() {
+		return minDelayMillis;
+	}
+
+	public void setMinDelayMillis(long minDelayMillis) {
+		if (minDelayMillis < 0) {
+			throw new IllegalArgumentException("minDelayMillis must not be negative");
+		}
+		this.minDelayMillis = minDelayMillis;
+	}
+
+	private static void checkPercentile(double percentile) {
+		if (percentile <= 0 || percentile >= 100) {
+			throw new IllegalArgumentException("percentile must be between 0 and 100");
+		}
+	}
+}
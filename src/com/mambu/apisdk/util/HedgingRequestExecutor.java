@@ -0,0 +1,499 @@
+package com.mambu.apisdk.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.http.concurrent.BasicFuture;
+import org.apache.http.concurrent.FutureCallback;
+
+import com.mambu.apisdk.exception.MambuApiException;
+
+/**
+ * Request executor decorator hedging the GET requests with a HedgePolicy. A GET request which has not been answered
+ * within the policy's percentile of the recent response times of its API definition is sent a second time; the first
+ * successful response wins and the other request is cancelled. A failure is reported only when neither request
+ * succeeded. Hedges are sent by a timer thread and are limited by the policy's budget. Other requests are passed to the
+ * delegate unchanged.
+ *
+ * Both requests must be in flight at the same time, so the delegate must be an AsyncRequestExecutor (e.g. the
+ * NonBlockingRequestExecutor). Hedging is enabled for all services created with a MambuAPIModule by setting its hedge
+ * policy: mambuAPIModule.setHedgePolicy(new HedgePolicy())
+ */
+public class HedgingRequestExecutor implements AsyncRequestExecutor {
+
+	private final static Logger LOGGER = Logger.getLogger(HedgingRequestExecutor.class.getName());
+
+	// Maximum number of hedges saved up while the requests are fast
+	private final static double MAX_SAVED_HEDGES = 10.0;
+
+	private final AsyncRequestExecutor delegate;
+	private final HedgePolicy hedgePolicy;
+	// Schedules the hedges
+	private final ScheduledExecutorService hedgeScheduler;
+	// Recent response times by the API definition
+	private final ConcurrentMap<String, LatencyWindow> latencies = new ConcurrentHashMap<String, LatencyWindow>();
+
+	// Hedges which can be sent. Guarded by this
+	private double hedgeBudget;
+
+	private final AtomicLong hedgeableRequests = new AtomicLong();
+	private final AtomicLong hedges = new AtomicLong();
+	private final AtomicLong hedgeWins = new AtomicLong();
+
+	/**
+	 * Create hedging executor
+	 *
+	 * @param delegate
+	 *            asynchronous request executor executing the requests
+	 * @param hedgePolicy
+	 *            hedge policy
+	 */
+	public HedgingRequestExecutor(AsyncRequestExecutor delegate, HedgePolicy hedgePolicy) {
+		this(delegate, hedgePolicy, Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "mambu-hedge-scheduler");
+				thread.setDaemon(true);
+				return thread;
+			}
+		}));
+	}
+
+	/**
+	 * Create hedging executor scheduling the hedges with the specified scheduler, which is shut down with this
+	 * executor
+	 */
+	HedgingRequestExecutor(AsyncRequestExecutor delegate, HedgePolicy hedgePolicy,
+			ScheduledExecutorService hedgeScheduler) {
+		if (delegate == null || hedgePolicy == null) {
+			throw new IllegalArgumentException("Request executor and hedge policy must not be null");
+		}
+		this.delegate = delegate;
+		this.hedgePolicy = hedgePolicy;
+		this.hedgeScheduler = hedgeScheduler;
+	}
+
+	public HedgePolicy getHedgePolicy() {
+		return hedgePolicy;
+	}
+
+	/**
+	 * Get the number of GET requests which could be hedged
+	 */
+	public long getHedgeableRequests() {
+		return hedgeableRequests.get();
+	}
+
+	/**
+	 * Get the number of hedges sent
+	 */
+	public long getHedges() {
+		return hedges.get();
+	}
+
+	/**
+	 * Get the number of hedges which were answered before the original request
+	 */
+	public long getHedgeWins() {
+		return hedgeWins.get();
+	}
+
+	/**
+	 * Get the delay after which a request is hedged
+	 *
+	 * @param apiDefinition
+	 *            API definition of the request
+	 * @return delay in milliseconds or -1 if the request is not hedged, e.g. because too few of its response times are
+	 *         known
+	 */
+	public long getHedgeDelayMillis(ApiDefinition apiDefinition) {
+		Double percentile = hedgePolicy.getPercentile(apiDefinition);
+		if (percentile == null) {
+			return -1L;
+		}
+		LatencyWindow window = latencies.get(apiDefinition.toString());
+		long delayNanos = (window == null) ? -1L : window.getPercentile(percentile, hedgePolicy.getMinSamples());
+		if (delayNanos < 0) {
+			return -1L;
+		}
+		return Math.max(hedgePolicy.getMinDelayMillis(), TimeUnit.NANOSECONDS.toMillis(delayNanos));
+	}
+
+	@Override
+	public void setAuthorization(String username, String password) {
+		delegate.setAuthorization(username, password);
+	}
+
+	@Override
+	public String executeRequest(String urlString, Method method) throws MambuApiException {
+		return delegate.executeRequest(urlString, method);
+	}
+
+	@Override
+	public String executeRequest(String urlString, ParamsMap params, Method method) throws MambuApiException {
+		return delegate.executeRequest(urlString, params, method);
+	}
+
+	@Override
+	public String executeRequest(String urlString, Method method, ContentType contentTypeFormat)
+			throws MambuApiException {
+		return delegate.executeRequest(urlString, method, contentTypeFormat);
+	}
+
+	@Override
+	public String executeRequest(String urlString, ParamsMap params, Method method, ContentType contentTypeFormat)
+			throws MambuApiException {
+		return delegate.executeRequest(urlString, params, method, contentTypeFormat);
+	}
+
+	@Override
+	public <R> R executeRequest(String urlString, ParamsMap params, ApiDefinition apiDefinition)
+			throws MambuApiException {
+		if (!isHedgeable(params, apiDefinition)) {
+			return delegate.executeRequest(urlString, params, apiDefinition);
+		}
+		Future<R> result = executeRequestAsync(urlString, params, apiDefinition, null);
+		return await(result, null, urlString);
+	}
+
+	@Override
+	public <R> R executeRequest(String urlString, ParamsMap params, ApiDefinition apiDefinition, Deadline deadline)
+			throws MambuApiException {
+		if (!isHedgeable(params, apiDefinition)) {
+			return delegate.executeRequest(urlString, params, apiDefinition, deadline);
+		}
+		Future<R> result = executeRequestAsync(urlString, params, apiDefinition, null);
+		return await(result, deadline, urlString);
+	}
+
+	@Override
+	public <R> Future<R> executeRequestAsync(String urlString, ParamsMap params, ApiDefinition apiDefinition,
+			MambuApiCallback<R> callback) {
+
+		if (apiDefinition == null) {
+			throw new IllegalArgumentException("ApiDefinition cannot be NULL");
+		}
+		if (!isHedgeable(params, apiDefinition)) {
+			return delegate.executeRequestAsync(urlString, params, apiDefinition, callback);
+		}
+		hedgeableRequests.incrementAndGet();
+		synchronized (this) {
+			hedgeBudget = Math.min(MAX_SAVED_HEDGES, hedgeBudget + hedgePolicy.getBudgetRatio());
+		}
+		HedgedRequest<R> request = new HedgedRequest<R>(urlString, params, apiDefinition, callback);
+		request.execute(getHedgeDelayMillis(apiDefinition));
+		return request.result;
+	}
+
+	/**
+	 * Requests decoding the response into a content sink are not hedged, as the attempts would write to the same sink
+	 */
+	private boolean isHedgeable(ParamsMap params, ApiDefinition apiDefinition) {
+		return hedgePolicy.getPercentile(apiDefinition) != null
+				&& AbstractRequestExecutor.getDocumentContentSink(params) == null;
+	}
+
+	@Override
+	public void shutdown() {
+		hedgeScheduler.shutdownNow();
+		delegate.shutdown();
+	}
+
+	private synchronized boolean takeHedgeFromBudget() {
+		if (hedgeBudget < 1.0) {
+			return false;
+		}
+		hedgeBudget -= 1.0;
+		return true;
+	}
+
+	private void recordLatency(ApiDefinition apiDefinition, long latencyNanos) {
+		String key = apiDefinition.toString();
+		LatencyWindow window = latencies.get(key);
+		if (window == null) {
+			LatencyWindow created = new LatencyWindow(hedgePolicy.getWindowSize());
+			window = latencies.putIfAbsent(key, created);
+			if (window == null) {
+				window = created;
+			}
+		}
+		window.add(latencyNanos);
+	}
+
+	/**
+	 * Wait for the result of a hedged request, at most until its deadline
+	 */
+	private static <R> R await(Future<R> future, Deadline deadline, String urlString) throws MambuApiException {
+		try {
+			if (deadline == null) {
+				return future.get();
+			}
+			// The timed wait may return slightly early, wait until the deadline expired
+			for (;;) {
+				try {
+					return future.get(Math.max(1L, deadline.getRemainingMillis()), TimeUnit.MILLISECONDS);
+				} catch (TimeoutException e) {
+					if (deadline.isExpired()) {
+						future.cancel(true);
+						throw Deadline.makeTimeoutException(urlString);
+					}
+				}
+			}
+		} catch (InterruptedException e) {
+			future.cancel(true);
+			Thread.currentThread().interrupt();
+			throw new MambuApiException(e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof MambuApiException) {
+				throw (MambuApiException) cause;
+			}
+			if (cause instanceof Exception) {
+				throw new MambuApiException((Exception) cause);
+			}
+			throw new MambuApiException(e);
+		} catch (CancellationException e) {
+			throw new MambuApiException(e);
+		}
+	}
+
+	/**
+	 * Recent response times of an API definition. The percentiles are computed from a sorted copy, which is refreshed
+	 * after a tenth of the window was replaced
+	 */
+	private static class LatencyWindow {
+
+		private final long[] samples;
+		private int count;
+		private int next;
+		// Sorted copy of the samples and the number of samples added since it was made
+		private long[] sorted;
+		private int added;
+
+		private LatencyWindow(int size) {
+			this.samples = new long[size];
+		}
+
+		private synchronized void add(long latencyNanos) {
+			samples[next] = latencyNanos;
+			next = (next + 1) % samples.length;
+			if (count < samples.length) {
+				count++;
+			}
+			added++;
+		}
+
+		private synchronized long getPercentile(double percentile, int minSamples) {
+			if (count < minSamples) {
+				return -1L;
+			}
+			if (sorted == null || added * 10 >= samples.length) {
+				sorted = Arrays.copyOf(samples, count);
+				Arrays.sort(sorted);
+				added = 0;
+			}
+			int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+			return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+		}
+	}
+
+	/**
+	 * GET request with its attempts: the original request and the hedge, if one was sent
+	 */
+	private class HedgedRequest<R> {
+
+		private final String urlString;
+		private final ParamsMap params;
+		private final ApiDefinition apiDefinition;
+		private final MambuApiCallback<R> callback;
+		private final BasicFuture<R> result;
+
+		// Guarded by this
+		private final List<Future<R>> attempts = new ArrayList<Future<R>>(2);
+		private int pendingAttempts;
+		private Future<?> scheduledHedge;
+
+		private HedgedRequest(final String urlString, ParamsMap params, ApiDefinition apiDefinition,
+				final MambuApiCallback<R> callback) {
+			this.urlString = urlString;
+			this.params = params;
+			this.apiDefinition = apiDefinition;
+			this.callback = callback;
+			this.result = new BasicFuture<R>(new FutureCallback<R>() {
+
+				@Override
+				public void completed(R decoded) {
+					// The callback is notified by the attempt
+				}
+
+				@Override
+				public void failed(Exception e) {
+					// The callback is notified by the attempt
+				}
+
+				@Override
+				public void cancelled() {
+					cancelAttempts(null);
+					notifyCallback(null, new MambuApiException(new CancellationException("Request was cancelled")));
+				}
+			});
+		}
+
+		/**
+		 * Send the original request and schedule the hedge
+		 *
+		 * @param hedgeDelayMillis
+		 *            delay of the hedge or -1 if the request is not hedged
+		 */
+		private void execute(long hedgeDelayMillis) {
+			startAttempt(false);
+			if (hedgeDelayMillis < 0) {
+				return;
+			}
+			synchronized (this) {
+				if (result.isDone()) {
+					return;
+				}
+				try {
+					scheduledHedge = hedgeScheduler.schedule(TraceContext.wrap(new Runnable() {
+						@Override
+						public void run() {
+							hedge();
+						}
+					}), hedgeDelayMillis, TimeUnit.MILLISECONDS);
+				} catch (RejectedExecutionException e) {
+					// The executor was shut down. The request is not hedged
+				}
+			}
+		}
+
+		private void hedge() {
+			synchronized (this) {
+				// Not hedged if the original request has failed
+				if (result.isDone() || pendingAttempts == 0) {
+					return;
+				}
+			}
+			if (!takeHedgeFromBudget()) {
+				return;
+			}
+			hedges.incrementAndGet();
+			LOGGER.fine("Hedging request for url=" + urlString);
+			startAttempt(true);
+		}
+
+		private void startAttempt(final boolean hedge) {
+			synchronized (this) {
+				if (result.isDone()) {
+					return;
+				}
+				pendingAttempts++;
+			}
+			final long start = System.nanoTime();
+			// This attempt, kept from being cancelled when it wins
+			final AtomicReference<Future<R>> self = new AtomicReference<Future<R>>();
+			Future<R> attempt;
+			try {
+				attempt = delegate.executeRequestAsync(urlString, params, apiDefinition, new MambuApiCallback<R>() {
+
+					@Override
+					public void onSuccess(R decoded) {
+						if (result.completed(decoded)) {
+							recordLatency(apiDefinition, System.nanoTime() - start);
+							if (hedge) {
+								hedgeWins.incrementAndGet();
+							}
+							cancelAttempts(self.get());
+							notifyCallback(decoded, null);
+						}
+					}
+
+					@Override
+					public void onFailure(MambuApiException exception) {
+						attemptFailed(exception);
+					}
+				});
+			} catch (RuntimeException e) {
+				attemptFailed(new MambuApiException(e));
+				return;
+			}
+			boolean cancel;
+			synchronized (this) {
+				self.set(attempt);
+				attempts.add(attempt);
+				cancel = result.isDone();
+			}
+			if (cancel) {
+				// Completed by the other attempt while this one was started
+				cancelAttempts(null);
+			}
+		}
+
+		private void attemptFailed(MambuApiException exception) {
+			synchronized (this) {
+				pendingAttempts--;
+				if (pendingAttempts > 0) {
+					// The other attempt may still succeed
+					return;
+				}
+			}
+			if (result.failed(exception)) {
+				cancelAttempts(null);
+				notifyCallback(null, exception);
+			}
+		}
+
+		/**
+		 * Cancel the scheduled hedge and the attempts in flight, except the winning one
+		 */
+		private void cancelAttempts(Future<R> winner) {
+			List<Future<?>> pending = new ArrayList<Future<?>>(3);
+			synchronized (this) {
+				if (scheduledHedge != null) {
+					pending.add(scheduledHedge);
+				}
+				for (Future<R> attempt : attempts) {
+					if (attempt != winner) {
+						pending.add(attempt);
+					}
+				}
+			}
+			for (Future<?> future : pending) {
+				if (!future.isDone()) {
+					future.cancel(true);
+				}
+			}
+		}
+
+		private void notifyCallback(R decoded, MambuApiException exception) {
+			if (callback == null) {
+				return;
+			}
+			try {
+				if (exception == null) {
+					callback.onSuccess(decoded);
+				} else {
+					callback.onFailure(exception);
+				}
+			} catch (RuntimeException e) {
+				LOGGER.log(Level.WARNING, "Callback failed for url=" + urlString, e);
+			}
+		}
+	}
+}
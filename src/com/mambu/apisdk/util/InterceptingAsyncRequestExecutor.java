@@ -0,0 +1,163 @@
+package com.mambu.apisdk.util;
+
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.http.concurrent.BasicFuture;
+import org.apache.http.concurrent.FutureCallback;
+
+import com.mambu.apisdk.exception.MambuApiException;
+
+/**
+ * Intercepting decorator for an AsyncRequestExecutor. Asynchronous requests pass through the interceptors and are then
+ * executed by the delegate without blocking a thread: the interceptors' callbacks are completed on the thread which
+ * received the response. Cancelling the returned future cancels the request executed by the delegate.
+ *
+ * The deadline of an asynchronous request is null: it is bounded by the request timeout of its ApiDefinition and a
+ * deadline set by an interceptor is ignored
+ */
+public class InterceptingAsyncRequestExecutor extends InterceptingRequestExecutor implements AsyncRequestExecutor {
+
+	private final static Logger LOGGER = Logger.getLogger(InterceptingAsyncRequestExecutor.class.getName());
+
+	private final AsyncRequestExecutor asyncDelegate;
+
+	/**
+	 * Create intercepting executor
+	 *
+	 * @param delegate
+	 *            asynchronous request executor executing the requests
+	 * @param interceptors
+	 *            interceptors in their order
+	 */
+	public InterceptingAsyncRequestExecutor(AsyncRequestExecutor delegate, List<RequestInterceptor> interceptors) {
+		this(delegate, interceptors, new TimeoutSettings());
+	}
+
+	/**
+	 * Create intercepting executor
+	 *
+	 * @param delegate
+	 *            asynchronous request executor executing the requests
+	 * @param interceptors
+	 *            interceptors in their order
+	 * @param timeoutSettings
+	 *            timeout settings bounding the wait for the response of the synchronous requests
+	 */
+	public InterceptingAsyncRequestExecutor(AsyncRequestExecutor delegate, List<RequestInterceptor> interceptors,
+			TimeoutSettings timeoutSettings) {
+		super(delegate, interceptors, timeoutSettings);
+		this.asyncDelegate = delegate;
+	}
+
+	@Override
+	public <R> Future<R> executeRequestAsync(final String urlString, ParamsMap params, ApiDefinition apiDefinition,
+			final MambuApiCallback<R> callback) {
+
+		if (apiDefinition == null) {
+			throw new IllegalArgumentException("ApiDefinition cannot be NULL");
+		}
+		// Request executed by the delegate, cancelled with the returned future
+		final AtomicReference<Future<?>> pending = new AtomicReference<Future<?>>();
+		final BasicFuture<R> result = new BasicFuture<R>(new FutureCallback<R>() {
+
+			@Override
+			public void completed(R decoded) {
+				// The callback is notified by the chain's callback
+			}
+
+			@Override
+			public void failed(Exception e) {
+				// The callback is notified by the chain's callback
+			}
+
+			@Override
+			public void cancelled() {
+				Future<?> request = pending.get();
+				if (request != null) {
+					request.cancel(true);
+				}
+				if (callback != null) {
+					try {
+						callback.onFailure(new MambuApiException(new CancellationException("Request was cancelled")));
+					} catch (RuntimeException e) {
+						LOGGER.log(Level.WARNING, "Callback failed for url=" + urlString, e);
+					}
+				}
+			}
+		});
+
+		MambuApiCallback<ApiResponse> chainCallback = new MambuApiCallback<ApiResponse>() {
+
+			@Override
+			@SuppressWarnings("unchecked")
+			public void onSuccess(ApiResponse response) {
+				R decoded = (R) response.getResult();
+				if (result.completed(decoded) && callback != null) {
+					try {
+						callback.onSuccess(decoded);
+					} catch (RuntimeException e) {
+						LOGGER.log(Level.WARNING, "Callback failed for url=" + urlString, e);
+					}
+				}
+			}
+
+			@Override
+			public void onFailure(MambuApiException exception) {
+				if (result.failed(exception) && callback != null) {
+					try {
+						callback.onFailure(exception);
+					} catch (RuntimeException e) {
+						LOGGER.log(Level.WARNING, "Callback failed for url=" + urlString, e);
+					}
+				}
+			}
+		};
+
+		RequestInterceptor.Chain asyncExecution = new RequestInterceptor.Chain() {
+
+			@Override
+			public void proceed(ApiRequest request, final MambuApiCallback<ApiResponse> responseCallback) {
+				if (result.isCancelled()) {
+					// Cancelled before it was passed on by the interceptors. The request is not sent
+					responseCallback.onFailure(new MambuApiException(new CancellationException(
+							"Request was cancelled")));
+					return;
+				}
+				final ResponseRecorder recorder = new ResponseRecorder();
+				Future<?> sent = asyncDelegate.executeRequestAsync(request.getUrlString(),
+						withRecorder(request.getParams(), recorder), request.getApiDefinition(),
+						new MambuApiCallback<Object>() {
+
+							@Override
+							public void onSuccess(Object decoded) {
+								responseCallback.onSuccess(recorder.makeResponse(decoded));
+							}
+
+							@Override
+							public void onFailure(MambuApiException exception) {
+								responseCallback.onFailure(exception);
+							}
+						});
+				pending.set(sent);
+				if (result.isCancelled()) {
+					sent.cancel(true);
+				}
+			}
+		};
+
+		ApiRequest request = new ApiRequest(urlString, params, apiDefinition.getMethod(),
+				apiDefinition.getContentType(), apiDefinition, null);
+		try {
+			intercept(request, asyncExecution, chainCallback);
+		} catch (RuntimeException e) {
+			// Failures of the interceptors are reported to the callback and the future, not thrown
+			chainCallback.onFailure(new MambuApiException(e));
+		}
+		return result;
+	}
+}
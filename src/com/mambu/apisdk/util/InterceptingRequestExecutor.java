@@ -0,0 +1,285 @@
+package com.mambu.apisdk.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.apache.http.concurrent.BasicFuture;
+
+import com.mambu.apisdk.exception.MambuApiException;
+
+/**
+ * Request executor decorator passing the requests through an ordered chain of RequestInterceptors before they are
+ * executed by the delegate. The first interceptor is the outermost one: it sees the request first and the result last.
+ *
+ * The chain's response has the HTTP status and headers of the Mambu response and the result of the request (see
+ * ApiResponse). This executor executes the requests synchronously; use InterceptingRequestExecutor.decorate() to keep
+ * the asynchronous execution of an AsyncRequestExecutor, with the interceptors running around the asynchronous
+ * requests.
+ *
+ * Interceptors are enabled for all services created with a MambuAPIModule by adding them to the module:
+ * mambuAPIModule.addRequestInterceptor(interceptor)
+ */
+public class InterceptingRequestExecutor implements RequestExecutor {
+
+	protected final RequestExecutor delegate;
+	private final List<RequestInterceptor> interceptors;
+	protected final TimeoutSettings timeoutSettings;
+
+	// Executes the requests passed on by the last interceptor with the delegate
+	private final RequestInterceptor.Chain syncExecution = new RequestInterceptor.Chain() {
+
+		@Override
+		public void proceed(ApiRequest request, MambuApiCallback<ApiResponse> callback) {
+			execute(request, callback);
+		}
+	};
+
+	/**
+	 * Create intercepting executor
+	 *
+	 * @param delegate
+	 *            request executor executing the requests
+	 * @param interceptors
+	 *            interceptors in their order
+	 */
+	public InterceptingRequestExecutor(RequestExecutor delegate, List<RequestInterceptor> interceptors) {
+		this(delegate, interceptors, new TimeoutSettings());
+	}
+
+	/**
+	 * Create intercepting executor
+	 *
+	 * @param delegate
+	 *            request executor executing the requests
+	 * @param interceptors
+	 *            interceptors in their order
+	 * @param timeoutSettings
+	 *            timeout settings bounding the wait for the response of the interceptors
+	 */
+	public InterceptingRequestExecutor(RequestExecutor delegate, List<RequestInterceptor> interceptors,
+			TimeoutSettings timeoutSettings) {
+		if (delegate == null || interceptors == null || timeoutSettings == null) {
+			throw new IllegalArgumentException("Request executor, interceptors and timeout settings must not be null");
+		}
+		for (RequestInterceptor interceptor : interceptors) {
+			if (interceptor == null) {
+				throw new IllegalArgumentException("Interceptor must not be null");
+			}
+		}
+		this.delegate = delegate;
+		this.interceptors = Collections.unmodifiableList(new ArrayList<RequestInterceptor>(interceptors));
+		this.timeoutSettings = timeoutSettings;
+	}
+
+	/**
+	 * Create intercepting executor for the delegate. An AsyncRequestExecutor is decorated with an
+	 * InterceptingAsyncRequestExecutor, so that its asynchronous requests are not blocking a thread
+	 *
+	 * @param delegate
+	 *            request executor executing the requests
+	 * @param interceptors
+	 *            interceptors in their order
+	 * @return intercepting executor
+	 */
+	public static InterceptingRequestExecutor decorate(RequestExecutor delegate,
+			List<RequestInterceptor> interceptors) {
+		return decorate(delegate, interceptors, new TimeoutSettings());
+	}
+
+	/**
+	 * Create intercepting executor for the delegate, see decorate(RequestExecutor, List)
+	 *
+	 * @param delegate
+	 *            request executor executing the requests
+	 * @param interceptors
+	 *            interceptors in their order
+	 * @param timeoutSettings
+	 *            timeout settings bounding the wait for the response of the interceptors
+	 * @return intercepting executor
+	 */
+	public static InterceptingRequestExecutor decorate(RequestExecutor delegate,
+			List<RequestInterceptor> interceptors, TimeoutSettings timeoutSettings) {
+		if (delegate instanceof AsyncRequestExecutor) {
+			return new InterceptingAsyncRequestExecutor((AsyncRequestExecutor) delegate, interceptors,
+					timeoutSettings);
+		}
+		return new InterceptingRequestExecutor(delegate, interceptors, timeoutSettings);
+	}
+
+	public List<RequestInterceptor> getInterceptors() {
+		return interceptors;
+	}
+
+	@Override
+	public void setAuthorization(String username, String password) {
+		delegate.setAuthorization(username, password);
+	}
+
+	@Override
+	public String executeRequest(String urlString, Method method) throws MambuApiException {
+		return executeRequest(urlString, null, method, ContentType.WWW_FORM);
+	}
+
+	@Override
+	public String executeRequest(String urlString, ParamsMap params, Method method) throws MambuApiException {
+		return executeRequest(urlString, params, method, ContentType.WWW_FORM);
+	}
+
+	@Override
+	public String executeRequest(String urlString, Method method, ContentType contentTypeFormat)
+			throws MambuApiException {
+		return executeRequest(urlString, null, method, contentTypeFormat);
+	}
+
+	@Override
+	public String executeRequest(String urlString, ParamsMap params, Method method, ContentType contentTypeFormat)
+			throws MambuApiException {
+		ApiRequest request = new ApiRequest(urlString, params, method, contentTypeFormat, null, null);
+		return (String) executeIntercepted(request);
+	}
+
+	@Override
+	public <R> R executeRequest(String urlString, ParamsMap params, ApiDefinition apiDefinition)
+			throws MambuApiException {
+		return executeRequest(urlString, params, apiDefinition, null);
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public <R> R executeRequest(String urlString, ParamsMap params, ApiDefinition apiDefinition, Deadline deadline)
+			throws MambuApiException {
+		if (apiDefinition == null) {
+			throw new IllegalArgumentException("ApiDefinition cannot be NULL");
+		}
+		ApiRequest request = new ApiRequest(urlString, params, apiDefinition.getMethod(),
+				apiDefinition.getContentType(), apiDefinition, deadline);
+		return (R) executeIntercepted(request);
+	}
+
+	@Override
+	public void shutdown() {
+		delegate.shutdown();
+	}
+
+	/**
+	 * Pass the request through the interceptors and wait for its response. The response is usually complete when the
+	 * interceptors return, unless an interceptor completes it on another thread. The wait is bounded by the deadline of
+	 * the request and the request timeout of its ApiDefinition, so an interceptor which never completes its callback
+	 * does not block the calling thread forever
+	 */
+	private Object executeIntercepted(ApiRequest request) throws MambuApiException {
+		Deadline deadline = timeoutSettings.getDeadline(request.getApiDefinition(), request.getDeadline());
+		final BasicFuture<ApiResponse> response = new BasicFuture<ApiResponse>(null);
+		intercept(request, syncExecution, new MambuApiCallback<ApiResponse>() {
+
+			@Override
+			public void onSuccess(ApiResponse result) {
+				response.completed(result);
+			}
+
+			@Override
+			public void onFailure(MambuApiException exception) {
+				response.failed(exception);
+			}
+		});
+		try {
+			if (deadline == null) {
+				return response.get().getResult();
+			}
+			return response.get(deadline.getRemainingNanos(), TimeUnit.NANOSECONDS).getResult();
+		} catch (TimeoutException e) {
+			throw Deadline.makeTimeoutException(request.getUrlString());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new MambuApiException(e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof MambuApiException) {
+				throw (MambuApiException) cause;
+			}
+			throw new MambuApiException((Exception) cause);
+		}
+	}
+
+	/**
+	 * Pass the request through the interceptors
+	 *
+	 * @param request
+	 *            the request
+	 * @param execution
+	 *            executes the request passed on by the last interceptor
+	 * @param callback
+	 *            callback completed with the response of the chain
+	 */
+	protected void intercept(ApiRequest request, RequestInterceptor.Chain execution,
+			MambuApiCallback<ApiResponse> callback) {
+		new InterceptorChain(0, execution).proceed(request, callback);
+	}
+
+	/**
+	 * Execute the request with the delegate, once it passed all interceptors
+	 */
+	private void execute(ApiRequest request, MambuApiCallback<ApiResponse> callback) {
+		ResponseRecorder recorder = new ResponseRecorder();
+		ParamsMap params = withRecorder(request.getParams(), recorder);
+		ApiDefinition apiDefinition = request.getApiDefinition();
+		Object result;
+		try {
+			if (apiDefinition == null) {
+				result = delegate.executeRequest(request.getUrlString(), params, request.getMethod(),
+						request.getContentType());
+			} else if (request.getDeadline() == null) {
+				result = delegate.executeRequest(request.getUrlString(), params, apiDefinition);
+			} else {
+				result = delegate.executeRequest(request.getUrlString(), params, apiDefinition, request.getDeadline());
+			}
+		} catch (MambuApiException e) {
+			callback.onFailure(e);
+			return;
+		} catch (RuntimeException e) {
+			// E.g. a JsonParseException decoding the response, reported to the interceptors like the other failures
+			callback.onFailure(new MambuApiException(e));
+			return;
+		}
+		callback.onSuccess(recorder.makeResponse(result));
+	}
+
+	/**
+	 * Copy the params of the request with the recorder of its response. The params of the request are not changed
+	 */
+	static ParamsMap withRecorder(ParamsMap params, ResponseRecorder recorder) {
+		ParamsMap recorded = (params == null) ? new ParamsMap() : new ParamsMap(params);
+		recorded.setResponseRecorder(recorder);
+		return recorded;
+	}
+
+	/**
+	 * Chain of the interceptors from the one at the index
+	 */
+	private class InterceptorChain implements RequestInterceptor.Chain {
+
+		private final int index;
+		private final RequestInterceptor.Chain execution;
+
+		private InterceptorChain(int index, RequestInterceptor.Chain execution) {
+			this.index = index;
+			this.execution = execution;
+		}
+
+		@Override
+		public void proceed(ApiRequest request, MambuApiCallback<ApiResponse> callback) {
+			if (request == null || callback == null) {
+				throw new IllegalArgumentException("Request and callback must not be null");
+			}
+			if (index == interceptors.size()) {
+				execution.proceed(request, callback);
+			} else {
+				interceptors.get(index).intercept(request, new InterceptorChain(index + 1, execution), callback);
+			}
+		}
+	}
+}
@@ -0,0 +1,274 @@
+package com.mambu.apisdk.util;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.BufferOverflowException;
+
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.protocol.HTTP;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonIOException;
+
+/**
+ * HTTP entity for a JSON request whose object is serialized by Gson, with the appKey inserted as the first field of the
+ * JSON object, so no JSON string is created for the request.
+ *
+ * JSON of up to MAX_BUFFERED_LENGTH bytes, as most API requests are, is serialized into a buffer when the client asks
+ * for the content length, so the request is sent with a Content-Length header. Larger JSON is written with a JsonWriter
+ * straight to the connection's output stream and sent chunked, serializing the object again for each attempt of the
+ * request
+ */
+class JsonObjectEntity extends AbstractHttpEntity {
+
+	private final static int BUFFER_SIZE = 8192;
+	// Maximum length of the JSON sent with a Content-Length header
+	final static int MAX_BUFFERED_LENGTH = 64 * 1024;
+
+	private final Object object;
+	private final Gson gson;
+	private final String appKey;
+	private final int maxBufferedLength;
+	// JSON serialized for the content length. Null if it was not serialized yet or is too long to be buffered
+	private byte[] bufferedJson;
+	private boolean tooLongToBuffer;
+
+	/**
+	 * Create the entity
+	 *
+	 * @param object
+	 *            the object to send
+	 * @param dateTimeFormat
+	 *            date time format for the object's date fields. If null, the default date time format is used
+	 * @param appKey
+	 *            application key to add to the JSON object. Can be null
+	 */
+	JsonObjectEntity(Object object, String dateTimeFormat, String appKey) {
+		this(object, dateTimeFormat, appKey, MAX_BUFFERED_LENGTH);
+	}
+
+	/**
+	 * Create the entity
+	 *
+	 * @param object
+	 *            the object to send
+	 * @param dateTimeFormat
+	 *            date time format for the object's date fields. If null, the default date time format is used
+	 * @param appKey
+	 *            application key to add to the JSON object. Can be null
+	 * @param maxBufferedLength
+	 *            maximum length of the JSON sent with a Content-Length header. Longer JSON is sent chunked
+	 */
+	JsonObjectEntity(Object object, String dateTimeFormat, String appKey, int maxBufferedLength) {
+		if (object == null) {
+			throw new IllegalArgumentException("JSON object cannot be NULL");
+		}
+		this.object = object;
+		this.gson = (dateTimeFormat == null) ? GsonUtils.createGson() : GsonUtils.createGson(dateTimeFormat);
+		this.appKey = appKey;
+		this.maxBufferedLength = maxBufferedLength;
+		setContentType("application/json; charset=UTF-8");
+	}
+
+	@Override
+	public boolean isRepeatable() {
+		return true;
+	}
+
+	/**
+	 * Get the length of the JSON, serializing it into a buffer if it is not longer than the maximum buffered length
+	 *
+	 * @return length of the JSON or -1 if it is longer and sent chunked
+	 */
+	@Override
+	public long getContentLength() {
+		byte[] json = getBufferedJson();
+		return (json == null) ? -1L : json.length;
+	}
+
+	/**
+	 * Get the JSON as a stream. Used by the clients which read the entity instead of writing it (e.g. the asynchronous
+	 * client), so the JSON is written into a buffer first
+	 */
+	@Override
+	public InputStream getContent() throws IOException {
+		byte[] json = getBufferedJson();
+		if (json == null) {
+			ByteArrayOutputStream buffer = new ByteArrayOutputStream(BUFFER_SIZE);
+			writeJson(buffer);
+			json = buffer.toByteArray();
+		}
+		return new ByteArrayInputStream(json);
+	}
+
+	@Override
+	public void writeTo(OutputStream outstream) throws IOException {
+		if (outstream == null) {
+			throw new IllegalArgumentException("Output stream may not be null");
+		}
+		byte[] json = getBufferedJson();
+		if (json != null) {
+			outstream.write(json);
+			outstream.flush();
+		} else {
+			writeJson(outstream);
+		}
+	}
+
+	/**
+	 * Serialize the JSON into a buffer, once. Serializing stops as soon as the JSON is longer than the maximum buffered
+	 * length
+	 *
+	 * @return the JSON or null if it is too long to be buffered
+	 */
+	private byte[] getBufferedJson() {
+		if (bufferedJson == null && !tooLongToBuffer) {
+			BoundedOutputStream buffer = new BoundedOutputStream(maxBufferedLength);
+			try {
+				writeJson(buffer);
+				bufferedJson = buffer.toByteArray();
+			} catch (IOException e) {
+				// Not thrown when writing into memory. Stream the JSON instead
+				tooLongToBuffer = true;
+			} catch (BufferOverflowException e) {
+				tooLongToBuffer = true;
+			}
+		}
+		return bufferedJson;
+	}
+
+	private void writeJson(OutputStream outstream) throws IOException {
+		Writer writer = new BufferedWriter(new OutputStreamWriter(outstream, HTTP.UTF_8), BUFFER_SIZE);
+		if (appKey != null && appKey.length() > 0) {
+			writer = new AppKeyWriter(writer, gson.toJson(appKey));
+		}
+		try {
+			gson.toJson(object, object.getClass(), writer);
+		} catch (JsonIOException e) {
+			// Unwrap the failure to write to the connection
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw e;
+		}
+		writer.flush();
+	}
+
+	@Override
+	public boolean isStreaming() {
+		return false;
+	}
+
+	/**
+	 * Buffer failing the write once its content is longer than its maximum length
+	 */
+	private static class BoundedOutputStream extends ByteArrayOutputStream {
+
+		private final int maxLength;
+
+		private BoundedOutputStream(int maxLength) {
+			super(Math.min(maxLength, BUFFER_SIZE));
+			this.maxLength = maxLength;
+		}
+
+		@Override
+		public synchronized void write(int b) {
+			checkLength(1);
+			super.write(b);
+		}
+
+		@Override
+		public synchronized void write(byte[] b, int off, int len) {
+			checkLength(len);
+			super.write(b, off, len);
+		}
+
+		private void checkLength(int len) {
+			if (count + len > maxLength) {
+				throw new BufferOverflowException();
+			}
+		}
+	}
+
+	/**
+	 * Writer inserting the appKey field after the opening brace of the JSON object (see MBU-3892). JSON which is not an
+	 * object is written as is
+	 */
+	private static class AppKeyWriter extends Writer {
+
+		private final static int EXPECTING_OBJECT = 0;
+		private final static int EXPECTING_FIRST_FIELD = 1;
+		private final static int PASSING_THROUGH = 2;
+
+		private final Writer out;
+		private final String quotedAppKey;
+		private int state = EXPECTING_OBJECT;
+
+		private AppKeyWriter(Writer out, String quotedAppKey) {
+			this.out = out;
+			this.quotedAppKey = quotedAppKey;
+		}
+
+		@Override
+		public void write(char[] cbuf, int off, int len) throws IOException {
+			while (len > 0 && state != PASSING_THROUGH) {
+				write(cbuf[off]);
+				off++;
+				len--;
+			}
+			if (len > 0) {
+				out.write(cbuf, off, len);
+			}
+		}
+
+		@Override
+		public void write(int c) throws IOException {
+			switch (state) {
+			case EXPECTING_OBJECT:
+				out.write(c);
+				if (c == '{') {
+					out.write("\"" + APIData.APPLICATION_KEY + "\":" + quotedAppKey);
+					state = EXPECTING_FIRST_FIELD;
+				} else {
+					state = PASSING_THROUGH;
+				}
+				break;
+			case EXPECTING_FIRST_FIELD:
+				// An empty object has no field to separate from the appKey
+				if (c != '}') {
+					out.write(',');
+				}
+				out.write(c);
+				state = PASSING_THROUGH;
+				break;
+			default:
+				out.write(c);
+			}
+		}
+
+		@Override
+		public void write(String str, int off, int len) throws IOException {
+			if (state == PASSING_THROUGH) {
+				out.write(str, off, len);
+			} else {
+				write(str.toCharArray(), off, len);
+			}
+		}
+
+		@Override
+		public void flush() throws IOException {
+			out.flush();
+		}
+
+		@Override
+		public void close() throws IOException {
+			out.close();
+		}
+	}
+}
@@ -0,0 +1,187 @@
+package com.mambu.apisdk.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of latencies with a fixed relative precision, in the style of the HdrHistogram. Latencies are counted in
+ * microseconds: each power of two range is split into 32 buckets, so a recorded latency is reported with an error of
+ * at most 3%. Latencies from one microsecond to over an hour are counted in less than a thousand buckets, longer ones
+ * are counted in the last bucket. Recording is lock free and doesn't allocate
+ */
+public class LatencyHistogram {
+
+	// Values below SUB_BUCKET_COUNT are counted exactly, each power of two above in SUB_BUCKET_COUNT / 2 buckets
+	private final static int SUB_BUCKET_BITS = 6;
+	private final static int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+	private final static int SUB_BUCKET_HALF_COUNT = SUB_BUCKET_COUNT / 2;
+	// Values up to 2^33 microseconds (over two hours) are counted in their own bucket
+	private final static int MAX_SHIFT = 32 - SUB_BUCKET_BITS + 1;
+	private final static int BUCKET_COUNT = SUB_BUCKET_COUNT + MAX_SHIFT * SUB_BUCKET_HALF_COUNT;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+	private final AtomicLong totalCount = new AtomicLong();
+	private final AtomicLong totalMicros = new AtomicLong();
+	private final AtomicLong maxMicros = new AtomicLong();
+
+	/**
+	 * Record a latency
+	 *
+	 * @param nanos
+	 *            latency in nanoseconds
+	 */
+	void record(long nanos) {
+		long micros = Math.max(0L, nanos / 1000L);
+		counts.incrementAndGet(getIndex(micros));
+		totalCount.incrementAndGet();
+		totalMicros.addAndGet(micros);
+		long max = maxMicros.get();
+		while (micros > max && !maxMicros.compareAndSet(max, micros)) {
+			max = maxMicros.get();
+		}
+	}
+
+	/**
+	 * Get the number of recorded latencies
+	 */
+	public long getCount() {
+		return totalCount.get();
+	}
+
+	/**
+	 * Get the latency below which the percentage of the recorded latencies fall
+	 *
+	 * @param percentile
+	 *            percentile, e.g. 99.9
+	 * @return latency in milliseconds or 0 if no latency was recorded
+	 */
+	public double getPercentileMillis(double percentile) {
+		if (percentile < 0 || percentile > 100) {
+			throw new IllegalArgumentException("Percentile must be from 0 to 100");
+		}
+		long[] snapshot = new long[BUCKET_COUNT];
+		long count = 0;
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			snapshot[i] = counts.get(i);
+			count += snapshot[i];
+		}
+		return getPercentileMillis(snapshot, count, percentile);
+	}
+
+	/**
+	 * Get the current count, mean, percentiles and maximum of the recorded latencies
+	 */
+	public Snapshot getSnapshot() {
+		long[] snapshot = new long[BUCKET_COUNT];
+		long count = 0;
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			snapshot[i] = counts.get(i);
+			count += snapshot[i];
+		}
+		double mean = (count == 0) ? 0.0 : totalMicros.get() / 1000.0 / count;
+		return new Snapshot(count, mean, getPercentileMillis(snapshot, count, 50.0), getPercentileMillis(snapshot,
+				count, 90.0), getPercentileMillis(snapshot, count, 99.0), getPercentileMillis(snapshot, count, 99.9),
+				maxMicros.get() / 1000.0);
+	}
+
+	private double getPercentileMillis(long[] snapshot, long count, double percentile) {
+		if (count == 0) {
+			return 0.0;
+		}
+		long rank = Math.max(1L, (long) Math.ceil(percentile / 100.0 * count));
+		long seen = 0;
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			seen += snapshot[i];
+			if (seen >= rank) {
+				// The highest value counted in the bucket, but not more than the highest value recorded
+				return Math.min(getHighestValue(i), maxMicros.get()) / 1000.0;
+			}
+		}
+		return maxMicros.get() / 1000.0;
+	}
+
+	static int getIndex(long micros) {
+		if (micros < SUB_BUCKET_COUNT) {
+			return (int) micros;
+		}
+		int shift = (63 - Long.numberOfLeadingZeros(micros)) - (SUB_BUCKET_BITS - 1);
+		if (shift > MAX_SHIFT) {
+			return BUCKET_COUNT - 1;
+		}
+		int subBucket = (int) (micros >>> shift) - SUB_BUCKET_HALF_COUNT;
+		return SUB_BUCKET_COUNT + (shift - 1) * SUB_BUCKET_HALF_COUNT + subBucket;
+	}
+
+	static long getHighestValue(int index) {
+		if (index < SUB_BUCKET_COUNT) {
+			return index;
+		}
+		int shift = (index - SUB_BUCKET_COUNT) / SUB_BUCKET_HALF_COUNT + 1;
+		long subBucket = (index - SUB_BUCKET_COUNT) % SUB_BUCKET_HALF_COUNT + SUB_BUCKET_HALF_COUNT;
+		return ((subBucket + 1) << shift) - 1;
+	}
+
+	@Override
+	public String toString() {
+		return getSnapshot().toString();
+	}
+
+	/**
+	 * Count, mean, percentiles and maximum of the latencies recorded in a histogram, in milliseconds
+	 */
+	public static class Snapshot {
+
+		private final long count;
+		private final double meanMillis;
+		private final double p50Millis;
+		private final double p90Millis;
+		private final double p99Millis;
+		private final double p999Millis;
+		private final double maxMillis;
+
+		Snapshot(long count, double meanMillis, double p50Millis, double p90Millis, double p99Millis,
+				double p999Millis, double maxMillis) {
+			this.count = count;
+			this.meanMillis = meanMillis;
+			this.p50Millis = p50Millis;
+			this.p90Millis = p90Millis;
+			this.p99Millis = p99Millis;
+			this.p999Millis = p999Millis;
+			this.maxMillis = maxMillis;
+		}
+
+		public long getCount() {
+			return count;
+		}
+
+		public double getMeanMillis() {
+			return meanMillis;
+		}
+
+		public double getP50Millis() {
+			return p50Millis;
+		}
+
+		public double getP90Millis() {
+			return p90Millis;
+		}
+
+		public double getP99Millis() {
+			return p99Millis;
+		}
+
+		public double getP999Millis() {
+			return p999Millis;
+		}
+
+		public double getMaxMillis() {
+			return maxMillis;
+		}
+
+		@Override
+		public String toString() {
+			return "count=" + count + " mean=" + meanMillis + " p50=" + p50Millis + " p90=" + p90Millis + " p99="
+					+ p99Millis + " p99.9=" + p999Millis + " max=" + maxMillis;
+		}
+	}
+}
@@ -0,0 +1,29 @@
+package com.mambu.apisdk.util;
+
+import com.mambu.apisdk.exception.MambuApiException;
+
+/**
+ * Callback for the asynchronous API requests. The callback is invoked on the thread which executed the request, so its
+ * implementation should return quickly and must not block waiting for other asynchronous requests
+ * 
+ * @param <R>
+ *            type of the request's result
+ */
+public interface MambuApiCallback<R> {
+
+	/**
+	 * Called when the API request completed successfully
+	 * 
+	 * @param result
+	 *            the result of the API request
+	 */
+	public void onSuccess(R result);
+
+	/**
+	 * Called when the API request failed
+	 * 
+	 * @param exception
+	 *            exception for the failure. Unexpected runtime exceptions are wrapped into a MambuApiException
+	 */
+	public void onFailure(MambuApiException exception);
+}
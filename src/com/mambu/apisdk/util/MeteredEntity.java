@@ -0,0 +1,90 @@
+package com.mambu.apisdk.util;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.HttpEntityWrapper;
+
+/**
+ * Entity wrapper counting the bytes of the entity's content written to the connection or read from it into the
+ * RequestMeter of the request
+ */
+class MeteredEntity extends HttpEntityWrapper {
+
+	private final RequestMeter meter;
+	private final boolean sent;
+
+	/**
+	 * Create the entity
+	 *
+	 * @param entity
+	 *            wrapped entity
+	 * @param meter
+	 *            meter of the request
+	 * @param sent
+	 *            true for the entity of a request, false for the entity of a response
+	 */
+	MeteredEntity(HttpEntity entity, RequestMeter meter, boolean sent) {
+		super(entity);
+		this.meter = meter;
+		this.sent = sent;
+	}
+
+	private void count(long bytes) {
+		if (sent) {
+			meter.addBytesSent(bytes);
+		} else {
+			meter.addBytesReceived(bytes);
+		}
+	}
+
+	@Override
+	public InputStream getContent() throws IOException {
+		InputStream content = super.getContent();
+		if (content == null) {
+			return null;
+		}
+		return new FilterInputStream(content) {
+
+			@Override
+			public int read() throws IOException {
+				int b = super.read();
+				if (b != -1) {
+					count(1);
+				}
+				return b;
+			}
+
+			@Override
+			public int read(byte[] b, int off, int len) throws IOException {
+				int read = super.read(b, off, len);
+				if (read > 0) {
+					count(read);
+				}
+				return read;
+			}
+		};
+	}
+
+	@Override
+	public void writeTo(OutputStream outstream) throws IOException {
+		super.writeTo(new FilterOutputStream(outstream) {
+
+			@Override
+			public void write(int b) throws IOException {
+				out.write(b);
+				count(1);
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) throws IOException {
+				out.write(b, off, len);
+				count(len);
+			}
+		});
+	}
+}
@@ -0,0 +1,283 @@
+package com.mambu.apisdk.util;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanException;
+import javax.management.MBeanInfo;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+
+/**
+ * Registry of the metrics of the API requests, used by the request executors extending the AbstractRequestExecutor.
+ * The requests are counted and timed per tenant and ApiDefinition (see ApiMetrics). The registry also holds gauges,
+ * e.g. the current adaptive concurrency limit, registered by the MambuAPIModule for the decorators it creates.
+ *
+ * The metrics can be read with getMetrics() and getGauges() or with JMX, once registerMBeans() was called: each
+ * ApiMetrics is an MXBean named "com.mambu.apisdk:type=ApiMetrics,registry=...,tenant=...,api=..." and the gauges are
+ * the attributes of "com.mambu.apisdk:type=Gauges,registry=..."
+ *
+ * To collect the metrics of all services created with a MambuAPIModule set its metrics registry:
+ * mambuAPIModule.setMetricsRegistry(new MetricsRegistry())
+ */
+public class MetricsRegistry {
+
+	private final static Logger LOGGER = Logger.getLogger(MetricsRegistry.class.getName());
+
+	// Domain of the MBean names
+	public final static String JMX_DOMAIN = "com.mambu.apisdk";
+	// Metrics of the requests without an ApiDefinition
+	public final static String NO_API_DEFINITION = "NO_API_DEFINITION";
+
+	// Metrics by the tenant and the API definition name
+	private final ConcurrentMap<String, ApiMetrics> metrics = new ConcurrentSkipListMap<String, ApiMetrics>();
+	private final ConcurrentMap<String, Gauge> gauges = new ConcurrentSkipListMap<String, Gauge>();
+	// Name of the registry in the MBean names. Null until the MBeans are registered. Guarded by this
+	private String jmxName;
+
+	/**
+	 * A value read when the metrics are read, e.g. the number of requests in flight
+	 */
+	public interface Gauge {
+		Number getValue();
+	}
+
+	/**
+	 * Get the metrics for the requests to a tenant with an ApiDefinition
+	 *
+	 * @param tenant
+	 *            tenant domain
+	 * @param apiDefinition
+	 *            API definition or null for the requests without one
+	 * @return metrics
+	 */
+	public ApiMetrics getMetrics(String tenant, ApiDefinition apiDefinition) {
+		String name = (apiDefinition == null) ? NO_API_DEFINITION : apiDefinition.toString();
+		String key = tenant + " " + name;
+		ApiMetrics apiMetrics = metrics.get(key);
+		if (apiMetrics == null) {
+			ApiMetrics created = new ApiMetrics(tenant, name);
+			apiMetrics = metrics.putIfAbsent(key, created);
+			if (apiMetrics == null) {
+				apiMetrics = created;
+				registerMBean(created);
+			}
+		}
+		return apiMetrics;
+	}
+
+	/**
+	 * Get the metrics for all tenants and API definitions requested so far
+	 *
+	 * @return metrics by the tenant and the API definition name, separated by a space
+	 */
+	public Map<String, ApiMetrics> getMetrics() {
+		return Collections.unmodifiableMap(metrics);
+	}
+
+	/**
+	 * Register a gauge. A gauge registered with the same name replaces the previous one
+	 *
+	 * @param name
+	 *            gauge name, e.g. "adaptiveConcurrency.limit"
+	 * @param gauge
+	 *            gauge
+	 */
+	public void registerGauge(String name, Gauge gauge) {
+		if (name == null || gauge == null) {
+			throw new IllegalArgumentException("Gauge name and gauge must not be null");
+		}
+		gauges.put(name, gauge);
+	}
+
+	/**
+	 * Register a gauge for each public getter of the object returning a number, e.g. "rateLimiter.currentRate" for
+	 * RateLimiter.getCurrentRate()
+	 *
+	 * @param prefix
+	 *            prefix of the gauge names
+	 * @param object
+	 *            object with the getters
+	 */
+	public void registerGauges(String prefix, final Object object) {
+		for (final Method method : object.getClass().getMethods()) {
+			String name = method.getName();
+			Class<?> type = method.getReturnType();
+			boolean isNumber = Number.class.isAssignableFrom(type)
+					|| (type.isPrimitive() && type != void.class && type != boolean.class && type != char.class);
+			if (!name.startsWith("get") || name.length() == 3 || method.getParameterTypes().length > 0 || !isNumber
+					|| method.getDeclaringClass() == Object.class) {
+				continue;
+			}
+			String gaugeName = prefix + "." + Character.toLowerCase(name.charAt(3)) + name.substring(4);
+			registerGauge(gaugeName, new Gauge() {
+				@Override
+				public Number getValue() {
+					try {
+						return (Number) method.invoke(object);
+					} catch (IllegalAccessException e) {
+						throw new IllegalStateException(e);
+					} catch (InvocationTargetException e) {
+						throw new IllegalStateException(e.getCause());
+					}
+				}
+			});
+		}
+	}
+
+	/**
+	 * Get the registered gauges
+	 *
+	 * @return gauges by their name
+	 */
+	public Map<String, Gauge> getGauges() {
+		return Collections.unmodifiableMap(gauges);
+	}
+
+	/**
+	 * Register the metrics and the gauges with the platform MBean server. Metrics created later are registered when
+	 * they are created
+	 *
+	 * @param name
+	 *            name of the registry in the MBean names, to tell apart the registries of different modules
+	 * @throws JMException
+	 *             if the MBeans can't be registered, e.g. if a registry with the same name was already registered
+	 */
+	public synchronized void registerMBeans(String name) throws JMException {
+		if (name == null) {
+			throw new IllegalArgumentException("Registry name must not be null");
+		}
+		if (jmxName != null) {
+			throw new IllegalStateException("MBeans are already registered as " + jmxName);
+		}
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		server.registerMBean(new GaugesMBean(), makeGaugesName(name));
+		jmxName = name;
+		for (ApiMetrics apiMetrics : metrics.values()) {
+			registerMBean(apiMetrics);
+		}
+	}
+
+	/**
+	 * Unregister the MBeans registered by registerMBeans()
+	 */
+	public synchronized void unregisterMBeans() {
+		if (jmxName == null) {
+			return;
+		}
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		try {
+			List<ObjectName> names = new ArrayList<ObjectName>();
+			names.add(makeGaugesName(jmxName));
+			for (ApiMetrics apiMetrics : metrics.values()) {
+				names.add(makeMetricsName(jmxName, apiMetrics));
+			}
+			for (ObjectName objectName : names) {
+				if (server.isRegistered(objectName)) {
+					server.unregisterMBean(objectName);
+				}
+			}
+		} catch (JMException e) {
+			LOGGER.log(Level.WARNING, "Failed to unregister metrics MBeans", e);
+		}
+		jmxName = null;
+	}
+
+	private synchronized void registerMBean(ApiMetrics apiMetrics) {
+		if (jmxName == null) {
+			return;
+		}
+		try {
+			ObjectName objectName = makeMetricsName(jmxName, apiMetrics);
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			if (!server.isRegistered(objectName)) {
+				server.registerMBean(apiMetrics, objectName);
+			}
+		} catch (JMException e) {
+			// Metrics are still available from the registry
+			LOGGER.log(Level.WARNING, "Failed to register metrics MBean for " + apiMetrics.getApiDefinition(), e);
+		}
+	}
+
+	private static ObjectName makeGaugesName(String name) throws MalformedObjectNameException {
+		return new ObjectName(JMX_DOMAIN + ":type=Gauges,registry=" + ObjectName.quote(name));
+	}
+
+	private static ObjectName makeMetricsName(String name, ApiMetrics apiMetrics) throws MalformedObjectNameException {
+		return new ObjectName(JMX_DOMAIN + ":type=ApiMetrics,registry=" + ObjectName.quote(name) + ",tenant="
+				+ ObjectName.quote(String.valueOf(apiMetrics.getTenant())) + ",api="
+				+ ObjectName.quote(apiMetrics.getApiDefinition()));
+	}
+
+	/**
+	 * MBean with the gauges as its read only attributes
+	 */
+	private class GaugesMBean implements DynamicMBean {
+
+		@Override
+		public Object getAttribute(String attribute) throws AttributeNotFoundException, MBeanException,
+				ReflectionException {
+			Gauge gauge = gauges.get(attribute);
+			if (gauge == null) {
+				throw new AttributeNotFoundException(attribute);
+			}
+			Number value = gauge.getValue();
+			return (value == null) ? null : value.doubleValue();
+		}
+
+		@Override
+		public AttributeList getAttributes(String[] attributes) {
+			AttributeList list = new AttributeList();
+			for (String attribute : attributes) {
+				Gauge gauge = gauges.get(attribute);
+				if (gauge != null) {
+					Number value = gauge.getValue();
+					list.add(new Attribute(attribute, (value == null) ? null : value.doubleValue()));
+				}
+			}
+			return list;
+		}
+
+		@Override
+		public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+			throw new AttributeNotFoundException("Gauges are read only");
+		}
+
+		@Override
+		public AttributeList setAttributes(AttributeList attributes) {
+			return new AttributeList();
+		}
+
+		@Override
+		public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+			throw new ReflectionException(new NoSuchMethodException(actionName));
+		}
+
+		@Override
+		public MBeanInfo getMBeanInfo() {
+			List<MBeanAttributeInfo> attributes = new ArrayList<MBeanAttributeInfo>();
+			for (String name : gauges.keySet()) {
+				attributes.add(new MBeanAttributeInfo(name, Double.class.getName(), name, true, false, false));
+			}
+			return new MBeanInfo(MetricsRegistry.class.getName(), "Gauges of the Mambu API requests",
+					attributes.toArray(new MBeanAttributeInfo[attributes.size()]), null, null, null);
+		}
+	}
+}
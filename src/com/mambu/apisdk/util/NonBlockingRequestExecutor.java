@@ -0,0 +1,444 @@
+package com.mambu.apisdk.util;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.concurrent.BasicFuture;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.impl.nio.client.DefaultHttpAsyncClient;
+import org.apache.http.impl.nio.conn.PoolingClientAsyncConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.reactor.IOReactorException;
+import org.apache.http.util.EntityUtils;
+
+import com.google.gson.JsonIOException;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.mambu.apisdk.exception.MambuApiException;
+
+/**
+ * Request executor using non-blocking I/O. All requests are multiplexed over a pool of connections by a small number of
+ * I/O dispatch threads (see ConnectionPoolSettings.setIoThreadCount()), so asynchronous API requests don't need a
+ * thread each while waiting for the Mambu response. This executor is suitable for applications sending many
+ * concurrent asynchronous requests. Synchronous requests are supported as well: the calling thread waits for the
+ * response
+ *
+ * To use this executor set it in the MambuAPIModule: mambuAPIModule.setRequestExecutorClass(
+ * NonBlockingRequestExecutor.class)
+ *
+ * The responses to the asynchronous requests are decoded and their callbacks are notified on a pool of worker threads
+ * (see ConnectionPoolSettings.setWorkerThreadCount()), not on the I/O dispatch threads: decoding a large response or
+ * a slow callback doesn't stall the other requests, and a callback can call the SDK synchronously. The executor's
+ * threads are stopped only by shutdown() (e.g. by calling MambuAPIFactory.shutdown())
+ */
+@Singleton
+public class NonBlockingRequestExecutor extends AbstractRequestExecutor implements AsyncRequestExecutor {
+
+	// Connection manager and the client using it. Both are thread safe
+	private final PoolingClientAsyncConnectionManager connectionManager;
+	private final DefaultHttpAsyncClient httpClient;
+	// Evicts expired and idle connections from the pool. Null if eviction is disabled
+	private final ScheduledExecutorService idleConnectionMonitor;
+	// Decodes the responses to the asynchronous requests and notifies their callbacks
+	private final ExecutorService workerExecutor;
+
+	/**
+	 * Create request executor with the default connection pool settings
+	 *
+	 * @param urlHelper
+	 *            url helper
+	 */
+	public NonBlockingRequestExecutor(URLHelper urlHelper) {
+		this(urlHelper, new ConnectionPoolSettings());
+	}
+
+	/**
+	 * Create request executor with the specified connection pool settings
+	 *
+	 * @param urlHelper
+	 *            url helper
+	 * @param poolSettings
+	 *            connection pool settings
+	 */
+	public NonBlockingRequestExecutor(URLHelper urlHelper, ConnectionPoolSettings poolSettings) {
+		this(urlHelper, poolSettings, new TimeoutSettings());
+	}
+
+	/**
+	 * Create request executor with the specified connection pool settings and timeouts
+	 *
+	 * @param urlHelper
+	 *            url helper
+	 * @param poolSettings
+	 *            connection pool settings
+	 * @param timeoutSettings
+	 *            timeouts for the HTTP requests
+	 */
+	@Inject
+	public NonBlockingRequestExecutor(URLHelper urlHelper, ConnectionPoolSettings poolSettings,
+			TimeoutSettings timeoutSettings) {
+		super(urlHelper, timeoutSettings);
+
+		if (poolSettings == null) {
+			poolSettings = new ConnectionPoolSettings();
+		}
+		IOReactorConfig reactorConfig = new IOReactorConfig();
+		reactorConfig.setIoThreadCount(poolSettings.getIoThreadCount());
+		try {
+			DefaultConnectingIOReactor ioReactor = new DefaultConnectingIOReactor(reactorConfig,
+					makeThreadFactory("mambu-io-dispatcher-"));
+			connectionManager = new PoolingClientAsyncConnectionManager(ioReactor);
+		} catch (IOReactorException e) {
+			throw new IllegalStateException("Cannot create I/O reactor: " + e.getMessage(), e);
+		}
+		connectionManager.setMaxTotal(poolSettings.getMaxTotalConnections());
+		connectionManager.setDefaultMaxPerRoute(poolSettings.getMaxConnectionsPerRoute());
+
+		workerExecutor = Executors.newFixedThreadPool(poolSettings.getWorkerThreadCount(),
+				makeThreadFactory("mambu-response-worker-"));
+
+		httpClient = new DefaultHttpAsyncClient(connectionManager);
+		httpClient.setKeepAliveStrategy(makeKeepAliveStrategy(poolSettings.getKeepAliveMillis()));
+		httpClient.start();
+
+		final long idleTimeout = poolSettings.getIdleTimeoutMillis();
+		idleConnectionMonitor = startIdleConnectionMonitor(new Runnable() {
+			@Override
+			public void run() {
+				connectionManager.closeExpiredConnections();
+				if (idleTimeout > 0) {
+					connectionManager.closeIdleConnections(idleTimeout, TimeUnit.MILLISECONDS);
+				}
+			}
+		}, poolSettings);
+	}
+
+	/**
+	 * Execute HTTP request and wait for its response, at most until its deadline
+	 */
+	@Override
+	protected HttpResponse executeHttpRequest(HttpRequestBase request, Deadline deadline) throws IOException {
+
+		Future<HttpResponse> future = httpClient.execute(request, null);
+		try {
+			if (deadline == null) {
+				return future.get();
+			}
+			// The timed wait may return slightly early, wait until the deadline expired
+			for (;;) {
+				try {
+					return future.get(Math.max(1L, deadline.getRemainingMillis()), TimeUnit.MILLISECONDS);
+				} catch (TimeoutException e) {
+					if (deadline.isExpired()) {
+						future.cancel(true);
+						request.abort();
+						throw new SocketTimeoutException("Request deadline expired while waiting for the response");
+					}
+				}
+			}
+		} catch (InterruptedException e) {
+			future.cancel(true);
+			request.abort();
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for the response");
+		} catch (ExecutionException e) {
+			request.abort();
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			throw new IOException(cause);
+		}
+	}
+
+	/**
+	 * Responses are fully buffered by the client and executeHttpRequest() waits for them at most until the deadline, so
+	 * the synchronous requests don't need to be aborted by the timeout scheduler
+	 */
+	@Override
+	protected Future<?> scheduleAbort(HttpRequestBase request, Deadline deadline) {
+		return null;
+	}
+
+	@Override
+	public <R> Future<R> executeRequestAsync(final String urlString, ParamsMap params,
+			final ApiDefinition apiDefinition, final MambuApiCallback<R> callback) {
+
+		if (apiDefinition == null) {
+			throw new IllegalArgumentException("ApiDefinition cannot be NULL");
+		}
+		final HttpRequestBase request;
+		long prepareStart = System.nanoTime();
+		try {
+			request = makeRequest(urlString, params, apiDefinition.getMethod(), apiDefinition.getContentType());
+		} catch (IOException e) {
+			BasicFuture<R> failed = new BasicFuture<R>(null);
+			notifyFailure(failed, callback, makeApiException(e));
+			return failed;
+		}
+		final RequestMeter meter = startMeter(request, urlString, apiDefinition.getMethod(), apiDefinition,
+				prepareStart);
+		// Asynchronous requests are bounded by the request timeout of their ApiDefinition
+		final Deadline deadline = timeoutSettings.getDeadline(apiDefinition, null);
+		setTimeouts(request, deadline);
+		// Task failing the request when its deadline expires. Cancelled when the request completes
+		final AtomicReference<Future<?>> timeout = new AtomicReference<Future<?>>();
+
+		// Serve the fresh cached response, revalidate the stale one. Responses decoded into a content sink are not cached
+		final DocumentContentSink contentSink = getDocumentContentSink(params);
+		final ResponseRecorder recorder = getResponseRecorder(params);
+		final ResponseCache cache = (apiDefinition.getMethod() == Method.GET && contentSink == null) ? getResponseCache()
+				: null;
+		final ResponseCache.Entry cached;
+		if (cache != null) {
+			ResponseCache.Entry fresh = getFreshResponse(cache, request, apiDefinition);
+			if (fresh != null) {
+				recordCall(meter, null);
+				return completeFromCache(fresh, apiDefinition, callback);
+			}
+			cached = makeConditional(cache, request);
+		} else {
+			cached = null;
+		}
+
+		final BasicFuture<R> result = new BasicFuture<R>(new FutureCallback<R>() {
+
+			@Override
+			public void completed(R decoded) {
+				// The callback is notified when the response is processed
+				cancelTimeout(timeout);
+				recordCall(meter, null);
+			}
+
+			@Override
+			public void failed(Exception e) {
+				// The callback is notified when the failure is reported
+				cancelTimeout(timeout);
+				recordCall(meter, (e instanceof MambuApiException) ? (MambuApiException) e
+						: new MambuApiException(e));
+			}
+
+			@Override
+			public void cancelled() {
+				// Cancelled by the application, by the client or as a losing hedged attempt. Abort the request and
+				// report the cancellation, also to the meter so that its event and span are completed
+				cancelTimeout(timeout);
+				request.abort();
+				MambuApiException cancellation = new MambuApiException(new CancellationException(
+						"Request was cancelled"));
+				recordCall(meter, cancellation);
+				if (callback != null) {
+					try {
+						callback.onFailure(cancellation);
+					} catch (RuntimeException e) {
+						LOGGER.log(Level.WARNING, "Callback failed for url=" + urlString, e);
+					}
+				}
+			}
+		});
+
+		// The DNS and connect phases run on the I/O reactor threads and are not timed
+		if (meter != null) {
+			meter.markSent();
+		}
+		final long start = System.nanoTime();
+		final Future<HttpResponse> httpFuture = httpClient.execute(request, new FutureCallback<HttpResponse>() {
+
+			@Override
+			public void completed(final HttpResponse httpResponse) {
+				recordLatency(meter, ApiMetrics.Phase.REQUEST, start);
+				meterResponse(httpResponse, meter);
+				ResponseRecorder.record(recorder, httpResponse);
+				// Leave the I/O dispatch thread before decoding the response and notifying the callback
+				try {
+					workerExecutor.execute(new Runnable() {
+						@Override
+						public void run() {
+							processAsyncResponse(httpResponse, urlString, apiDefinition, contentSink, cache, request,
+									cached, meter, result, callback);
+						}
+					});
+				} catch (RejectedExecutionException e) {
+					// The executor was shut down
+					EntityUtils.consumeQuietly(httpResponse.getEntity());
+					notifyFailure(result, callback, new MambuApiException(e));
+				}
+			}
+
+			@Override
+			public void failed(Exception e) {
+				notifyFailure(result, callback, makeApiException(e));
+			}
+
+			@Override
+			public void cancelled() {
+				result.cancel(true);
+			}
+		});
+
+		if (deadline != null) {
+			timeout.set(getTimeoutScheduler().schedule(new Runnable() {
+				@Override
+				public void run() {
+					if (!result.isDone()) {
+						notifyFailure(result, callback, Deadline.makeTimeoutException(urlString));
+						httpFuture.cancel(true);
+						request.abort();
+					}
+				}
+			}, deadline.getRemainingNanos(), TimeUnit.NANOSECONDS));
+			if (result.isDone()) {
+				cancelTimeout(timeout);
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Decode the response to an asynchronous request and complete its future, on a worker thread. The response of a
+	 * request which was already cancelled or timed out is not decoded
+	 */
+	private static <R> void processAsyncResponse(HttpResponse httpResponse, String urlString,
+			ApiDefinition apiDefinition, DocumentContentSink contentSink, ResponseCache cache, HttpRequestBase request,
+			ResponseCache.Entry cached, RequestMeter meter, BasicFuture<R> result, MambuApiCallback<R> callback) {
+
+		if (result.isDone()) {
+			EntityUtils.consumeQuietly(httpResponse.getEntity());
+			return;
+		}
+		long parseStart = System.nanoTime();
+		R decoded;
+		try {
+			if (cache == null) {
+				decoded = processResponse(httpResponse, urlString, apiDefinition, contentSink);
+			} else {
+				decoded = processCacheableResponse(cache, request, cached, httpResponse, urlString, apiDefinition);
+			}
+		} catch (MambuApiException e) {
+			notifyFailure(result, callback, e);
+			return;
+		} catch (IOException e) {
+			notifyFailure(result, callback, makeApiException(e));
+			return;
+		} catch (JsonIOException e) {
+			notifyFailure(result, callback, makeApiException(e));
+			return;
+		} catch (RuntimeException e) {
+			notifyFailure(result, callback, new MambuApiException(e));
+			return;
+		} finally {
+			// The response is fully buffered by the client. Consume it to release its resources
+			EntityUtils.consumeQuietly(httpResponse.getEntity());
+			recordLatency(meter, ApiMetrics.Phase.PARSE, parseStart);
+		}
+		if (result.completed(decoded) && callback != null) {
+			try {
+				callback.onSuccess(decoded);
+			} catch (RuntimeException e) {
+				LOGGER.log(Level.WARNING, "Callback failed for url=" + urlString, e);
+			}
+		}
+	}
+
+	private static void cancelTimeout(AtomicReference<Future<?>> timeout) {
+		Future<?> scheduled = timeout.get();
+		if (scheduled != null) {
+			scheduled.cancel(false);
+		}
+	}
+
+	/**
+	 * Decode the cached response and complete the future with it
+	 */
+	private static <R> Future<R> completeFromCache(ResponseCache.Entry fresh, ApiDefinition apiDefinition,
+			MambuApiCallback<R> callback) {
+
+		BasicFuture<R> result = new BasicFuture<R>(null);
+		R decoded;
+		try {
+			decoded = decodeResponse(fresh.body, apiDefinition);
+		} catch (IOException e) {
+			notifyFailure(result, callback, makeApiException(e));
+			return result;
+		} catch (RuntimeException e) {
+			notifyFailure(result, callback, new MambuApiException(e));
+			return result;
+		}
+		if (result.completed(decoded) && callback != null) {
+			try {
+				callback.onSuccess(decoded);
+			} catch (RuntimeException e) {
+				LOGGER.log(Level.WARNING, "Callback failed", e);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Complete the future with the exception and notify the callback, if the future was not yet completed
+	 */
+	private static <R> void notifyFailure(BasicFuture<R> result, MambuApiCallback<R> callback,
+			MambuApiException exception) {
+
+		if (result.failed(exception) && callback != null) {
+			try {
+				callback.onFailure(exception);
+			} catch (RuntimeException e) {
+				LOGGER.log(Level.WARNING, "Callback failed", e);
+			}
+		}
+	}
+
+	/**
+	 * Shut down the executor. Pending requests are aborted, all pooled connections are closed and the I/O dispatch
+	 * threads are stopped. The worker threads stop once they processed the responses already received. This executor
+	 * cannot be used after it was shut down
+	 */
+	@Override
+	public void shutdown() {
+		if (idleConnectionMonitor != null) {
+			idleConnectionMonitor.shutdownNow();
+		}
+		stopTimeoutScheduler();
+		try {
+			httpClient.shutdown();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		workerExecutor.shutdown();
+	}
+
+	/**
+	 * Make factory for the daemon I/O dispatch and worker threads
+	 */
+	private static ThreadFactory makeThreadFactory(final String namePrefix) {
+		return new ThreadFactory() {
+			private final AtomicInteger count = new AtomicInteger();
+
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, namePrefix + count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		};
+	}
+}
@@ -0,0 +1,24 @@
+package com.mambu.apisdk.util;
+
+import java.util.List;
+
+/**
+ * Consumer of the pages fetched by the parallel paginated requests. Pages are passed to the consumer as they arrive,
+ * which may be out of the offset order. The consumer is always invoked on the thread which executes the paginated
+ * request, so it does not need to be thread safe
+ * 
+ * @param <T>
+ *            type of the entities
+ */
+public interface PageConsumer<T> {
+
+	/**
+	 * Called for every page fetched
+	 * 
+	 * @param offset
+	 *            offset of the first entity in the page
+	 * @param page
+	 *            entities in the page. Never null
+	 */
+	public void onPage(int offset, List<T> page);
+}
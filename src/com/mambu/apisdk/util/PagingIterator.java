@@ -0,0 +1,184 @@
+package com.mambu.apisdk.util;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import com.mambu.apisdk.exception.MambuApiException;
+
+/**
+ * PagingIterator iterates over all entities returned by an API request supporting offset and limit parameters. The
+ * entities are requested page by page: while the application processes the current page, the next one is requested in
+ * the background. Iteration ends with the first page shorter than the page size. At most two pages are held in memory
+ * at any time, so the iterator can be used to walk any number of entities
+ *
+ * PagingIterator is not thread safe. If the iteration is abandoned before the last page, close() should be called to
+ * cancel the background request
+ *
+ * Example: PagingIterator<LoanTransaction> transactions = loansService.getLoanAccountTransactionsPaged(accountId, 500);
+ * while (transactions.hasNext()) { LoanTransaction transaction = transactions.next(); ... }
+ *
+ * @param <T>
+ *            type of the entities
+ */
+public class PagingIterator<T> {
+
+	private final ServiceExecutor serviceExecutor;
+	private final ApiDefinition apiDefinition;
+	private final String objectId;
+	private final ParamsMap params;
+	private final int pageSize;
+
+	// Offset of the next page to be requested
+	private int nextOffset;
+	// Current page and the position of the next entity in it
+	private List<T> page;
+	private int position;
+	// Background request for the next page. Null if there are no more pages to request
+	private Future<List<T>> nextPage;
+
+	/***
+	 * Create an iterator and request the first page in the background
+	 *
+	 * @param serviceExecutor
+	 *            service executor used to execute the requests
+	 * @param apiDefinition
+	 *            API definition for the request. Must return a collection
+	 * @param objectId
+	 *            api's object id (optional, must be null if not used)
+	 * @param params
+	 *            API parameters, excluding offset and limit (optional, can be null)
+	 * @param offset
+	 *            offset of the first entity. Must be greater or equal to zero
+	 * @param pageSize
+	 *            number of entities requested with each request. Must be greater than zero
+	 */
+	PagingIterator(ServiceExecutor serviceExecutor, ApiDefinition apiDefinition, String objectId, ParamsMap params,
+			int offset, int pageSize) {
+
+		if (apiDefinition == null || apiDefinition.getApiReturnFormat() != ApiDefinition.ApiReturnFormat.COLLECTION) {
+			throw new IllegalArgumentException("Paging requires an ApiDefinition returning a collection");
+		}
+		if (offset < 0 || pageSize < 1) {
+			throw new IllegalArgumentException("Offset has to be >= 0, page size has to be > 0");
+		}
+		this.serviceExecutor = serviceExecutor;
+		this.apiDefinition = apiDefinition;
+		this.objectId = objectId;
+		this.params = params;
+		this.pageSize = pageSize;
+		this.nextOffset = offset;
+
+		nextPage = requestPage();
+	}
+
+	/***
+	 * Check if there are more entities. Waits for the next page if the current one was fully processed
+	 *
+	 * @return true if there are more entities
+	 *
+	 * @throws MambuApiException
+	 *             if the request for the next page failed
+	 */
+	public boolean hasNext() throws MambuApiException {
+
+		while (page == null || position >= page.size()) {
+			if (nextPage == null) {
+				page = null;
+				return false;
+			}
+			page = waitForPage(nextPage);
+			position = 0;
+
+			// Only a full page can be followed by more entities
+			if (page.size() < pageSize) {
+				nextPage = null;
+			} else {
+				nextPage = requestPage();
+			}
+		}
+		return true;
+	}
+
+	/***
+	 * Get the next entity
+	 *
+	 * @return the next entity
+	 *
+	 * @throws MambuApiException
+	 *             if the request for the next page failed
+	 * @throws NoSuchElementException
+	 *             if there are no more entities
+	 */
+	public T next() throws MambuApiException {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		// The page returned by the request is not modified, only the position in it is tracked
+		T entity = page.get(position);
+		position++;
+		if (position >= page.size()) {
+			// Release the processed page, so that it can be collected while the next page is awaited
+			page = null;
+		}
+		return entity;
+	}
+
+	/***
+	 * Stop the iteration. The background request for the next page, if any, is cancelled
+	 */
+	public void close() {
+		if (nextPage != null) {
+			nextPage.cancel(true);
+			nextPage = null;
+		}
+		page = null;
+	}
+
+	public int getPageSize() {
+		return pageSize;
+	}
+
+	/**
+	 * Request the page at the nextOffset in the background
+	 */
+	private Future<List<T>> requestPage() {
+
+		ParamsMap pageParams = new ParamsMap();
+		if (params != null) {
+			pageParams.putAll(params);
+		}
+		pageParams.put(APIData.OFFSET, String.valueOf(nextOffset));
+		pageParams.put(APIData.LIMIT, String.valueOf(pageSize));
+		nextOffset += pageSize;
+
+		String relatedEntityId = null;
+		return serviceExecutor.executeAsync(apiDefinition, objectId, relatedEntityId, pageParams, null);
+	}
+
+	/**
+	 * Wait for the requested page. An empty response is returned as an empty page
+	 */
+	private static <T> List<T> waitForPage(Future<List<T>> future) throws MambuApiException {
+		List<T> result;
+		try {
+			result = future.get();
+		} catch (InterruptedException e) {
+			future.cancel(true);
+			Thread.currentThread().interrupt();
+			throw new MambuApiException(e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof MambuApiException) {
+				throw (MambuApiException) cause;
+			}
+			if (cause instanceof Exception) {
+				throw new MambuApiException((Exception) cause);
+			}
+			throw new MambuApiException(e);
+		}
+		return (result == null) ? Collections.<T> emptyList() : result;
+	}
+}
@@ -0,0 +1,175 @@
+package com.mambu.apisdk.util;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import com.mambu.apisdk.exception.MambuApiException;
+
+/**
+ * ParallelPageFetcher fetches all entities of a paginated API request with several page requests in flight at the same
+ * time. Mambu responses don't include the total number of entities, so the first page is used as a probe: if it is
+ * full, the following offset windows are requested concurrently, keeping up to the specified number of requests in
+ * flight, until a page shorter than the page size is received. Up to parallelism - 1 requests past the last page may
+ * be sent, their empty results are ignored
+ *
+ * @param <T>
+ *            type of the entities
+ */
+class ParallelPageFetcher<T> {
+
+	private final ServiceExecutor serviceExecutor;
+	private final ApiDefinition apiDefinition;
+	private final String objectId;
+	private final ParamsMap params;
+	private final int pageSize;
+	private final int parallelism;
+
+	// Results of the completed requests, added by the callbacks
+	private final BlockingQueue<PageResult<T>> completedPages = new LinkedBlockingQueue<PageResult<T>>();
+	// Requests in flight, by their offset
+	private final Map<Integer, Future<List<T>>> pagesInFlight = new HashMap<Integer, Future<List<T>>>();
+
+	/***
+	 * Create a fetcher for the paginated API request
+	 *
+	 * @param serviceExecutor
+	 *            service executor used to execute the requests
+	 * @param apiDefinition
+	 *            API definition for the request. Must return a collection
+	 * @param objectId
+	 *            api's object id (optional, must be null if not used)
+	 * @param params
+	 *            API parameters, excluding offset and limit (optional, can be null)
+	 * @param pageSize
+	 *            number of entities requested with each request. Must be greater than zero
+	 * @param parallelism
+	 *            maximum number of page requests in flight. Must be greater than zero
+	 */
+	ParallelPageFetcher(ServiceExecutor serviceExecutor, ApiDefinition apiDefinition, String objectId,
+			ParamsMap params, int pageSize, int parallelism) {
+
+		if (apiDefinition == null || apiDefinition.getApiReturnFormat() != ApiDefinition.ApiReturnFormat.COLLECTION) {
+			throw new IllegalArgumentException("Paging requires an ApiDefinition returning a collection");
+		}
+		if (pageSize < 1 || parallelism < 1) {
+			throw new IllegalArgumentException("Page size and parallelism have to be > 0");
+		}
+		this.serviceExecutor = serviceExecutor;
+		this.apiDefinition = apiDefinition;
+		this.objectId = objectId;
+		this.params = params;
+		this.pageSize = pageSize;
+		this.parallelism = parallelism;
+	}
+
+	/***
+	 * Fetch all pages, passing them to the consumer as they arrive. Returns when all pages were consumed. If any of the
+	 * requests fails, the requests in flight are cancelled and the exception is thrown
+	 *
+	 * @param consumer
+	 *            consumer for the fetched pages
+	 *
+	 * @throws MambuApiException
+	 */
+	void fetch(PageConsumer<T> consumer) throws MambuApiException {
+
+		if (consumer == null) {
+			throw new IllegalArgumentException("Page consumer must not be null");
+		}
+		// Offset of the first short page. No pages are requested past it
+		int endOffset = Integer.MAX_VALUE;
+		int nextOffset = 0;
+
+		// Probe with the first page
+		requestPage(nextOffset);
+		nextOffset += pageSize;
+
+		try {
+			while (!pagesInFlight.isEmpty()) {
+				PageResult<T> result = waitForPage();
+				pagesInFlight.remove(result.offset);
+				if (result.exception != null) {
+					throw result.exception;
+				}
+				if (result.offset > endOffset) {
+					// Request past the end of the results
+					continue;
+				}
+				if (result.page.size() < pageSize) {
+					endOffset = result.offset;
+				}
+				consumer.onPage(result.offset, result.page);
+
+				while (pagesInFlight.size() < parallelism && nextOffset < endOffset) {
+					requestPage(nextOffset);
+					nextOffset += pageSize;
+				}
+			}
+		} finally {
+			cancelPagesInFlight();
+		}
+	}
+
+	private void requestPage(final int offset) {
+
+		ParamsMap pageParams = new ParamsMap();
+		if (params != null) {
+			pageParams.putAll(params);
+		}
+		pageParams.put(APIData.OFFSET, String.valueOf(offset));
+		pageParams.put(APIData.LIMIT, String.valueOf(pageSize));
+
+		String relatedEntityId = null;
+		Future<List<T>> future = serviceExecutor.executeAsync(apiDefinition, objectId, relatedEntityId, pageParams,
+				new MambuApiCallback<List<T>>() {
+
+					@Override
+					public void onSuccess(List<T> page) {
+						List<T> result = (page == null) ? Collections.<T> emptyList() : page;
+						completedPages.add(new PageResult<T>(offset, result, null));
+					}
+
+					@Override
+					public void onFailure(MambuApiException exception) {
+						completedPages.add(new PageResult<T>(offset, null, exception));
+					}
+				});
+		pagesInFlight.put(offset, future);
+	}
+
+	private PageResult<T> waitForPage() throws MambuApiException {
+		try {
+			return completedPages.take();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new MambuApiException(e);
+		}
+	}
+
+	private void cancelPagesInFlight() {
+		for (Future<List<T>> future : pagesInFlight.values()) {
+			future.cancel(true);
+		}
+		pagesInFlight.clear();
+	}
+
+	/**
+	 * Result of a page request: the page or the exception
+	 */
+	private static class PageResult<T> {
+		private final int offset;
+		private final List<T> page;
+		private final MambuApiException exception;
+
+		private PageResult(int offset, List<T> page, MambuApiException exception) {
+			this.offset = offset;
+			this.page = page;
+			this.exception = exception;
+		}
+	}
+}
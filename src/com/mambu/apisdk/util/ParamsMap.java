@@ -5,6 +5,7 @@ package com.mambu.apisdk.util;
 
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.logging.Logger;
@@ -25,12 +26,43 @@ public class ParamsMap extends LinkedHashMap<String, String> {
 	private static String APPENDER = "&";
 	private final static Logger LOGGER = Logger.getLogger(RequestExecutorImpl.class.getName());
 
+	// Document content streamed into the documentContent value of the JSON_OBJECT while the request is sent
+	private transient DocumentContentSource documentContent;
+	// Sink the base64 encoded content of the response is decoded into while the response is read
+	private transient DocumentContentSink documentContentSink;
+	// Object serialized to JSON while the request is sent, instead of the JSON_OBJECT string
+	private transient Object jsonObject;
+	private transient String jsonDateTimeFormat;
+	// HTTP headers added to the request. Null if none was set
+	private transient Map<String, String> headers;
+	// Recorder of the status and headers of the response, set by the InterceptingRequestExecutor
+	private transient ResponseRecorder responseRecorder;
+
 	/**
 	 * Class constructor (only for serialization)
 	 */
 	public ParamsMap() {
 	}
 
+	/**
+	 * Create a copy of the params, including the document content, the sinks, the JSON object, the headers set for the
+	 * request and the recorder of its response
+	 * 
+	 * @param params
+	 *            params to copy
+	 */
+	public ParamsMap(ParamsMap params) {
+		super(params);
+		this.documentContent = params.documentContent;
+		this.documentContentSink = params.documentContentSink;
+		this.jsonObject = params.jsonObject;
+		this.jsonDateTimeFormat = params.jsonDateTimeFormat;
+		if (params.headers != null) {
+			this.headers = new LinkedHashMap<String, String>(params.headers);
+		}
+		this.responseRecorder = params.responseRecorder;
+	}
+
 	/***
 	 * Add a new URL param
 	 * 
@@ -43,6 +75,110 @@ public class ParamsMap extends LinkedHashMap<String, String> {
 		this.put(key, value);
 	}
 
+	/***
+	 * Set the document content to be base64 encoded into the empty documentContent value of the JSON_OBJECT param
+	 * while the request is sent, instead of being held in memory as a string
+	 * 
+	 * @param documentContent
+	 *            source of the document content
+	 */
+	public void setDocumentContent(DocumentContentSource documentContent) {
+		this.documentContent = documentContent;
+	}
+
+	public DocumentContentSource getDocumentContent() {
+		return documentContent;
+	}
+
+	/***
+	 * Set the sink for the base64 encoded content of the response (e.g. a document or an image). The content is decoded
+	 * into the sink while the response is read and the request returns the number of decoded bytes, instead of the
+	 * response string
+	 * 
+	 * @param documentContentSink
+	 *            destination of the decoded content
+	 */
+	public void setDocumentContentSink(DocumentContentSink documentContentSink) {
+		this.documentContentSink = documentContentSink;
+	}
+
+	public DocumentContentSink getDocumentContentSink() {
+		return documentContentSink;
+	}
+
+	/***
+	 * Set the object to be sent as the JSON of a JSON request. The object is serialized straight to the connection
+	 * while the request is sent, instead of being converted into the JSON_OBJECT string first
+	 * 
+	 * @param jsonObject
+	 *            the object to send
+	 * @param jsonDateTimeFormat
+	 *            date time format for the object's date fields. If null, the default date time format is used
+	 */
+	public void setJsonObject(Object jsonObject, String jsonDateTimeFormat) {
+		this.jsonObject = jsonObject;
+		this.jsonDateTimeFormat = jsonDateTimeFormat;
+	}
+
+	public Object getJsonObject() {
+		return jsonObject;
+	}
+
+	public String getJsonDateTimeFormat() {
+		return jsonDateTimeFormat;
+	}
+
+	/***
+	 * Set an HTTP header of the request, e.g. a tracing header. The header replaces the header with the same name set
+	 * by the request executor
+	 * 
+	 * @param name
+	 *            header name
+	 * @param value
+	 *            header value or null to remove the header set before
+	 */
+	public void setHeader(String name, String value) {
+		if (name == null) {
+			throw new IllegalArgumentException("Header name must not be null");
+		}
+		if (value == null) {
+			if (headers != null) {
+				headers.remove(name);
+			}
+			return;
+		}
+		if (headers == null) {
+			headers = new LinkedHashMap<String, String>();
+		}
+		headers.put(name, value);
+	}
+
+	/***
+	 * Get the HTTP headers set for the request
+	 * 
+	 * @return headers by their name
+	 */
+	public Map<String, String> getHeaders() {
+		if (headers == null) {
+			return Collections.emptyMap();
+		}
+		return Collections.unmodifiableMap(headers);
+	}
+
+	/***
+	 * Set the recorder of the status and headers of the response received for the request
+	 * 
+	 * @param responseRecorder
+	 *            recorder or null
+	 */
+	void setResponseRecorder(ResponseRecorder responseRecorder) {
+		this.responseRecorder = responseRecorder;
+	}
+
+	ResponseRecorder getResponseRecorder() {
+		return responseRecorder;
+	}
+
 	/***
 	 * Formats this map of params into a String ready to be used in an URL
 	 * 
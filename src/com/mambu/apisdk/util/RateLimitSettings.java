@@ -0,0 +1,117 @@
+package com.mambu.apisdk.util;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Settings for the client side rate limiting of API requests. Requests to one tenant domain are limited by a token
+ * bucket: the bucket is refilled with requestsPerSecond tokens per second up to the burstSize and each request takes
+ * one token. Additional limits can be set for single API end points (e.g. APIData.LOANS), they apply to all requests
+ * made with an ApiDefinition for the end point.
+ *
+ * When no token is available, the request waits for up to maxWaitMillis. If it would have to wait longer, it fails
+ * immediately with a MambuApiException caused by a RejectedExecutionException. Set maxWaitMillis to zero to always fail
+ * fast instead of queueing the requests
+ *
+ * The limits are shared by all MambuAPIModules for the same domain: the first module used to create an injector sets
+ * them (see RateLimiter.getTenantLimiter())
+ */
+public class RateLimitSettings {
+
+	// Default values
+	public final static double DEFAULT_REQUESTS_PER_SECOND = 10.0;
+	public final static int DEFAULT_BURST_SIZE = 10;
+	public final static long DEFAULT_MAX_WAIT_MILLIS = 10000L;
+
+	// Sustained rate of requests to the tenant
+	private double requestsPerSecond = DEFAULT_REQUESTS_PER_SECOND;
+	// Maximum number of requests sent at once after an idle period
+	private int burstSize = DEFAULT_BURST_SIZE;
+	// Maximum time a request waits for a token. Zero to fail fast
+	private long maxWaitMillis = DEFAULT_MAX_WAIT_MILLIS;
+	// Requests per second for single end points, by the end point
+	private Map<String, Double> endPointLimits = new HashMap<String, Double>();
+
+	/**
+	 * Create rate limit settings with default values
+	 */
+	public RateLimitSettings() {
+	}
+
+	/**
+	 * Create rate limit settings with the specified rate and burst size
+	 *
+	 * @param requestsPerSecond
+	 *            sustained rate of requests to the tenant. Must be greater than zero
+	 * @param burstSize
+	 *            maximum number of requests sent at once. Must be greater than zero
+	 */
+	public RateLimitSettings(double requestsPerSecond, int burstSize) {
+		setRequestsPerSecond(requestsPerSecond);
+		setBurstSize(burstSize);
+	}
+
+	public double getRequestsPerSecond() {
+		return requestsPerSecond;
+	}
+
+	public void setRequestsPerSecond(double requestsPerSecond) {
+		if (!(requestsPerSecond > 0)) {
+			throw new IllegalArgumentException("requestsPerSecond must be greater than zero");
+		}
+		this.requestsPerSecond = requestsPerSecond;
+	}
+
+	public int getBurstSize() {
+		return burstSize;
+	}
+
+	public void setBurstSize(int burstSize) {
+		if (burstSize < 1) {
+			throw new IllegalArgumentException("burstSize must be greater than zero");
+		}
+		this.burstSize = burstSize;
+	}
+
+	public long getMaxWaitMillis() {
+		return maxWaitMillis;
+	}
+
+	public void setMaxWaitMillis(long maxWaitMillis) {
+		if (maxWaitMillis < 0) {
+			throw new IllegalArgumentException("maxWaitMillis must not be negative");
+		}
+		this.maxWaitMillis = maxWaitMillis;
+	}
+
+	/**
+	 * Limit the requests to an API end point. The end point's burst size is its rate rounded up
+	 *
+	 * @param endPoint
+	 *            API end point, as returned by ApiDefinition.getEndPoint(). Example: APIData.LOANS
+	 * @param requestsPerSecond
+	 *            sustained rate of requests to the end point. Must be greater than zero
+	 */
+	public void setEndPointLimit(String endPoint, double requestsPerSecond) {
+		if (endPoint == null) {
+			throw new IllegalArgumentException("endPoint must not be null");
+		}
+		if (!(requestsPerSecond > 0)) {
+			throw new IllegalArgumentException("requestsPerSecond must be greater than zero");
+		}
+		endPointLimits.put(endPoint, requestsPerSecond);
+	}
+
+	public Map<String, Double> getEndPointLimits() {
+		return Collections.unmodifiableMap(endPointLimits);
+	}
+
+	@Override
+	public String toString() {
+		return "requestsPerSecond=" + requestsPerSecond + " burstSize=" + burstSize + " maxWaitMillis=" + maxWaitMillis
+				+ " endPointLimits=" + new TreeMap<String, Double>(endPointLimits);
+	}
+
+}
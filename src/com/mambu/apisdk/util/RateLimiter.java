@@ -0,0 +1,365 @@
+package com.mambu.apisdk.util;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.mambu.apisdk.exception.MambuApiException;
+
+/**
+ * Client side rate limiter for the API requests to one tenant. Uses a token bucket for the tenant and one for each end
+ * point with a limit in the RateLimitSettings. A request reserves a token from the tenant's bucket and from its end
+ * point's bucket and waits until both are available. Tokens are reserved in the order of the requests, so waiting
+ * requests are served first come first served
+ *
+ * One RateLimiter is shared by all executors for the same tenant domain, so that many services and factories created
+ * for the same tenant stay under its limit together. The tenant's limiter is created with the settings of the first
+ * executor; different settings of the other executors are logged and ignored. The current rates can be read from the
+ * tenant's limiter: RateLimiter.getTenantLimiter(domain).getCurrentRate(). The limiter is kept until it is removed
+ * with RateLimiter.removeTenantLimiter(domain)
+ */
+public class RateLimiter {
+
+	private final static Logger LOGGER = Logger.getLogger(RateLimiter.class.getName());
+
+	// Rate limiters by the tenant domain
+	private final static ConcurrentMap<String, RateLimiter> tenantLimiters = new ConcurrentHashMap<String, RateLimiter>();
+
+	private final String domain;
+	// Settings the limiter was created with
+	private final String settingsDescription;
+	private final long maxWaitNanos;
+	private final TokenBucket tenantBucket;
+	private final Map<String, TokenBucket> endPointBuckets;
+
+	// Number of requests waiting for their tokens and the number of rejected requests. Guarded by this
+	private int waitingRequests;
+	private long rejectedRequests;
+
+	/**
+	 * Create rate limiter
+	 *
+	 * @param domain
+	 *            tenant domain, used in the error messages
+	 * @param settings
+	 *            rate limit settings
+	 */
+	public RateLimiter(String domain, RateLimitSettings settings) {
+		if (settings == null) {
+			throw new IllegalArgumentException("Rate limit settings must not be null");
+		}
+		this.domain = domain;
+		this.settingsDescription = settings.toString();
+		this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(settings.getMaxWaitMillis());
+		this.tenantBucket = new TokenBucket(settings.getRequestsPerSecond(), settings.getBurstSize());
+
+		Map<String, TokenBucket> buckets = new HashMap<String, TokenBucket>();
+		for (Map.Entry<String, Double> limit : settings.getEndPointLimits().entrySet()) {
+			double rate = limit.getValue();
+			buckets.put(limit.getKey(), new TokenBucket(rate, (int) Math.ceil(rate)));
+		}
+		this.endPointBuckets = Collections.unmodifiableMap(buckets);
+	}
+
+	/**
+	 * Get the rate limiter for the tenant domain, creating it with the settings if the domain has none yet. If the
+	 * tenant's limiter was created with other settings, a warning is logged and the existing limiter is returned
+	 *
+	 * @param domain
+	 *            tenant domain
+	 * @param settings
+	 *            rate limit settings used if the limiter is created
+	 * @return the tenant's rate limiter
+	 */
+	public static RateLimiter getTenantLimiter(String domain, RateLimitSettings settings) {
+		if (domain == null) {
+			throw new IllegalArgumentException("Domain must not be null");
+		}
+		RateLimiter limiter = tenantLimiters.get(domain);
+		if (limiter == null) {
+			RateLimiter created = new RateLimiter(domain, settings);
+			limiter = tenantLimiters.putIfAbsent(domain, created);
+			if (limiter == null) {
+				return created;
+			}
+		}
+		if (settings != null && !limiter.settingsDescription.equals(settings.toString())
+				&& LOGGER.isLoggable(Level.WARNING)) {
+			LOGGER.warning("Rate limiter for domain=" + domain + " already exists with settings "
+					+ limiter.settingsDescription + ", ignoring the settings " + settings);
+		}
+		return limiter;
+	}
+
+	/**
+	 * Get the rate limiter for the tenant domain
+	 *
+	 * @param domain
+	 *            tenant domain
+	 * @return the tenant's rate limiter or null if requests to the tenant are not rate limited
+	 */
+	public static RateLimiter getTenantLimiter(String domain) {
+		return tenantLimiters.get(domain);
+	}
+
+	/**
+	 * Remove the rate limiter of the tenant domain. Executors already using it keep using it, executors created later
+	 * get a new limiter
+	 *
+	 * @param domain
+	 *            tenant domain
+	 * @return the removed rate limiter or null if requests to the tenant were not rate limited
+	 */
+	public static RateLimiter removeTenantLimiter(String domain) {
+		return tenantLimiters.remove(domain);
+	}
+
+	/**
+	 * Reserve the tokens for a request. The request must not be sent before the returned delay elapses
+	 *
+	 * @param apiDefinition
+	 *            API definition of the request or null if it has none
+	 * @return delay in nanoseconds before the request can be sent
+	 * @throws MambuApiException
+	 *             if the request would have to wait longer than the maximum wait
+	 */
+	public long reserve(ApiDefinition apiDefinition) throws MambuApiException {
+		return reserve(apiDefinition, null);
+	}
+
+	/**
+	 * Reserve the tokens for a request which must be sent before its deadline
+	 *
+	 * @param apiDefinition
+	 *            API definition of the request or null if it has none
+	 * @param deadline
+	 *            deadline of the request or null if it has none
+	 * @return delay in nanoseconds before the request can be sent
+	 * @throws MambuApiException
+	 *             if the request would have to wait longer than the maximum wait or beyond its deadline
+	 */
+	public long reserve(ApiDefinition apiDefinition, Deadline deadline) throws MambuApiException {
+
+		TokenBucket endPointBucket = (apiDefinition == null) ? null : endPointBuckets.get(apiDefinition.getEndPoint());
+		long now = System.nanoTime();
+
+		synchronized (this) {
+			long delay = tenantBucket.getDelay(now);
+			if (endPointBucket != null) {
+				delay = Math.max(delay, endPointBucket.getDelay(now));
+			}
+			if (delay > maxWaitNanos) {
+				rejectedRequests++;
+				throw new MambuApiException(new RejectedExecutionException("Rate limit exceeded for domain=" + domain
+						+ (endPointBucket == null ? "" : " end point=" + apiDefinition.getEndPoint())));
+			}
+			if (deadline != null && delay >= deadline.getRemainingNanos()) {
+				// No tokens are reserved for a request which can't be sent in time
+				rejectedRequests++;
+				throw new MambuApiException(new TimeoutException(
+						"Rate limit wait exceeds the request deadline for domain=" + domain));
+			}
+			tenantBucket.reserve(now);
+			if (endPointBucket != null) {
+				endPointBucket.reserve(now);
+			}
+			return delay;
+		}
+	}
+
+	/**
+	 * Reserve the tokens for a request and wait until it can be sent
+	 *
+	 * @param apiDefinition
+	 *            API definition of the request or null if it has none
+	 * @throws MambuApiException
+	 *             if the request would have to wait longer than the maximum wait or the thread was interrupted
+	 */
+	public void acquire(ApiDefinition apiDefinition) throws MambuApiException {
+		acquire(apiDefinition, null);
+	}
+
+	/**
+	 * Reserve the tokens for a request and wait until it can be sent, failing fast if it can't be sent before its
+	 * deadline
+	 *
+	 * @param apiDefinition
+	 *            API definition of the request or null if it has none
+	 * @param deadline
+	 *            deadline of the request or null if it has none
+	 * @throws MambuApiException
+	 *             if the request would have to wait longer than the maximum wait or beyond its deadline, or the thread
+	 *             was interrupted
+	 */
+	public void acquire(ApiDefinition apiDefinition, Deadline deadline) throws MambuApiException {
+
+		long delay = reserve(apiDefinition, deadline);
+		if (delay <= 0) {
+			return;
+		}
+		synchronized (this) {
+			waitingRequests++;
+		}
+		try {
+			TimeUnit.NANOSECONDS.sleep(delay);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new MambuApiException(e);
+		} finally {
+			synchronized (this) {
+				waitingRequests--;
+			}
+		}
+	}
+
+	public String getDomain() {
+		return domain;
+	}
+
+	/**
+	 * Get the rate of requests to the tenant over the last second. Requests are counted when their tokens are reserved,
+	 * including the requests still waiting to be sent
+	 *
+	 * @return requests per second
+	 */
+	public synchronized double getCurrentRate() {
+		return tenantBucket.getCurrentRate(System.nanoTime());
+	}
+
+	/**
+	 * Get the rate of requests to the end point over the last second
+	 *
+	 * @param endPoint
+	 *            API end point
+	 * @return requests per second or -1 if the end point has no limit
+	 */
+	public synchronized double getCurrentRate(String endPoint) {
+		TokenBucket bucket = endPointBuckets.get(endPoint);
+		return (bucket == null) ? -1.0 : bucket.getCurrentRate(System.nanoTime());
+	}
+
+	/**
+	 * Get the number of tokens available for the requests to the tenant
+	 *
+	 * @return number of requests which can be sent without waiting
+	 */
+	public synchronized int getAvailableTokens() {
+		return tenantBucket.getAvailableTokens(System.nanoTime());
+	}
+
+	/**
+	 * Get the number of synchronous requests currently waiting for their tokens
+	 *
+	 * @return number of waiting requests
+	 */
+	public synchronized int getWaitingRequests() {
+		return waitingRequests;
+	}
+
+	/**
+	 * Get the number of requests rejected because they would have to wait longer than the maximum wait
+	 *
+	 * @return number of rejected requests
+	 */
+	public synchronized long getRejectedRequests() {
+		return rejectedRequests;
+	}
+
+	/**
+	 * Token bucket with reservations. A request takes a stored token if there is one, otherwise it reserves the next
+	 * token to be added and waits for it. The bucket also counts the reserved tokens to measure the current rate. Not
+	 * thread safe, guarded by the RateLimiter
+	 */
+	private static class TokenBucket {
+
+		private final static long ONE_SECOND_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+		private final double intervalNanos;
+		private final int capacity;
+
+		// Stored tokens and the time the next token is available
+		private double storedTokens;
+		private long nextFreeNanos;
+
+		// Reserved tokens in the current and the previous one second window
+		private long windowStartNanos;
+		private int currentWindowCount;
+		private int previousWindowCount;
+
+		private TokenBucket(double tokensPerSecond, int capacity) {
+			this.intervalNanos = ONE_SECOND_NANOS / tokensPerSecond;
+			this.capacity = Math.max(1, capacity);
+			long now = System.nanoTime();
+			this.storedTokens = this.capacity;
+			this.nextFreeNanos = now;
+			this.windowStartNanos = now;
+		}
+
+		/**
+		 * Add the tokens accumulated since the next free time
+		 */
+		private void refill(long now) {
+			if (now > nextFreeNanos) {
+				storedTokens = Math.min(capacity, storedTokens + (now - nextFreeNanos) / intervalNanos);
+				nextFreeNanos = now;
+			}
+		}
+
+		/**
+		 * Get the delay until a token is available
+		 */
+		private long getDelay(long now) {
+			refill(now);
+			if (storedTokens >= 1.0) {
+				return 0L;
+			}
+			// Wait for the missing part of the next token, after the tokens already reserved
+			return Math.max(0L, nextFreeNanos - now) + (long) ((1.0 - storedTokens) * intervalNanos);
+		}
+
+		/**
+		 * Reserve a token for a request
+		 */
+		private void reserve(long now) {
+			refill(now);
+			storedTokens -= 1.0;
+			if (storedTokens < 0) {
+				// Borrow the token from the future: the following requests wait for it
+				nextFreeNanos += (long) (-storedTokens * intervalNanos);
+				storedTokens = 0.0;
+			}
+			rollWindow(now);
+			currentWindowCount++;
+		}
+
+		private void rollWindow(long now) {
+			long elapsed = now - windowStartNanos;
+			if (elapsed >= ONE_SECOND_NANOS) {
+				previousWindowCount = (elapsed >= 2 * ONE_SECOND_NANOS) ? 0 : currentWindowCount;
+				currentWindowCount = 0;
+				windowStartNanos = now - elapsed % ONE_SECOND_NANOS;
+			}
+		}
+
+		/**
+		 * Estimate the rate over the last second by weighting the previous window with its overlap with the last second
+		 */
+		private double getCurrentRate(long now) {
+			rollWindow(now);
+			double currentFraction = Math.max(0L, now - windowStartNanos) / (double) ONE_SECOND_NANOS;
+			return currentWindowCount + previousWindowCount * (1.0 - currentFraction);
+		}
+
+		private int getAvailableTokens(long now) {
+			refill(now);
+			return (int) storedTokens;
+		}
+	}
+}
@@ -0,0 +1,178 @@
+package com.mambu.apisdk.util;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.http.concurrent.BasicFuture;
+import org.apache.http.concurrent.FutureCallback;
+
+import com.mambu.apisdk.exception.MambuApiException;
+
+/**
+ * Rate limiting decorator for an AsyncRequestExecutor. Asynchronous requests don't block a thread while waiting for
+ * their tokens: a request which has to wait is scheduled on a single timer thread and passed to the delegate when its
+ * delay elapses. Requests which would have to wait beyond their request timeout are rejected. Requests rejected by
+ * the rate limiter are reported to the callback and the returned future
+ */
+public class RateLimitingAsyncRequestExecutor extends RateLimitingRequestExecutor implements AsyncRequestExecutor {
+
+	private final static Logger LOGGER = Logger.getLogger(RateLimitingAsyncRequestExecutor.class.getName());
+
+	private final AsyncRequestExecutor asyncDelegate;
+	// Starts the delayed requests
+	private final ScheduledExecutorService scheduler;
+
+	/**
+	 * Create rate limiting executor
+	 *
+	 * @param delegate
+	 *            asynchronous request executor executing the requests
+	 * @param rateLimiter
+	 *            rate limiter for the tenant
+	 */
+	public RateLimitingAsyncRequestExecutor(AsyncRequestExecutor delegate, RateLimiter rateLimiter) {
+		this(delegate, rateLimiter, new TimeoutSettings());
+	}
+
+	/**
+	 * Create rate limiting executor
+	 *
+	 * @param delegate
+	 *            asynchronous request executor executing the requests
+	 * @param rateLimiter
+	 *            rate limiter for the tenant
+	 * @param timeoutSettings
+	 *            timeout settings giving the deadlines of the requests
+	 */
+	public RateLimitingAsyncRequestExecutor(AsyncRequestExecutor delegate, RateLimiter rateLimiter,
+			TimeoutSettings timeoutSettings) {
+		super(delegate, rateLimiter, timeoutSettings);
+		this.asyncDelegate = delegate;
+		this.scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "mambu-rate-limiter");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	@Override
+	public <R> Future<R> executeRequestAsync(final String urlString, final ParamsMap params,
+			final ApiDefinition apiDefinition, final MambuApiCallback<R> callback) {
+
+		if (apiDefinition == null) {
+			throw new IllegalArgumentException("ApiDefinition cannot be NULL");
+		}
+		long delay;
+		try {
+			delay = rateLimiter.reserve(apiDefinition, timeoutSettings.getDeadline(apiDefinition, null));
+		} catch (MambuApiException e) {
+			BasicFuture<R> rejected = new BasicFuture<R>(null);
+			rejected.failed(e);
+			notifyCallback(callback, null, e, urlString);
+			return rejected;
+		}
+		if (delay <= 0) {
+			return asyncDelegate.executeRequestAsync(urlString, params, apiDefinition, callback);
+		}
+
+		// Current step of the request: the scheduled start or the delegate's request
+		final Future<?>[] current = new Future<?>[1];
+		final BasicFuture<R> result = new BasicFuture<R>(new FutureCallback<R>() {
+
+			@Override
+			public void completed(R decoded) {
+				notifyCallback(callback, decoded, null, urlString);
+			}
+
+			@Override
+			public void failed(Exception e) {
+				notifyCallback(callback, null, (MambuApiException) e, urlString);
+			}
+
+			@Override
+			public void cancelled() {
+				Future<?> pending;
+				synchronized (current) {
+					pending = current[0];
+				}
+				if (pending != null) {
+					pending.cancel(true);
+				}
+				notifyCallback(callback, null, new MambuApiException(new CancellationException(
+						"Request was cancelled")), urlString);
+			}
+		});
+
+		Runnable start = new Runnable() {
+			@Override
+			public void run() {
+				if (result.isDone()) {
+					return;
+				}
+				Future<R> request = asyncDelegate.executeRequestAsync(urlString, params, apiDefinition,
+						new MambuApiCallback<R>() {
+
+							@Override
+							public void onSuccess(R decoded) {
+								result.completed(decoded);
+							}
+
+							@Override
+							public void onFailure(MambuApiException exception) {
+								result.failed(exception);
+							}
+						});
+				synchronized (current) {
+					current[0] = request;
+				}
+				if (result.isCancelled()) {
+					// Cancelled while starting
+					request.cancel(true);
+				}
+			}
+		};
+		try {
+			Future<?> scheduled = scheduler.schedule(TraceContext.wrap(start), delay, TimeUnit.NANOSECONDS);
+			synchronized (current) {
+				if (current[0] == null) {
+					current[0] = scheduled;
+				}
+			}
+		} catch (RuntimeException e) {
+			// The executor was shut down
+			result.failed(new MambuApiException(e));
+		}
+		return result;
+	}
+
+	@Override
+	public void shutdown() {
+		scheduler.shutdownNow();
+		super.shutdown();
+	}
+
+	private static <R> void notifyCallback(MambuApiCallback<R> callback, R decoded, MambuApiException exception,
+			String urlString) {
+		if (callback == null) {
+			return;
+		}
+		try {
+			if (exception == null) {
+				callback.onSuccess(decoded);
+			} else {
+				callback.onFailure(exception);
+			}
+		} catch (RuntimeException e) {
+			LOGGER.log(Level.WARNING, "Callback failed for url=" + urlString, e);
+		}
+	}
+}
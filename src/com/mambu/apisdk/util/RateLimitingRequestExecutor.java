@@ -0,0 +1,141 @@
+package com.mambu.apisdk.util;
+
+import com.mambu.apisdk.exception.MambuApiException;
+
+/**
+ * Request executor decorator limiting the rate of the requests with a RateLimiter. Each request waits for its tokens
+ * before it is passed to the delegate. Use RateLimitingRequestExecutor.decorate() to keep the asynchronous execution of
+ * an AsyncRequestExecutor.
+ *
+ * Rate limiting is enabled for all services created with a MambuAPIModule by setting its rate limit settings:
+ * mambuAPIModule.setRateLimitSettings(new RateLimitSettings(requestsPerSecond, burstSize))
+ */
+public class RateLimitingRequestExecutor implements RequestExecutor {
+
+	protected final RequestExecutor delegate;
+	protected final RateLimiter rateLimiter;
+	protected final TimeoutSettings timeoutSettings;
+
+	/**
+	 * Create rate limiting executor
+	 *
+	 * @param delegate
+	 *            request executor executing the requests
+	 * @param rateLimiter
+	 *            rate limiter for the tenant
+	 */
+	public RateLimitingRequestExecutor(RequestExecutor delegate, RateLimiter rateLimiter) {
+		this(delegate, rateLimiter, new TimeoutSettings());
+	}
+
+	/**
+	 * Create rate limiting executor. Requests with an ApiDefinition which can't be sent before their request timeout
+	 * are rejected without waiting for their tokens
+	 *
+	 * @param delegate
+	 *            request executor executing the requests
+	 * @param rateLimiter
+	 *            rate limiter for the tenant
+	 * @param timeoutSettings
+	 *            timeout settings giving the deadlines of the requests
+	 */
+	public RateLimitingRequestExecutor(RequestExecutor delegate, RateLimiter rateLimiter,
+			TimeoutSettings timeoutSettings) {
+		if (delegate == null || rateLimiter == null || timeoutSettings == null) {
+			throw new IllegalArgumentException("Request executor, rate limiter and timeout settings must not be null");
+		}
+		this.delegate = delegate;
+		this.rateLimiter = rateLimiter;
+		this.timeoutSettings = timeoutSettings;
+	}
+
+	/**
+	 * Decorate the request executor with rate limiting. The returned executor is an AsyncRequestExecutor if the
+	 * delegate is one
+	 *
+	 * @param delegate
+	 *            request executor executing the requests
+	 * @param rateLimiter
+	 *            rate limiter for the tenant
+	 * @return rate limiting request executor
+	 */
+	public static RateLimitingRequestExecutor decorate(RequestExecutor delegate, RateLimiter rateLimiter) {
+		return decorate(delegate, rateLimiter, new TimeoutSettings());
+	}
+
+	/**
+	 * Decorate the request executor with rate limiting. The returned executor is an AsyncRequestExecutor if the
+	 * delegate is one. Requests which can't be sent before their request timeout are rejected without waiting for
+	 * their tokens, both the synchronous and the asynchronous ones
+	 *
+	 * @param delegate
+	 *            request executor executing the requests
+	 * @param rateLimiter
+	 *            rate limiter for the tenant
+	 * @param timeoutSettings
+	 *            timeout settings giving the deadlines of the requests
+	 * @return rate limiting request executor
+	 */
+	public static RateLimitingRequestExecutor decorate(RequestExecutor delegate, RateLimiter rateLimiter,
+			TimeoutSettings timeoutSettings) {
+		if (delegate instanceof AsyncRequestExecutor) {
+			return new RateLimitingAsyncRequestExecutor((AsyncRequestExecutor) delegate, rateLimiter, timeoutSettings);
+		}
+		return new RateLimitingRequestExecutor(delegate, rateLimiter, timeoutSettings);
+	}
+
+	public RateLimiter getRateLimiter() {
+		return rateLimiter;
+	}
+
+	@Override
+	public void setAuthorization(String username, String password) {
+		delegate.setAuthorization(username, password);
+	}
+
+	@Override
+	public String executeRequest(String urlString, Method method) throws MambuApiException {
+		rateLimiter.acquire(null);
+		return delegate.executeRequest(urlString, method);
+	}
+
+	@Override
+	public String executeRequest(String urlString, ParamsMap params, Method method) throws MambuApiException {
+		rateLimiter.acquire(null);
+		return delegate.executeRequest(urlString, params, method);
+	}
+
+	@Override
+	public String executeRequest(String urlString, Method method, ContentType contentTypeFormat)
+			throws MambuApiException {
+		rateLimiter.acquire(null);
+		return delegate.executeRequest(urlString, method, contentTypeFormat);
+	}
+
+	@Override
+	public String executeRequest(String urlString, ParamsMap params, Method method, ContentType contentTypeFormat)
+			throws MambuApiException {
+		rateLimiter.acquire(null);
+		return delegate.executeRequest(urlString, params, method, contentTypeFormat);
+	}
+
+	@Override
+	public <R> R executeRequest(String urlString, ParamsMap params, ApiDefinition apiDefinition)
+			throws MambuApiException {
+		// Give up waiting when the request timeout expires, as the asynchronous requests do
+		rateLimiter.acquire(apiDefinition, timeoutSettings.getDeadline(apiDefinition, null));
+		return delegate.executeRequest(urlString, params, apiDefinition);
+	}
+
+	@Override
+	public <R> R executeRequest(String urlString, ParamsMap params, ApiDefinition apiDefinition, Deadline deadline)
+			throws MambuApiException {
+		rateLimiter.acquire(apiDefinition, timeoutSettings.getDeadline(apiDefinition, deadline));
+		return delegate.executeRequest(urlString, params, apiDefinition, deadline);
+	}
+
+	@Override
+	public void shutdown() {
+		delegate.shutdown();
+	}
+}
@@ -0,0 +1,421 @@
+package com.mambu.apisdk.util;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.http.concurrent.BasicFuture;
+import org.apache.http.concurrent.FutureCallback;
+
+import com.google.gson.JsonIOException;
+import com.mambu.apisdk.exception.MambuApiException;
+import com.mambu.apisdk.util.RequestExecutor.ContentType;
+import com.mambu.apisdk.util.RequestExecutor.Method;
+
+/**
+ * Coalesces concurrent identical GET requests ("single flight"): while a request is in flight, identical requests don't
+ * send another HTTP request but wait for the one in flight and get its result. Requests are identical if they have the
+ * same credentials, method, URL, parameters (in any order) and headers and are decoded into the same type, so a
+ * coalescer shared by the modules of different users of a tenant doesn't coalesce the requests of different users.
+ * Requests decoded as specified by an ApiDefinition share only the response string, each of them decodes its own
+ * result from it. The application can modify the returned entities without affecting the results of the other
+ * requests.
+ *
+ * To coalesce the requests of all services created with a MambuAPIModule set its request coalescer:
+ * mambuAPIModule.setRequestCoalescer(coalescer). The coalescer counts the requests sent and the requests saved
+ */
+public class RequestCoalescer {
+
+	private final static Logger LOGGER = Logger.getLogger(RequestCoalescer.class.getName());
+
+	// Requests in flight by their key
+	private final ConcurrentMap<String, InFlightRequest<?>> inFlightRequests = new ConcurrentHashMap<String, InFlightRequest<?>>();
+
+	// Number of requests sent and the number of requests which waited for an identical request instead
+	private final AtomicLong executedRequests = new AtomicLong();
+	private final AtomicLong coalescedRequests = new AtomicLong();
+
+	/**
+	 * Synchronous request, executed if no identical request is in flight
+	 */
+	interface Request<R> {
+		R execute() throws MambuApiException;
+	}
+
+	/**
+	 * Asynchronous request, started if no identical request is in flight
+	 */
+	interface AsyncRequest<R> {
+		void start(MambuApiCallback<R> callback);
+	}
+
+	/**
+	 * Get the number of requests sent
+	 *
+	 * @return number of executed requests
+	 */
+	public long getExecutedRequests() {
+		return executedRequests.get();
+	}
+
+	/**
+	 * Get the number of requests which were not sent because an identical request was in flight
+	 *
+	 * @return number of saved requests
+	 */
+	public long getCoalescedRequests() {
+		return coalescedRequests.get();
+	}
+
+	/**
+	 * Get the number of distinct requests in flight
+	 *
+	 * @return number of requests in flight
+	 */
+	public int getInFlightRequests() {
+		return inFlightRequests.size();
+	}
+
+	/**
+	 * Make the key identifying identical requests
+	 *
+	 * @param credentials
+	 *            digest of the credentials the request is sent with. Can be null
+	 * @param method
+	 *            request method
+	 * @param urlString
+	 *            request URL
+	 * @param params
+	 *            request parameters. Can be null
+	 * @param contentType
+	 *            request content type. Can be null
+	 * @param apiDefinition
+	 *            API definition used to decode the response. Null for requests returning the response string
+	 * @return request key
+	 */
+	static String makeKey(String credentials, Method method, String urlString, ParamsMap params,
+			ContentType contentType, ApiDefinition apiDefinition) {
+
+		StringBuilder key = new StringBuilder();
+		key.append(credentials).append(' ').append(method).append(' ').append(urlString);
+		if (params != null) {
+			// Parameters in a canonical order, without the null values which are not sent
+			Map<String, String> sortedParams = new TreeMap<String, String>();
+			for (Map.Entry<String, String> param : params.entrySet()) {
+				if (param.getKey() != null && param.getValue() != null) {
+					sortedParams.put(param.getKey(), param.getValue());
+				}
+			}
+			key.append(' ').append(sortedParams);
+			// Headers set for the request, e.g. by a RequestInterceptor
+			if (!params.getHeaders().isEmpty()) {
+				key.append(' ').append(new TreeMap<String, String>(params.getHeaders()));
+			}
+		}
+		key.append(' ').append(contentType);
+		if (apiDefinition != null) {
+			key.append(' ').append(apiDefinition.getApiReturnFormat()).append(' ')
+					.append(apiDefinition.getReturnType()).append(' ').append(apiDefinition.getJsonDateTimeFormat());
+		}
+		return key.toString();
+	}
+
+	/**
+	 * Execute the request or wait for the identical request in flight
+	 *
+	 * @param key
+	 *            request key
+	 * @param request
+	 *            the request
+	 * @return result of the request
+	 * @throws MambuApiException
+	 */
+	<R> R execute(String key, Request<R> request) throws MambuApiException {
+		return execute(key, request, null);
+	}
+
+	/**
+	 * Execute the request or wait for the identical request in flight, at most until the deadline
+	 *
+	 * @param key
+	 *            request key
+	 * @param request
+	 *            the request
+	 * @param deadline
+	 *            deadline for waiting for the request in flight. Can be null
+	 * @return result of the request
+	 * @throws MambuApiException
+	 *             if the request failed or the deadline expired while waiting for the request in flight
+	 */
+	<R> R execute(String key, Request<R> request, Deadline deadline) throws MambuApiException {
+
+		InFlightRequest<R> created = new InFlightRequest<R>(key);
+		InFlightRequest<R> inFlight = putIfAbsent(key, created);
+		if (inFlight != null) {
+			coalescedRequests.incrementAndGet();
+			return inFlight.await(deadline);
+		}
+
+		executedRequests.incrementAndGet();
+		boolean completed = false;
+		try {
+			R result = request.execute();
+			created.complete(result, null);
+			completed = true;
+			return result;
+		} catch (MambuApiException e) {
+			created.complete(null, e);
+			completed = true;
+			throw e;
+		} catch (RuntimeException e) {
+			created.complete(null, new MambuApiException(e));
+			completed = true;
+			throw e;
+		} finally {
+			if (!completed) {
+				created.complete(null, new MambuApiException(new IllegalStateException("Request failed")));
+			}
+		}
+	}
+
+	/**
+	 * Execute the request returning the response string or wait for the identical request in flight, and decode the
+	 * result from the response. Each caller decodes its own result, so the callers don't share the decoded entities
+	 *
+	 * @param key
+	 *            request key
+	 * @param request
+	 *            the request returning the response string
+	 * @param apiDefinition
+	 *            API definition used to decode the response
+	 * @param deadline
+	 *            deadline for waiting for the request in flight. Can be null
+	 * @return result decoded as specified by the apiDefinition
+	 * @throws MambuApiException
+	 *             if the request failed, the response could not be decoded or the deadline expired while waiting for
+	 *             the request in flight
+	 */
+	<R> R execute(String key, Request<String> request, ApiDefinition apiDefinition, Deadline deadline)
+			throws MambuApiException {
+		String response = execute(key, request, deadline);
+		return decode(response, apiDefinition);
+	}
+
+	/**
+	 * Start the request returning the response string or wait for the identical request in flight. The result is
+	 * decoded from the response for each caller. Cancelling the returned future doesn't cancel the request shared with
+	 * other callers
+	 *
+	 * @param key
+	 *            request key
+	 * @param request
+	 *            the request returning the response string
+	 * @param apiDefinition
+	 *            API definition used to decode the response
+	 * @param callback
+	 *            callback notified with the result. Can be null
+	 * @return future for the result of the request
+	 */
+	<R> Future<R> executeAsync(String key, AsyncRequest<String> request, final ApiDefinition apiDefinition,
+			final MambuApiCallback<R> callback) {
+
+		final BasicFuture<R> result = new BasicFuture<R>(new FutureCallback<R>() {
+
+			@Override
+			public void completed(R decoded) {
+				// The callback is notified by the listener
+			}
+
+			@Override
+			public void failed(Exception e) {
+				// The callback is notified by the listener
+			}
+
+			@Override
+			public void cancelled() {
+				notifyCallback(callback, null, new MambuApiException(new CancellationException(
+						"Request was cancelled")));
+			}
+		});
+		MambuApiCallback<String> listener = new MambuApiCallback<String>() {
+
+			@Override
+			public void onSuccess(String response) {
+				R decoded;
+				try {
+					decoded = decode(response, apiDefinition);
+				} catch (MambuApiException e) {
+					onFailure(e);
+					return;
+				} catch (RuntimeException e) {
+					onFailure(new MambuApiException(e));
+					return;
+				}
+				if (result.completed(decoded)) {
+					notifyCallback(callback, decoded, null);
+				}
+			}
+
+			@Override
+			public void onFailure(MambuApiException exception) {
+				if (result.failed(exception)) {
+					notifyCallback(callback, null, exception);
+				}
+			}
+		};
+
+		final InFlightRequest<String> created = new InFlightRequest<String>(key);
+		InFlightRequest<String> inFlight = putIfAbsent(key, created);
+		if (inFlight != null) {
+			coalescedRequests.incrementAndGet();
+			inFlight.addListener(listener);
+			return result;
+		}
+
+		executedRequests.incrementAndGet();
+		created.addListener(listener);
+		try {
+			request.start(new MambuApiCallback<String>() {
+
+				@Override
+				public void onSuccess(String response) {
+					created.complete(response, null);
+				}
+
+				@Override
+				public void onFailure(MambuApiException exception) {
+					created.complete(null, exception);
+				}
+			});
+		} catch (RuntimeException e) {
+			created.complete(null, new MambuApiException(e));
+		}
+		return result;
+	}
+
+	@SuppressWarnings("unchecked")
+	private <R> InFlightRequest<R> putIfAbsent(String key, InFlightRequest<R> created) {
+		// Requests with the same key are decoded into the same type
+		return (InFlightRequest<R>) inFlightRequests.putIfAbsent(key, created);
+	}
+
+	/**
+	 * Decode the result specified by the apiDefinition from the shared response string
+	 */
+	private static <R> R decode(String response, ApiDefinition apiDefinition) throws MambuApiException {
+		if (response == null) {
+			return null;
+		}
+		try {
+			return AbstractRequestExecutor.decodeResponse(response, apiDefinition);
+		} catch (IOException e) {
+			throw AbstractRequestExecutor.makeApiException(e);
+		} catch (JsonIOException e) {
+			throw AbstractRequestExecutor.makeApiException(e);
+		}
+	}
+
+	private static <R> void notifyCallback(MambuApiCallback<R> callback, R decoded, MambuApiException exception) {
+		if (callback == null) {
+			return;
+		}
+		try {
+			if (exception == null) {
+				callback.onSuccess(decoded);
+			} else {
+				callback.onFailure(exception);
+			}
+		} catch (RuntimeException e) {
+			LOGGER.log(Level.WARNING, "Callback failed", e);
+		}
+	}
+
+	/**
+	 * Request in flight and the callers waiting for its result
+	 */
+	private class InFlightRequest<R> {
+
+		private final String key;
+		private final CountDownLatch done = new CountDownLatch(1);
+
+		// Result and the listeners, guarded by this
+		private boolean completed;
+		private R result;
+		private MambuApiException exception;
+		private List<MambuApiCallback<R>> listeners = new ArrayList<MambuApiCallback<R>>();
+
+		private InFlightRequest(String key) {
+			this.key = key;
+		}
+
+		private void complete(R result, MambuApiException exception) {
+			List<MambuApiCallback<R>> waiting;
+			synchronized (this) {
+				if (completed) {
+					return;
+				}
+				completed = true;
+				this.result = result;
+				this.exception = exception;
+				waiting = listeners;
+				listeners = null;
+			}
+			// Requests made from now on are sent again
+			inFlightRequests.remove(key, this);
+			done.countDown();
+			for (MambuApiCallback<R> listener : waiting) {
+				notify(listener);
+			}
+		}
+
+		private void addListener(MambuApiCallback<R> listener) {
+			synchronized (this) {
+				if (!completed) {
+					listeners.add(listener);
+					return;
+				}
+			}
+			notify(listener);
+		}
+
+		private void notify(MambuApiCallback<R> listener) {
+			if (exception == null) {
+				listener.onSuccess(result);
+			} else {
+				listener.onFailure(exception);
+			}
+		}
+
+		private R await(Deadline deadline) throws MambuApiException {
+			try {
+				if (deadline == null) {
+					done.await();
+				} else if (!done.await(deadline.getRemainingNanos(), TimeUnit.NANOSECONDS)) {
+					throw new MambuApiException(new TimeoutException(
+							"Deadline exceeded while waiting for the identical request in flight"));
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new MambuApiException(e);
+			}
+			synchronized (this) {
+				if (exception != null) {
+					throw exception;
+				}
+				return result;
+			}
+		}
+	}
+}
@@ -95,4 +95,51 @@ public interface RequestExecutor {
 	public String executeRequest(String urlString, Method method, ContentType contentTypeFormat)
 			throws MambuApiException;
 
+	/**
+	 * Executes a request with given url and params using the method and the content type specified by the
+	 * ApiDefinition. The response is decoded into the result specified by the ApiDefinition's return format and return
+	 * class. JSON responses are decoded directly from the response stream without creating an intermediate response
+	 * string, the response string is returned only for ApiReturnFormat.RESPONSE_STRING definitions
+	 * 
+	 * @param urlString
+	 *            the url to execute on. eg: https://demo.mambu.com/api/clients
+	 * @param params
+	 *            the parameters eg: {clientId=id}, {JSON=jsonString}
+	 * @param apiDefinition
+	 *            API definition for the request
+	 * 
+	 * @return result object, which will be an API specific object, a list of objects, a Boolean or the response String
+	 * 
+	 * @throws MambuApiException
+	 */
+	public <R> R executeRequest(String urlString, ParamsMap params, ApiDefinition apiDefinition)
+			throws MambuApiException;
+
+	/**
+	 * Executes a request with given url and params as specified by the ApiDefinition, which must complete by the
+	 * deadline. The request is aborted when the deadline expires and fails with a MambuApiException caused by a
+	 * TimeoutException
+	 *
+	 * @param urlString
+	 *            the url to execute on. eg: https://demo.mambu.com/api/clients
+	 * @param params
+	 *            the parameters eg: {clientId=id}, {JSON=jsonString}
+	 * @param apiDefinition
+	 *            API definition for the request
+	 * @param deadline
+	 *            deadline for the request. Null if the request is bounded only by the executor's timeouts
+	 *
+	 * @return result object, which will be an API specific object, a list of objects, a Boolean or the response String
+	 *
+	 * @throws MambuApiException
+	 */
+	public <R> R executeRequest(String urlString, ParamsMap params, ApiDefinition apiDefinition, Deadline deadline)
+			throws MambuApiException;
+
+	/**
+	 * Release resources held by this executor, such as pooled HTTP connections. The executor must not be used after it
+	 * was shut down
+	 */
+	public void shutdown();
+
 }
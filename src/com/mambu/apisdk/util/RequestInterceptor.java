@@ -0,0 +1,51 @@
+package com.mambu.apisdk.util;
+
+/**
+ * Interceptor of the API requests executed by an InterceptingRequestExecutor. The interceptors are called in their
+ * order, each one passing the request on to the next one with chain.proceed(). An interceptor can change the request
+ * before passing it on, inspect or replace the response passed to its callback by the chain, or complete the callback
+ * without passing the request on, e.g. with a cached result.
+ *
+ * The interceptors are called for both the synchronous and the asynchronous requests, so they don't return the
+ * response: the response is passed to the callback. For an asynchronous request the callback is completed on the
+ * thread which received the response, so the interceptors must not block in the callback. An interceptor must
+ * complete its callback exactly once, either by passing it (or a callback wrapping it) to chain.proceed() or by calling
+ * it itself.
+ *
+ * The response has the HTTP status and headers of the Mambu response (see ApiResponse) and the result of the request:
+ * the result decoded as specified by the ApiDefinition for a request with an ApiDefinition and the response string for
+ * a request without one. A request failing with an error response is reported to onFailure()
+ *
+ * Interceptors are added to all services created with a MambuAPIModule with:
+ * mambuAPIModule.addRequestInterceptor(interceptor)
+ */
+public interface RequestInterceptor {
+
+	/**
+	 * Intercept a request
+	 *
+	 * @param request
+	 *            the request
+	 * @param chain
+	 *            the rest of the chain
+	 * @param callback
+	 *            callback to be completed with the response or the failure of the request
+	 */
+	void intercept(ApiRequest request, Chain chain, MambuApiCallback<ApiResponse> callback);
+
+	/**
+	 * The interceptors following an interceptor and the request executor executing the request
+	 */
+	public interface Chain {
+
+		/**
+		 * Pass the request on to the next interceptor or, after the last one, execute it
+		 *
+		 * @param request
+		 *            the request
+		 * @param callback
+		 *            callback completed with the response or the failure of the request
+		 */
+		void proceed(ApiRequest request, MambuApiCallback<ApiResponse> callback);
+	}
+}
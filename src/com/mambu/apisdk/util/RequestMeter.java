@@ -0,0 +1,129 @@
+package com.mambu.apisdk.util;
+
+import com.mambu.apisdk.exception.MambuApiException;
+
+/**
+ * Measurements of one HTTP request, recorded into the ApiMetrics of the request and, if ApiCallListeners are
+ * registered, into the HTTP_REQUEST event fired when the request completes. The event is also added to the
+ * SERVICE_CALL event of the thread which created the request, if any. If that thread has a current span (see
+ * TraceContext), the request is traced in a child span of it
+ */
+final class RequestMeter {
+
+	private final ApiMetrics metrics;
+	private final ApiCallEvent event;
+	private final ApiCallEvent serviceCall;
+	private final Span span;
+	// False while the request is not sent, e.g. if it is served from the response cache
+	private volatile boolean sent;
+
+	/**
+	 * Create the meter
+	 *
+	 * @param metrics
+	 *            metrics of the request. Null if the metrics are not collected
+	 * @param event
+	 *            event of the request. Null if the events are not fired
+	 * @param span
+	 *            span of the request. Null if the request is not traced
+	 */
+	RequestMeter(ApiMetrics metrics, ApiCallEvent event, Span span) {
+		this.metrics = metrics;
+		this.event = event;
+		this.serviceCall = (event == null) ? null : ApiCallEvents.getCurrentServiceCall();
+		this.span = span;
+	}
+
+	/**
+	 * Record the time spent preparing the request, e.g. encoding its params
+	 */
+	void recordPreparation(long nanos) {
+		if (event != null) {
+			event.addSerializationNanos(nanos);
+		}
+		if (span != null) {
+			span.addPhaseNanos(Span.Phase.SERIALIZATION, nanos);
+		}
+	}
+
+	void recordLatency(ApiMetrics.Phase phase, long nanos) {
+		if (metrics != null) {
+			metrics.recordLatency(phase, nanos);
+		}
+		if (event != null) {
+			// The REQUEST phase includes the DNS and connect phases of a new connection
+			if (phase == ApiMetrics.Phase.PARSE) {
+				event.addSerializationNanos(nanos);
+			} else if (phase == ApiMetrics.Phase.REQUEST) {
+				event.addNetworkNanos(nanos);
+			}
+		}
+		if (span != null) {
+			if (phase == ApiMetrics.Phase.PARSE) {
+				span.addPhaseNanos(Span.Phase.PARSE, nanos);
+			} else if (phase == ApiMetrics.Phase.REQUEST) {
+				span.addPhaseNanos(Span.Phase.NETWORK, nanos);
+			}
+		}
+	}
+
+	void addBytesSent(long bytes) {
+		if (metrics != null) {
+			metrics.addBytesSent(bytes);
+		}
+		if (event != null) {
+			event.addBytesSent(bytes);
+		}
+	}
+
+	void addBytesReceived(long bytes) {
+		if (metrics != null) {
+			metrics.addBytesReceived(bytes);
+		}
+		if (event != null) {
+			event.addBytesReceived(bytes);
+		}
+	}
+
+	/**
+	 * Record that the request is being sent
+	 */
+	void markSent() {
+		sent = true;
+	}
+
+	void setStatus(int status) {
+		if (event != null) {
+			event.setStatus(status);
+		}
+		if (span != null) {
+			span.setAttribute("http.status", String.valueOf(status));
+		}
+	}
+
+	/**
+	 * Record the completed request
+	 *
+	 * @param failure
+	 *            exception the request failed with or null if it succeeded. No event is fired for a request which was
+	 *            not sent and a request served from the response cache is not counted as a call in the metrics: the
+	 *            cache hits are counted by the ResponseCache statistics
+	 */
+	void complete(MambuApiException failure) {
+		if (metrics != null && (sent || failure != null)) {
+			metrics.recordCall(failure);
+		}
+		if (event != null && sent && event.complete(failure)) {
+			ApiCallEvents.fire(event);
+			if (serviceCall != null) {
+				serviceCall.addRequest(event);
+			}
+		}
+		if (span != null) {
+			if (!sent) {
+				span.setAttribute("cache", "hit");
+			}
+			span.end(failure);
+		}
+	}
+}
@@ -0,0 +1,452 @@
+package com.mambu.apisdk.util;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.http.Header;
+import org.apache.http.HeaderElement;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpRequestBase;
+
+/**
+ * Cache for the responses to the GET requests, used by the request executors extending the AbstractRequestExecutor.
+ * Responses are cached with their validators: a response with an ETag or a Last-Modified header is revalidated with a
+ * conditional request (If-None-Match, If-Modified-Since) each time it is requested, and a 304 (Not Modified) response is
+ * served from the cache. Responses without validators are cached for the time to live of their end point, which is zero
+ * by default (i.e. they are not cached). Cache-Control max-age, no-cache and no-store directives of the response are
+ * respected.
+ *
+ * The cache is bounded by the total size of the cached response bodies: least recently used responses are evicted when
+ * a new response would exceed maxBytes. Hits, misses and bytes saved are counted per ApiDefinition
+ *
+ * Responses are cached by the request URL and the credentials the request was sent with, so a cache shared by the
+ * modules of different users of a tenant serves each user only the responses to their own requests
+ *
+ * To cache the responses of all services created with a MambuAPIModule set its response cache:
+ * mambuAPIModule.setResponseCache(new ResponseCache())
+ */
+public class ResponseCache {
+
+	// Default values
+	public final static long DEFAULT_MAX_BYTES = 10L * 1024 * 1024;
+	public final static long DEFAULT_TIME_TO_LIVE_MILLIS = 0L;
+
+	// Statistics for the requests without an ApiDefinition
+	public final static String NO_API_DEFINITION = "NO_API_DEFINITION";
+
+	private final long maxBytes;
+	// Time to live of the responses without validators, by the end point
+	private final Map<String, Long> timesToLive = new ConcurrentHashMap<String, Long>();
+	private volatile long defaultTimeToLiveMillis = DEFAULT_TIME_TO_LIVE_MILLIS;
+
+	// Cached responses by the request key in access order and their total size. Guarded by this
+	private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+	private long cachedBytes;
+
+	// Statistics by the ApiDefinition name
+	private final ConcurrentMap<String, Statistics> statistics = new ConcurrentHashMap<String, Statistics>();
+
+	/**
+	 * Create response cache with the default size
+	 */
+	public ResponseCache() {
+		this(DEFAULT_MAX_BYTES);
+	}
+
+	/**
+	 * Create response cache with the specified size
+	 *
+	 * @param maxBytes
+	 *            maximum total size of the cached response bodies. Must be greater than zero
+	 */
+	public ResponseCache(long maxBytes) {
+		if (maxBytes < 1) {
+			throw new IllegalArgumentException("maxBytes must be greater than zero");
+		}
+		this.maxBytes = maxBytes;
+	}
+
+	public long getMaxBytes() {
+		return maxBytes;
+	}
+
+	public long getDefaultTimeToLiveMillis() {
+		return defaultTimeToLiveMillis;
+	}
+
+	/**
+	 * Set the time to live of the responses without validators for the end points without their own time to live
+	 *
+	 * @param defaultTimeToLiveMillis
+	 *            time to live. Zero to not cache the responses without validators
+	 */
+	public void setDefaultTimeToLiveMillis(long defaultTimeToLiveMillis) {
+		if (defaultTimeToLiveMillis < 0) {
+			throw new IllegalArgumentException("defaultTimeToLiveMillis must not be negative");
+		}
+		this.defaultTimeToLiveMillis = defaultTimeToLiveMillis;
+	}
+
+	/**
+	 * Set the time to live of the responses without validators for an API end point. Use it for reference data which
+	 * rarely changes, e.g. APIData.BRANCHES or APIData.CURRENCIES
+	 *
+	 * @param endPoint
+	 *            API end point, as returned by ApiDefinition.getEndPoint()
+	 * @param timeToLiveMillis
+	 *            time to live. Zero to not cache the responses without validators
+	 */
+	public void setTimeToLive(String endPoint, long timeToLiveMillis) {
+		if (endPoint == null) {
+			throw new IllegalArgumentException("endPoint must not be null");
+		}
+		if (timeToLiveMillis < 0) {
+			throw new IllegalArgumentException("timeToLiveMillis must not be negative");
+		}
+		timesToLive.put(endPoint, timeToLiveMillis);
+	}
+
+	/**
+	 * Get the total size of the cached response bodies
+	 *
+	 * @return size in bytes
+	 */
+	public synchronized long getCachedBytes() {
+		return cachedBytes;
+	}
+
+	/**
+	 * Get the number of cached responses
+	 *
+	 * @return number of responses
+	 */
+	public synchronized int getEntryCount() {
+		return entries.size();
+	}
+
+	/**
+	 * Remove all cached responses. The statistics are kept
+	 */
+	public synchronized void clear() {
+		entries.clear();
+		cachedBytes = 0;
+	}
+
+	/**
+	 * Get the statistics for the requests with an ApiDefinition
+	 *
+	 * @param apiDefinition
+	 *            API definition or null for the requests without one
+	 * @return statistics
+	 */
+	public Statistics getStatistics(ApiDefinition apiDefinition) {
+		String name = (apiDefinition == null) ? NO_API_DEFINITION : apiDefinition.toString();
+		Statistics stats = statistics.get(name);
+		if (stats == null) {
+			Statistics created = new Statistics();
+			stats = statistics.putIfAbsent(name, created);
+			if (stats == null) {
+				stats = created;
+			}
+		}
+		return stats;
+	}
+
+	/**
+	 * Get the statistics for all API definitions requested so far
+	 *
+	 * @return statistics by the API definition name (see ApiDefinition.toString())
+	 */
+	public Map<String, Statistics> getStatistics() {
+		return Collections.unmodifiableMap(statistics);
+	}
+
+	/**
+	 * Make the key of the response to the request: the digest of the request's credentials and its URL. Only the
+	 * SHA-256 digest of the Authorization header is kept in the cache
+	 *
+	 * @param request
+	 *            GET request
+	 * @return cache key
+	 */
+	static String makeKey(HttpRequestBase request) {
+		Header authorization = request.getFirstHeader("Authorization");
+		String url = request.getURI().toString();
+		if (authorization == null) {
+			return url;
+		}
+		return DigestUtils.sha256Hex(authorization.getValue()) + ' ' + url;
+	}
+
+	/**
+	 * Get the cached response for the request key
+	 */
+	synchronized Entry get(String key) {
+		return entries.get(key);
+	}
+
+	/**
+	 * Cache the response if it can be cached. Otherwise remove the stale response for the key, if any
+	 *
+	 * @return the cached entry or null if the response can't be cached
+	 */
+	Entry put(String key, String body, HttpResponse httpResponse, ApiDefinition apiDefinition) {
+
+		long now = System.currentTimeMillis();
+		Entry entry = makeEntry(body, httpResponse, apiDefinition, now);
+		synchronized (this) {
+			remove(key);
+			if (entry == null || entry.size > maxBytes) {
+				return null;
+			}
+			entries.put(key, entry);
+			cachedBytes += entry.size;
+
+			// Evict the least recently used responses
+			Iterator<Entry> iterator = entries.values().iterator();
+			while (cachedBytes > maxBytes && iterator.hasNext()) {
+				Entry eldest = iterator.next();
+				iterator.remove();
+				cachedBytes -= eldest.size;
+			}
+		}
+		return entry;
+	}
+
+	/**
+	 * Check from the status line and headers whether the response can be cached, before its body is read. A response
+	 * which can't is decoded from the stream instead of being buffered for the cache
+	 *
+	 * @return false if the response must not be cached
+	 */
+	boolean isCacheable(HttpResponse httpResponse, ApiDefinition apiDefinition) {
+
+		if (hasDirective(httpResponse, "no-store")) {
+			return false;
+		}
+		HttpEntity entity = httpResponse.getEntity();
+		if (entity != null && entity.getContentLength() > maxBytes) {
+			return false;
+		}
+		boolean hasValidators = hasValidators(httpResponse);
+		return hasValidators || getTimeToLive(httpResponse, apiDefinition, hasValidators) > 0;
+	}
+
+	/**
+	 * Remove the cached response for the key, e.g. a stale response replaced by a response which can't be cached
+	 */
+	synchronized void invalidate(String key) {
+		remove(key);
+	}
+
+	/**
+	 * Refresh the expiry of a cached response revalidated with a 304 response
+	 */
+	void refresh(Entry entry, HttpResponse notModified) {
+		long maxAge = getMaxAge(notModified);
+		if (maxAge >= 0) {
+			entry.expiresAt = System.currentTimeMillis() + maxAge;
+		}
+	}
+
+	private void remove(String key) {
+		Entry removed = entries.remove(key);
+		if (removed != null) {
+			cachedBytes -= removed.size;
+		}
+	}
+
+	private Entry makeEntry(String body, HttpResponse httpResponse, ApiDefinition apiDefinition, long now) {
+
+		if (hasDirective(httpResponse, "no-store")) {
+			return null;
+		}
+		boolean hasValidators = hasValidators(httpResponse);
+		long timeToLive = getTimeToLive(httpResponse, apiDefinition, hasValidators);
+		if (!hasValidators && timeToLive <= 0) {
+			return null;
+		}
+		String eTag = getHeader(httpResponse, "ETag");
+		String lastModified = getHeader(httpResponse, "Last-Modified");
+		return new Entry(body, eTag, lastModified, now + timeToLive);
+	}
+
+	private static boolean hasValidators(HttpResponse httpResponse) {
+		return httpResponse.getFirstHeader("ETag") != null || httpResponse.getFirstHeader("Last-Modified") != null;
+	}
+
+	/**
+	 * Get the time the response is fresh: its max-age or, if it has none, zero for a response with validators (it is
+	 * revalidated) and its end point's time to live for others
+	 */
+	private long getTimeToLive(HttpResponse httpResponse, ApiDefinition apiDefinition, boolean hasValidators) {
+
+		if (hasDirective(httpResponse, "no-cache")) {
+			return 0L;
+		}
+		long timeToLive = getMaxAge(httpResponse);
+		if (timeToLive < 0) {
+			timeToLive = hasValidators ? 0L : getTimeToLive(apiDefinition);
+		}
+		return timeToLive;
+	}
+
+	private long getTimeToLive(ApiDefinition apiDefinition) {
+		Long timeToLive = (apiDefinition == null) ? null : timesToLive.get(apiDefinition.getEndPoint());
+		return (timeToLive == null) ? defaultTimeToLiveMillis : timeToLive;
+	}
+
+	/**
+	 * Get the Cache-Control max-age in milliseconds or -1 if not present
+	 */
+	private static long getMaxAge(HttpResponse httpResponse) {
+		for (Header header : httpResponse.getHeaders("Cache-Control")) {
+			for (HeaderElement element : header.getElements()) {
+				if ("max-age".equalsIgnoreCase(element.getName()) && element.getValue() != null) {
+					try {
+						return Math.max(0L, Long.parseLong(element.getValue().trim()) * 1000L);
+					} catch (NumberFormatException e) {
+						return -1L;
+					}
+				}
+			}
+		}
+		return -1L;
+	}
+
+	private static boolean hasDirective(HttpResponse httpResponse, String directive) {
+		for (Header header : httpResponse.getHeaders("Cache-Control")) {
+			for (HeaderElement element : header.getElements()) {
+				if (directive.equalsIgnoreCase(element.getName())) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	private static String getHeader(HttpResponse httpResponse, String name) {
+		Header header = httpResponse.getFirstHeader(name);
+		return (header == null) ? null : header.getValue();
+	}
+
+	/**
+	 * Cached response body with its validators
+	 */
+	static class Entry {
+		final String body;
+		// Size of the body in bytes
+		final int size;
+		final String eTag;
+		final String lastModified;
+		// Time the response has to be revalidated
+		volatile long expiresAt;
+
+		private Entry(String body, String eTag, String lastModified, long expiresAt) {
+			this.body = body;
+			this.size = getSize(body);
+			this.eTag = eTag;
+			this.lastModified = lastModified;
+			this.expiresAt = expiresAt;
+		}
+
+		boolean isFresh(long now) {
+			return now < expiresAt;
+		}
+
+		/**
+		 * Get the size of the body encoded in UTF-8, without encoding it
+		 */
+		private static int getSize(String body) {
+			int size = 0;
+			int length = body.length();
+			for (int i = 0; i < length; i++) {
+				char c = body.charAt(i);
+				if (c < 0x80) {
+					size++;
+				} else if (c < 0x800) {
+					size += 2;
+				} else if (Character.isHighSurrogate(c) && i + 1 < length
+						&& Character.isLowSurrogate(body.charAt(i + 1))) {
+					// A supplementary character is encoded in 4 bytes
+					size += 4;
+					i++;
+				} else if (c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE) {
+					// An unpaired surrogate is encoded as '?'
+					size++;
+				} else {
+					size += 3;
+				}
+			}
+			return size;
+		}
+	}
+
+	/**
+	 * Cache statistics for an ApiDefinition
+	 */
+	public static class Statistics {
+
+		// Responses served from the cache without a request, revalidated with a 304 response and not cached
+		private final AtomicLong hits = new AtomicLong();
+		private final AtomicLong revalidations = new AtomicLong();
+		private final AtomicLong misses = new AtomicLong();
+		// Response bytes not transferred thanks to the cache
+		private final AtomicLong bytesSaved = new AtomicLong();
+
+		void recordHit(Entry entry) {
+			hits.incrementAndGet();
+			bytesSaved.addAndGet(entry.size);
+		}
+
+		void recordRevalidation(Entry entry) {
+			revalidations.incrementAndGet();
+			bytesSaved.addAndGet(entry.size);
+		}
+
+		void recordMiss() {
+			misses.incrementAndGet();
+		}
+
+		/**
+		 * Get the number of responses served from the cache without sending a request
+		 */
+		public long getHits() {
+			return hits.get();
+		}
+
+		/**
+		 * Get the number of responses served from the cache after a conditional request returned 304 (Not Modified)
+		 */
+		public long getRevalidations() {
+			return revalidations.get();
+		}
+
+		/**
+		 * Get the number of responses transferred from the server
+		 */
+		public long getMisses() {
+			return misses.get();
+		}
+
+		/**
+		 * Get the number of response body bytes served from the cache
+		 */
+		public long getBytesSaved() {
+			return bytesSaved.get();
+		}
+
+		@Override
+		public String toString() {
+			return "hits=" + getHits() + " revalidations=" + getRevalidations() + " misses=" + getMisses()
+					+ " bytesSaved=" + getBytesSaved();
+		}
+	}
+}
@@ -0,0 +1,88 @@
+package com.mambu.apisdk.util;
+
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Reader keeping the first characters read from the response, so that a response decoded directly from the stream can
+ * still be logged without reading it into a string first
+ */
+class ResponsePrefixReader extends FilterReader {
+
+	private final int maxPrefixLength;
+	private final StringBuilder prefix;
+	// True if more characters were read than kept in the prefix
+	private boolean truncated;
+
+	/**
+	 * Create the reader
+	 *
+	 * @param reader
+	 *            reader for the response
+	 * @param maxPrefixLength
+	 *            maximum number of characters kept
+	 */
+	ResponsePrefixReader(Reader reader, int maxPrefixLength) {
+		super(reader);
+		this.maxPrefixLength = maxPrefixLength;
+		this.prefix = new StringBuilder(Math.min(maxPrefixLength, 256));
+	}
+
+	@Override
+	public int read() throws IOException {
+		int c = super.read();
+		if (c != -1) {
+			if (prefix.length() < maxPrefixLength) {
+				prefix.append((char) c);
+			} else {
+				truncated = true;
+			}
+		}
+		return c;
+	}
+
+	@Override
+	public int read(char[] buffer, int offset, int length) throws IOException {
+		int count = super.read(buffer, offset, length);
+		if (count > 0) {
+			keep(buffer, offset, count);
+		}
+		return count;
+	}
+
+	@Override
+	public long skip(long n) throws IOException {
+		// Skipped characters are not part of the prefix
+		truncated = true;
+		return super.skip(n);
+	}
+
+	private void keep(char[] buffer, int offset, int count) {
+		int room = maxPrefixLength - prefix.length();
+		if (count > room) {
+			truncated = true;
+		}
+		if (room > 0) {
+			prefix.append(buffer, offset, Math.min(room, count));
+		}
+	}
+
+	/**
+	 * Get the characters read so far, up to the maximum prefix length
+	 *
+	 * @return response prefix
+	 */
+	String getPrefix() {
+		return prefix.toString();
+	}
+
+	/**
+	 * Check if the response had more characters than the prefix
+	 *
+	 * @return true if the prefix is not the whole response read so far
+	 */
+	boolean isTruncated() {
+		return truncated;
+	}
+}
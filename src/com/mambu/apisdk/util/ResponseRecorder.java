@@ -0,0 +1,65 @@
+package com.mambu.apisdk.util;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.http.Header;
+import org.apache.http.HttpResponse;
+
+/**
+ * Recorder of the HTTP status and headers of the response received for a request. The InterceptingRequestExecutor
+ * passes it to the transport with the request's params (see ParamsMap.setResponseRecorder()), so that the interceptors
+ * see the status and headers of the response and not only its decoded result
+ *
+ * If the request is sent more than once, e.g. when it is retried or hedged, the last response received is kept
+ */
+final class ResponseRecorder {
+
+	private int status = ApiResponse.UNKNOWN_STATUS;
+	private Map<String, String> headers = Collections.emptyMap();
+
+	/**
+	 * Record the status and headers of the response
+	 *
+	 * @param httpResponse
+	 *            HTTP response
+	 */
+	void record(HttpResponse httpResponse) {
+		Map<String, String> responseHeaders = new LinkedHashMap<String, String>();
+		for (Header header : httpResponse.getAllHeaders()) {
+			if (!responseHeaders.containsKey(header.getName())) {
+				responseHeaders.put(header.getName(), header.getValue());
+			}
+		}
+		synchronized (this) {
+			status = httpResponse.getStatusLine().getStatusCode();
+			headers = responseHeaders;
+		}
+	}
+
+	/**
+	 * Make the response for the result of the request with the recorded status and headers
+	 *
+	 * @param result
+	 *            result of the request
+	 * @return response
+	 */
+	synchronized ApiResponse makeResponse(Object result) {
+		return new ApiResponse(status, headers, result);
+	}
+
+	/**
+	 * Record the response if the request has a recorder
+	 *
+	 * @param recorder
+	 *            recorder or null
+	 * @param httpResponse
+	 *            HTTP response
+	 */
+	static void record(ResponseRecorder recorder, HttpResponse httpResponse) {
+		if (recorder != null) {
+			recorder.record(httpResponse);
+		}
+	}
+}
@@ -0,0 +1,267 @@
+package com.mambu.apisdk.util;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import com.mambu.apisdk.exception.MambuApiException;
+import com.mambu.apisdk.exception.MambuApiResponseMessage;
+import com.mambu.apisdk.util.RequestExecutor.Method;
+
+/**
+ * Policy for retrying failed API requests, used by the RetryingRequestExecutor. By default only the idempotent GET and
+ * DELETE requests are retried, when they fail with an I/O error (e.g. a connection error), with the 429 (Too Many
+ * Requests) status or with one of the 5xx statuses indicating a temporary server problem.
+ *
+ * Retries are delayed with an exponential backoff with "full jitter": the delay before the n-th retry is a random value
+ * between zero and min(maxBackoffMillis, initialBackoffMillis * backoffMultiplier^(n-1)). The jitter spreads the
+ * retries of many clients failing at the same time, so they don't hit the server again all at once. The total delay
+ * for one API call is limited by the retryBudgetMillis.
+ *
+ * A retry of a response with a Retry-After header, e.g. 429 (Too Many Requests) or 503 (Service Unavailable), is not
+ * made before the delay requested by the server, unless honorRetryAfter is disabled. If the requested delay exceeds the
+ * retry budget, the request is not retried
+ */
+public class RetryPolicy {
+
+	// Default values
+	public final static int DEFAULT_MAX_ATTEMPTS = 3;
+	public final static long DEFAULT_INITIAL_BACKOFF_MILLIS = 200L;
+	public final static long DEFAULT_MAX_BACKOFF_MILLIS = 10000L;
+	public final static double DEFAULT_BACKOFF_MULTIPLIER = 2.0;
+	public final static long DEFAULT_RETRY_BUDGET_MILLIS = 30000L;
+
+	// 501 (Not Implemented) and 505 (HTTP Version Not Supported) are not temporary and are not retried
+	private final static Integer[] DEFAULT_RETRYABLE_STATUSES = { 429, 500, 502, 503, 504 };
+
+	// Maximum number of attempts for one API call, including the first one
+	private int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+	// Backoff before the first retry and its maximum
+	private long initialBackoffMillis = DEFAULT_INITIAL_BACKOFF_MILLIS;
+	private long maxBackoffMillis = DEFAULT_MAX_BACKOFF_MILLIS;
+	private double backoffMultiplier = DEFAULT_BACKOFF_MULTIPLIER;
+	// Maximum total backoff for one API call. No more retries are made if the next backoff would exceed it
+	private long retryBudgetMillis = DEFAULT_RETRY_BUDGET_MILLIS;
+	// Request methods which can be retried
+	private Set<Method> retryableMethods = EnumSet.of(Method.GET, Method.DELETE);
+	// HTTP statuses which are retried
+	private Set<Integer> retryableStatuses = new HashSet<Integer>();
+	// Mambu returnStatus values (e.g. "INVALID_API_OPERATION") which are retried. None by default
+	private Set<String> retryableReturnStatuses = new HashSet<String>();
+	// Retry requests failed with an I/O error
+	private boolean retryOnIOErrors = true;
+	// Wait at least for the delay requested by the Retry-After header of the error response
+	private boolean honorRetryAfter = true;
+
+	/**
+	 * Create retry policy with default values
+	 */
+	public RetryPolicy() {
+		Collections.addAll(retryableStatuses, DEFAULT_RETRYABLE_STATUSES);
+	}
+
+	/**
+	 * Create retry policy with the specified number of attempts and backoff and default values for other settings
+	 *
+	 * @param maxAttempts
+	 *            maximum number of attempts for one API call, including the first one. Must be greater than zero
+	 * @param initialBackoffMillis
+	 *            backoff before the first retry. Must not be negative
+	 */
+	public RetryPolicy(int maxAttempts, long initialBackoffMillis) {
+		this();
+		setMaxAttempts(maxAttempts);
+		setInitialBackoffMillis(initialBackoffMillis);
+	}
+
+	/**
+	 * Check if the failed request should be retried
+	 *
+	 * @param method
+	 *            request's method
+	 * @param exception
+	 *            exception the request failed with
+	 * @return true if the request can be retried
+	 */
+	public boolean isRetryable(Method method, MambuApiException exception) {
+
+		if (method == null || exception == null || !retryableMethods.contains(method)) {
+			return false;
+		}
+		if (isIOError(exception)) {
+			return retryOnIOErrors;
+		}
+		Integer status = exception.getErrorCode();
+		if (status != null && retryableStatuses.contains(status)) {
+			return true;
+		}
+		if (!retryableReturnStatuses.isEmpty()) {
+			return retryableReturnStatuses.contains(getReturnStatus(exception));
+		}
+		return false;
+	}
+
+	/**
+	 * Get the delay before the specified retry
+	 *
+	 * @param retry
+	 *            retry number, starting with one for the first retry
+	 * @param random
+	 *            random numbers generator for the jitter
+	 * @return delay in milliseconds
+	 */
+	public long getBackoffMillis(int retry, Random random) {
+
+		double backoff = initialBackoffMillis * Math.pow(backoffMultiplier, Math.max(0, retry - 1));
+		long maxDelay = (long) Math.min(backoff, maxBackoffMillis);
+		if (maxDelay <= 0) {
+			return 0L;
+		}
+		return (long) (random.nextDouble() * (maxDelay + 1));
+	}
+
+	/**
+	 * Get the delay before the specified retry of a request failed with the exception: the backoff for the retry, but
+	 * not less than the delay requested by the Retry-After header of the error response
+	 *
+	 * @param retry
+	 *            retry number, starting with one for the first retry
+	 * @param exception
+	 *            exception the request failed with
+	 * @param random
+	 *            random numbers generator for the jitter
+	 * @return delay in milliseconds
+	 */
+	public long getBackoffMillis(int retry, MambuApiException exception, Random random) {
+
+		long backoff = getBackoffMillis(retry, random);
+		Long retryAfter = (exception == null) ? null : exception.getRetryAfterMillis();
+		if (honorRetryAfter && retryAfter != null) {
+			return Math.max(backoff, retryAfter);
+		}
+		return backoff;
+	}
+
+	private static boolean isIOError(MambuApiException exception) {
+		for (Throwable cause = exception.getCause(); cause != null; cause = cause.getCause()) {
+			if (cause instanceof IOException) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	static String getReturnStatus(MambuApiException exception) {
+		try {
+			return new MambuApiResponseMessage(exception).getReturnStatus();
+		} catch (RuntimeException e) {
+			// Not a Mambu response message
+			return null;
+		}
+	}
+
+	public int getMaxAttempts() {
+		return maxAttempts;
+	}
+
+	public void setMaxAttempts(int maxAttempts) {
+		if (maxAttempts < 1) {
+			throw new IllegalArgumentException("maxAttempts must be greater than zero");
+		}
+		this.maxAttempts = maxAttempts;
+	}
+
+	public long getInitialBackoffMillis() {
+		return initialBackoffMillis;
+	}
+
+	public void setInitialBackoffMillis(long initialBackoffMillis) {
+		if (initialBackoffMillis < 0) {
+			throw new IllegalArgumentException("initialBackoffMillis must not be negative");
+		}
+		this.initialBackoffMillis = initialBackoffMillis;
+	}
+
+	public long getMaxBackoffMillis() {
+		return maxBackoffMillis;
+	}
+
+	public void setMaxBackoffMillis(long maxBackoffMillis) {
+		if (maxBackoffMillis < 0) {
+			throw new IllegalArgumentException("maxBackoffMillis must not be negative");
+		}
+		this.maxBackoffMillis = maxBackoffMillis;
+	}
+
+	public double getBackoffMultiplier() {
+		return backoffMultiplier;
+	}
+
+	public void setBackoffMultiplier(double backoffMultiplier) {
+		if (backoffMultiplier < 1.0) {
+			throw new IllegalArgumentException("backoffMultiplier must not be less than one");
+		}
+		this.backoffMultiplier = backoffMultiplier;
+	}
+
+	public long getRetryBudgetMillis() {
+		return retryBudgetMillis;
+	}
+
+	public void setRetryBudgetMillis(long retryBudgetMillis) {
+		this.retryBudgetMillis = retryBudgetMillis;
+	}
+
+	public Set<Method> getRetryableMethods() {
+		return retryableMethods;
+	}
+
+	public void setRetryableMethods(Set<Method> retryableMethods) {
+		if (retryableMethods == null) {
+			throw new IllegalArgumentException("retryableMethods must not be null");
+		}
+		this.retryableMethods = retryableMethods;
+	}
+
+	public Set<Integer> getRetryableStatuses() {
+		return retryableStatuses;
+	}
+
+	public void setRetryableStatuses(Set<Integer> retryableStatuses) {
+		if (retryableStatuses == null) {
+			throw new IllegalArgumentException("retryableStatuses must not be null");
+		}
+		this.retryableStatuses = retryableStatuses;
+	}
+
+	public Set<String> getRetryableReturnStatuses() {
+		return retryableReturnStatuses;
+	}
+
+	public void setRetryableReturnStatuses(Set<String> retryableReturnStatuses) {
+		if (retryableReturnStatuses == null) {
+			throw new IllegalArgumentException("retryableReturnStatuses must not be null");
+		}
+		this.retryableReturnStatuses = retryableReturnStatuses;
+	}
+
+	public boolean isRetryOnIOErrors() {
+		return retryOnIOErrors;
+	}
+
+	public void setRetryOnIOErrors(boolean retryOnIOErrors) {
+		this.retryOnIOErrors = retryOnIOErrors;
+	}
+
+	public boolean isHonorRetryAfter() {
+		return honorRetryAfter;
+	}
+
+	public void setHonorRetryAfter(boolean honorRetryAfter) {
+		this.honorRetryAfter = honorRetryAfter;
+	}
+
+}
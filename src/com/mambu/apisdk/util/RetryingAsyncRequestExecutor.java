@@ -0,0 +1,214 @@
+package com.mambu.apisdk.util;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.http.concurrent.BasicFuture;
+import org.apache.http.concurrent.FutureCallback;
+
+import com.mambu.apisdk.exception.MambuApiException;
+
+/**
+ * Retrying decorator for an AsyncRequestExecutor. Asynchronous requests are retried without blocking a thread during
+ * the backoff: retries are scheduled on a single timer thread and executed by the delegate. The returned future and the
+ * callback are completed only with the result of the last attempt. Cancelling the future cancels the current attempt
+ * and stops the retries. No retry is made once the request timeout of the ApiDefinition would expire during the backoff
+ */
+public class RetryingAsyncRequestExecutor extends RetryingRequestExecutor implements AsyncRequestExecutor {
+
+	private final static Logger LOGGER = Logger.getLogger(RetryingAsyncRequestExecutor.class.getName());
+
+	private final AsyncRequestExecutor asyncDelegate;
+	// Schedules the retries after their backoff
+	private final ScheduledExecutorService retryScheduler;
+
+	/**
+	 * Create retrying executor
+	 *
+	 * @param delegate
+	 *            asynchronous request executor executing the requests
+	 * @param retryPolicy
+	 *            retry policy
+	 */
+	public RetryingAsyncRequestExecutor(AsyncRequestExecutor delegate, RetryPolicy retryPolicy) {
+		this(delegate, retryPolicy, new TimeoutSettings());
+	}
+
+	/**
+	 * Create retrying executor
+	 *
+	 * @param delegate
+	 *            asynchronous request executor executing the requests
+	 * @param retryPolicy
+	 *            retry policy
+	 * @param timeoutSettings
+	 *            timeout settings with the request timeouts bounding the retries
+	 */
+	public RetryingAsyncRequestExecutor(AsyncRequestExecutor delegate, RetryPolicy retryPolicy,
+			TimeoutSettings timeoutSettings) {
+		super(delegate, retryPolicy, timeoutSettings);
+		this.asyncDelegate = delegate;
+		this.retryScheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "mambu-retry-scheduler");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	@Override
+	public <R> Future<R> executeRequestAsync(String urlString, ParamsMap params, ApiDefinition apiDefinition,
+			MambuApiCallback<R> callback) {
+
+		if (apiDefinition == null) {
+			throw new IllegalArgumentException("ApiDefinition cannot be NULL");
+		}
+		if (!isRepeatable(params)) {
+			return asyncDelegate.executeRequestAsync(urlString, params, apiDefinition, callback);
+		}
+		RetriedRequest<R> request = new RetriedRequest<R>(urlString, params, apiDefinition, callback);
+		request.execute();
+		return request.result;
+	}
+
+	@Override
+	public void shutdown() {
+		retryScheduler.shutdownNow();
+		super.shutdown();
+	}
+
+	/**
+	 * Asynchronous request with its attempts. Each attempt is started when the previous one failed with a retryable
+	 * error and its backoff elapsed
+	 */
+	private class RetriedRequest<R> {
+
+		private final String urlString;
+		private final ParamsMap params;
+		private final ApiDefinition apiDefinition;
+		private final MambuApiCallback<R> callback;
+		private final BasicFuture<R> result;
+		// Request timeout of the ApiDefinition bounding the retries
+		private final Deadline retryDeadline;
+
+		// Number of the current attempt and the total backoff for its retries
+		private volatile int attempt;
+		private volatile long totalBackoff;
+		// Current attempt or the scheduled retry
+		private volatile Future<?> current;
+		// Current span of the thread sending the request, for its retries
+		private final Span span = TraceContext.current();
+
+		private RetriedRequest(final String urlString, ParamsMap params, ApiDefinition apiDefinition,
+				final MambuApiCallback<R> callback) {
+			this.urlString = urlString;
+			this.params = params;
+			this.apiDefinition = apiDefinition;
+			this.callback = callback;
+			this.retryDeadline = timeoutSettings.getDeadline(apiDefinition, null);
+			this.result = new BasicFuture<R>(new FutureCallback<R>() {
+
+				@Override
+				public void completed(R decoded) {
+					// The callback is notified by the attempt
+				}
+
+				@Override
+				public void failed(Exception e) {
+					// The callback is notified by the attempt
+				}
+
+				@Override
+				public void cancelled() {
+					Future<?> pending = current;
+					if (pending != null) {
+						pending.cancel(true);
+					}
+					if (callback != null) {
+						try {
+							callback.onFailure(new MambuApiException(new CancellationException("Request was cancelled")));
+						} catch (RuntimeException e) {
+							LOGGER.log(Level.WARNING, "Callback failed for url=" + urlString, e);
+						}
+					}
+				}
+			});
+		}
+
+		/**
+		 * Start the next attempt
+		 */
+		private void execute() {
+			if (result.isDone()) {
+				return;
+			}
+			attempt++;
+			MambuApiCallback<R> attemptCallback = new MambuApiCallback<R>() {
+
+				@Override
+				public void onSuccess(R decoded) {
+					if (result.completed(decoded) && callback != null) {
+						try {
+							callback.onSuccess(decoded);
+						} catch (RuntimeException e) {
+							LOGGER.log(Level.WARNING, "Callback failed for url=" + urlString, e);
+						}
+					}
+				}
+
+				@Override
+				public void onFailure(MambuApiException exception) {
+					retryOrFail(exception);
+				}
+			};
+			setCurrent(asyncDelegate.executeRequestAsync(urlString, params, apiDefinition, attemptCallback));
+		}
+
+		/**
+		 * Set the current attempt or scheduled retry. If the request was cancelled before it was set, it is cancelled
+		 * here, as cancelled() didn't see it
+		 */
+		private void setCurrent(Future<?> pending) {
+			current = pending;
+			if (result.isCancelled()) {
+				pending.cancel(true);
+			}
+		}
+
+		private void retryOrFail(MambuApiException exception) {
+			if (!result.isDone()) {
+				long backoff = getRetryBackoff(apiDefinition.getMethod(), exception, attempt, totalBackoff);
+				if (backoff >= 0 && !expiresDuring(retryDeadline, backoff)) {
+					logRetry(urlString, exception, attempt, backoff);
+					totalBackoff += backoff;
+					try {
+						setCurrent(retryScheduler.schedule(TraceContext.wrap(new Runnable() {
+							@Override
+							public void run() {
+								execute();
+							}
+						}, span), backoff, TimeUnit.MILLISECONDS));
+						return;
+					} catch (RuntimeException e) {
+						// The executor was shut down. Report the last failure
+					}
+				}
+			}
+			if (result.failed(exception) && callback != null) {
+				try {
+					callback.onFailure(exception);
+				} catch (RuntimeException e) {
+					LOGGER.log(Level.WARNING, "Callback failed for url=" + urlString, e);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,279 @@
+package com.mambu.apisdk.util;
+
+import java.util.Random;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.mambu.apisdk.exception.MambuApiException;
+
+/**
+ * Request executor decorator retrying failed requests as specified by the RetryPolicy. It works with any
+ * RequestExecutor implementation. Use RetryingRequestExecutor.decorate() to keep the asynchronous execution of an
+ * AsyncRequestExecutor.
+ *
+ * No retry is made once the request's deadline or the request timeout of its ApiDefinition (see TimeoutSettings)
+ * would expire during the backoff: the request fails with the last failure instead.
+ *
+ * Retries are enabled for all services created with a MambuAPIModule by setting its retry policy:
+ * mambuAPIModule.setRetryPolicy(new RetryPolicy())
+ */
+public class RetryingRequestExecutor implements RequestExecutor {
+
+	private final static Logger LOGGER = Logger.getLogger(RetryingRequestExecutor.class.getName());
+
+	protected final RequestExecutor delegate;
+	protected final RetryPolicy retryPolicy;
+	protected final TimeoutSettings timeoutSettings;
+	// Random numbers for the backoff jitter
+	protected final Random random = new Random();
+
+	/**
+	 * Create retrying executor
+	 *
+	 * @param delegate
+	 *            request executor executing the requests
+	 * @param retryPolicy
+	 *            retry policy
+	 */
+	public RetryingRequestExecutor(RequestExecutor delegate, RetryPolicy retryPolicy) {
+		this(delegate, retryPolicy, new TimeoutSettings());
+	}
+
+	/**
+	 * Create retrying executor
+	 *
+	 * @param delegate
+	 *            request executor executing the requests
+	 * @param retryPolicy
+	 *            retry policy
+	 * @param timeoutSettings
+	 *            timeout settings with the request timeouts bounding the retries
+	 */
+	public RetryingRequestExecutor(RequestExecutor delegate, RetryPolicy retryPolicy, TimeoutSettings timeoutSettings) {
+		if (delegate == null || retryPolicy == null || timeoutSettings == null) {
+			throw new IllegalArgumentException("Request executor, retry policy and timeout settings must not be null");
+		}
+		this.delegate = delegate;
+		this.retryPolicy = retryPolicy;
+		this.timeoutSettings = timeoutSettings;
+	}
+
+	/**
+	 * Decorate the request executor with retries. The returned executor is an AsyncRequestExecutor if the delegate is
+	 * one
+	 *
+	 * @param delegate
+	 *            request executor executing the requests
+	 * @param retryPolicy
+	 *            retry policy
+	 * @return retrying request executor
+	 */
+	public static RetryingRequestExecutor decorate(RequestExecutor delegate, RetryPolicy retryPolicy) {
+		return decorate(delegate, retryPolicy, new TimeoutSettings());
+	}
+
+	/**
+	 * Decorate the request executor with retries bounded by the request timeouts of the timeout settings. The returned
+	 * executor is an AsyncRequestExecutor if the delegate is one
+	 *
+	 * @param delegate
+	 *            request executor executing the requests
+	 * @param retryPolicy
+	 *            retry policy
+	 * @param timeoutSettings
+	 *            timeout settings with the request timeouts bounding the retries
+	 * @return retrying request executor
+	 */
+	public static RetryingRequestExecutor decorate(RequestExecutor delegate, RetryPolicy retryPolicy,
+			TimeoutSettings timeoutSettings) {
+		if (delegate instanceof AsyncRequestExecutor) {
+			return new RetryingAsyncRequestExecutor((AsyncRequestExecutor) delegate, retryPolicy, timeoutSettings);
+		}
+		return new RetryingRequestExecutor(delegate, retryPolicy, timeoutSettings);
+	}
+
+	/**
+	 * A request to the delegate executor, which can be executed more than once
+	 */
+	private interface Request<R> {
+		R execute() throws MambuApiException;
+	}
+
+	@Override
+	public void setAuthorization(String username, String password) {
+		delegate.setAuthorization(username, password);
+	}
+
+	@Override
+	public String executeRequest(final String urlString, final Method method) throws MambuApiException {
+		return executeWithRetries(method, urlString, timeoutSettings.getDeadline(null, null), new Request<String>() {
+			@Override
+			public String execute() throws MambuApiException {
+				return delegate.executeRequest(urlString, method);
+			}
+		});
+	}
+
+	@Override
+	public String executeRequest(final String urlString, final ParamsMap params, final Method method)
+			throws MambuApiException {
+		return executeWithRetries(method, urlString, timeoutSettings.getDeadline(null, null), new Request<String>() {
+			@Override
+			public String execute() throws MambuApiException {
+				return delegate.executeRequest(urlString, params, method);
+			}
+		});
+	}
+
+	@Override
+	public String executeRequest(final String urlString, final Method method, final ContentType contentTypeFormat)
+			throws MambuApiException {
+		return executeWithRetries(method, urlString, timeoutSettings.getDeadline(null, null), new Request<String>() {
+			@Override
+			public String execute() throws MambuApiException {
+				return delegate.executeRequest(urlString, method, contentTypeFormat);
+			}
+		});
+	}
+
+	@Override
+	public String executeRequest(final String urlString, final ParamsMap params, final Method method,
+			final ContentType contentTypeFormat) throws MambuApiException {
+		return executeWithRetries(method, urlString, timeoutSettings.getDeadline(null, null), new Request<String>() {
+			@Override
+			public String execute() throws MambuApiException {
+				return delegate.executeRequest(urlString, params, method, contentTypeFormat);
+			}
+		});
+	}
+
+	@Override
+	public <R> R executeRequest(final String urlString, final ParamsMap params, final ApiDefinition apiDefinition)
+			throws MambuApiException {
+
+		if (apiDefinition == null) {
+			throw new IllegalArgumentException("ApiDefinition cannot be NULL");
+		}
+		if (!isRepeatable(params)) {
+			return delegate.executeRequest(urlString, params, apiDefinition);
+		}
+		Deadline retryDeadline = timeoutSettings.getDeadline(apiDefinition, null);
+		return executeWithRetries(apiDefinition.getMethod(), urlString, retryDeadline, new Request<R>() {
+			@Override
+			public R execute() throws MambuApiException {
+				return delegate.executeRequest(urlString, params, apiDefinition);
+			}
+		});
+	}
+
+	@Override
+	public <R> R executeRequest(final String urlString, final ParamsMap params, final ApiDefinition apiDefinition,
+			final Deadline deadline) throws MambuApiException {
+
+		if (apiDefinition == null) {
+			throw new IllegalArgumentException("ApiDefinition cannot be NULL");
+		}
+		if (!isRepeatable(params)) {
+			return delegate.executeRequest(urlString, params, apiDefinition, deadline);
+		}
+		Deadline retryDeadline = timeoutSettings.getDeadline(apiDefinition, deadline);
+		return executeWithRetries(apiDefinition.getMethod(), urlString, retryDeadline, new Request<R>() {
+			@Override
+			public R execute() throws MambuApiException {
+				return delegate.executeRequest(urlString, params, apiDefinition, deadline);
+			}
+		});
+	}
+
+	@Override
+	public void shutdown() {
+		delegate.shutdown();
+	}
+
+	/**
+	 * Execute the request, retrying it as specified by the retry policy. The calling thread sleeps during the backoff.
+	 * The request is not retried if its deadline would expire during the backoff
+	 */
+	private <R> R executeWithRetries(Method method, String urlString, Deadline retryDeadline, Request<R> request)
+			throws MambuApiException {
+
+		long totalBackoff = 0L;
+		for (int attempt = 1;; attempt++) {
+			try {
+				return request.execute();
+			} catch (MambuApiException e) {
+				long backoff = getRetryBackoff(method, e, attempt, totalBackoff);
+				if (backoff < 0 || Thread.currentThread().isInterrupted() || expiresDuring(retryDeadline, backoff)) {
+					throw e;
+				}
+				logRetry(urlString, e, attempt, backoff);
+				try {
+					Thread.sleep(backoff);
+				} catch (InterruptedException interrupted) {
+					Thread.currentThread().interrupt();
+					throw e;
+				}
+				totalBackoff += backoff;
+			}
+		}
+	}
+
+	/**
+	 * Check whether the request can be sent again. A request streaming its content from an input stream or decoding
+	 * its response into an output stream can't, as the stream was consumed or written by the failed attempt
+	 */
+	protected static boolean isRepeatable(ParamsMap params) {
+		if (params == null) {
+			return true;
+		}
+		DocumentContentSource contentSource = params.getDocumentContent();
+		DocumentContentSink contentSink = params.getDocumentContentSink();
+		return (contentSource == null || contentSource.isRepeatable())
+				&& (contentSink == null || contentSink.isRepeatable());
+	}
+
+	/**
+	 * Get the backoff before retrying the failed attempt
+	 *
+	 * @param method
+	 *            request's method
+	 * @param exception
+	 *            exception the attempt failed with
+	 * @param attempt
+	 *            number of the failed attempt, starting with one
+	 * @param totalBackoff
+	 *            total backoff for the previous retries of the request
+	 * @return backoff in milliseconds or -1 if the request must not be retried
+	 */
+	protected long getRetryBackoff(Method method, MambuApiException exception, int attempt, long totalBackoff) {
+
+		if (attempt >= retryPolicy.getMaxAttempts() || !retryPolicy.isRetryable(method, exception)) {
+			return -1L;
+		}
+		long backoff = retryPolicy.getBackoffMillis(attempt, exception, random);
+		if (totalBackoff + backoff > retryPolicy.getRetryBudgetMillis()) {
+			return -1L;
+		}
+		return backoff;
+	}
+
+	/**
+	 * Check whether the deadline bounding the retries expires before the backoff elapsed
+	 *
+	 * @param retryDeadline
+	 *            deadline of the request or null if it has none
+	 * @param backoff
+	 *            backoff in milliseconds
+	 * @return true if the request must not be retried
+	 */
+	protected static boolean expiresDuring(Deadline retryDeadline, long backoff) {
+		return retryDeadline != null && backoff >= retryDeadline.getRemainingMillis();
+	}
+
+	protected static void logRetry(String urlString, MambuApiException exception, int attempt, long backoff) {
+		if (LOGGER.isLoggable(Level.INFO)) {
+			LOGGER.info("Attempt " + attempt + " failed with error code=" + exception.getErrorCode() + " for url="
+					+ urlString + ". Retrying in " + backoff + " ms");
+		}
+	}
+}
@@ -0,0 +1,91 @@
+package com.mambu.apisdk.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Span exporter keeping the most recent spans in memory, for tests and local analysis. Once the buffer is full each
+ * exported span replaces the oldest one. Exporting is lock free
+ */
+public class RingBufferSpanExporter implements SpanExporter {
+
+	private final AtomicReferenceArray<Span> spans;
+	// Number of the spans exported so far
+	private final AtomicLong exported = new AtomicLong();
+
+	/**
+	 * Create the exporter
+	 *
+	 * @param capacity
+	 *            maximum number of spans kept. Must be greater than zero
+	 */
+	public RingBufferSpanExporter(int capacity) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("Capacity must be greater than zero");
+		}
+		this.spans = new AtomicReferenceArray<Span>(capacity);
+	}
+
+	@Override
+	public void export(Span span) {
+		long index = exported.getAndIncrement();
+		spans.set((int) (index % spans.length()), span);
+	}
+
+	/**
+	 * Get the spans kept in the buffer
+	 *
+	 * @return spans in the order they were exported, the oldest first
+	 */
+	public List<Span> getSpans() {
+		long end = exported.get();
+		long start = Math.max(0L, end - spans.length());
+		List<Span> list = new ArrayList<Span>((int) (end - start));
+		for (long i = start; i < end; i++) {
+			Span span = spans.get((int) (i % spans.length()));
+			if (span != null) {
+				list.add(span);
+			}
+		}
+		return list;
+	}
+
+	/**
+	 * Get the spans of a trace kept in the buffer
+	 *
+	 * @param traceId
+	 *            trace id
+	 * @return spans of the trace in the order they were exported
+	 */
+	public List<Span> getSpans(String traceId) {
+		List<Span> list = new ArrayList<Span>();
+		for (Span span : getSpans()) {
+			if (span.getTraceId().equals(traceId)) {
+				list.add(span);
+			}
+		}
+		return list;
+	}
+
+	/**
+	 * Get the number of spans exported so far, including the ones no longer kept
+	 */
+	public long getExportedSpans() {
+		return exported.get();
+	}
+
+	public int getCapacity() {
+		return spans.length();
+	}
+
+	/**
+	 * Remove the spans kept in the buffer
+	 */
+	public void clear() {
+		for (int i = 0; i < spans.length(); i++) {
+			spans.set(i, null);
+		}
+	}
+}
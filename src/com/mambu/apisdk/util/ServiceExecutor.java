@@ -1,22 +1,24 @@
 package com.mambu.apisdk.util;
 
 import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.Future;
 
 import com.google.gson.reflect.TypeToken;
 import com.google.inject.Inject;
+import com.mambu.accounting.shared.model.GLJournalEntry;
 import com.mambu.accounts.shared.model.TransactionChannel;
 import com.mambu.api.server.handler.activityfeed.model.JSONActivity;
 import com.mambu.api.server.handler.savings.model.JSONSavingsAccount;
 import com.mambu.apisdk.MambuAPIService;
 import com.mambu.apisdk.exception.MambuApiException;
-import com.mambu.apisdk.exception.MambuApiResponseMessage;
 import com.mambu.apisdk.model.LoanAccountExpanded;
-import com.mambu.apisdk.util.ApiDefinition.ApiReturnFormat;
-import com.mambu.apisdk.util.RequestExecutor.ContentType;
-import com.mambu.apisdk.util.RequestExecutor.Method;
 import com.mambu.clients.shared.model.Client;
 import com.mambu.clients.shared.model.ClientExpanded;
 import com.mambu.clients.shared.model.Group;
@@ -100,7 +102,9 @@ public class ServiceExecutor {
 	}
 
 	/****
-	 * Execute API Request using its ApiDefinition and supplied input data
+	 * Execute API Request using its ApiDefinition and supplied input data. If ApiCallListeners are registered, a
+	 * SERVICE_CALL ApiCallEvent is fired when the request returns (see ApiCallEvents). If the calling thread has a
+	 * current span (see TraceContext), the request is traced in a child span of it
 	 * 
 	 * @param apiDefinition
 	 *            API definition for the request
@@ -115,61 +119,73 @@ public class ServiceExecutor {
 	 * 
 	 * @throws MambuApiException
 	 */
-	@SuppressWarnings("unchecked")
 	public <R> R execute(ApiDefinition apiDefinition, String objectId, String relatedEntityId, ParamsMap paramsMap)
 			throws MambuApiException {
 
+		Deadline deadline = null;
+		return execute(apiDefinition, objectId, relatedEntityId, paramsMap, deadline);
+	}
+
+	/****
+	 * Execute API Request using its ApiDefinition and supplied input data. The request must complete by the deadline:
+	 * it is aborted when the remaining time is spent, including the time spent waiting for the rate limiter and for
+	 * the retries
+	 * 
+	 * @param apiDefinition
+	 *            API definition for the request
+	 * @param objectId
+	 *            api's object id (optional, must be null if not used)
+	 * @param relatedEntityId
+	 *            an id of the relatedEntity (optional, must be null if not used)
+	 * @param paramsMap
+	 *            map with API parameters
+	 * @param deadline
+	 *            deadline for the request, e.g. Deadline.after(5, TimeUnit.SECONDS). Null if the request is bounded
+	 *            only by the configured TimeoutSettings
+	 * 
+	 * @return object result object, which will be an API specific object or a list of objects
+	 * 
+	 * @throws MambuApiException
+	 *             if the request failed or missed its deadline (the exception is caused by a TimeoutException)
+	 */
+	public <R> R execute(ApiDefinition apiDefinition, String objectId, String relatedEntityId, ParamsMap paramsMap,
+			Deadline deadline) throws MambuApiException {
+
 		if (apiDefinition == null) {
 			throw new IllegalArgumentException("ApiDefinition cannot be NULL");
-
 		}
 
-		// Create URL for this API request using specification in its apiDefintion and input IDs
-		String apiUrlPath = getApiPath(apiDefinition, objectId, relatedEntityId);
-
-		// Add full details parameter if required by apiDefintion specification
-		if (apiDefinition.getWithFullDetails()) {
-			if (paramsMap == null) {
-				paramsMap = new ParamsMap();
+		// Trace the request in a child span of the current span, if the calling thread is tracing
+		long start = System.nanoTime();
+		Span span = startSpan(apiDefinition);
+		Span previousSpan = (span == null) ? null : TraceContext.attach(span);
+		ApiCallEvent serviceCall = null;
+		MambuApiException failure = null;
+		try {
+			// Create URL for this API request using specification in its apiDefintion and input IDs
+			String apiUrlPath = getApiPath(apiDefinition, objectId, relatedEntityId);
+
+			// Add full details parameter if required by apiDefintion specification
+			paramsMap = addFullDetailsParam(apiDefinition, paramsMap);
+			recordUrlBuild(span, apiUrlPath, start);
+
+			// Execute Request. Method, ContentType and the expected result are specified by the apiDefintion. The
+			// response is decoded into the apiDefintion's return type while it is being read
+			serviceCall = ApiCallEvents.startServiceCall(apiDefinition, apiUrlPath);
+			if (deadline == null) {
+				return mambuAPIService.executeRequest(apiUrlPath, paramsMap, apiDefinition);
+			}
+			return mambuAPIService.executeRequest(apiUrlPath, paramsMap, apiDefinition, deadline);
+		} catch (MambuApiException e) {
+			failure = e;
+			throw e;
+		} finally {
+			ApiCallEvents.endServiceCall(serviceCall, failure);
+			if (span != null) {
+				TraceContext.detach(previousSpan);
+				span.end(failure);
 			}
-			paramsMap.put(APIData.FULL_DETAILS, "true");
-		}
-
-		// Execute Request. Get Method and ContentType from the apiDefintion
-		Method method = apiDefinition.getMethod();
-		ContentType contentType = apiDefinition.getContentType();
-
-		// Use mambuAPIService to execute request
-		String jsonResponse = mambuAPIService.executeRequest(apiUrlPath, paramsMap, method, contentType);
-
-		// Process API Response. Get the return format and returnClass from the apiDefintion
-		Class<?> returnClass = apiDefinition.getReturnClass();
-		ApiReturnFormat returnFormat = apiDefinition.getApiReturnFormat();
-
-		R result = null;
-		switch (returnFormat) {
-		case OBJECT:
-			// Get Single Object from the response
-			result = getObject(jsonResponse, returnClass);
-			break;
-		case COLLECTION:
-			// Get a list of Objects from the response
-			Type collectionType = getCollectionType(returnClass);
-			// Get result as a collection
-			result = getCollection(jsonResponse, collectionType);
-			break;
-		case BOOLEAN:
-			// Get result as a boolean
-			result = (R) getBoolean(jsonResponse);
-			break;
-		case RESPONSE_STRING:
-			// Return the response string as is, with no additional processing.
-			// This can be used for the services to perform any subsequent processing or for such APIs as getDocument()
-			result = (R) jsonResponse;
-			break;
 		}
-
-		return result;
 	}
 
 	/****
@@ -247,6 +263,218 @@ public class ServiceExecutor {
 		return execute(apiDefinition, objectId, paramsMap);
 	}
 
+	/****
+	 * Execute API Request asynchronously using its ApiDefinition and supplied input data. The URL for the request is
+	 * created and validated by the calling thread, the request itself is executed by the AsyncExecutor. The paramsMap
+	 * must not be modified by the caller until the request completes. If the calling thread has a current span (see
+	 * TraceContext), the request is traced in a child span of it, ended when the request completes
+	 * 
+	 * @param apiDefinition
+	 *            API definition for the request
+	 * @param objectId
+	 *            api's object id (optional, must be null if not used)
+	 * @param relatedEntityId
+	 *            an id of the relatedEntity (optional, must be null if not used)
+	 * @param paramsMap
+	 *            map with API parameters
+	 * @param callback
+	 *            callback to be notified when the request completes (optional, can be null)
+	 * 
+	 * @return future for the result object, which will be an API specific object or a list of objects
+	 */
+	public <R> Future<R> executeAsync(ApiDefinition apiDefinition, String objectId, String relatedEntityId,
+			ParamsMap paramsMap, MambuApiCallback<R> callback) {
+
+		if (apiDefinition == null) {
+			throw new IllegalArgumentException("ApiDefinition cannot be NULL");
+		}
+
+		// Create URL and params for this API request, as for the synchronous requests
+		long start = System.nanoTime();
+		String apiUrlPath = getApiPath(apiDefinition, objectId, relatedEntityId);
+		ParamsMap params = addFullDetailsParam(apiDefinition, paramsMap);
+
+		final Span span = startSpan(apiDefinition);
+		if (span == null) {
+			return mambuAPIService.executeRequestAsync(apiUrlPath, params, apiDefinition, callback);
+		}
+		recordUrlBuild(span, apiUrlPath, start);
+		// The span is the current span while the request is started, so it is carried over to the request's threads
+		Span previousSpan = TraceContext.attach(span);
+		try {
+			return mambuAPIService.executeRequestAsync(apiUrlPath, params, apiDefinition, new TracedCallback<R>(
+					span, callback));
+		} catch (RuntimeException e) {
+			span.setError();
+			span.end();
+			throw e;
+		} finally {
+			TraceContext.detach(previousSpan);
+		}
+	}
+
+	/****
+	 * Convenience method to execute API Request asynchronously without relatedEntityId parameter
+	 * 
+	 * @param apiDefinition
+	 *            API definition for the request
+	 * @param objectId
+	 *            api's object id (optional, must be null if not used)
+	 * @param paramsMap
+	 *            map with API parameters
+	 * @param callback
+	 *            callback to be notified when the request completes (optional, can be null)
+	 * 
+	 * @return future for the result object, which will be an API specific object or a list of objects
+	 */
+	public <R> Future<R> executeAsync(ApiDefinition apiDefinition, String objectId, ParamsMap paramsMap,
+			MambuApiCallback<R> callback) {
+		String relatedEntityId = null;
+		return executeAsync(apiDefinition, objectId, relatedEntityId, paramsMap, callback);
+	}
+
+	/****
+	 * Convenience method to execute API Request asynchronously using its ApiDefinition and object ID
+	 * 
+	 * @param apiDefinition
+	 *            API definition for the request
+	 * @param objectId
+	 *            api's object id (optional, must be null if not used)
+	 * @param callback
+	 *            callback to be notified when the request completes (optional, can be null)
+	 * 
+	 * @return future for the result object, which will be an API specific object or a list of objects
+	 */
+	public <R> Future<R> executeAsync(ApiDefinition apiDefinition, String objectId, MambuApiCallback<R> callback) {
+		ParamsMap paramsMap = null;
+		return executeAsync(apiDefinition, objectId, paramsMap, callback);
+	}
+
+	/****
+	 * Convenience method to execute API Request asynchronously using its ApiDefinition and params map
+	 * 
+	 * @param apiDefinition
+	 *            API definition for the request
+	 * @param paramsMap
+	 *            map with API parameters
+	 * @param callback
+	 *            callback to be notified when the request completes (optional, can be null)
+	 * 
+	 * @return future for the result object, which will be an API specific object or a list of objects
+	 */
+	public <R> Future<R> executeAsync(ApiDefinition apiDefinition, ParamsMap paramsMap, MambuApiCallback<R> callback) {
+		String objectId = null;
+		return executeAsync(apiDefinition, objectId, paramsMap, callback);
+	}
+
+	/****
+	 * Execute a paginated API Request using its ApiDefinition and supplied input data. Returns an iterator over all
+	 * entities, requesting them page by page with the offset and limit parameters. The next page is requested in the
+	 * background while the current one is processed
+	 * 
+	 * @param apiDefinition
+	 *            API definition for the request. Must return a collection
+	 * @param objectId
+	 *            api's object id (optional, must be null if not used)
+	 * @param paramsMap
+	 *            map with API parameters, excluding offset and limit (optional, can be null)
+	 * @param pageSize
+	 *            number of entities requested with each request. Must be greater than zero
+	 * 
+	 * @return iterator over the entities returned by the API request
+	 */
+	public <T> PagingIterator<T> executePaged(ApiDefinition apiDefinition, String objectId, ParamsMap paramsMap,
+			int pageSize) {
+		final int offset = 0;
+		return new PagingIterator<T>(this, apiDefinition, objectId, paramsMap, offset, pageSize);
+	}
+
+	/****
+	 * Convenience method to execute a paginated API Request using its ApiDefinition and params map
+	 * 
+	 * @param apiDefinition
+	 *            API definition for the request. Must return a collection
+	 * @param paramsMap
+	 *            map with API parameters, excluding offset and limit (optional, can be null)
+	 * @param pageSize
+	 *            number of entities requested with each request. Must be greater than zero
+	 * 
+	 * @return iterator over the entities returned by the API request
+	 */
+	public <T> PagingIterator<T> executePaged(ApiDefinition apiDefinition, ParamsMap paramsMap, int pageSize) {
+		String objectId = null;
+		return executePaged(apiDefinition, objectId, paramsMap, pageSize);
+	}
+
+	/****
+	 * Execute a paginated API Request with several page requests in flight at the same time. The first page is
+	 * requested alone, if it is full the following pages are requested concurrently until a short page is received.
+	 * Pages are passed to the consumer as they arrive, not necessarily in the offset order
+	 * 
+	 * @param apiDefinition
+	 *            API definition for the request. Must return a collection
+	 * @param objectId
+	 *            api's object id (optional, must be null if not used)
+	 * @param paramsMap
+	 *            map with API parameters, excluding offset and limit (optional, can be null)
+	 * @param pageSize
+	 *            number of entities requested with each request. Must be greater than zero
+	 * @param parallelism
+	 *            maximum number of page requests in flight. Must be greater than zero. The requests in flight are also
+	 *            limited by the AsyncExecutionSettings
+	 * @param consumer
+	 *            consumer for the pages. Invoked on the calling thread
+	 * 
+	 * @throws MambuApiException
+	 */
+	public <T> void executePagedInParallel(ApiDefinition apiDefinition, String objectId, ParamsMap paramsMap,
+			int pageSize, int parallelism, PageConsumer<T> consumer) throws MambuApiException {
+		new ParallelPageFetcher<T>(this, apiDefinition, objectId, paramsMap, pageSize, parallelism).fetch(consumer);
+	}
+
+	/****
+	 * Execute a paginated API Request with several page requests in flight at the same time and return all entities
+	 * in the offset order. All entities are held in memory, use executePagedInParallel() with a PageConsumer to process
+	 * the pages as they arrive instead
+	 * 
+	 * @param apiDefinition
+	 *            API definition for the request. Must return a collection
+	 * @param objectId
+	 *            api's object id (optional, must be null if not used)
+	 * @param paramsMap
+	 *            map with API parameters, excluding offset and limit (optional, can be null)
+	 * @param pageSize
+	 *            number of entities requested with each request. Must be greater than zero
+	 * @param parallelism
+	 *            maximum number of page requests in flight. Must be greater than zero
+	 * 
+	 * @return list of all entities returned by the API request
+	 * 
+	 * @throws MambuApiException
+	 */
+	public <T> List<T> executeAllPagesInParallel(ApiDefinition apiDefinition, String objectId, ParamsMap paramsMap,
+			int pageSize, int parallelism) throws MambuApiException {
+
+		final SortedMap<Integer, List<T>> pages = new TreeMap<Integer, List<T>>();
+		executePagedInParallel(apiDefinition, objectId, paramsMap, pageSize, parallelism, new PageConsumer<T>() {
+
+			@Override
+			public void onPage(int offset, List<T> page) {
+				pages.put(offset, page);
+			}
+		});
+
+		int size = 0;
+		for (List<T> page : pages.values()) {
+			size += page.size();
+		}
+		List<T> entities = new ArrayList<T>(size);
+		for (List<T> page : pages.values()) {
+			entities.addAll(page);
+		}
+		return entities;
+	}
+
 	/****
 	 * Execute API JSON Post Request using its ApiDefinition and supplied input data. Used for JSON create and update
 	 * requests.
@@ -270,13 +498,11 @@ public class ServiceExecutor {
 			throw new IllegalArgumentException("JSON object must not be NULL");
 		}
 
-		// Parse input object into a JSON string
+		// Add input object to the ParamsMap. It is serialized into JSON straight to the connection while the request is
+		// sent, without making a JSON string
 		final String dateTimeFormat = apiDefinition.getJsonDateTimeFormat();
-		final String jsonData = ServiceHelper.makeApiJson(object, dateTimeFormat);
-
-		// Add JSON string as JSON_OBJECT to the ParamsMap
 		ParamsMap paramsMap = new ParamsMap();
-		paramsMap.put(APIData.JSON_OBJECT, jsonData);
+		paramsMap.setJsonObject(object, dateTimeFormat);
 
 		// Execute this request with apiDefintion, objectId, relatedEntityId and paramsMap
 		return execute(apiDefinition, objectId, relatedEntityId, paramsMap);
@@ -321,6 +547,60 @@ public class ServiceExecutor {
 	}
 
 	// // Private Helper methods ////
+	/****
+	 * Start the span of an API request as a child of the current span
+	 * 
+	 * @param apiDefinition
+	 *            Api Definition for the API request
+	 * @return span or null if the calling thread has no current span
+	 */
+	private static Span startSpan(ApiDefinition apiDefinition) {
+		Span parent = TraceContext.current();
+		if (parent == null) {
+			return null;
+		}
+		Span span = parent.startChild(apiDefinition.toString());
+		span.setAttribute("apiType", apiDefinition.getApiType().name());
+		return span;
+	}
+
+	private static void recordUrlBuild(Span span, String apiUrlPath, long startNanos) {
+		if (span != null) {
+			span.addPhaseNanos(Span.Phase.URL_BUILD, System.nanoTime() - startNanos);
+			span.setAttribute("url", ApiCallEvent.getPath(apiUrlPath));
+		}
+	}
+
+	/****
+	 * Callback ending the span of an asynchronous API request before notifying the application's callback
+	 */
+	private static class TracedCallback<R> implements MambuApiCallback<R> {
+
+		private final Span span;
+		private final MambuApiCallback<R> callback;
+
+		private TracedCallback(Span span, MambuApiCallback<R> callback) {
+			this.span = span;
+			this.callback = callback;
+		}
+
+		@Override
+		public void onSuccess(R result) {
+			span.end(null);
+			if (callback != null) {
+				callback.onSuccess(result);
+			}
+		}
+
+		@Override
+		public void onFailure(MambuApiException exception) {
+			span.end(exception);
+			if (callback != null) {
+				callback.onFailure(exception);
+			}
+		}
+	}
+
 	/****
 	 * Get URL path for the API request based on the request's ApiDefinition. The URL path is created to comply with the
 	 * following URL path pattern: endPoint/objectId/relatedEntity. ApiDefinition for the request determines which URL
@@ -367,138 +647,118 @@ public class ServiceExecutor {
 	}
 
 	/****
-	 * Get Object represented by Mambu's JSON response string
-	 * 
-	 * @param jsonResponse
-	 *            JSON response string
-	 * @param objectClass
-	 *            class representing this object
-	 * @return object the returned object can be cast to the objectClass by the calling methods
-	 */
-	@SuppressWarnings("unchecked")
-	private <R> R getObject(String jsonResponse, Class<?> objectClass) {
-		return (R) GsonUtils.createGson().fromJson(jsonResponse, objectClass);
-	}
-
-	/****
-	 * Get a list of Objects represented by Mambu's JSON response string
-	 * 
-	 * @param jsonResponse
-	 *            JSON response string
-	 * @param collectionType
-	 *            collection type representing the list of objects
-	 * 
-	 * @return object this object represents a list of entities and must be case to the object's list type
-	 */
-	private <R> R getCollection(String jsonResponse, Type collectionType) {
-		return GsonUtils.createGson().fromJson(jsonResponse, collectionType);
-	}
-
-	/****
-	 * Get a boolean value represented by Mambu's response string
-	 * 
-	 * @param jsonResponse
-	 *            JSON response string
+	 * Add the full details parameter to the params map, if required by the API definition
 	 * 
+	 * @param apiDefinition
+	 *            Api Definition for the API request
+	 * @param paramsMap
+	 *            map with API parameters. Can be null
+	 * @return params map for the request
 	 */
-	private Boolean getBoolean(String jsonResponse) {
-
-		MambuApiResponseMessage response = new MambuApiResponseMessage(jsonResponse);
-		if (response.getReturnCode() == 0) {
-			return true;
+	private ParamsMap addFullDetailsParam(ApiDefinition apiDefinition, ParamsMap paramsMap) {
+		if (apiDefinition.getWithFullDetails()) {
+			if (paramsMap == null) {
+				paramsMap = new ParamsMap();
+			}
+			paramsMap.put(APIData.FULL_DETAILS, "true");
 		}
-		return false;
+		return paramsMap;
 	}
 
 	// Collection Types Map: it maps Mambu class T to its List<T> type (TypeToken<List<T>>(){}.getType())
 	// New entries shall be added to this map when creating wrappers returning lists for classes not present in this map
 	private final static Map<Class<?>, Type> collectionTypesMap;
 	static {
-		collectionTypesMap = new HashMap<Class<?>, Type>();
+		Map<Class<?>, Type> typesMap = new HashMap<Class<?>, Type>();
 		// Client
-		collectionTypesMap.put(Client.class, new TypeToken<List<Client>>() {
+		typesMap.put(Client.class, new TypeToken<List<Client>>() {
 		}.getType());
 		// ClientExpanded
-		collectionTypesMap.put(ClientExpanded.class, new TypeToken<List<ClientExpanded>>() {
+		typesMap.put(ClientExpanded.class, new TypeToken<List<ClientExpanded>>() {
 		}.getType());
 		// Group
-		collectionTypesMap.put(Group.class, new TypeToken<List<Group>>() {
+		typesMap.put(Group.class, new TypeToken<List<Group>>() {
 		}.getType());
 		// GroupExpanded
-		collectionTypesMap.put(GroupExpanded.class, new TypeToken<List<GroupExpanded>>() {
+		typesMap.put(GroupExpanded.class, new TypeToken<List<GroupExpanded>>() {
 		}.getType());
 		// LoanAccount
-		collectionTypesMap.put(LoanAccount.class, new TypeToken<List<LoanAccount>>() {
+		typesMap.put(LoanAccount.class, new TypeToken<List<LoanAccount>>() {
 		}.getType());
 		// LoanAccountExpanded
-		collectionTypesMap.put(LoanAccountExpanded.class, new TypeToken<List<LoanAccountExpanded>>() {
+		typesMap.put(LoanAccountExpanded.class, new TypeToken<List<LoanAccountExpanded>>() {
 		}.getType());
 		// LoanTransaction
-		collectionTypesMap.put(LoanTransaction.class, new TypeToken<List<LoanTransaction>>() {
+		typesMap.put(LoanTransaction.class, new TypeToken<List<LoanTransaction>>() {
 		}.getType());
 		// SavingsAccount
-		collectionTypesMap.put(SavingsAccount.class, new TypeToken<List<SavingsAccount>>() {
+		typesMap.put(SavingsAccount.class, new TypeToken<List<SavingsAccount>>() {
 		}.getType());
 		// JSONSavingsAccount
-		collectionTypesMap.put(JSONSavingsAccount.class, new TypeToken<List<JSONSavingsAccount>>() {
+		typesMap.put(JSONSavingsAccount.class, new TypeToken<List<JSONSavingsAccount>>() {
 		}.getType());
 		// SavingsTransaction
-		collectionTypesMap.put(SavingsTransaction.class, new TypeToken<List<SavingsTransaction>>() {
+		typesMap.put(SavingsTransaction.class, new TypeToken<List<SavingsTransaction>>() {
 		}.getType());
 		// Repayment
-		collectionTypesMap.put(Repayment.class, new TypeToken<List<Repayment>>() {
+		typesMap.put(Repayment.class, new TypeToken<List<Repayment>>() {
 		}.getType());
 		// LoanProduct
-		collectionTypesMap.put(LoanProduct.class, new TypeToken<List<LoanProduct>>() {
+		typesMap.put(LoanProduct.class, new TypeToken<List<LoanProduct>>() {
 		}.getType());
 		// SavingsProduct
-		collectionTypesMap.put(SavingsProduct.class, new TypeToken<List<SavingsProduct>>() {
+		typesMap.put(SavingsProduct.class, new TypeToken<List<SavingsProduct>>() {
 		}.getType());
 		// Branch
-		collectionTypesMap.put(Branch.class, new TypeToken<List<Branch>>() {
+		typesMap.put(Branch.class, new TypeToken<List<Branch>>() {
 		}.getType());
 		// Centre
-		collectionTypesMap.put(Centre.class, new TypeToken<List<Centre>>() {
+		typesMap.put(Centre.class, new TypeToken<List<Centre>>() {
 		}.getType());
 		// User
-		collectionTypesMap.put(User.class, new TypeToken<List<User>>() {
+		typesMap.put(User.class, new TypeToken<List<User>>() {
 		}.getType());
 		// Currency
-		collectionTypesMap.put(Currency.class, new TypeToken<List<Currency>>() {
+		typesMap.put(Currency.class, new TypeToken<List<Currency>>() {
 		}.getType());
 		// CustomFieldSet
-		collectionTypesMap.put(CustomFieldSet.class, new TypeToken<List<CustomFieldSet>>() {
+		typesMap.put(CustomFieldSet.class, new TypeToken<List<CustomFieldSet>>() {
 		}.getType());
 		// CustomField
-		collectionTypesMap.put(CustomField.class, new TypeToken<List<CustomField>>() {
+		typesMap.put(CustomField.class, new TypeToken<List<CustomField>>() {
 		}.getType());
 		// Task
-		collectionTypesMap.put(Task.class, new TypeToken<List<Task>>() {
+		typesMap.put(Task.class, new TypeToken<List<Task>>() {
 		}.getType());
 		// CustomView
-		collectionTypesMap.put(CustomView.class, new TypeToken<List<CustomView>>() {
+		typesMap.put(CustomView.class, new TypeToken<List<CustomView>>() {
 		}.getType());
 		// JSONActivity
-		collectionTypesMap.put(JSONActivity.class, new TypeToken<List<JSONActivity>>() {
+		typesMap.put(JSONActivity.class, new TypeToken<List<JSONActivity>>() {
 		}.getType());
 		// Document
-		collectionTypesMap.put(Document.class, new TypeToken<List<Document>>() {
+		typesMap.put(Document.class, new TypeToken<List<Document>>() {
 		}.getType());
 		// TransactionChannel
-		collectionTypesMap.put(TransactionChannel.class, new TypeToken<List<TransactionChannel>>() {
+		typesMap.put(TransactionChannel.class, new TypeToken<List<TransactionChannel>>() {
 		}.getType());
 		// SearchResult. Note Search API returns Map<SearchResult.Type, List<SearchResult>>
-		collectionTypesMap.put(SearchResult.class, new TypeToken<Map<SearchResult.Type, List<SearchResult>>>() {
+		typesMap.put(SearchResult.class, new TypeToken<Map<SearchResult.Type, List<SearchResult>>>() {
 		}.getType());
 		// Indicator. Note Indicator API returns HashMap<String, String>
-		collectionTypesMap.put(Indicator.class, new TypeToken<HashMap<String, String>>() {
+		typesMap.put(Indicator.class, new TypeToken<HashMap<String, String>>() {
 		}.getType());
 		// ClientRole
-		collectionTypesMap.put(ClientRole.class, new TypeToken<List<ClientRole>>() {
+		typesMap.put(ClientRole.class, new TypeToken<List<ClientRole>>() {
 		}.getType());
 		// Group Role
-		collectionTypesMap.put(GroupRoleName.class, new TypeToken<List<GroupRoleName>>() {
+		typesMap.put(GroupRoleName.class, new TypeToken<List<GroupRoleName>>() {
 		}.getType());
+		// GLJournalEntry
+		typesMap.put(GLJournalEntry.class, new TypeToken<List<GLJournalEntry>>() {
+		}.getType());
+
+		collectionTypesMap = Collections.unmodifiableMap(typesMap);
 	}
 
 	//
@@ -14,6 +14,7 @@ import com.mambu.accounts.shared.model.TransactionChannel.ChannelField;
 import com.mambu.accounts.shared.model.TransactionDetails;
 import com.mambu.api.server.handler.documents.model.JSONDocument;
 import com.mambu.core.shared.model.CustomFieldValue;
+import com.mambu.docs.shared.model.Document;
 import com.mambu.loans.shared.model.LoanAccount;
 
 /**
@@ -242,6 +243,33 @@ public class ServiceHelper {
 		return paramsMap;
 	}
 
+	/***
+	 * Create ParamsMap for uploading a document whose content is streamed from a file or a stream. The JSON string
+	 * holds the Document object with an empty documentContent value; the content is base64 encoded into that value
+	 * while the request is sent, so the memory used doesn't grow with the size of the document
+	 * 
+	 * @param document
+	 *            document metadata
+	 * @param documentContent
+	 *            source of the document content
+	 * @return params map with the document JSON string and the document content
+	 */
+	public static ParamsMap makeParamsForDocumentJson(Document document, DocumentContentSource documentContent) {
+
+		if (document == null || documentContent == null) {
+			throw new IllegalArgumentException("Document and document content must not be null");
+		}
+		JSONDocument jsonDocument = new JSONDocument();
+		jsonDocument.setDocument(document);
+		jsonDocument.setDocumentContent("");
+
+		ParamsMap paramsMap = new ParamsMap();
+		paramsMap.put(APIData.JSON_OBJECT, makeApiJson(jsonDocument));
+		paramsMap.setDocumentContent(documentContent);
+
+		return paramsMap;
+	}
+
 	/**
 	 * Get Base64 encoded content from the API message containing bas64 encoding indicator and base64 encoded content
 	 * 
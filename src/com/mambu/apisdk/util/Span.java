@@ -0,0 +1,186 @@
+package com.mambu.apisdk.util;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.mambu.apisdk.exception.MambuApiException;
+
+/**
+ * Timed operation of a trace, created by a Tracer. The spans of the API calls made while a span is the current span of
+ * the thread (see TraceContext) are created as its children: a span for each ServiceExecutor call with a child span for
+ * each HTTP request sent for it. The API call spans record the time spent in the phases of the call. A span is passed
+ * to the tracer's SpanExporter when it ends
+ */
+public class Span {
+
+	/**
+	 * Phases of an API call
+	 */
+	public enum Phase {
+		// Building the URL of the API call
+		URL_BUILD,
+		// Encoding the params of the request
+		SERIALIZATION,
+		// Sending the request and waiting for the response headers, including connecting
+		NETWORK,
+		// Reading and decoding the response
+		PARSE
+	}
+
+	private final Tracer tracer;
+	private final String traceId;
+	private final String spanId;
+	private final String parentSpanId;
+	private final String name;
+	private final long startTimeMillis;
+	private final long startNanos;
+	private final Map<String, String> attributes = new LinkedHashMap<String, String>();
+	private final AtomicLongArray phaseNanos = new AtomicLongArray(Phase.values().length);
+	private volatile long durationNanos = -1L;
+	private volatile boolean error;
+
+	Span(Tracer tracer, String traceId, String spanId, String parentSpanId, String name) {
+		this.tracer = tracer;
+		this.traceId = traceId;
+		this.spanId = spanId;
+		this.parentSpanId = parentSpanId;
+		this.name = name;
+		this.startTimeMillis = System.currentTimeMillis();
+		this.startNanos = System.nanoTime();
+	}
+
+	/**
+	 * Start a child span of this span
+	 *
+	 * @param name
+	 *            name of the child span
+	 * @return child span
+	 */
+	public Span startChild(String name) {
+		return tracer.startSpan(name, this);
+	}
+
+	/**
+	 * Set an attribute of the span, e.g. "clientId"
+	 *
+	 * @param key
+	 *            attribute key
+	 * @param value
+	 *            attribute value
+	 */
+	public void setAttribute(String key, String value) {
+		synchronized (attributes) {
+			attributes.put(key, value);
+		}
+	}
+
+	/**
+	 * Mark the span as failed
+	 */
+	public void setError() {
+		error = true;
+	}
+
+	/**
+	 * End the span and export it. Ending a span again has no effect
+	 */
+	public void end() {
+		synchronized (this) {
+			if (isEnded()) {
+				return;
+			}
+			durationNanos = System.nanoTime() - startNanos;
+		}
+		tracer.export(this);
+	}
+
+	/**
+	 * End the span of an API call
+	 *
+	 * @param failure
+	 *            exception the call failed with or null if it succeeded
+	 */
+	void end(MambuApiException failure) {
+		if (failure != null) {
+			setError();
+			setAttribute("error", String.valueOf(failure.getErrorCode()));
+		}
+		end();
+	}
+
+	void addPhaseNanos(Phase phase, long nanos) {
+		phaseNanos.addAndGet(phase.ordinal(), nanos);
+	}
+
+	public Tracer getTracer() {
+		return tracer;
+	}
+
+	/**
+	 * Get the id of the trace, shared by all spans of the trace
+	 */
+	public String getTraceId() {
+		return traceId;
+	}
+
+	public String getSpanId() {
+		return spanId;
+	}
+
+	/**
+	 * Get the id of the parent span or null for the root span of the trace
+	 */
+	public String getParentSpanId() {
+		return parentSpanId;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Get the System.currentTimeMillis() when the span started
+	 */
+	public long getStartTimeMillis() {
+		return startTimeMillis;
+	}
+
+	/**
+	 * Get the duration of the span or -1 while the span has not ended
+	 */
+	public long getDurationNanos() {
+		return durationNanos;
+	}
+
+	public boolean isEnded() {
+		return durationNanos != -1L;
+	}
+
+	public boolean isError() {
+		return error;
+	}
+
+	/**
+	 * Get the time spent in a phase of the API call
+	 */
+	public long getPhaseNanos(Phase phase) {
+		return phaseNanos.get(phase.ordinal());
+	}
+
+	/**
+	 * Get a copy of the attributes of the span
+	 */
+	public Map<String, String> getAttributes() {
+		synchronized (attributes) {
+			return Collections.unmodifiableMap(new LinkedHashMap<String, String>(attributes));
+		}
+	}
+
+	@Override
+	public String toString() {
+		return name + " [trace=" + traceId + " span=" + spanId + " parent=" + parentSpanId + "] durationNanos="
+				+ durationNanos + (error ? " error" : "") + " " + getAttributes();
+	}
+}
@@ -0,0 +1,16 @@
+package com.mambu.apisdk.util;
+
+/**
+ * Exporter of the ended spans of a Tracer, e.g. to a tracing system. Called by the thread ending the span, so it must
+ * be fast and must not block
+ */
+public interface SpanExporter {
+
+	/**
+	 * Export an ended span
+	 *
+	 * @param span
+	 *            the span
+	 */
+	void export(Span span);
+}
@@ -0,0 +1,164 @@
+package com.mambu.apisdk.util;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timeouts for the HTTP requests sent by the RequestExecutorImpl and the NonBlockingRequestExecutor. The connect,
+ * socket and connection request timeouts bound each step of a request; the request timeout bounds the whole request,
+ * including waiting for a pooled connection and reading the response, and can be set per ApiDefinition (e.g. longer
+ * for the document uploads, shorter for the entity lookups). A request with an explicit Deadline is bounded by the
+ * earlier of the deadline and its request timeout
+ *
+ * To use the timeouts for all services created with a MambuAPIModule set its timeout settings:
+ * mambuAPIModule.setTimeoutSettings(timeoutSettings)
+ */
+public class TimeoutSettings {
+
+	// Default values
+	public final static int DEFAULT_CONNECT_TIMEOUT_MILLIS = 10000;
+	public final static int DEFAULT_SOCKET_TIMEOUT_MILLIS = 60000;
+	public final static long DEFAULT_CONNECTION_REQUEST_TIMEOUT_MILLIS = 10000L;
+	public final static long DEFAULT_REQUEST_TIMEOUT_MILLIS = 0L;
+
+	// How long to wait for a TCP connection (and the TLS handshake) to be established. Zero means no timeout
+	private int connectTimeoutMillis = DEFAULT_CONNECT_TIMEOUT_MILLIS;
+	// How long to wait for data from the server while reading the response. Zero means no timeout
+	private int socketTimeoutMillis = DEFAULT_SOCKET_TIMEOUT_MILLIS;
+	// How long to wait for a connection from the pool. Zero means no timeout
+	private long connectionRequestTimeoutMillis = DEFAULT_CONNECTION_REQUEST_TIMEOUT_MILLIS;
+	// Timeout for the whole request, if there is none for its ApiDefinition. Zero means no timeout
+	private long defaultRequestTimeoutMillis = DEFAULT_REQUEST_TIMEOUT_MILLIS;
+	// Request timeouts by the ApiDefinition name (see ApiDefinition.toString())
+	private final Map<String, Long> requestTimeouts = new ConcurrentHashMap<String, Long>();
+
+	/**
+	 * Create timeout settings with default values
+	 */
+	public TimeoutSettings() {
+	}
+
+	/**
+	 * Create timeout settings with the specified connect and socket timeouts
+	 *
+	 * @param connectTimeoutMillis
+	 *            connect timeout. Zero means no timeout
+	 * @param socketTimeoutMillis
+	 *            socket timeout. Zero means no timeout
+	 */
+	public TimeoutSettings(int connectTimeoutMillis, int socketTimeoutMillis) {
+		setConnectTimeoutMillis(connectTimeoutMillis);
+		setSocketTimeoutMillis(socketTimeoutMillis);
+	}
+
+	public int getConnectTimeoutMillis() {
+		return connectTimeoutMillis;
+	}
+
+	public void setConnectTimeoutMillis(int connectTimeoutMillis) {
+		if (connectTimeoutMillis < 0) {
+			throw new IllegalArgumentException("connectTimeoutMillis must not be negative");
+		}
+		this.connectTimeoutMillis = connectTimeoutMillis;
+	}
+
+	public int getSocketTimeoutMillis() {
+		return socketTimeoutMillis;
+	}
+
+	public void setSocketTimeoutMillis(int socketTimeoutMillis) {
+		if (socketTimeoutMillis < 0) {
+			throw new IllegalArgumentException("socketTimeoutMillis must not be negative");
+		}
+		this.socketTimeoutMillis = socketTimeoutMillis;
+	}
+
+	public long getConnectionRequestTimeoutMillis() {
+		return connectionRequestTimeoutMillis;
+	}
+
+	public void setConnectionRequestTimeoutMillis(long connectionRequestTimeoutMillis) {
+		if (connectionRequestTimeoutMillis < 0) {
+			throw new IllegalArgumentException("connectionRequestTimeoutMillis must not be negative");
+		}
+		this.connectionRequestTimeoutMillis = connectionRequestTimeoutMillis;
+	}
+
+	public long getDefaultRequestTimeoutMillis() {
+		return defaultRequestTimeoutMillis;
+	}
+
+	/**
+	 * Set the timeout for the whole request for the API definitions without their own request timeout
+	 *
+	 * @param defaultRequestTimeoutMillis
+	 *            request timeout. Zero means no timeout
+	 */
+	public void setDefaultRequestTimeoutMillis(long defaultRequestTimeoutMillis) {
+		if (defaultRequestTimeoutMillis < 0) {
+			throw new IllegalArgumentException("defaultRequestTimeoutMillis must not be negative");
+		}
+		this.defaultRequestTimeoutMillis = defaultRequestTimeoutMillis;
+	}
+
+	/**
+	 * Set the timeout for the whole request for an API definition. API definitions are matched by their type, end
+	 * point and related entity (see ApiDefinition.toString()), so the timeout applies to all equivalent definitions
+	 *
+	 * @param apiDefinition
+	 *            API definition
+	 * @param requestTimeoutMillis
+	 *            request timeout. Zero means no timeout
+	 */
+	public void setRequestTimeout(ApiDefinition apiDefinition, long requestTimeoutMillis) {
+		if (apiDefinition == null) {
+			throw new IllegalArgumentException("apiDefinition must not be null");
+		}
+		if (requestTimeoutMillis < 0) {
+			throw new IllegalArgumentException("requestTimeoutMillis must not be negative");
+		}
+		requestTimeouts.put(apiDefinition.toString(), requestTimeoutMillis);
+	}
+
+	/**
+	 * Get the timeout for the whole request for an API definition
+	 *
+	 * @param apiDefinition
+	 *            API definition or null for the requests without one
+	 * @return request timeout in milliseconds. Zero means no timeout
+	 */
+	public long getRequestTimeoutMillis(ApiDefinition apiDefinition) {
+		Long requestTimeout = (apiDefinition == null) ? null : requestTimeouts.get(apiDefinition.toString());
+		return (requestTimeout == null) ? defaultRequestTimeoutMillis : requestTimeout;
+	}
+
+	/**
+	 * Get the request timeouts set per API definition
+	 *
+	 * @return request timeouts by the API definition name
+	 */
+	public Map<String, Long> getRequestTimeouts() {
+		return Collections.unmodifiableMap(requestTimeouts);
+	}
+
+	/**
+	 * Get the deadline for a request starting now: the earlier of the explicit deadline and the request timeout of its
+	 * API definition
+	 *
+	 * @param apiDefinition
+	 *            API definition of the request or null if it has none
+	 * @param deadline
+	 *            explicit deadline or null if there is none
+	 * @return deadline for the request or null if it has neither a deadline nor a request timeout
+	 */
+	public Deadline getDeadline(ApiDefinition apiDefinition, Deadline deadline) {
+		long requestTimeout = getRequestTimeoutMillis(apiDefinition);
+		if (requestTimeout <= 0) {
+			return deadline;
+		}
+		return Deadline.earliest(deadline, Deadline.after(requestTimeout, TimeUnit.MILLISECONDS));
+	}
+
+}
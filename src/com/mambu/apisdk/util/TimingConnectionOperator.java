@@ -0,0 +1,63 @@
+package com.mambu.apisdk.util;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+import org.apache.http.HttpHost;
+import org.apache.http.conn.OperatedClientConnection;
+import org.apache.http.conn.scheme.SchemeRegistry;
+import org.apache.http.impl.conn.DefaultClientConnectionOperator;
+import org.apache.http.params.HttpParams;
+import org.apache.http.protocol.HttpContext;
+
+/**
+ * Connection operator timing the DNS and the connect phases of the requests which open a new connection, for the
+ * RequestMeter of the request sent by the current thread (see AbstractRequestExecutor.getCurrentMeter()). The connect
+ * phase includes the TLS handshake
+ */
+class TimingConnectionOperator extends DefaultClientConnectionOperator {
+
+	// Time spent resolving host names by the current thread while opening a connection
+	private final static ThreadLocal<long[]> dnsNanos = new ThreadLocal<long[]>() {
+		@Override
+		protected long[] initialValue() {
+			return new long[1];
+		}
+	};
+
+	TimingConnectionOperator(SchemeRegistry schemes) {
+		super(schemes);
+	}
+
+	@Override
+	public void openConnection(OperatedClientConnection conn, HttpHost target, InetAddress local,
+			HttpContext context, HttpParams params) throws IOException {
+
+		RequestMeter meter = AbstractRequestExecutor.getCurrentMeter();
+		if (meter == null) {
+			super.openConnection(conn, target, local, context, params);
+			return;
+		}
+		long[] dns = dnsNanos.get();
+		dns[0] = 0L;
+		long start = System.nanoTime();
+		try {
+			super.openConnection(conn, target, local, context, params);
+		} finally {
+			long elapsed = System.nanoTime() - start;
+			meter.recordLatency(ApiMetrics.Phase.DNS, dns[0]);
+			meter.recordLatency(ApiMetrics.Phase.CONNECT, elapsed - dns[0]);
+		}
+	}
+
+	@Override
+	protected InetAddress[] resolveHostname(String host) throws UnknownHostException {
+		long start = System.nanoTime();
+		try {
+			return super.resolveHostname(host);
+		} finally {
+			dnsNanos.get()[0] += System.nanoTime() - start;
+		}
+	}
+}
@@ -0,0 +1,114 @@
+package com.mambu.apisdk.util;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Current span of a thread. The API calls made while a thread has a current span are traced as its children (see
+ * Tracer). The SDK carries the current span over to the threads executing its asynchronous requests, retries and
+ * hedges; tasks of the application can carry it over with wrap()
+ */
+public final class TraceContext {
+
+	private final static ThreadLocal<Span> currentSpan = new ThreadLocal<Span>();
+
+	private TraceContext() {
+	}
+
+	/**
+	 * Get the current span of the thread
+	 *
+	 * @return span or null if the thread is not tracing
+	 */
+	public static Span current() {
+		return currentSpan.get();
+	}
+
+	/**
+	 * Make a span the current span of the thread
+	 *
+	 * @param span
+	 *            the span or null to stop tracing
+	 * @return the previous current span, to be restored with detach()
+	 */
+	public static Span attach(Span span) {
+		Span previous = currentSpan.get();
+		if (span == null) {
+			currentSpan.remove();
+		} else {
+			currentSpan.set(span);
+		}
+		return previous;
+	}
+
+	/**
+	 * Restore the current span of the thread replaced by attach()
+	 *
+	 * @param previous
+	 *            span returned by attach()
+	 */
+	public static void detach(Span previous) {
+		attach(previous);
+	}
+
+	/**
+	 * Wrap a task to run with the current span of the calling thread
+	 *
+	 * @param task
+	 *            the task
+	 * @return task running with the current span or the task itself if the calling thread has no current span
+	 */
+	public static Runnable wrap(Runnable task) {
+		return wrap(task, currentSpan.get());
+	}
+
+	/**
+	 * Wrap a task to run with a span as the current span
+	 *
+	 * @param task
+	 *            the task
+	 * @param span
+	 *            the span or null to return the task itself
+	 * @return task running with the span
+	 */
+	static Runnable wrap(final Runnable task, final Span span) {
+		if (span == null) {
+			return task;
+		}
+		return new Runnable() {
+			@Override
+			public void run() {
+				Span previous = attach(span);
+				try {
+					task.run();
+				} finally {
+					detach(previous);
+				}
+			}
+		};
+	}
+
+	/**
+	 * Wrap a task to run with the current span of the calling thread
+	 *
+	 * @param task
+	 *            the task
+	 * @return task running with the current span or the task itself if the calling thread has no current span
+	 */
+	public static <V> Callable<V> wrap(final Callable<V> task) {
+		final Span span = currentSpan.get();
+		if (span == null) {
+			return task;
+		}
+		return new Callable<V>() {
+			@Override
+			public V call() throws Exception {
+				Span previous = attach(span);
+				try {
+					return task.call();
+				} finally {
+					detach(previous);
+				}
+			}
+		};
+	}
+}
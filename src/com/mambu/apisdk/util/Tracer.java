@@ -0,0 +1,97 @@
+package com.mambu.apisdk.util;
+
+import java.util.Random;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Creates the spans of the traces and passes the ended spans to a SpanExporter. To trace the API calls of a business
+ * operation, start its root span and make it the current span while the operation runs:
+ *
+ * <pre>
+ * Tracer tracer = new Tracer(new RingBufferSpanExporter(1000));
+ * Span operation = tracer.startSpan(&quot;onboard client&quot;);
+ * Span previous = TraceContext.attach(operation);
+ * try {
+ * 	clientsService.createClient(...);
+ * 	loansService.createLoanAccount(...);
+ * } finally {
+ * 	TraceContext.detach(previous);
+ * 	operation.end();
+ * }
+ * </pre>
+ *
+ * The API calls made without a current span are not traced
+ */
+public class Tracer {
+
+	private final static Logger LOGGER = Logger.getLogger(Tracer.class.getName());
+
+	private final SpanExporter exporter;
+	private final Random random = new Random();
+
+	/**
+	 * Create a tracer
+	 *
+	 * @param exporter
+	 *            exporter of the ended spans
+	 */
+	public Tracer(SpanExporter exporter) {
+		if (exporter == null) {
+			throw new IllegalArgumentException("Span exporter must not be null");
+		}
+		this.exporter = exporter;
+	}
+
+	/**
+	 * Start a span as a child of the current span of the thread, or as the root span of a new trace if the thread has
+	 * no current span
+	 *
+	 * @param name
+	 *            span name
+	 * @return span
+	 */
+	public Span startSpan(String name) {
+		return startSpan(name, TraceContext.current());
+	}
+
+	/**
+	 * Start a span
+	 *
+	 * @param name
+	 *            span name
+	 * @param parent
+	 *            parent span or null to start a new trace
+	 * @return span
+	 */
+	public Span startSpan(String name, Span parent) {
+		if (name == null) {
+			throw new IllegalArgumentException("Span name must not be null");
+		}
+		String spanId = makeId();
+		if (parent == null) {
+			return new Span(this, makeId() + makeId(), spanId, null, name);
+		}
+		return new Span(this, parent.getTraceId(), spanId, parent.getSpanId(), name);
+	}
+
+	public SpanExporter getExporter() {
+		return exporter;
+	}
+
+	/**
+	 * Export an ended span. Exporter failures are logged
+	 */
+	void export(Span span) {
+		try {
+			exporter.export(span);
+		} catch (RuntimeException e) {
+			LOGGER.log(Level.WARNING, "Span exporter failed for " + span.getName(), e);
+		}
+	}
+
+	private String makeId() {
+		String id = Long.toHexString(random.nextLong());
+		return "0000000000000000".substring(id.length()) + id;
+	}
+}
@@ -2,16 +2,23 @@ package com.mambu.apisdk;
 
 import static org.mockito.Matchers.anyObject;
 import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.argThat;
 import static org.mockito.Mockito.when;
 
 import org.junit.Before;
+import org.mockito.ArgumentMatcher;
 import org.mockito.Mockito;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 
 import com.mambu.apisdk.exception.MambuApiException;
+import com.mambu.apisdk.util.APIData;
+import com.mambu.apisdk.util.ApiDefinition;
 import com.mambu.apisdk.util.ParamsMap;
 import com.mambu.apisdk.util.RequestExecutor;
+import com.mambu.apisdk.util.RequestExecutor.ContentType;
+import com.mambu.apisdk.util.RequestExecutor.Method;
+import com.mambu.apisdk.util.ServiceHelper;
 import com.mambu.apisdk.util.URLHelper;
 
 /***
@@ -58,4 +65,57 @@ public class MambuAPIServiceTest {
 		});
 
 	}
+
+	/***
+	 * Argument matcher for the ApiDefinition passed to the executor: matches API definitions with the specified method
+	 * and content type
+	 * 
+	 * @param method
+	 *            expected method
+	 * @param contentType
+	 *            expected content type
+	 * @return null (as required for Mockito matchers)
+	 */
+	protected static ApiDefinition apiDefinition(final Method method, final ContentType contentType) {
+		return argThat(new ArgumentMatcher<ApiDefinition>() {
+
+			@Override
+			public boolean matches(Object argument) {
+				if (!(argument instanceof ApiDefinition)) {
+					return false;
+				}
+				ApiDefinition apiDefinition = (ApiDefinition) argument;
+				return apiDefinition.getMethod() == method && apiDefinition.getContentType() == contentType;
+			}
+		});
+	}
+
+	/***
+	 * Argument matcher for the ParamsMap of a JSON request: matches params whose JSON object is serialized into the
+	 * expected JSON_OBJECT string and whose other params are equal to the expected ones
+	 * 
+	 * @param expected
+	 *            expected params with the JSON string
+	 * @return null (as required for Mockito matchers)
+	 */
+	protected static ParamsMap jsonParams(final ParamsMap expected) {
+		return argThat(new ArgumentMatcher<ParamsMap>() {
+
+			@Override
+			public boolean matches(Object argument) {
+				if (!(argument instanceof ParamsMap)) {
+					return false;
+				}
+				ParamsMap params = (ParamsMap) argument;
+				if (params.getJsonObject() == null) {
+					return params.equals(expected);
+				}
+				ParamsMap actual = new ParamsMap();
+				actual.putAll(params);
+				actual.put(APIData.JSON_OBJECT,
+						ServiceHelper.makeApiJson(params.getJsonObject(), params.getJsonDateTimeFormat()));
+				return actual.equals(expected);
+			}
+		});
+	}
 }
@@ -3,6 +3,8 @@
  */
 package com.mambu.apisdk.services;
 
+import static org.mockito.Matchers.eq;
+
 import org.junit.Test;
 import org.mockito.Mockito;
 
@@ -35,8 +37,8 @@ public class AccountingServiceTest extends MambuAPIServiceTest {
 		service.getGLAccount("1000");
 
 		// verify
-		Mockito.verify(executor).executeRequest("https://demo.mambutest.com/api/glaccounts/1000", null, Method.GET,
-				ContentType.WWW_FORM);
+		Mockito.verify(executor).executeRequest(eq("https://demo.mambutest.com/api/glaccounts/1000"),
+				eq((ParamsMap) null), apiDefinition(Method.GET, ContentType.WWW_FORM));
 
 	}
 
@@ -51,8 +53,8 @@ public class AccountingServiceTest extends MambuAPIServiceTest {
 		params.put(APIData.FROM, "2001-01-01");
 		params.put(APIData.TO, "2005-01-01");
 
-		Mockito.verify(executor).executeRequest("https://demo.mambutest.com/api/glaccounts/100", params, Method.GET,
-				ContentType.WWW_FORM);
+		Mockito.verify(executor).executeRequest(eq("https://demo.mambutest.com/api/glaccounts/100"), eq(params),
+				apiDefinition(Method.GET, ContentType.WWW_FORM));
 	}
 
 }
@@ -3,6 +3,7 @@
  */
 package com.mambu.apisdk.services;
 
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.verify;
 
 import org.junit.Test;
@@ -40,8 +41,8 @@ public class ClientServiceTest extends MambuAPIServiceTest {
 		service.getClient("abc123");
 
 		// verify
-		verify(executor).executeRequest("https://demo.mambutest.com/api/clients/abc123", null, Method.GET,
-				ContentType.WWW_FORM);
+		verify(executor).executeRequest(eq("https://demo.mambutest.com/api/clients/abc123"), eq((ParamsMap) null),
+				apiDefinition(Method.GET, ContentType.WWW_FORM));
 	}
 
 	/***
@@ -58,8 +59,8 @@ public class ClientServiceTest extends MambuAPIServiceTest {
 		service.getClients(true, null, null);
 
 		// verify
-		verify(executor).executeRequest("https://demo.mambutest.com/api/clients", params, Method.GET,
-				ContentType.WWW_FORM);
+		verify(executor).executeRequest(eq("https://demo.mambutest.com/api/clients"), eq(params),
+				apiDefinition(Method.GET, ContentType.WWW_FORM));
 	}
 
 	/***
@@ -76,8 +77,8 @@ public class ClientServiceTest extends MambuAPIServiceTest {
 		service.getClients(false, null, null);
 
 		// verify
-		verify(executor).executeRequest("https://demo.mambutest.com/api/clients", params, Method.GET,
-				ContentType.WWW_FORM);
+		verify(executor).executeRequest(eq("https://demo.mambutest.com/api/clients"), eq(params),
+				apiDefinition(Method.GET, ContentType.WWW_FORM));
 	}
 
 	/***
@@ -96,8 +97,8 @@ public class ClientServiceTest extends MambuAPIServiceTest {
 		service.getClients(true, 0, 50);
 
 		// verify
-		verify(executor).executeRequest("https://demo.mambutest.com/api/clients", params, Method.GET,
-				ContentType.WWW_FORM);
+		verify(executor).executeRequest(eq("https://demo.mambutest.com/api/clients"), eq(params),
+				apiDefinition(Method.GET, ContentType.WWW_FORM));
 	}
 
 	/***
@@ -116,8 +117,8 @@ public class ClientServiceTest extends MambuAPIServiceTest {
 		service.getClients(false, 0, 50);
 
 		// verify
-		verify(executor).executeRequest("https://demo.mambutest.com/api/clients", params, Method.GET,
-				ContentType.WWW_FORM);
+		verify(executor).executeRequest(eq("https://demo.mambutest.com/api/clients"), eq(params),
+				apiDefinition(Method.GET, ContentType.WWW_FORM));
 	}
 
 	/***
@@ -134,8 +135,8 @@ public class ClientServiceTest extends MambuAPIServiceTest {
 		service.getClientDetails("abc123");
 
 		// verify
-		verify(executor).executeRequest("https://demo.mambutest.com/api/clients/abc123", params, Method.GET,
-				ContentType.WWW_FORM);
+		verify(executor).executeRequest(eq("https://demo.mambutest.com/api/clients/abc123"), eq(params),
+				apiDefinition(Method.GET, ContentType.WWW_FORM));
 
 	}
 }
@@ -1,5 +1,7 @@
 package com.mambu.apisdk.services;
 
+import static org.mockito.Matchers.eq;
+
 import org.junit.Test;
 import org.mockito.Mockito;
 
@@ -62,8 +64,8 @@ public class DocumentsServiceTest extends MambuAPIServiceTest {
 						+ "}");
 
 		// verify
-		Mockito.verify(executor).executeRequest("https://demo.mambutest.com/api/documents", params, Method.POST,
-				ContentType.JSON);
+		Mockito.verify(executor).executeRequest(eq("https://demo.mambutest.com/api/documents"), eq(params),
+				apiDefinition(Method.POST, ContentType.JSON));
 	}
 
 }
@@ -3,11 +3,14 @@
  */
 package com.mambu.apisdk.services;
 
+import static org.mockito.Matchers.eq;
+
 import org.junit.Test;
 import org.mockito.Mockito;
 
 import com.mambu.apisdk.MambuAPIServiceTest;
 import com.mambu.apisdk.exception.MambuApiException;
+import com.mambu.apisdk.util.ParamsMap;
 import com.mambu.apisdk.util.RequestExecutor.ContentType;
 import com.mambu.apisdk.util.RequestExecutor.Method;
 import com.mambu.intelligence.shared.model.Intelligence.Indicator;
@@ -33,7 +36,7 @@ public class IntelligenceServiceTest extends MambuAPIServiceTest {
 		service.getIndicator(Indicator.INTEREST_IN_SUSPENSE);
 
 		// verify
-		Mockito.verify(executor).executeRequest("https://demo.mambutest.com/api/indicators/INTEREST_IN_SUSPENSE", null,
-				Method.GET, ContentType.WWW_FORM);
+		Mockito.verify(executor).executeRequest(eq("https://demo.mambutest.com/api/indicators/INTEREST_IN_SUSPENSE"),
+				eq((ParamsMap) null), apiDefinition(Method.GET, ContentType.WWW_FORM));
 	}
 }
@@ -5,7 +5,16 @@ package com.mambu.apisdk.services;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
 
 import org.junit.Test;
 import org.mockito.Mockito;
@@ -14,6 +23,8 @@ import com.mambu.accounts.shared.model.AccountHolderType;
 import com.mambu.apisdk.MambuAPIServiceTest;
 import com.mambu.apisdk.exception.MambuApiException;
 import com.mambu.apisdk.model.LoanAccountExpanded;
+import com.mambu.apisdk.util.MambuApiCallback;
+import com.mambu.apisdk.util.PagingIterator;
 import com.mambu.apisdk.util.ParamsMap;
 import com.mambu.apisdk.util.RequestExecutor.ContentType;
 import com.mambu.apisdk.util.RequestExecutor.Method;
@@ -21,6 +32,7 @@ import com.mambu.core.shared.model.CustomFieldValue;
 import com.mambu.core.shared.model.Money;
 import com.mambu.loans.shared.model.LoanAccount;
 import com.mambu.loans.shared.model.LoanAccount.RepaymentPeriodUnit;
+import com.mambu.loans.shared.model.LoanTransaction;
 
 /**
  * @author ipenciuc
@@ -129,8 +141,8 @@ public class LoanServiceTest extends MambuAPIServiceTest {
 						+ "]" + "}");
 
 		// verify
-		Mockito.verify(executor).executeRequest("https://demo.mambutest.com/api/loans", params, Method.POST,
-				ContentType.JSON);
+		Mockito.verify(executor).executeRequest(eq("https://demo.mambutest.com/api/loans"), jsonParams(params),
+				apiDefinition(Method.POST, ContentType.JSON));
 	}
 
 	@Test
@@ -144,8 +156,75 @@ public class LoanServiceTest extends MambuAPIServiceTest {
 		params.addParam("notes", "The automated approval failed.");
 
 		// verify
-		Mockito.verify(executor).executeRequest(
-				"https://demo.mambutest.com/api/loans/8ad661123b36cfaf013b42c2e0f46dca/transactions", params,
-				Method.POST, ContentType.WWW_FORM);
+		Mockito.verify(executor).executeRequest(eq("https://demo.mambutest.com/api/loans/8ad661123b36cfaf013b42c2e0f46dca/transactions"),
+				eq(params), apiDefinition(Method.POST, ContentType.WWW_FORM));
+	}
+
+	@Test
+	public void getAccountAsync() throws MambuApiException, InterruptedException, ExecutionException {
+
+		ParamsMap params = new ParamsMap();
+		params.addParam("fullDetails", "true");
+
+		LoanAccount account = new LoanAccount();
+		Mockito.when(
+				executor.<LoanAccount> executeRequest(eq("https://demo.mambutest.com/api/loans/ABC123"), eq(params),
+						apiDefinition(Method.GET, ContentType.WWW_FORM))).thenReturn(account);
+
+		@SuppressWarnings("unchecked")
+		MambuApiCallback<LoanAccount> callback = Mockito.mock(MambuApiCallback.class);
+		Future<LoanAccount> future = service.getLoanAccountAsync("ABC123", callback);
+
+		// verify
+		assertSame(account, future.get());
+		Mockito.verify(callback).onSuccess(account);
+		Mockito.verify(executor).executeRequest(eq("https://demo.mambutest.com/api/loans/ABC123"), eq(params),
+				apiDefinition(Method.GET, ContentType.WWW_FORM));
+	}
+
+	@Test
+	public void getAccountTransactionsPaged() throws MambuApiException {
+
+		String url = "https://demo.mambutest.com/api/loans/ABC123/transactions";
+		ParamsMap firstPage = new ParamsMap();
+		firstPage.addParam("offset", "0");
+		firstPage.addParam("limit", "2");
+		ParamsMap secondPage = new ParamsMap();
+		secondPage.addParam("offset", "2");
+		secondPage.addParam("limit", "2");
+
+		LoanTransaction first = new LoanTransaction();
+		LoanTransaction second = new LoanTransaction();
+		LoanTransaction third = new LoanTransaction();
+		Mockito.when(
+				executor.<List<LoanTransaction>> executeRequest(eq(url), eq(firstPage),
+						apiDefinition(Method.GET, ContentType.WWW_FORM))).thenReturn(
+				Collections.unmodifiableList(Arrays.asList(first, second)));
+		Mockito.when(
+				executor.<List<LoanTransaction>> executeRequest(eq(url), eq(secondPage),
+						apiDefinition(Method.GET, ContentType.WWW_FORM))).thenReturn(
+				new ArrayList<LoanTransaction>(Arrays.asList(third)));
+
+		PagingIterator<LoanTransaction> transactions = service.getLoanAccountTransactionsPaged("ABC123", 2);
+
+		// verify: the short second page ends the iteration and the pages are not modified
+		assertSame(first, transactions.next());
+		assertSame(second, transactions.next());
+		assertSame(third, transactions.next());
+		assertFalse(transactions.hasNext());
+		Mockito.verify(executor, Mockito.times(2)).executeRequest(eq(url), (ParamsMap) Mockito.anyObject(),
+				apiDefinition(Method.GET, ContentType.WWW_FORM));
+	}
+
+	@Test(expected = MambuApiException.class)
+	public void getAccountTransactionsPagedFailure() throws MambuApiException {
+
+		Mockito.when(
+				executor.<List<LoanTransaction>> executeRequest(anyString(), (ParamsMap) Mockito.anyObject(),
+						apiDefinition(Method.GET, ContentType.WWW_FORM))).thenThrow(
+				new MambuApiException(500, "Internal Server Error"));
+
+		PagingIterator<LoanTransaction> transactions = service.getLoanAccountTransactionsPaged("ABC123", 2);
+		transactions.hasNext();
 	}
-}
\ No newline at end of file
+}
@@ -3,6 +3,8 @@
  */
 package com.mambu.apisdk.services;
 
+import static org.mockito.Matchers.eq;
+
 import org.junit.Test;
 import org.mockito.Mockito;
 
@@ -46,8 +48,8 @@ public class OrganizationServiceTest extends MambuAPIServiceTest {
 			}
 		}
 		// verify
-		Mockito.verify(executor).executeRequest("https://demo.mambutest.com/api/currencies", null, Method.GET,
-				ContentType.WWW_FORM);
+		Mockito.verify(executor).executeRequest(eq("https://demo.mambutest.com/api/currencies"), eq((ParamsMap) null),
+				apiDefinition(Method.GET, ContentType.WWW_FORM));
 	}
 
 	@Test
@@ -60,8 +62,8 @@ public class OrganizationServiceTest extends MambuAPIServiceTest {
 		ParamsMap params = new ParamsMap();
 		params.put(APIData.FULL_DETAILS, "true");
 
-		Mockito.verify(executor).executeRequest("https://demo.mambutest.com/api/branches/branch_123", params,
-				Method.GET, ContentType.WWW_FORM);
+		Mockito.verify(executor).executeRequest(eq("https://demo.mambutest.com/api/branches/branch_123"), eq(params),
+				apiDefinition(Method.GET, ContentType.WWW_FORM));
 	}
 
 	@Test
@@ -77,8 +79,8 @@ public class OrganizationServiceTest extends MambuAPIServiceTest {
 		params.put(APIData.OFFSET, offset);
 		params.put(APIData.LIMIT, limit);
 
-		Mockito.verify(executor).executeRequest("https://demo.mambutest.com/api/branches", params, Method.GET,
-				ContentType.WWW_FORM);
+		Mockito.verify(executor).executeRequest(eq("https://demo.mambutest.com/api/branches"), eq(params),
+				apiDefinition(Method.GET, ContentType.WWW_FORM));
 	}
 
 	@Test
@@ -91,8 +93,8 @@ public class OrganizationServiceTest extends MambuAPIServiceTest {
 		ParamsMap params = new ParamsMap();
 		params.put(APIData.FULL_DETAILS, "true");
 
-		Mockito.verify(executor).executeRequest("https://demo.mambutest.com/api/centres/centre_123", params,
-				Method.GET, ContentType.WWW_FORM);
+		Mockito.verify(executor).executeRequest(eq("https://demo.mambutest.com/api/centres/centre_123"), eq(params),
+				apiDefinition(Method.GET, ContentType.WWW_FORM));
 	}
 
 	@Test
@@ -112,8 +114,8 @@ public class OrganizationServiceTest extends MambuAPIServiceTest {
 		params.put(APIData.OFFSET, offset);
 		params.put(APIData.LIMIT, limit);
 
-		Mockito.verify(executor).executeRequest("https://demo.mambutest.com/api/centres", params, Method.GET,
-				ContentType.WWW_FORM);
+		Mockito.verify(executor).executeRequest(eq("https://demo.mambutest.com/api/centres"), eq(params),
+				apiDefinition(Method.GET, ContentType.WWW_FORM));
 	}
 
 	@Test
@@ -124,8 +126,8 @@ public class OrganizationServiceTest extends MambuAPIServiceTest {
 
 		// verify
 
-		Mockito.verify(executor).executeRequest("https://demo.mambutest.com/api/customfields/field_123", null,
-				Method.GET, ContentType.WWW_FORM);
+		Mockito.verify(executor).executeRequest(eq("https://demo.mambutest.com/api/customfields/field_123"),
+				eq((ParamsMap) null), apiDefinition(Method.GET, ContentType.WWW_FORM));
 	}
 
 	@Test
@@ -139,7 +141,7 @@ public class OrganizationServiceTest extends MambuAPIServiceTest {
 		ParamsMap params = new ParamsMap();
 		params.addParam(APIData.CUSTOM_FIELD_SETS_TYPE, type.name());
 
-		Mockito.verify(executor).executeRequest("https://demo.mambutest.com/api/customfieldsets", params, Method.GET,
-				ContentType.WWW_FORM);
+		Mockito.verify(executor).executeRequest(eq("https://demo.mambutest.com/api/customfieldsets"), eq(params),
+				apiDefinition(Method.GET, ContentType.WWW_FORM));
 	}
 }
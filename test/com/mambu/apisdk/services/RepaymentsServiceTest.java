@@ -3,6 +3,8 @@
  */
 package com.mambu.apisdk.services;
 
+import static org.mockito.Matchers.eq;
+
 import org.junit.Test;
 import org.mockito.Mockito;
 
@@ -40,8 +42,8 @@ public class RepaymentsServiceTest extends MambuAPIServiceTest {
 		ParamsMap paramsMap = new ParamsMap();
 		paramsMap.put(APIData.OFFSET, null);
 		paramsMap.put(APIData.LIMIT, null);
-		Mockito.verify(executor).executeRequest("https://demo.mambutest.com/api/loans/" + accountId + "/repayments",
-				paramsMap, Method.GET, ContentType.WWW_FORM);
+		Mockito.verify(executor).executeRequest(eq("https://demo.mambutest.com/api/loans/" + accountId + "/repayments"),
+				eq(paramsMap), apiDefinition(Method.GET, ContentType.WWW_FORM));
 	}
 
 	@Test
@@ -58,8 +60,8 @@ public class RepaymentsServiceTest extends MambuAPIServiceTest {
 		paramsMap.put(APIData.DUE_TO, dueToString);
 		paramsMap.put(APIData.OFFSET, null);
 		paramsMap.put(APIData.LIMIT, null);
-		Mockito.verify(executor).executeRequest("https://demo.mambutest.com/api/repayments", paramsMap, Method.GET,
-				ContentType.WWW_FORM);
+		Mockito.verify(executor).executeRequest(eq("https://demo.mambutest.com/api/repayments"), eq(paramsMap),
+				apiDefinition(Method.GET, ContentType.WWW_FORM));
 	}
 
 }
@@ -6,8 +6,13 @@ package com.mambu.apisdk.services;
 import java.util.ArrayList;
 import java.util.List;
 
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.eq;
+
 import org.junit.Test;
 import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 
 import com.mambu.accounts.shared.model.AccountState;
 import com.mambu.api.server.handler.savings.model.JSONSavingsAccount;
@@ -88,7 +93,38 @@ public class SavingsServiceTest extends MambuAPIServiceTest {
 						+ "]" + "}");
 
 		// verify
-		Mockito.verify(executor).executeRequest("https://demo.mambutest.com/api/savings", params, Method.POST,
-				ContentType.JSON);
+		Mockito.verify(executor).executeRequest(eq("https://demo.mambutest.com/api/savings"), jsonParams(params),
+				apiDefinition(Method.POST, ContentType.JSON));
+	}
+
+	@Test
+	public void getAllAccountsByCustomViewInParallel() throws MambuApiException {
+
+		// Five accounts, returned in pages of two
+		final List<SavingsAccount> accounts = new ArrayList<SavingsAccount>();
+		for (int i = 0; i < 5; i++) {
+			accounts.add(new SavingsAccount());
+		}
+		Mockito.when(
+				executor.<List<SavingsAccount>> executeRequest(eq("https://demo.mambutest.com/api/savings"),
+						(ParamsMap) Mockito.anyObject(), apiDefinition(Method.GET, ContentType.WWW_FORM))).thenAnswer(
+				new Answer<List<SavingsAccount>>() {
+
+					@Override
+					public List<SavingsAccount> answer(InvocationOnMock invocation) throws Throwable {
+						ParamsMap params = (ParamsMap) invocation.getArguments()[1];
+						assertEquals("123", params.get("viewfilter"));
+						int offset = Integer.parseInt(params.get("offset"));
+						int limit = Integer.parseInt(params.get("limit"));
+						int from = Math.min(offset, accounts.size());
+						int to = Math.min(offset + limit, accounts.size());
+						return new ArrayList<SavingsAccount>(accounts.subList(from, to));
+					}
+				});
+
+		List<SavingsAccount> result = service.getAllSavingsAccountsByCustomView("123", 2, 3);
+
+		// verify: all accounts in the offset order
+		assertEquals(accounts, result);
 	}
 }
@@ -3,6 +3,8 @@ package com.mambu.apisdk.services;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 
+import static org.mockito.Matchers.eq;
+
 import org.junit.Test;
 import org.mockito.Mockito;
 
@@ -69,8 +71,8 @@ public class TasksServiceTest extends MambuAPIServiceTest {
 		params.addParam("groupid", null);
 
 		// verify
-		Mockito.verify(executor).executeRequest("https://demo.mambutest.com/api/tasks", params, Method.POST,
-				ContentType.WWW_FORM);
+		Mockito.verify(executor).executeRequest(eq("https://demo.mambutest.com/api/tasks"), eq(params),
+				apiDefinition(Method.POST, ContentType.WWW_FORM));
 	}
 
 }
@@ -1,5 +1,6 @@
 package com.mambu.apisdk.services;
 
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.verify;
 
 import org.junit.Test;
@@ -39,8 +40,8 @@ public class UsersServiceTest extends MambuAPIServiceTest {
 		service.getUsers("1", "10");
 
 		// verify
-		verify(executor).executeRequest("https://demo.mambutest.com/api/users", params, Method.GET,
-				ContentType.WWW_FORM);
+		verify(executor).executeRequest(eq("https://demo.mambutest.com/api/users"), eq(params),
+				apiDefinition(Method.GET, ContentType.WWW_FORM));
 	}
 
 	/***
@@ -59,7 +60,7 @@ public class UsersServiceTest extends MambuAPIServiceTest {
 		service.getUsers("branch_id", "50", "100");
 
 		// verify
-		verify(executor).executeRequest("https://demo.mambutest.com/api/users", params, Method.GET,
-				ContentType.WWW_FORM);
+		verify(executor).executeRequest(eq("https://demo.mambutest.com/api/users"), eq(params),
+				apiDefinition(Method.GET, ContentType.WWW_FORM));
 	}
 }
@@ -0,0 +1,133 @@
+package com.mambu.apisdk.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.mambu.apisdk.exception.MambuApiException;
+import com.mambu.apisdk.util.ApiDefinition.ApiType;
+import com.mambu.clients.shared.model.Client;
+
+public class AdaptiveConcurrencyLimiterTest {
+
+	private static final long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+
+	private AdaptiveConcurrencyLimiter limiter;
+
+	@Before
+	public void setUp() {
+		limiter = new AdaptiveConcurrencyLimiter("demo.mambu.com", new AdaptiveConcurrencySettings(4, 2, 8));
+	}
+
+	@Test
+	public void growsWhileTenantRespondsFastUpToMaximum() throws Exception {
+
+		// Low load: the unused limit doesn't grow
+		limiter.acquire(null);
+		for (int i = 0; i < 100; i++) {
+			limiter.onCompleted(FAST, null);
+		}
+		limiter.release();
+		assertEquals(4, limiter.getLimit());
+
+		// Full load: the limit grows by one per limit's worth of responses
+		for (int i = 0; i < 4; i++) {
+			limiter.acquire(null);
+		}
+		for (int i = 0; i < 4; i++) {
+			limiter.onCompleted(FAST, null);
+		}
+		assertEquals(4, limiter.getLimit());
+		limiter.onCompleted(FAST, null);
+		assertEquals(5, limiter.getLimit());
+
+		for (int i = 0; i < 1000; i++) {
+			limiter.onCompleted(FAST, null);
+		}
+		assertEquals(8, limiter.getLimit());
+	}
+
+	@Test
+	public void shrinksOnceWhenTenantIsOverloaded() {
+
+		limiter.onCompleted(TimeUnit.SECONDS.toNanos(60), null);
+
+		// A burst of errors caused by one overload decreases the limit once
+		limiter.onCompleted(FAST, new MambuApiException(503, "Service Unavailable"));
+		limiter.onCompleted(FAST, new MambuApiException(429, "Too Many Requests"));
+		assertEquals(3, limiter.getLimit());
+		assertEquals(1L, limiter.getDecreases());
+
+		// Client errors don't change the limit
+		limiter.onCompleted(FAST, new MambuApiException(404, "Not Found"));
+		assertEquals(1L, limiter.getDecreases());
+	}
+
+	@Test
+	public void shrinksToMinimumWhenLatencyGrows() throws Exception {
+
+		long fast = TimeUnit.MICROSECONDS.toNanos(10);
+		for (int i = 0; i < 10; i++) {
+			limiter.onCompleted(fast, null);
+		}
+		for (int i = 0; i < 20; i++) {
+			// Decreases are at least one response time apart
+			Thread.sleep(1);
+			limiter.onCompleted(fast * 10, null);
+		}
+		assertEquals(2, limiter.getLimit());
+		assertTrue(limiter.getShortTermLatencyMillis() > 2 * limiter.getLongTermLatencyMillis());
+	}
+
+	@Test
+	public void executorRecordsOutcomes() throws Exception {
+
+		ApiDefinition getClient = new ApiDefinition(ApiType.GET_ENTITY, Client.class);
+		Client client = new Client();
+		RequestExecutor delegate = mock(RequestExecutor.class);
+		when(delegate.executeRequest(eq("https://demo.mambu.com/api/clients/1"), any(ParamsMap.class), eq(getClient)))
+				.thenReturn(client);
+		when(delegate.executeRequest(eq("https://demo.mambu.com/api/clients/2"), any(ParamsMap.class), eq(getClient)))
+				.thenThrow(new MambuApiException(503, "Service Unavailable"));
+		RequestExecutor executor = AdaptiveConcurrencyRequestExecutor.decorate(delegate, limiter);
+
+		assertSame(client, executor.executeRequest("https://demo.mambu.com/api/clients/1", null, getClient));
+		try {
+			executor.executeRequest("https://demo.mambu.com/api/clients/2", null, getClient);
+			fail("Request must fail");
+		} catch (MambuApiException e) {
+			assertEquals(Integer.valueOf(503), e.getErrorCode());
+		}
+		assertEquals(3, limiter.getLimit());
+		assertEquals(0, limiter.getInFlightRequests());
+	}
+
+	@Test
+	public void sharesLimiterPerDomainUntilRemoved() {
+
+		AdaptiveConcurrencyLimiter shared = AdaptiveConcurrencyLimiter.getTenantLimiter("shared.mambu.com",
+				new AdaptiveConcurrencySettings());
+		// Other settings are ignored while the tenant has a limiter
+		assertSame(shared, AdaptiveConcurrencyLimiter.getTenantLimiter("shared.mambu.com",
+				new AdaptiveConcurrencySettings(4, 2, 8)));
+		assertEquals(AdaptiveConcurrencySettings.DEFAULT_INITIAL_LIMIT, shared.getLimit());
+
+		assertSame(shared, AdaptiveConcurrencyLimiter.removeTenantLimiter("shared.mambu.com"));
+		assertNull(AdaptiveConcurrencyLimiter.getTenantLimiter("shared.mambu.com"));
+		AdaptiveConcurrencyLimiter created = AdaptiveConcurrencyLimiter.getTenantLimiter("shared.mambu.com",
+				new AdaptiveConcurrencySettings(4, 2, 8));
+		assertEquals(4, created.getLimit());
+		AdaptiveConcurrencyLimiter.removeTenantLimiter("shared.mambu.com");
+	}
+}
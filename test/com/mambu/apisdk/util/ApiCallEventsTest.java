@@ -0,0 +1,182 @@
+package com.mambu.apisdk.util;
+
+import static com.mambu.apisdk.util.LocalServer.respond;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.mambu.apisdk.MambuAPIService;
+import com.mambu.apisdk.exception.MambuApiException;
+import com.mambu.apisdk.util.ApiDefinition.ApiType;
+import com.mambu.apisdk.util.RequestExecutor.Method;
+import com.mambu.clients.shared.model.Client;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+public class ApiCallEventsTest {
+
+	private final static String CLIENT = "{\"id\":\"123\",\"firstName\":\"Jane\",\"lastName\":\"Doe\"}";
+	private final static String ERROR = "{\"returnCode\":3,\"returnStatus\":\"INVALID_CLIENT_ID\"}";
+
+	private final ApiDefinition getClient = new ApiDefinition(ApiType.GET_ENTITY, Client.class);
+
+	private LocalServer server;
+	private RequestExecutorImpl transport;
+	private ServiceExecutor serviceExecutor;
+	// Number of the server errors to respond with before responding with the client
+	private final AtomicInteger serverErrors = new AtomicInteger();
+
+	private final List<ApiCallEvent> events = new CopyOnWriteArrayList<ApiCallEvent>();
+	private final ApiCallListener listener = new ApiCallListener() {
+
+		@Override
+		public void apiCallCompleted(ApiCallEvent event) {
+			events.add(event);
+		}
+	};
+
+	@Before
+	public void setUp() throws Exception {
+		server = new LocalServer();
+		server.handle("/api/clients", new HttpHandler() {
+
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				int status = 200;
+				String response = CLIENT;
+				if (exchange.getRequestURI().getPath().endsWith("/missing")) {
+					status = 400;
+					response = ERROR;
+				} else if (serverErrors.getAndDecrement() > 0) {
+					status = 500;
+					response = "{\"returnCode\":-1}";
+				}
+				respond(exchange, status, response);
+			}
+		});
+		server.start();
+		final String baseUrl = server.getApiUrl();
+
+		URLHelper urlHelper = new URLHelper("127.0.0.1") {
+
+			@Override
+			public String createUrl(String details) {
+				return baseUrl + details;
+			}
+		};
+		transport = new RequestExecutorImpl(urlHelper);
+		transport.setAuthorization("user", "password");
+		RequestExecutor executor = RetryingRequestExecutor.decorate(transport, new RetryPolicy(2, 1L));
+		serviceExecutor = new ServiceExecutor(new MambuAPIService("127.0.0.1", "user", "password", executor,
+				urlHelper));
+
+		ApiCallEvents.addListener(listener);
+	}
+
+	@After
+	public void tearDown() {
+		ApiCallEvents.removeListener(listener);
+		transport.shutdown();
+		server.stop();
+	}
+
+	@Test
+	public void firesRequestAndServiceCallEvents() throws Exception {
+
+		Client client = serviceExecutor.execute(getClient, "123");
+		assertEquals("123", client.getId());
+
+		assertEquals(2, events.size());
+		ApiCallEvent request = events.get(0);
+		assertEquals(ApiCallEvent.Kind.HTTP_REQUEST, request.getKind());
+		assertEquals(ApiType.GET_ENTITY, request.getApiType());
+		assertEquals(getClient.toString(), request.getApiDefinition());
+		assertEquals("/api/clients/123", request.getEndpoint());
+		assertEquals(Method.GET, request.getMethod());
+		assertEquals(200, request.getStatus());
+		assertFalse(request.isFailed());
+		assertEquals(1, request.getRequests());
+		assertEquals(0, request.getBytesSent());
+		assertEquals(CLIENT.length(), request.getBytesReceived());
+		assertTrue(request.getNetworkNanos() > 0);
+		assertTrue(request.getSerializationNanos() > 0);
+		assertTrue(request.getNetworkNanos() + request.getSerializationNanos() <= request.getDurationNanos());
+
+		ApiCallEvent serviceCall = events.get(1);
+		assertEquals(ApiCallEvent.Kind.SERVICE_CALL, serviceCall.getKind());
+		assertEquals("/api/clients/123", serviceCall.getEndpoint());
+		assertEquals(200, serviceCall.getStatus());
+		assertEquals(1, serviceCall.getRequests());
+		assertEquals(CLIENT.length(), serviceCall.getBytesReceived());
+		assertTrue(serviceCall.getDurationNanos() >= request.getDurationNanos());
+		assertNull(ApiCallEvents.getCurrentServiceCall());
+	}
+
+	@Test
+	public void serviceCallSumsUpRetries() throws Exception {
+
+		serverErrors.set(1);
+		serviceExecutor.execute(getClient, "123");
+
+		assertEquals(3, events.size());
+		assertEquals(500, events.get(0).getStatus());
+		assertTrue(events.get(0).isFailed());
+		assertEquals(200, events.get(1).getStatus());
+		ApiCallEvent serviceCall = events.get(2);
+		assertEquals(ApiCallEvent.Kind.SERVICE_CALL, serviceCall.getKind());
+		assertEquals(2, serviceCall.getRequests());
+		assertEquals(200, serviceCall.getStatus());
+		assertFalse(serviceCall.isFailed());
+		assertEquals(events.get(0).getBytesReceived() + events.get(1).getBytesReceived(),
+				serviceCall.getBytesReceived());
+	}
+
+	@Test
+	public void failedServiceCallHasErrorStatus() throws Exception {
+
+		try {
+			serviceExecutor.execute(getClient, "missing");
+			fail("MambuApiException expected");
+		} catch (MambuApiException e) {
+			assertEquals(Integer.valueOf(400), e.getErrorCode());
+		}
+
+		assertEquals(2, events.size());
+		for (ApiCallEvent event : events) {
+			assertEquals(400, event.getStatus());
+			assertTrue(event.isFailed());
+		}
+		assertNull(ApiCallEvents.getCurrentServiceCall());
+	}
+
+	@Test
+	public void noEventsWithoutListeners() throws Exception {
+
+		ApiCallEvents.removeListener(listener);
+		assertFalse(ApiCallEvents.isEnabled());
+		assertNull(ApiCallEvents.startServiceCall(getClient, "https://demo.mambu.com/api/clients/123"));
+
+		serviceExecutor.execute(getClient, "123");
+		assertTrue(events.isEmpty());
+	}
+
+	@Test
+	public void endpointIsUrlPath() {
+
+		assertEquals("/api/loans/8a33af/transactions",
+				ApiCallEvent.getPath("https://demo.mambu.com/api/loans/8a33af/transactions?offset=0&limit=50"));
+		assertEquals("/", ApiCallEvent.getPath("https://demo.mambu.com"));
+		assertEquals("/api/clients", ApiCallEvent.getPath("/api/clients"));
+	}
+}
@@ -0,0 +1,60 @@
+package com.mambu.apisdk.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+
+import org.junit.Test;
+
+import com.mambu.apisdk.util.ApiDefinition.ApiReturnFormat;
+import com.mambu.apisdk.util.ApiDefinition.ApiType;
+import com.mambu.apisdk.util.RequestExecutor.ContentType;
+import com.mambu.apisdk.util.RequestExecutor.Method;
+import com.mambu.clients.shared.model.Client;
+import com.mambu.docs.shared.model.Document;
+import com.mambu.loans.shared.model.LoanAccount;
+import com.mambu.loans.shared.model.LoanTransaction;
+
+public class ApiDefinitionTest {
+
+	@Test
+	public void resolvesDefinition() {
+
+		ApiDefinition getTransactions = new ApiDefinition(ApiType.GET_OWNED_ENTITIES, LoanAccount.class,
+				LoanTransaction.class);
+
+		assertEquals(APIData.LOANS, getTransactions.getEndPoint());
+		assertEquals(APIData.TRANSACTIONS, getTransactions.getRelatedEntity());
+		assertEquals(Method.GET, getTransactions.getMethod());
+		assertEquals(ContentType.WWW_FORM, getTransactions.getContentType());
+		assertEquals(ApiReturnFormat.COLLECTION, getTransactions.getApiReturnFormat());
+		assertEquals(LoanTransaction.class, getTransactions.getReturnClass());
+		assertEquals(ServiceExecutor.getCollectionType(LoanTransaction.class), getTransactions.getReturnType());
+
+		ApiDefinition deleteClient = new ApiDefinition(ApiType.DELETE_ENTITY, Client.class);
+		assertEquals(Boolean.class, deleteClient.getReturnType());
+	}
+
+	@Test
+	public void copiesDoNotModifyOriginal() {
+
+		ApiDefinition getDocument = new ApiDefinition(ApiType.GET_ENTITY, Document.class);
+		ApiDefinition getDocumentString = getDocument.withApiReturnFormat(ApiReturnFormat.RESPONSE_STRING);
+
+		assertNotSame(getDocument, getDocumentString);
+		assertEquals(ApiReturnFormat.OBJECT, getDocument.getApiReturnFormat());
+		assertEquals(Document.class, getDocument.getReturnType());
+		assertEquals(ApiReturnFormat.RESPONSE_STRING, getDocumentString.getApiReturnFormat());
+		assertEquals(String.class, getDocumentString.getReturnType());
+		assertEquals(getDocument.getEndPoint(), getDocumentString.getEndPoint());
+
+		ApiDefinition createClient = new ApiDefinition(ApiType.CREATE_FORM_ENTITY, Client.class);
+		ApiDefinition createClientJson = createClient.withContentType(ContentType.JSON).withJsonDateTimeFormat(
+				APIData.yyyyMmddFormat);
+
+		assertEquals(ContentType.WWW_FORM, createClient.getContentType());
+		assertEquals(GsonUtils.defaultDateTimeFormat, createClient.getJsonDateTimeFormat());
+		assertEquals(ContentType.JSON, createClientJson.getContentType());
+		assertEquals(APIData.yyyyMmddFormat, createClientJson.getJsonDateTimeFormat());
+		assertEquals(Method.POST, createClientJson.getMethod());
+	}
+}
@@ -0,0 +1,90 @@
+package com.mambu.apisdk.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.mambu.apisdk.util.ApiDefinition.ApiType;
+import com.mambu.clients.shared.model.Client;
+
+public class ApiResponseReaderTest {
+
+	@Test
+	public void readObject() throws IOException {
+
+		ApiDefinition apiDefinition = new ApiDefinition(ApiType.GET_ENTITY, Client.class);
+		Client client = ApiResponseReader.readResponse(new StringReader("{\"id\":\"abc123\",\"firstName\":\"John\"}"),
+				apiDefinition);
+
+		assertEquals("abc123", client.getId());
+		assertEquals("John", client.getFirstName());
+	}
+
+	@Test
+	public void readCollection() throws IOException {
+
+		ApiDefinition apiDefinition = new ApiDefinition(ApiType.GET_LIST, Client.class);
+		List<Client> clients = ApiResponseReader.readResponse(new StringReader("[{\"id\":\"1\"},{\"id\":\"2\"}]"),
+				apiDefinition);
+
+		assertEquals(2, clients.size());
+		assertEquals("2", clients.get(1).getId());
+	}
+
+	@Test
+	public void readEmptyResponse() throws IOException {
+
+		ApiDefinition apiDefinition = new ApiDefinition(ApiType.GET_ENTITY, Client.class);
+		Client client = ApiResponseReader.readResponse(new StringReader(""), apiDefinition);
+
+		assertNull(client);
+	}
+
+	@Test
+	public void readBoolean() throws IOException {
+
+		ApiDefinition apiDefinition = new ApiDefinition(ApiType.DELETE_ENTITY, Client.class);
+
+		Boolean success = ApiResponseReader.readResponse(new StringReader(
+				"{\"returnCode\":0,\"returnStatus\":\"SUCCESS\"}"), apiDefinition);
+		assertTrue(success);
+
+		Boolean failure = ApiResponseReader.readResponse(new StringReader(
+				"{\"returnCode\":100,\"returnStatus\":\"INVALID_CLIENT_ID\"}"), apiDefinition);
+		assertFalse(failure);
+
+		Boolean notAMessage = ApiResponseReader.readResponse(new StringReader("\"deleted\""), apiDefinition);
+		assertFalse(notAMessage);
+	}
+
+	@Test
+	public void readString() throws IOException {
+
+		assertEquals("{\"id\":\"abc\"}", ApiResponseReader.readString(new StringReader("{\"id\":\r\n\"abc\"}\n")));
+	}
+
+	@Test
+	public void keepPrefixOfDecodedResponse() throws IOException {
+
+		ApiDefinition apiDefinition = new ApiDefinition(ApiType.GET_LIST, Client.class);
+		String response = "[{\"id\":\"1\"},{\"id\":\"2\"}]";
+
+		ResponsePrefixReader reader = new ResponsePrefixReader(new StringReader(response), 10);
+		List<Client> clients = ApiResponseReader.readResponse(reader, apiDefinition);
+		assertEquals(2, clients.size());
+		assertEquals(response.substring(0, 10), reader.getPrefix());
+		assertTrue(reader.isTruncated());
+
+		reader = new ResponsePrefixReader(new StringReader(response), 100);
+		ApiResponseReader.readResponse(reader, apiDefinition);
+		assertEquals(response, reader.getPrefix());
+		assertFalse(reader.isTruncated());
+	}
+}
@@ -0,0 +1,251 @@
+package com.mambu.apisdk.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.mambu.apisdk.exception.MambuApiException;
+
+public class AsyncExecutorTest {
+
+	private AsyncExecutor asyncExecutor;
+
+	@Before
+	public void setUp() {
+		asyncExecutor = new AsyncExecutor(new AsyncExecutionSettings(4, 2));
+	}
+
+	@After
+	public void tearDown() {
+		asyncExecutor.shutdown();
+	}
+
+	@Test
+	public void limitsRequestsInFlight() throws Exception {
+
+		final CountDownLatch release = new CountDownLatch(1);
+		Callable<String> blockedRequest = new Callable<String>() {
+
+			@Override
+			public String call() throws Exception {
+				release.await();
+				return "done";
+			}
+		};
+		asyncExecutor.submit(blockedRequest, null);
+		asyncExecutor.submit(blockedRequest, null);
+		assertEquals(0, asyncExecutor.getAvailablePermits());
+
+		// The third request must wait until one of the requests in flight completes
+		final CountDownLatch submitted = new CountDownLatch(1);
+		Thread thread = new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+				asyncExecutor.submit(new Callable<String>() {
+
+					@Override
+					public String call() {
+						return "third";
+					}
+				}, null);
+				submitted.countDown();
+			}
+		});
+		thread.start();
+		assertFalse(submitted.await(200, TimeUnit.MILLISECONDS));
+
+		release.countDown();
+		assertTrue(submitted.await(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void releasesPermitOfCancelledRequest() throws Exception {
+
+		final CountDownLatch release = new CountDownLatch(1);
+		Callable<String> blockedRequest = new Callable<String>() {
+
+			@Override
+			public String call() throws Exception {
+				release.await();
+				return "done";
+			}
+		};
+		// Two requests occupy all threads, the third one is queued
+		AsyncExecutor executor = new AsyncExecutor(new AsyncExecutionSettings(2, 3));
+		try {
+			executor.submit(blockedRequest, null);
+			executor.submit(blockedRequest, null);
+			Future<String> queued = executor.submit(blockedRequest, null);
+			assertEquals(0, executor.getAvailablePermits());
+
+			// Cancelling the queued request releases its permit although it never started
+			queued.cancel(false);
+			assertEquals(1, executor.getAvailablePermits());
+		} finally {
+			release.countDown();
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void keepsPermitOfCancelledRequestUntilItReturns() throws Exception {
+
+		final CountDownLatch running = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final CountDownLatch returned = new CountDownLatch(1);
+		final List<String> notifications = Collections.synchronizedList(new ArrayList<String>());
+		MambuApiCallback<String> callback = new MambuApiCallback<String>() {
+
+			@Override
+			public void onSuccess(String result) {
+				notifications.add("success");
+			}
+
+			@Override
+			public void onFailure(MambuApiException exception) {
+				notifications.add(exception.getCause().getClass().getSimpleName());
+			}
+		};
+		// Blocked like a request in HTTP I/O, which is not interrupted by the cancellation
+		Future<String> future = asyncExecutor.submit(new Callable<String>() {
+
+			@Override
+			public String call() {
+				running.countDown();
+				boolean interrupted = false;
+				while (true) {
+					try {
+						release.await();
+						break;
+					} catch (InterruptedException e) {
+						interrupted = true;
+					}
+				}
+				returned.countDown();
+				if (interrupted) {
+					Thread.currentThread().interrupt();
+				}
+				return "done";
+			}
+		}, callback);
+		assertTrue(running.await(5, TimeUnit.SECONDS));
+		assertEquals(1, asyncExecutor.getAvailablePermits());
+
+		assertTrue(future.cancel(true));
+		// The request is still in flight
+		assertEquals(1, asyncExecutor.getAvailablePermits());
+		assertEquals(Arrays.asList("CancellationException"), notifications);
+
+		release.countDown();
+		assertTrue(returned.await(5, TimeUnit.SECONDS));
+		long deadline = System.currentTimeMillis() + 5000L;
+		while (asyncExecutor.getAvailablePermits() < 2 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10L);
+		}
+		assertEquals(2, asyncExecutor.getAvailablePermits());
+		// Completing the cancelled request doesn't notify the callback again
+		assertEquals(Arrays.asList("CancellationException"), notifications);
+	}
+
+	@Test
+	public void notifiesCancellationOfQueuedRequest() throws Exception {
+
+		final CountDownLatch release = new CountDownLatch(1);
+		Callable<String> blockedRequest = new Callable<String>() {
+
+			@Override
+			public String call() throws Exception {
+				release.await();
+				return "done";
+			}
+		};
+		final AtomicReference<MambuApiException> failure = new AtomicReference<MambuApiException>();
+		AsyncExecutor executor = new AsyncExecutor(new AsyncExecutionSettings(1, 2));
+		try {
+			executor.submit(blockedRequest, null);
+			Future<String> queued = executor.submit(blockedRequest, new MambuApiCallback<String>() {
+
+				@Override
+				public void onSuccess(String result) {
+					fail("Cancelled request must not succeed");
+				}
+
+				@Override
+				public void onFailure(MambuApiException exception) {
+					assertTrue(failure.compareAndSet(null, exception));
+				}
+			});
+
+			queued.cancel(false);
+			assertTrue(failure.get().getCause() instanceof CancellationException);
+		} finally {
+			release.countDown();
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void notifiesCallback() throws Exception {
+
+		final AtomicReference<String> success = new AtomicReference<String>();
+		final AtomicReference<MambuApiException> failure = new AtomicReference<MambuApiException>();
+		MambuApiCallback<String> callback = new MambuApiCallback<String>() {
+
+			@Override
+			public void onSuccess(String result) {
+				success.set(result);
+			}
+
+			@Override
+			public void onFailure(MambuApiException exception) {
+				failure.set(exception);
+			}
+		};
+
+		Future<String> future = asyncExecutor.submit(new Callable<String>() {
+
+			@Override
+			public String call() {
+				return "result";
+			}
+		}, callback);
+		assertEquals("result", future.get());
+		assertEquals("result", success.get());
+
+		final MambuApiException exception = new MambuApiException(404, "not found");
+		future = asyncExecutor.submit(new Callable<String>() {
+
+			@Override
+			public String call() throws MambuApiException {
+				throw exception;
+			}
+		}, callback);
+		try {
+			future.get();
+			fail("Request must fail");
+		} catch (ExecutionException e) {
+			assertSame(exception, e.getCause());
+		}
+		assertSame(exception, failure.get());
+		assertEquals(2, asyncExecutor.getAvailablePermits());
+	}
+}
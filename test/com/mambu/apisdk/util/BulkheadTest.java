@@ -0,0 +1,165 @@
+package com.mambu.apisdk.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.concurrent.BasicFuture;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Matchers;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import com.mambu.apisdk.exception.MambuApiException;
+import com.mambu.apisdk.util.ApiDefinition.ApiType;
+import com.mambu.clients.shared.model.Client;
+import com.mambu.docs.shared.model.Document;
+
+public class BulkheadTest {
+
+	private static final String DOCUMENT_URL = "https://demo.mambu.com/api/documents/123";
+	private static final String CLIENT_URL = "https://demo.mambu.com/api/clients/123";
+
+	private ApiDefinition getDocument;
+	private ApiDefinition getClient;
+	private BulkheadSettings settings;
+
+	@Before
+	public void setUp() {
+		getDocument = new ApiDefinition(ApiType.GET_ENTITY, Document.class);
+		getClient = new ApiDefinition(ApiType.GET_ENTITY, Client.class);
+
+		settings = new BulkheadSettings();
+		settings.addGroup("documents", 1, 1, 100L);
+		settings.assignEndPoint(APIData.DOCUMENTS, "documents");
+	}
+
+	@Test
+	public void slowGroupDoesNotBlockOtherRequests() throws Exception {
+
+		final CountDownLatch requestStarted = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final Client client = new Client();
+
+		RequestExecutor delegate = mock(RequestExecutor.class);
+		when(delegate.executeRequest(eq(DOCUMENT_URL), any(ParamsMap.class), eq(getDocument))).thenAnswer(
+				new Answer<Document>() {
+					@Override
+					public Document answer(InvocationOnMock invocation) throws Throwable {
+						requestStarted.countDown();
+						release.await();
+						return new Document();
+					}
+				});
+		when(delegate.executeRequest(eq(CLIENT_URL), any(ParamsMap.class), eq(getClient))).thenReturn(client);
+		final BulkheadRequestExecutor executor = BulkheadRequestExecutor.decorate(delegate, settings);
+
+		Thread slowRequest = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					executor.executeRequest(DOCUMENT_URL, null, getDocument);
+				} catch (MambuApiException e) {
+					// Checked by the bulkhead counters
+				}
+			}
+		});
+		slowRequest.start();
+		assertTrue(requestStarted.await(5, TimeUnit.SECONDS));
+
+		// Requests outside of the group are not limited
+		assertSame(client, executor.executeRequest(CLIENT_URL, null, getClient));
+
+		// Requests of the full group wait for the maximum wait and are rejected
+		try {
+			executor.executeRequest(DOCUMENT_URL, null, getDocument);
+			fail("Request must be rejected");
+		} catch (MambuApiException e) {
+			assertTrue(e.getCause() instanceof RejectedExecutionException);
+		}
+
+		Bulkhead bulkhead = executor.getBulkhead("documents");
+		assertEquals(1, bulkhead.getActiveRequests());
+		assertEquals(1L, bulkhead.getRejectedRequests());
+
+		release.countDown();
+		slowRequest.join(5000);
+		assertEquals(0, bulkhead.getActiveRequests());
+		verify(delegate, times(1)).executeRequest(eq(DOCUMENT_URL), any(ParamsMap.class), eq(getDocument));
+	}
+
+	@Test
+	public void queuesAsyncRequestsUntilPermitIsReturned() throws Exception {
+
+		final List<MambuApiCallback<Document>> pendingCallbacks = new ArrayList<MambuApiCallback<Document>>();
+		AsyncRequestExecutor delegate = mock(AsyncRequestExecutor.class);
+		when(delegate.executeRequestAsync(anyString(), any(ParamsMap.class), any(ApiDefinition.class),
+				Matchers.<MambuApiCallback<Document>> any())).thenAnswer(new Answer<Future<Document>>() {
+			@SuppressWarnings("unchecked")
+			@Override
+			public Future<Document> answer(InvocationOnMock invocation) {
+				pendingCallbacks.add((MambuApiCallback<Document>) invocation.getArguments()[3]);
+				return new BasicFuture<Document>(null);
+			}
+		});
+		AsyncRequestExecutor executor = (AsyncRequestExecutor) BulkheadRequestExecutor.decorate(delegate, settings);
+
+		Future<Document> first = executor.executeRequestAsync(DOCUMENT_URL, null, getDocument, null);
+		Future<Document> second = executor.executeRequestAsync(DOCUMENT_URL, null, getDocument, null);
+		assertEquals(1, pendingCallbacks.size());
+
+		// The queue is full
+		Future<Document> third = executor.executeRequestAsync(DOCUMENT_URL, null, getDocument, null);
+		try {
+			third.get(5, TimeUnit.SECONDS);
+			fail("Request must be rejected");
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause().getCause() instanceof RejectedExecutionException);
+		}
+
+		// Completing the first request starts the queued one
+		Document document = new Document();
+		pendingCallbacks.get(0).onSuccess(document);
+		assertSame(document, first.get(5, TimeUnit.SECONDS));
+		assertEquals(2, pendingCallbacks.size());
+		assertFalse(second.isDone());
+
+		pendingCallbacks.get(1).onSuccess(document);
+		assertSame(document, second.get(5, TimeUnit.SECONDS));
+		assertEquals(0, ((BulkheadRequestExecutor) executor).getBulkhead("documents").getActiveRequests());
+	}
+
+	@Test
+	public void assignsRequestsToGroups() {
+
+		settings.addGroup("default", 10);
+		settings.addGroup("clientLookups", 5);
+		settings.assignApiDefinition(getClient, "clientLookups");
+
+		assertEquals("documents", settings.getGroup(getDocument));
+		assertEquals("clientLookups", settings.getGroup(getClient));
+		assertEquals(null, settings.getGroup(new ApiDefinition(ApiType.GET_LIST, Client.class)));
+
+		settings.setDefaultGroup("default");
+		assertEquals("default", settings.getGroup(new ApiDefinition(ApiType.GET_LIST, Client.class)));
+		assertEquals("default", settings.getGroup(null));
+	}
+}
@@ -0,0 +1,176 @@
+package com.mambu.apisdk.util;
+
+import static com.mambu.apisdk.util.LocalServer.respond;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.mambu.apisdk.exception.MambuApiException;
+import com.mambu.apisdk.util.ApiDefinition.ApiType;
+import com.mambu.clients.shared.model.Client;
+import com.mambu.organization.shared.model.Branch;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+public class DeadlineTest {
+
+	private static final long SLOW_RESPONSE_MILLIS = 3000L;
+
+	private LocalServer server;
+	private ExecutorService serverThreads;
+	private String baseUrl;
+
+	private final ApiDefinition getClient = new ApiDefinition(ApiType.GET_ENTITY, Client.class);
+	private final ApiDefinition getBranch = new ApiDefinition(ApiType.GET_ENTITY, Branch.class);
+
+	@Before
+	public void setUp() throws Exception {
+		server = new LocalServer();
+		// Clients are slow to respond
+		server.handle("/api/clients/", new HttpHandler() {
+
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				try {
+					Thread.sleep(SLOW_RESPONSE_MILLIS);
+				} catch (InterruptedException e) {
+					exchange.close();
+					return;
+				}
+				respond(exchange, 200, "{\"id\":\"abc123\",\"firstName\":\"John\"}");
+			}
+		});
+		server.handle("/api/branches/", new HttpHandler() {
+
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				respond(exchange, 200, "{\"id\":\"branch1\",\"name\":\"Main\"}");
+			}
+		});
+		serverThreads = Executors.newCachedThreadPool();
+		server.start(serverThreads);
+		baseUrl = server.getApiUrl();
+	}
+
+	@After
+	public void tearDown() {
+		server.stop();
+		serverThreads.shutdownNow();
+	}
+
+	@Test
+	public void abortsRequestsExceedingTheirApiDefinitionTimeout() throws Exception {
+
+		TimeoutSettings timeoutSettings = new TimeoutSettings();
+		timeoutSettings.setRequestTimeout(getClient, 200L);
+		RequestExecutorImpl executor = new RequestExecutorImpl(new URLHelper("127.0.0.1"),
+				new ConnectionPoolSettings(), timeoutSettings);
+		executor.setAuthorization("user", "password");
+		try {
+			long start = System.nanoTime();
+			try {
+				executor.executeRequest(baseUrl + "clients/abc123", null, getClient);
+				fail("Request must time out");
+			} catch (MambuApiException e) {
+				assertTrue(e.getCause() instanceof TimeoutException);
+			}
+			assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < SLOW_RESPONSE_MILLIS / 2);
+
+			// Other API definitions have no request timeout
+			Branch branch = executor.executeRequest(baseUrl + "branches/branch1", null, getBranch);
+			assertEquals("Main", branch.getName());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void abortsRequestsMissingTheirDeadline() throws Exception {
+
+		NonBlockingRequestExecutor executor = new NonBlockingRequestExecutor(new URLHelper("127.0.0.1"));
+		executor.setAuthorization("user", "password");
+		try {
+			try {
+				executor.executeRequest(baseUrl + "clients/abc123", null, getClient,
+						Deadline.after(200L, TimeUnit.MILLISECONDS));
+				fail("Request must time out");
+			} catch (MambuApiException e) {
+				assertTrue(e.getCause() instanceof TimeoutException);
+			}
+
+			Branch branch = executor.executeRequest(baseUrl + "branches/branch1", null, getBranch,
+					Deadline.after(5L, TimeUnit.SECONDS));
+			assertEquals("Main", branch.getName());
+
+			// An expired deadline fails without sending the request
+			try {
+				executor.executeRequest(baseUrl + "branches/branch1", null, getBranch, Deadline.after(0L,
+						TimeUnit.MILLISECONDS));
+				fail("Request must time out");
+			} catch (MambuApiException e) {
+				assertTrue(e.getCause() instanceof TimeoutException);
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void failsAsyncRequestsExceedingTheirApiDefinitionTimeout() throws Exception {
+
+		TimeoutSettings timeoutSettings = new TimeoutSettings();
+		timeoutSettings.setRequestTimeout(getClient, 200L);
+		NonBlockingRequestExecutor executor = new NonBlockingRequestExecutor(new URLHelper("127.0.0.1"),
+				new ConnectionPoolSettings(), timeoutSettings);
+		executor.setAuthorization("user", "password");
+		try {
+			Future<Client> future = executor.executeRequestAsync(baseUrl + "clients/abc123", null, getClient, null);
+			try {
+				future.get(SLOW_RESPONSE_MILLIS / 2, TimeUnit.MILLISECONDS);
+				fail("Request must time out");
+			} catch (ExecutionException e) {
+				assertTrue(e.getCause().getCause() instanceof TimeoutException);
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void doesNotRetryBeyondTheDeadline() throws Exception {
+
+		RequestExecutor delegate = mock(RequestExecutor.class);
+		when(delegate.executeRequest(any(String.class), any(ParamsMap.class), eq(getClient), any(Deadline.class)))
+				.thenThrow(new MambuApiException(503, "Service Unavailable"));
+		RequestExecutor executor = new RetryingRequestExecutor(delegate, new RetryPolicy(5, 1L));
+
+		// The deadline is spent by the first attempt
+		Deadline deadline = Deadline.after(0L, TimeUnit.MILLISECONDS);
+		try {
+			executor.executeRequest(baseUrl + "clients/abc123", null, getClient, deadline);
+			fail("Request must fail");
+		} catch (MambuApiException e) {
+			assertEquals(Integer.valueOf(503), e.getErrorCode());
+		}
+		verify(delegate, times(1)).executeRequest(any(String.class), any(ParamsMap.class), eq(getClient),
+				eq(deadline));
+	}
+}
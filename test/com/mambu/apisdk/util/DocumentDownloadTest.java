@@ -0,0 +1,138 @@
+package com.mambu.apisdk.util;
+
+import static com.mambu.apisdk.util.LocalServer.respond;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+
+import org.apache.commons.codec.binary.Base64;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.mambu.apisdk.exception.MambuApiException;
+import com.mambu.apisdk.util.ApiDefinition.ApiReturnFormat;
+import com.mambu.apisdk.util.ApiDefinition.ApiType;
+import com.mambu.docs.shared.model.Document;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+public class DocumentDownloadTest {
+
+	private final ApiDefinition getDocument = new ApiDefinition(ApiType.GET_ENTITY, Document.class)
+			.withApiReturnFormat(ApiReturnFormat.RESPONSE_STRING);
+
+	private LocalServer server;
+	private String baseUrl;
+
+	private byte[] content;
+	private File file;
+
+	@Before
+	public void setUp() throws Exception {
+		content = new byte[100001];
+		new Random(42).nextBytes(content);
+
+		// Mambu returns the content base64 encoded with escaped CRLFs: "data:image/png;base64,iVBO...\r\nAAAA..."
+		String encoded = new String(Base64.encodeBase64Chunked(content), "US-ASCII").replace("\r\n", "\\r\\n");
+		final byte[] response = ("\"data:image/png;base64," + encoded + "\"").getBytes("UTF-8");
+
+		server = new LocalServer();
+		server.handle("/api/documents", new HttpHandler() {
+
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				if (exchange.getRequestURI().getPath().endsWith("/missing")) {
+					respond(exchange, 400, "{\"returnCode\":400,\"returnStatus\":\"INVALID_DOCUMENT_ID\"}");
+				} else {
+					respond(exchange, 200, response);
+				}
+			}
+		});
+		server.start();
+		baseUrl = server.getApiUrl();
+
+		file = File.createTempFile("download", ".bin");
+	}
+
+	@After
+	public void tearDown() {
+		server.stop();
+		file.delete();
+	}
+
+	@Test
+	public void decodesResponseIntoFile() throws Exception {
+
+		RequestExecutorImpl executor = new RequestExecutorImpl(new URLHelper("127.0.0.1"));
+		executor.setAuthorization("user", "password");
+		try {
+			ParamsMap params = new ParamsMap();
+			params.setDocumentContentSink(DocumentContentSink.toFile(file));
+			Long written = executor.executeRequest(baseUrl + "documents/8a33af", params, getDocument);
+
+			assertEquals(content.length, written.longValue());
+			assertArrayEquals(content, readFully(new FileInputStream(file)));
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void decodesAsyncResponseIntoStream() throws Exception {
+
+		NonBlockingRequestExecutor executor = new NonBlockingRequestExecutor(new URLHelper("127.0.0.1"));
+		executor.setAuthorization("user", "password");
+		try {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			ParamsMap params = new ParamsMap();
+			params.setDocumentContentSink(DocumentContentSink.toStream(out));
+			Long written = executor.executeRequest(baseUrl + "documents/8a33af", params, getDocument);
+
+			assertEquals(content.length, written.longValue());
+			assertArrayEquals(content, out.toByteArray());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void errorResponseIsNotWrittenToSink() throws Exception {
+
+		RequestExecutorImpl executor = new RequestExecutorImpl(new URLHelper("127.0.0.1"));
+		executor.setAuthorization("user", "password");
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try {
+			ParamsMap params = new ParamsMap();
+			params.setDocumentContentSink(DocumentContentSink.toStream(out));
+			executor.executeRequest(baseUrl + "documents/missing", params, getDocument);
+			fail("MambuApiException expected");
+		} catch (MambuApiException e) {
+			assertEquals(Integer.valueOf(400), e.getErrorCode());
+			assertEquals(0, out.size());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	private static byte[] readFully(InputStream in) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try {
+			byte[] buffer = new byte[8192];
+			int read;
+			while ((read = in.read(buffer)) != -1) {
+				out.write(buffer, 0, read);
+			}
+		} finally {
+			in.close();
+		}
+		return out.toByteArray();
+	}
+}
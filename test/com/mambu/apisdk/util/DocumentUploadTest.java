@@ -0,0 +1,129 @@
+package com.mambu.apisdk.util;
+
+import static com.mambu.apisdk.util.LocalServer.respond;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+
+import org.apache.commons.codec.binary.Base64;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.mambu.api.server.handler.documents.model.JSONDocument;
+import com.mambu.apisdk.util.ApiDefinition.ApiType;
+import com.mambu.docs.shared.model.Document;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+public class DocumentUploadTest {
+
+	private final ApiDefinition createDocument = new ApiDefinition(ApiType.CREATE_JSON_ENTITY, JSONDocument.class,
+			Document.class);
+
+	private LocalServer server;
+	private String baseUrl;
+	// Body and Content-Length header of the last upload
+	private volatile String uploadedJson;
+	private volatile String uploadedLength;
+
+	private byte[] content;
+	private File file;
+	private Document document;
+
+	@Before
+	public void setUp() throws Exception {
+		server = new LocalServer();
+		server.handle("/api/documents", new HttpHandler() {
+
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				uploadedLength = exchange.getRequestHeaders().getFirst("Content-Length");
+				uploadedJson = readFully(exchange.getRequestBody());
+				respond(exchange, 201, "{\"encodedKey\":\"8a33af\",\"name\":\"scan\"}");
+			}
+		});
+		server.start();
+		baseUrl = server.getApiUrl();
+
+		content = new byte[100001];
+		new Random(42).nextBytes(content);
+		file = File.createTempFile("upload", ".bin");
+		FileOutputStream out = new FileOutputStream(file);
+		out.write(content);
+		out.close();
+
+		document = new Document();
+		document.setName("scan");
+		document.setType("pdf");
+	}
+
+	@After
+	public void tearDown() {
+		server.stop();
+		file.delete();
+	}
+
+	@Test
+	public void streamsFileIntoTheDocumentJson() throws Exception {
+
+		RequestExecutorImpl executor = new RequestExecutorImpl(new URLHelper("127.0.0.1"));
+		executor.setAuthorization("user", "password");
+		try {
+			ParamsMap params = ServiceHelper.makeParamsForDocumentJson(document,
+					DocumentContentSource.fromFile(file));
+			Document uploaded = executor.executeRequest(baseUrl + "documents", params, createDocument);
+
+			assertEquals("scan", uploaded.getName());
+			assertEquals(makeExpectedJson(), uploadedJson);
+			// The length of a file upload is known in advance
+			assertEquals(String.valueOf(uploadedJson.length()), uploadedLength);
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void streamsInputStreamIntoTheDocumentJson() throws Exception {
+
+		NonBlockingRequestExecutor executor = new NonBlockingRequestExecutor(new URLHelper("127.0.0.1"));
+		executor.setAuthorization("user", "password");
+		try {
+			ParamsMap params = ServiceHelper.makeParamsForDocumentJson(document,
+					DocumentContentSource.fromStream(new ByteArrayInputStream(content)));
+			Document uploaded = executor.executeRequest(baseUrl + "documents", params, createDocument);
+
+			assertEquals("scan", uploaded.getName());
+			assertEquals(makeExpectedJson(), uploadedJson);
+			// Streams of unknown length are sent chunked
+			assertNull(uploadedLength);
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	// The JSON sent for a JSONDocument with the encoded content
+	private String makeExpectedJson() throws IOException {
+		JSONDocument jsonDocument = new JSONDocument();
+		jsonDocument.setDocument(document);
+		jsonDocument.setDocumentContent(new String(Base64.encodeBase64(content), "US-ASCII"));
+		return ServiceHelper.makeParamsForDocumentJson(jsonDocument).get(APIData.JSON_OBJECT);
+	}
+
+	private static String readFully(InputStream in) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[8192];
+		int read;
+		while ((read = in.read(buffer)) != -1) {
+			out.write(buffer, 0, read);
+		}
+		return out.toString("UTF-8");
+	}
+}
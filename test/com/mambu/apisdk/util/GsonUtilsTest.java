@@ -0,0 +1,42 @@
+package com.mambu.apisdk.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Date;
+
+import org.junit.Test;
+
+import com.google.gson.Gson;
+
+public class GsonUtilsTest {
+
+	@Test
+	public void sameInstanceForSameFormat() {
+
+		assertSame(GsonUtils.createGson(), GsonUtils.createGson());
+		assertSame(GsonUtils.createGson(), GsonUtils.createGson(GsonUtils.defaultDateTimeFormat));
+		assertSame(GsonUtils.createGson(), GsonUtils.createGson(null));
+		assertSame(GsonUtils.createGson("yyyy-MM-dd"), GsonUtils.createGson("yyyy-MM-dd"));
+		assertNotSame(GsonUtils.createGson(), GsonUtils.createGson("yyyy-MM-dd"));
+	}
+
+	@Test
+	public void formatsAreIndependent() {
+
+		// Getting an instance with a different format must not change the format of the other instances
+		Date date = new Date();
+		Gson dateOnly = GsonUtils.createGson("yyyy-MM-dd");
+		String dateOnlyJson = dateOnly.toJson(date);
+		assertTrue(dateOnlyJson.matches("\"\\d{4}-\\d{2}-\\d{2}\""));
+
+		Gson defaultFormat = GsonUtils.createGson();
+		assertTrue(defaultFormat.toJson(date).matches("\"\\d{4}-\\d{2}-\\d{2}T\\d{2}:\\d{2}:\\d{2}[+-]\\d{4}\""));
+
+		// The date only instance is unchanged by creating the default one
+		assertEquals(dateOnlyJson, dateOnly.toJson(date));
+		assertEquals(dateOnlyJson, GsonUtils.createGson("yyyy-MM-dd").toJson(date));
+	}
+}
@@ -0,0 +1,195 @@
+package com.mambu.apisdk.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.concurrent.BasicFuture;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Matchers;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import com.mambu.apisdk.util.ApiDefinition.ApiType;
+import com.mambu.clients.shared.model.Client;
+import com.mambu.loans.shared.model.LoanAccount;
+
+public class HedgingRequestExecutorTest {
+
+	private static final String CLIENT_URL = "https://demo.mambu.com/api/clients/123";
+
+	private final ApiDefinition getClient = new ApiDefinition(ApiType.GET_ENTITY, Client.class);
+
+	// Callbacks and futures of the requests sent to the delegate
+	private final List<MambuApiCallback<Client>> callbacks = new CopyOnWriteArrayList<MambuApiCallback<Client>>();
+	private final List<BasicFuture<Client>> futures = new CopyOnWriteArrayList<BasicFuture<Client>>();
+	private volatile boolean respondImmediately;
+
+	private HedgePolicy policy;
+	private ManualScheduler hedgeScheduler;
+	private HedgingRequestExecutor executor;
+
+	@Before
+	public void setUp() {
+		AsyncRequestExecutor delegate = mock(AsyncRequestExecutor.class);
+		when(delegate.executeRequestAsync(anyString(), any(ParamsMap.class), any(ApiDefinition.class),
+				Matchers.<MambuApiCallback<Client>> any())).thenAnswer(new Answer<Future<Client>>() {
+			@SuppressWarnings("unchecked")
+			@Override
+			public Future<Client> answer(InvocationOnMock invocation) {
+				MambuApiCallback<Client> callback = (MambuApiCallback<Client>) invocation.getArguments()[3];
+				BasicFuture<Client> future = new BasicFuture<Client>(null);
+				if (respondImmediately) {
+					Client client = new Client();
+					future.completed(client);
+					callback.onSuccess(client);
+				} else {
+					callbacks.add(callback);
+					futures.add(future);
+				}
+				return future;
+			}
+		});
+
+		policy = new HedgePolicy(50.0, 1.0);
+		policy.setMinSamples(1);
+		policy.setMinDelayMillis(0);
+		hedgeScheduler = new ManualScheduler();
+		executor = new HedgingRequestExecutor(delegate, policy, hedgeScheduler);
+	}
+
+	@After
+	public void tearDown() {
+		executor.shutdown();
+	}
+
+	@Test
+	public void slowRequestIsHedgedAndLoserCancelled() throws Exception {
+
+		// Unknown response times: not hedged
+		assertEquals(-1L, executor.getHedgeDelayMillis(getClient));
+		respondImmediately = true;
+		executor.executeRequestAsync(CLIENT_URL, null, getClient, null).get(5, TimeUnit.SECONDS);
+		assertTrue(executor.getHedgeDelayMillis(getClient) >= 0);
+
+		respondImmediately = false;
+		Future<Client> result = executor.executeRequestAsync(CLIENT_URL, null, getClient, null);
+		assertEquals(1, callbacks.size());
+		// The hedge is scheduled after the hedge delay
+		assertEquals(Long.valueOf(executor.getHedgeDelayMillis(getClient)), hedgeScheduler.delays.get(0));
+		hedgeScheduler.runScheduled();
+		assertEquals(2, callbacks.size());
+		assertEquals(1L, executor.getHedges());
+
+		// The hedge answers first
+		Client client = new Client();
+		futures.get(1).completed(client);
+		callbacks.get(1).onSuccess(client);
+		assertSame(client, result.get(5, TimeUnit.SECONDS));
+		assertTrue(futures.get(0).isCancelled());
+		assertEquals(1L, executor.getHedgeWins());
+	}
+
+	@Test
+	public void hedgesAreLimitedByBudget() throws Exception {
+
+		policy.setBudgetRatio(0.5);
+		respondImmediately = true;
+		executor.executeRequestAsync(CLIENT_URL, null, getClient, null).get(5, TimeUnit.SECONDS);
+
+		respondImmediately = false;
+		for (int i = 0; i < 4; i++) {
+			executor.executeRequestAsync(CLIENT_URL, null, getClient, null);
+			// The hedge delay elapses before the response
+			hedgeScheduler.runScheduled();
+		}
+		assertEquals(4L, executor.getHedgeableRequests() - 1);
+		assertEquals(2L, executor.getHedges());
+		assertEquals(6, callbacks.size());
+	}
+
+	@Test
+	public void onlyGetRequestsAreHedged() {
+
+		assertNull(policy.getPercentile(new ApiDefinition(ApiType.CREATE_JSON_ENTITY, Client.class)));
+		assertEquals(Double.valueOf(50.0), policy.getPercentile(getClient));
+
+		policy.setPercentile(APIData.LOANS, 99.0);
+		assertEquals(Double.valueOf(99.0), policy.getPercentile(new ApiDefinition(ApiType.GET_ENTITY,
+				LoanAccount.class)));
+
+		policy.excludeEndPoint(APIData.CLIENTS);
+		assertNull(policy.getPercentile(getClient));
+		assertFalse(policy.getExcludedEndPoints().isEmpty());
+	}
+
+	/**
+	 * Scheduler running the scheduled hedges only when the test runs them, as if their delay elapsed
+	 */
+	private static class ManualScheduler extends ScheduledThreadPoolExecutor {
+
+		private final List<ScheduledTask> scheduled = new CopyOnWriteArrayList<ScheduledTask>();
+		// Delays of all scheduled tasks in milliseconds
+		private final List<Long> delays = new CopyOnWriteArrayList<Long>();
+
+		private ManualScheduler() {
+			super(1);
+		}
+
+		@Override
+		public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+			ScheduledTask task = new ScheduledTask(command, unit.toMillis(delay));
+			scheduled.add(task);
+			delays.add(unit.toMillis(delay));
+			return task;
+		}
+
+		/**
+		 * Run the scheduled tasks on the calling thread
+		 */
+		private void runScheduled() {
+			for (ScheduledTask task : scheduled) {
+				scheduled.remove(task);
+				task.run();
+			}
+		}
+	}
+
+	private static class ScheduledTask extends FutureTask<Void> implements ScheduledFuture<Void> {
+
+		private final long delayMillis;
+
+		private ScheduledTask(Runnable command, long delayMillis) {
+			super(command, null);
+			this.delayMillis = delayMillis;
+		}
+
+		@Override
+		public long getDelay(TimeUnit unit) {
+			return unit.convert(delayMillis, TimeUnit.MILLISECONDS);
+		}
+
+		@Override
+		public int compareTo(Delayed other) {
+			long diff = getDelay(TimeUnit.MILLISECONDS) - other.getDelay(TimeUnit.MILLISECONDS);
+			return (diff < 0) ? -1 : (diff > 0) ? 1 : 0;
+		}
+	}
+}
@@ -0,0 +1,394 @@
+package com.mambu.apisdk.util;
+
+import static com.mambu.apisdk.util.LocalServer.respond;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.argThat;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.http.concurrent.BasicFuture;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentMatcher;
+import org.mockito.Matchers;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import com.google.gson.JsonParseException;
+import com.mambu.apisdk.exception.MambuApiException;
+import com.mambu.apisdk.util.ApiDefinition.ApiType;
+import com.mambu.apisdk.util.RequestExecutor.ContentType;
+import com.mambu.apisdk.util.RequestExecutor.Method;
+import com.mambu.clients.shared.model.Client;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+public class InterceptingRequestExecutorTest {
+
+	private static final String URL = "https://demo.mambu.com/api/clients";
+	private static final String CLIENT = "{\"id\":\"123\",\"firstName\":\"Jane\",\"lastName\":\"Doe\"}";
+
+	private final ApiDefinition getClient = new ApiDefinition(ApiType.GET_ENTITY, Client.class);
+
+	private RequestExecutor delegate;
+	private final List<String> calls = Collections.synchronizedList(new ArrayList<String>());
+	private LocalServer server;
+	// X-Trace header of the last request received by the server
+	private volatile String receivedTrace;
+
+	@Before
+	public void setUp() {
+		delegate = mock(RequestExecutor.class);
+	}
+
+	@After
+	public void tearDown() {
+		if (server != null) {
+			server.stop();
+		}
+	}
+
+	/**
+	 * Interceptor recording its calls and passing the request on
+	 */
+	private RequestInterceptor recording(final String name) {
+		return new RequestInterceptor() {
+
+			@Override
+			public void intercept(ApiRequest request, Chain chain, final MambuApiCallback<ApiResponse> callback) {
+				calls.add(name + " before");
+				chain.proceed(request, new MambuApiCallback<ApiResponse>() {
+
+					@Override
+					public void onSuccess(ApiResponse response) {
+						calls.add(name + " after " + response.getStatus());
+						callback.onSuccess(response);
+					}
+
+					@Override
+					public void onFailure(MambuApiException exception) {
+						calls.add(name + " failed");
+						callback.onFailure(exception);
+					}
+				});
+			}
+		};
+	}
+
+	@Test
+	public void callsInterceptorsInOrder() throws MambuApiException {
+
+		when(delegate.executeRequest(eq(URL), any(ParamsMap.class), eq(Method.GET), eq(ContentType.WWW_FORM)))
+				.thenReturn("response");
+		InterceptingRequestExecutor executor = new InterceptingRequestExecutor(delegate, Arrays.asList(
+				recording("first"), recording("second")));
+
+		assertEquals("response", executor.executeRequest(URL, Method.GET));
+		// The response was not received by the mocked transport
+		assertEquals(Arrays.asList("first before", "second before", "second after -1", "first after -1"), calls);
+	}
+
+	@Test
+	public void interceptorChangesRequestAndResult() throws MambuApiException {
+
+		final Client decoded = new Client("Jane", "Doe");
+		final Client replaced = new Client("John", "Doe");
+		final ParamsMap params = new ParamsMap();
+		params.addParam("offset", "0");
+		when(delegate.executeRequest(eq(URL + "/123"), argThat(new ArgumentMatcher<ParamsMap>() {
+
+			@Override
+			public boolean matches(Object argument) {
+				ParamsMap sent = (ParamsMap) argument;
+				return "0".equals(sent.get("offset")) && "1".equals(sent.get("extra"))
+						&& "trace-1".equals(sent.getHeaders().get("X-Trace"));
+			}
+		}), eq(getClient))).thenReturn(decoded);
+
+		InterceptingRequestExecutor executor = new InterceptingRequestExecutor(delegate,
+				Arrays.<RequestInterceptor> asList(new RequestInterceptor() {
+
+					@Override
+					public void intercept(ApiRequest request, Chain chain,
+							final MambuApiCallback<ApiResponse> callback) {
+						assertEquals(Method.GET, request.getMethod());
+						assertSame(getClient, request.getApiDefinition());
+						request.setUrlString(request.getUrlString() + "/123");
+						request.setParam("extra", "1");
+						request.setHeader("X-Trace", "trace-1");
+						chain.proceed(request, new MambuApiCallback<ApiResponse>() {
+
+							@Override
+							public void onSuccess(ApiResponse response) {
+								assertSame(decoded, response.getResult());
+								callback.onSuccess(response.withResult(replaced));
+							}
+
+							@Override
+							public void onFailure(MambuApiException exception) {
+								callback.onFailure(exception);
+							}
+						});
+					}
+				}));
+
+		Client client = executor.executeRequest(URL, params, getClient);
+
+		assertSame(replaced, client);
+		// The params of the caller are not changed
+		assertNull(params.get("extra"));
+		assertTrue(params.getHeaders().isEmpty());
+	}
+
+	@Test
+	public void interceptorShortCircuits() throws MambuApiException {
+
+		final Client cached = new Client("Jane", "Doe");
+		InterceptingRequestExecutor executor = new InterceptingRequestExecutor(delegate, Arrays.asList(
+				new RequestInterceptor() {
+
+					@Override
+					public void intercept(ApiRequest request, Chain chain, MambuApiCallback<ApiResponse> callback) {
+						callback.onSuccess(new ApiResponse(cached));
+					}
+				}, recording("second")));
+
+		Client client = executor.executeRequest(URL, null, getClient, Deadline.after(1000L, TimeUnit.MILLISECONDS));
+
+		assertSame(cached, client);
+		assertTrue(calls.isEmpty());
+		verify(delegate, never()).executeRequest(anyString(), any(ParamsMap.class), any(ApiDefinition.class),
+				any(Deadline.class));
+	}
+
+	@Test
+	public void passesDeadlineAndFailureThroughChain() throws MambuApiException {
+
+		Deadline deadline = Deadline.after(1000L, TimeUnit.MILLISECONDS);
+		MambuApiException failure = new MambuApiException(400, "INVALID_CLIENT_ID");
+		when(delegate.executeRequest(eq(URL), any(ParamsMap.class), eq(getClient), eq(deadline))).thenThrow(failure);
+		InterceptingRequestExecutor executor = new InterceptingRequestExecutor(delegate,
+				Arrays.asList(recording("first")));
+
+		try {
+			executor.executeRequest(URL, null, getClient, deadline);
+			fail("Expected MambuApiException");
+		} catch (MambuApiException e) {
+			assertSame(failure, e);
+		}
+		assertEquals(Arrays.asList("first before", "first failed"), calls);
+	}
+
+	@Test
+	public void reportsRuntimeFailureOfDelegateThroughChain() throws MambuApiException {
+
+		JsonParseException failure = new JsonParseException("Invalid JSON");
+		when(delegate.executeRequest(eq(URL), any(ParamsMap.class), eq(getClient))).thenThrow(failure);
+		InterceptingRequestExecutor executor = new InterceptingRequestExecutor(delegate,
+				Arrays.asList(recording("first")));
+
+		try {
+			executor.executeRequest(URL, null, getClient);
+			fail("Expected MambuApiException");
+		} catch (MambuApiException e) {
+			assertSame(failure, e.getCause());
+		}
+		assertEquals(Arrays.asList("first before", "first failed"), calls);
+	}
+
+	@Test
+	public void boundsWaitForInterceptorByRequestTimeout() {
+
+		TimeoutSettings timeoutSettings = new TimeoutSettings();
+		timeoutSettings.setRequestTimeout(getClient, 50L);
+		InterceptingRequestExecutor executor = new InterceptingRequestExecutor(delegate,
+				Arrays.<RequestInterceptor> asList(new RequestInterceptor() {
+
+					@Override
+					public void intercept(ApiRequest request, Chain chain, MambuApiCallback<ApiResponse> callback) {
+						// Never completes the callback
+					}
+				}), timeoutSettings);
+
+		try {
+			executor.executeRequest(URL, null, getClient);
+			fail("Expected MambuApiException");
+		} catch (MambuApiException e) {
+			assertTrue(e.getCause() instanceof TimeoutException);
+		}
+		// An explicit deadline bounds the wait without a request timeout
+		executor = new InterceptingRequestExecutor(delegate, executor.getInterceptors());
+		try {
+			executor.executeRequest(URL, null, getClient, Deadline.after(50L, TimeUnit.MILLISECONDS));
+			fail("Expected MambuApiException");
+		} catch (MambuApiException e) {
+			assertTrue(e.getCause() instanceof TimeoutException);
+		}
+	}
+
+	@Test
+	public void runsChainAroundAsyncRequests() throws Exception {
+
+		AsyncRequestExecutor asyncDelegate = mock(AsyncRequestExecutor.class);
+		final AtomicReference<MambuApiCallback<Object>> pending = new AtomicReference<MambuApiCallback<Object>>();
+		when(
+				asyncDelegate.executeRequestAsync(eq(URL), any(ParamsMap.class), eq(getClient),
+						Matchers.<MambuApiCallback<Object>> any())).thenAnswer(new Answer<Future<Object>>() {
+
+			@Override
+			@SuppressWarnings("unchecked")
+			public Future<Object> answer(InvocationOnMock invocation) {
+				pending.set((MambuApiCallback<Object>) invocation.getArguments()[3]);
+				return new BasicFuture<Object>(null);
+			}
+		});
+		RequestExecutor executor = InterceptingRequestExecutor.decorate(asyncDelegate,
+				Arrays.asList(recording("first")));
+		assertTrue(executor instanceof AsyncRequestExecutor);
+		assertFalse(InterceptingRequestExecutor.decorate(delegate, Arrays.asList(recording("first")))
+				instanceof AsyncRequestExecutor);
+
+		Future<Client> future = ((AsyncRequestExecutor) executor).executeRequestAsync(URL, null, getClient, null);
+
+		// The request is in flight without a blocked thread, the interceptor waits for its response
+		assertFalse(future.isDone());
+		assertEquals(Arrays.asList("first before"), calls);
+		Client client = new Client("Jane", "Doe");
+		pending.get().onSuccess(client);
+		assertSame(client, future.get(1, TimeUnit.SECONDS));
+		assertEquals(Arrays.asList("first before", "first after -1"), calls);
+
+		// Failures pass through the chain to the future
+		calls.clear();
+		future = ((AsyncRequestExecutor) executor).executeRequestAsync(URL, null, getClient, null);
+		MambuApiException failure = new MambuApiException(400, "INVALID_CLIENT_ID");
+		pending.get().onFailure(failure);
+		try {
+			future.get(1, TimeUnit.SECONDS);
+			fail("Expected ExecutionException");
+		} catch (ExecutionException e) {
+			assertSame(failure, e.getCause());
+		}
+		assertEquals(Arrays.asList("first before", "first failed"), calls);
+	}
+
+	@Test
+	public void reportsInterceptorFailureOfAsyncRequest() throws Exception {
+
+		AsyncRequestExecutor asyncDelegate = mock(AsyncRequestExecutor.class);
+		AsyncRequestExecutor executor = new InterceptingAsyncRequestExecutor(asyncDelegate,
+				Arrays.<RequestInterceptor> asList(new RequestInterceptor() {
+
+					@Override
+					public void intercept(ApiRequest request, Chain chain, MambuApiCallback<ApiResponse> callback) {
+						throw new IllegalStateException("Interceptor failed");
+					}
+				}));
+
+		Future<Client> future = executor.executeRequestAsync(URL, null, getClient, null);
+
+		try {
+			future.get(1, TimeUnit.SECONDS);
+			fail("Expected ExecutionException");
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause().getCause() instanceof IllegalStateException);
+		}
+	}
+
+	@Test
+	public void interceptorsSeeStatusAndHeaders() throws Exception {
+
+		String url = startServer();
+		final List<ApiResponse> responses = Collections.synchronizedList(new ArrayList<ApiResponse>());
+		RequestInterceptor interceptor = new RequestInterceptor() {
+
+			@Override
+			public void intercept(ApiRequest request, Chain chain, final MambuApiCallback<ApiResponse> callback) {
+				request.setHeader("X-Trace", "trace-1");
+				chain.proceed(request, new MambuApiCallback<ApiResponse>() {
+
+					@Override
+					public void onSuccess(ApiResponse response) {
+						responses.add(response);
+						callback.onSuccess(response);
+					}
+
+					@Override
+					public void onFailure(MambuApiException exception) {
+						callback.onFailure(exception);
+					}
+				});
+			}
+		};
+
+		RequestExecutorImpl transport = new RequestExecutorImpl(new URLHelper("127.0.0.1"));
+		NonBlockingRequestExecutor asyncTransport = new NonBlockingRequestExecutor(new URLHelper("127.0.0.1"));
+		try {
+			RequestExecutor executor = InterceptingRequestExecutor.decorate(transport, Arrays.asList(interceptor));
+			executor.setAuthorization("user", "password");
+			Client client = executor.executeRequest(url, null, getClient);
+			assertEquals("123", client.getId());
+			assertEquals("trace-1", receivedTrace);
+
+			AsyncRequestExecutor asyncExecutor = (AsyncRequestExecutor) InterceptingRequestExecutor.decorate(
+					asyncTransport, Arrays.asList(interceptor));
+			asyncExecutor.setAuthorization("user", "password");
+			receivedTrace = null;
+			Future<Client> future = asyncExecutor.executeRequestAsync(url, null, getClient, null);
+			assertEquals("123", future.get(5, TimeUnit.SECONDS).getId());
+			assertEquals("trace-1", receivedTrace);
+		} finally {
+			transport.shutdown();
+			asyncTransport.shutdown();
+		}
+
+		assertEquals(2, responses.size());
+		for (ApiResponse response : responses) {
+			assertEquals(200, response.getStatus());
+			assertEquals("req-1", response.getHeader("x-request-id"));
+			assertEquals("123", ((Client) response.getResult()).getId());
+		}
+	}
+
+	/**
+	 * Start the server responding with the client and an X-Request-Id header
+	 *
+	 * @return URL of the clients
+	 */
+	private String startServer() throws IOException {
+		server = new LocalServer();
+		server.handle("/api/clients", new HttpHandler() {
+
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				receivedTrace = exchange.getRequestHeaders().getFirst("X-Trace");
+				exchange.getResponseHeaders().add("X-Request-Id", "req-1");
+				respond(exchange, 200, CLIENT);
+			}
+		});
+		server.start();
+		return server.getApiUrl() + "clients";
+	}
+}
@@ -0,0 +1,95 @@
+package com.mambu.apisdk.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+
+import org.junit.Test;
+
+import com.mambu.clients.shared.model.Client;
+
+public class JsonObjectEntityTest {
+
+	@Test
+	public void writesSameJsonAsMakeApiJson() throws Exception {
+
+		Client client = new Client("Jane", "Doe");
+		client.setId("123");
+
+		JsonObjectEntity entity = new JsonObjectEntity(client, null, null);
+
+		assertEquals(ServiceHelper.makeApiJson(client), write(entity));
+		// The JSON is written again for each attempt
+		assertTrue(entity.isRepeatable());
+		assertEquals(write(entity), read(entity.getContent()));
+	}
+
+	@Test
+	public void insertsAppKeyAsFirstField() throws Exception {
+
+		Client client = new Client("Jane", "Doe");
+		String json = ServiceHelper.makeApiJson(client, "yyyy-MM-dd");
+
+		JsonObjectEntity entity = new JsonObjectEntity(client, "yyyy-MM-dd", "key\"1");
+
+		assertEquals("{\"appkey\":\"key\\\"1\"," + json.substring(1), write(entity));
+	}
+
+	@Test
+	public void insertsAppKeyIntoEmptyObject() throws Exception {
+
+		JsonObjectEntity entity = new JsonObjectEntity(new Empty(), null, "key1");
+
+		assertEquals("{\"appkey\":\"key1\"}", write(entity));
+	}
+
+	@Test
+	public void buffersShortJsonForContentLength() throws Exception {
+
+		Client client = new Client("Jane", "Doe");
+		String json = "{\"appkey\":\"key1\"," + ServiceHelper.makeApiJson(client).substring(1);
+
+		JsonObjectEntity entity = new JsonObjectEntity(client, null, "key1");
+
+		assertEquals(json.getBytes("UTF-8").length, entity.getContentLength());
+		assertEquals(json, write(entity));
+		assertEquals(json, read(entity.getContent()));
+	}
+
+	@Test
+	public void streamsLongJsonChunked() throws Exception {
+
+		Client client = new Client("Jane", "Doe");
+		String json = ServiceHelper.makeApiJson(client);
+
+		JsonObjectEntity entity = new JsonObjectEntity(client, null, null, json.length() - 1);
+
+		assertEquals(-1L, entity.getContentLength());
+		assertEquals(json, write(entity));
+		assertEquals(json, read(entity.getContent()));
+
+		// JSON of exactly the maximum length is buffered
+		assertEquals(json.length(), new JsonObjectEntity(client, null, null, json.length()).getContentLength());
+	}
+
+	private static class Empty {
+	}
+
+	private static String write(JsonObjectEntity entity) throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		entity.writeTo(out);
+		return out.toString("UTF-8");
+	}
+
+	private static String read(InputStream in) throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[8192];
+		int read;
+		while ((read = in.read(buffer)) != -1) {
+			out.write(buffer, 0, read);
+		}
+		return out.toString("UTF-8");
+	}
+}
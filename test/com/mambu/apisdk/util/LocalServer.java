@@ -0,0 +1,106 @@
+package com.mambu.apisdk.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.concurrent.Executor;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Local HTTP server standing in for the Mambu API in the tests of the request executors. It listens on a free port of
+ * the loopback interface; the tests add a handler per API path, e.g. "/api/clients/", and send their requests to
+ * getApiUrl() followed by the path
+ *
+ */
+class LocalServer {
+
+	private final HttpServer server;
+
+	LocalServer() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+	}
+
+	/**
+	 * Handle the requests to the path with the handler
+	 *
+	 * @param path
+	 *            path of the requests, e.g. "/api/clients/"
+	 * @param handler
+	 *            handler responding to the requests
+	 * @return this server
+	 */
+	LocalServer handle(String path, HttpHandler handler) {
+		server.createContext(path, handler);
+		return this;
+	}
+
+	/**
+	 * Start the server, handling the requests on the server's thread
+	 *
+	 * @return this server
+	 */
+	LocalServer start() {
+		server.start();
+		return this;
+	}
+
+	/**
+	 * Start the server, handling the requests on the executor's threads
+	 *
+	 * @param executor
+	 *            executor of the handlers, e.g. for handlers which block
+	 * @return this server
+	 */
+	LocalServer start(Executor executor) {
+		server.setExecutor(executor);
+		return start();
+	}
+
+	/**
+	 * Get the URL of the API, ending with a slash
+	 *
+	 * @return URL, e.g. "http://127.0.0.1:54321/api/"
+	 */
+	String getApiUrl() {
+		return "http://127.0.0.1:" + server.getAddress().getPort() + "/api/";
+	}
+
+	void stop() {
+		server.stop(0);
+	}
+
+	/**
+	 * Respond with the status and the JSON body
+	 *
+	 * @param exchange
+	 *            exchange of the request
+	 * @param status
+	 *            HTTP status
+	 * @param json
+	 *            response body
+	 */
+	static void respond(HttpExchange exchange, int status, String json) throws IOException {
+		exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+		respond(exchange, status, json.getBytes("UTF-8"));
+	}
+
+	/**
+	 * Respond with the status and the body
+	 *
+	 * @param exchange
+	 *            exchange of the request
+	 * @param status
+	 *            HTTP status
+	 * @param content
+	 *            response body
+	 */
+	static void respond(HttpExchange exchange, int status, byte[] content) throws IOException {
+		exchange.sendResponseHeaders(status, content.length);
+		OutputStream body = exchange.getResponseBody();
+		body.write(content);
+		body.close();
+	}
+}
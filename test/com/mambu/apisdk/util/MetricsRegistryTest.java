@@ -0,0 +1,163 @@
+package com.mambu.apisdk.util;
+
+import static com.mambu.apisdk.util.LocalServer.respond;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.mambu.apisdk.exception.MambuApiException;
+import com.mambu.apisdk.util.ApiDefinition.ApiType;
+import com.mambu.clients.shared.model.Client;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+public class MetricsRegistryTest {
+
+	private final ApiDefinition getClient = new ApiDefinition(ApiType.GET_ENTITY, Client.class);
+
+	private final static String CLIENT = "{\"id\":\"123\",\"firstName\":\"Jane\",\"lastName\":\"Doe\"}";
+	private final static String ERROR = "{\"returnCode\":3,\"returnStatus\":\"INVALID_CLIENT_ID\"}";
+
+	private LocalServer server;
+	private String baseUrl;
+	private MetricsRegistry registry;
+
+	@Before
+	public void setUp() throws Exception {
+		server = new LocalServer();
+		server.handle("/api/clients", new HttpHandler() {
+
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				boolean missing = exchange.getRequestURI().getPath().endsWith("/missing");
+				respond(exchange, missing ? 400 : 200, missing ? ERROR : CLIENT);
+			}
+		});
+		server.start();
+		baseUrl = server.getApiUrl();
+
+		registry = new MetricsRegistry();
+	}
+
+	@After
+	public void tearDown() {
+		registry.unregisterMBeans();
+		server.stop();
+	}
+
+	@Test
+	public void recordsCallsErrorsBytesAndPhases() throws Exception {
+
+		RequestExecutorImpl executor = new RequestExecutorImpl(new URLHelper("127.0.0.1"));
+		executor.setAuthorization("user", "password");
+		executor.setMetricsRegistry(registry);
+		try {
+			Client client = executor.executeRequest(baseUrl + "clients/123", null, getClient);
+			assertEquals("123", client.getId());
+			try {
+				executor.executeRequest(baseUrl + "clients/missing", null, getClient);
+				fail("MambuApiException expected");
+			} catch (MambuApiException e) {
+				assertEquals(Integer.valueOf(400), e.getErrorCode());
+			}
+		} finally {
+			executor.shutdown();
+		}
+
+		ApiMetrics metrics = registry.getMetrics("127.0.0.1", getClient);
+		assertEquals(2, metrics.getCalls());
+		assertEquals(1, metrics.getErrors());
+		assertEquals(Long.valueOf(1), metrics.getErrorsByStatus().get("400"));
+		assertEquals(Long.valueOf(1), metrics.getErrorsByReturnStatus().get("INVALID_CLIENT_ID"));
+		assertEquals(0, metrics.getBytesSent());
+		assertEquals(CLIENT.length() + ERROR.length(), metrics.getBytesReceived());
+		assertEquals(2, metrics.getLatency(ApiMetrics.Phase.REQUEST).getCount());
+		assertEquals(2, metrics.getLatency(ApiMetrics.Phase.PARSE).getCount());
+		// The connection is reused for the second request
+		assertEquals(1, metrics.getLatency(ApiMetrics.Phase.CONNECT).getCount());
+		assertEquals(1, metrics.getLatency(ApiMetrics.Phase.DNS).getCount());
+		assertEquals(1, registry.getMetrics().size());
+	}
+
+	@Test
+	public void recordsAsyncCalls() throws Exception {
+
+		NonBlockingRequestExecutor executor = new NonBlockingRequestExecutor(new URLHelper("127.0.0.1"));
+		executor.setAuthorization("user", "password");
+		executor.setMetricsRegistry(registry);
+		try {
+			executor.executeRequest(baseUrl + "clients/123", null, getClient);
+		} finally {
+			executor.shutdown();
+		}
+
+		ApiMetrics metrics = registry.getMetrics("127.0.0.1", getClient);
+		assertEquals(1, metrics.getCalls());
+		assertEquals(0, metrics.getErrors());
+		assertEquals(CLIENT.length(), metrics.getBytesReceived());
+		assertEquals(1, metrics.getLatency(ApiMetrics.Phase.REQUEST).getCount());
+		assertEquals(1, metrics.getLatency(ApiMetrics.Phase.PARSE).getCount());
+	}
+
+	@Test
+	public void histogramPercentilesAreWithinPrecision() {
+
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (int millis = 1; millis <= 1000; millis++) {
+			histogram.record(millis * 1000000L);
+		}
+
+		LatencyHistogram.Snapshot snapshot = histogram.getSnapshot();
+		assertEquals(1000, snapshot.getCount());
+		assertEquals(500.5, snapshot.getMeanMillis(), 0.001);
+		assertEquals(500.0, snapshot.getP50Millis(), 500.0 * 0.04);
+		assertEquals(990.0, snapshot.getP99Millis(), 990.0 * 0.04);
+		assertEquals(1000.0, snapshot.getMaxMillis(), 0.001);
+		assertTrue(snapshot.getP999Millis() <= snapshot.getMaxMillis());
+
+		for (long micros = 0; micros < 100000000L; micros = micros * 3 / 2 + 1) {
+			int index = LatencyHistogram.getIndex(micros);
+			assertTrue(micros <= LatencyHistogram.getHighestValue(index));
+			assertTrue(index == 0 || micros > LatencyHistogram.getHighestValue(index - 1));
+		}
+	}
+
+	@Test
+	public void registersGaugesAndMBeans() throws Exception {
+
+		RequestCoalescer coalescer = new RequestCoalescer();
+		registry.registerGauges("demo.requestCoalescer", coalescer);
+		Map<String, MetricsRegistry.Gauge> gauges = registry.getGauges();
+		assertNotNull(gauges.get("demo.requestCoalescer.inFlightRequests"));
+
+		ApiMetrics metrics = registry.getMetrics("demo.mambu.com", getClient);
+		metrics.recordCall(new MambuApiException(500, "{\"returnCode\":-1,\"returnStatus\":\"INTERNAL_ERROR\"}"));
+		metrics.recordLatency(ApiMetrics.Phase.REQUEST, 5000000L);
+
+		registry.registerMBeans("test");
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName metricsName = new ObjectName(MetricsRegistry.JMX_DOMAIN
+				+ ":type=ApiMetrics,registry=\"test\",tenant=\"demo.mambu.com\",api="
+				+ ObjectName.quote(getClient.toString()));
+		assertEquals(1L, server.getAttribute(metricsName, "Calls"));
+		assertEquals(1L, server.getAttribute(metricsName, "Errors"));
+		ObjectName gaugesName = new ObjectName(MetricsRegistry.JMX_DOMAIN + ":type=Gauges,registry=\"test\"");
+		assertEquals(0.0, server.getAttribute(gaugesName, "demo.requestCoalescer.inFlightRequests"));
+
+		registry.unregisterMBeans();
+		assertTrue(!server.isRegistered(metricsName));
+		assertTrue(!server.isRegistered(gaugesName));
+	}
+}
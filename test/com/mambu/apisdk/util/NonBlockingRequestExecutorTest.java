@@ -0,0 +1,274 @@
+package com.mambu.apisdk.util;
+
+import static com.mambu.apisdk.util.LocalServer.respond;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.mambu.apisdk.exception.MambuApiException;
+import com.mambu.apisdk.util.ApiDefinition.ApiType;
+import com.mambu.clients.shared.model.Client;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+public class NonBlockingRequestExecutorTest {
+
+	private LocalServer server;
+	private NonBlockingRequestExecutor executor;
+	private String clientsUrl;
+	// Released when the test ends, to complete the slow responses
+	private final CountDownLatch slowRequest = new CountDownLatch(1);
+	private final CountDownLatch slowResponse = new CountDownLatch(1);
+
+	private final ApiDefinition getClient = new ApiDefinition(ApiType.GET_ENTITY, Client.class);
+
+	@Before
+	public void setUp() throws Exception {
+		server = new LocalServer();
+		server.handle("/api/clients/", new HttpHandler() {
+
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				String path = exchange.getRequestURI().getPath();
+				if (path.endsWith("/slow")) {
+					slowRequest.countDown();
+					try {
+						slowResponse.await(5, TimeUnit.SECONDS);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+					respond(exchange, 200, "{\"id\":\"slow\"}");
+				} else if (path.endsWith("/abc123")) {
+					respond(exchange, 200, "{\"id\":\"abc123\",\"firstName\":\"John\"}");
+				} else {
+					respond(exchange, 404, "{\"returnCode\":301,\"returnStatus\":\"INVALID_CLIENT_ID\"}");
+				}
+			}
+		});
+		server.start();
+		clientsUrl = server.getApiUrl() + "clients/";
+
+		ConnectionPoolSettings poolSettings = new ConnectionPoolSettings();
+		poolSettings.setIoThreadCount(1);
+		executor = new NonBlockingRequestExecutor(new URLHelper("127.0.0.1"), poolSettings);
+		executor.setAuthorization("user", "password");
+	}
+
+	@After
+	public void tearDown() {
+		slowResponse.countDown();
+		executor.shutdown();
+		server.stop();
+	}
+
+	@Test
+	public void executesRequestAsynchronously() throws Exception {
+
+		final CountDownLatch completed = new CountDownLatch(1);
+		final AtomicReference<Client> callbackResult = new AtomicReference<Client>();
+		Future<Client> future = executor.executeRequestAsync(clientsUrl + "abc123", null, getClient,
+				new MambuApiCallback<Client>() {
+
+					@Override
+					public void onSuccess(Client result) {
+						callbackResult.set(result);
+						completed.countDown();
+					}
+
+					@Override
+					public void onFailure(MambuApiException exception) {
+						completed.countDown();
+					}
+				});
+
+		Client client = future.get(5, TimeUnit.SECONDS);
+		assertEquals("abc123", client.getId());
+		assertEquals("John", client.getFirstName());
+		assertTrue(completed.await(5, TimeUnit.SECONDS));
+		assertEquals("abc123", callbackResult.get().getId());
+	}
+
+	@Test
+	public void notifiesCallbackOffDispatchThread() throws Exception {
+
+		// With one I/O dispatch thread a synchronous request from the callback needs that thread to be free
+		final AtomicReference<String> callbackThread = new AtomicReference<String>();
+		final AtomicReference<Object> nestedResult = new AtomicReference<Object>();
+		final CountDownLatch completed = new CountDownLatch(1);
+		executor.executeRequestAsync(clientsUrl + "abc123", null, getClient, new MambuApiCallback<Client>() {
+
+			@Override
+			public void onSuccess(Client result) {
+				callbackThread.set(Thread.currentThread().getName());
+				try {
+					Client nested = executor.executeRequest(clientsUrl + "abc123", null, getClient,
+							Deadline.after(5, TimeUnit.SECONDS));
+					nestedResult.set(nested.getId());
+				} catch (MambuApiException e) {
+					nestedResult.set(e);
+				}
+				completed.countDown();
+			}
+
+			@Override
+			public void onFailure(MambuApiException exception) {
+				nestedResult.set(exception);
+				completed.countDown();
+			}
+		});
+
+		assertTrue(completed.await(10, TimeUnit.SECONDS));
+		assertEquals("abc123", nestedResult.get());
+		assertTrue(callbackThread.get().startsWith("mambu-response-worker-"));
+	}
+
+	@Test
+	public void reportsErrorResponses() throws Exception {
+
+		final CountDownLatch completed = new CountDownLatch(1);
+		final AtomicReference<MambuApiException> callbackException = new AtomicReference<MambuApiException>();
+		Future<Client> future = executor.executeRequestAsync(clientsUrl + "missing", null, getClient,
+				new MambuApiCallback<Client>() {
+
+					@Override
+					public void onSuccess(Client result) {
+						completed.countDown();
+					}
+
+					@Override
+					public void onFailure(MambuApiException exception) {
+						callbackException.set(exception);
+						completed.countDown();
+					}
+				});
+
+		try {
+			future.get(5, TimeUnit.SECONDS);
+			fail("Error response must fail the request");
+		} catch (ExecutionException e) {
+			MambuApiException cause = (MambuApiException) e.getCause();
+			assertEquals(Integer.valueOf(404), cause.getErrorCode());
+		}
+		assertTrue(completed.await(5, TimeUnit.SECONDS));
+		assertEquals(Integer.valueOf(404), callbackException.get().getErrorCode());
+	}
+
+	@Test
+	public void executesRequestSynchronously() throws Exception {
+
+		Client client = executor.executeRequest(clientsUrl + "abc123", null, getClient);
+		assertEquals("abc123", client.getId());
+
+		try {
+			executor.executeRequest(clientsUrl + "missing", null, getClient);
+			fail("Error response must throw MambuApiException");
+		} catch (MambuApiException e) {
+			assertEquals(Integer.valueOf(404), e.getErrorCode());
+		}
+	}
+
+	@Test
+	public void reportsConnectionFailures() throws Exception {
+
+		server.stop();
+		Future<Client> future = executor.executeRequestAsync(clientsUrl + "abc123", null, getClient, null);
+		try {
+			future.get(10, TimeUnit.SECONDS);
+			fail("Request must fail when the server is not available");
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof MambuApiException);
+			assertEquals(Integer.valueOf(-1), ((MambuApiException) e.getCause()).getErrorCode());
+		}
+	}
+
+	@Test
+	public void releasesPermitOfCancelledRequest() throws Exception {
+
+		final CountDownLatch failed = new CountDownLatch(1);
+		final AtomicReference<MambuApiException> callbackException = new AtomicReference<MambuApiException>();
+		AsyncExecutor asyncExecutor = new AsyncExecutor(new AsyncExecutionSettings(1, 1));
+		try {
+			Future<Client> future = asyncExecutor.submit(executor, clientsUrl + "slow", null, getClient,
+					new MambuApiCallback<Client>() {
+
+						@Override
+						public void onSuccess(Client result) {
+						}
+
+						@Override
+						public void onFailure(MambuApiException exception) {
+							callbackException.set(exception);
+							failed.countDown();
+						}
+					});
+			assertEquals(0, asyncExecutor.getAvailablePermits());
+			assertTrue(slowRequest.await(5, TimeUnit.SECONDS));
+
+			// Cancelling the request aborts it and reports the cancellation, which returns the permit
+			future.cancel(true);
+			assertTrue(failed.await(5, TimeUnit.SECONDS));
+			assertTrue(callbackException.get().getCause() instanceof CancellationException);
+			assertEquals(1, asyncExecutor.getAvailablePermits());
+		} finally {
+			asyncExecutor.shutdown();
+		}
+	}
+
+	@Test
+	public void completesMeterOfCancelledRequest() throws Exception {
+
+		MetricsRegistry registry = new MetricsRegistry();
+		executor.setMetricsRegistry(registry);
+		final List<ApiCallEvent> events = Collections.synchronizedList(new ArrayList<ApiCallEvent>());
+		ApiCallListener listener = new ApiCallListener() {
+
+			@Override
+			public void apiCallCompleted(ApiCallEvent event) {
+				events.add(event);
+			}
+		};
+		RingBufferSpanExporter exporter = new RingBufferSpanExporter(10);
+		Span root = new Tracer(exporter).startSpan("cancel");
+		ApiCallEvents.addListener(listener);
+		try {
+			Future<Client> future;
+			Span previous = TraceContext.attach(root);
+			try {
+				future = executor.executeRequestAsync(clientsUrl + "slow", null, getClient, null);
+			} finally {
+				TraceContext.detach(previous);
+			}
+			assertTrue(slowRequest.await(5, TimeUnit.SECONDS));
+
+			// Cancelling the request, e.g. as the losing attempt of a hedged request, completes its meter
+			future.cancel(true);
+
+			ApiMetrics metrics = registry.getMetrics().values().iterator().next();
+			assertEquals(1, metrics.getCalls());
+			assertEquals(1, metrics.getErrors());
+			assertEquals(1, events.size());
+			assertTrue(events.get(0).isFailed());
+			List<Span> spans = exporter.getSpans(root.getTraceId());
+			assertEquals(1, spans.size());
+			assertTrue(spans.get(0).isEnded());
+			assertTrue(spans.get(0).isError());
+		} finally {
+			ApiCallEvents.removeListener(listener);
+		}
+	}
+}
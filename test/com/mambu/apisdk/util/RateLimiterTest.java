@@ -0,0 +1,178 @@
+package com.mambu.apisdk.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.apache.http.concurrent.BasicFuture;
+import org.junit.Test;
+import org.mockito.Matchers;
+
+import com.mambu.apisdk.exception.MambuApiException;
+import com.mambu.apisdk.util.ApiDefinition.ApiType;
+import com.mambu.apisdk.util.RequestExecutor.Method;
+import com.mambu.clients.shared.model.Client;
+import com.mambu.loans.shared.model.LoanAccount;
+
+public class RateLimiterTest {
+
+	private static final String URL = "https://demo.mambu.com/api/clients";
+
+	@Test
+	public void failsFastWhenTokensAreExhausted() throws MambuApiException {
+
+		RateLimitSettings settings = new RateLimitSettings(1.0, 2);
+		settings.setMaxWaitMillis(0L);
+		RateLimiter rateLimiter = new RateLimiter("demo.mambu.com", settings);
+
+		assertEquals(2, rateLimiter.getAvailableTokens());
+		rateLimiter.acquire(null);
+		rateLimiter.acquire(null);
+		try {
+			rateLimiter.acquire(null);
+			fail("Exception expected");
+		} catch (MambuApiException e) {
+			assertTrue(e.getCause() instanceof RejectedExecutionException);
+		}
+		assertEquals(1L, rateLimiter.getRejectedRequests());
+		assertTrue(rateLimiter.getCurrentRate() >= 2.0);
+	}
+
+	@Test
+	public void queuesRequestsWithinMaxWait() throws MambuApiException {
+
+		RateLimitSettings settings = new RateLimitSettings(20.0, 1);
+		settings.setMaxWaitMillis(1000L);
+		RateLimiter rateLimiter = new RateLimiter("demo.mambu.com", settings);
+
+		assertEquals(0L, rateLimiter.reserve(null));
+		long delay = rateLimiter.reserve(null);
+		assertTrue(delay > 0 && delay <= TimeUnit.MILLISECONDS.toNanos(50));
+		// Waiting requests are served in order
+		assertTrue(rateLimiter.reserve(null) > delay);
+	}
+
+	@Test
+	public void limitsEndPoints() throws MambuApiException {
+
+		RateLimitSettings settings = new RateLimitSettings(100.0, 100);
+		settings.setMaxWaitMillis(0L);
+		settings.setEndPointLimit(APIData.LOANS, 1.0);
+		RateLimiter rateLimiter = new RateLimiter("demo.mambu.com", settings);
+
+		ApiDefinition getLoan = new ApiDefinition(ApiType.GET_ENTITY, LoanAccount.class);
+		ApiDefinition getClient = new ApiDefinition(ApiType.GET_ENTITY, Client.class);
+
+		rateLimiter.acquire(getLoan);
+		try {
+			rateLimiter.acquire(getLoan);
+			fail("Exception expected");
+		} catch (MambuApiException e) {
+			assertTrue(e.getCause() instanceof RejectedExecutionException);
+		}
+		// Other end points are limited by the tenant's limit only
+		rateLimiter.acquire(getClient);
+		rateLimiter.acquire(getClient);
+		assertEquals(-1.0, rateLimiter.getCurrentRate(APIData.CLIENTS), 0.0);
+	}
+
+	@Test
+	public void rejectedRequestIsNotSent() throws MambuApiException {
+
+		RateLimitSettings settings = new RateLimitSettings(1.0, 1);
+		settings.setMaxWaitMillis(0L);
+		RequestExecutor delegate = mock(RequestExecutor.class);
+		when(delegate.executeRequest(URL, Method.GET)).thenReturn("response");
+		RequestExecutor executor = RateLimitingRequestExecutor.decorate(delegate, new RateLimiter("demo.mambu.com",
+				settings));
+
+		assertEquals("response", executor.executeRequest(URL, Method.GET));
+		try {
+			executor.executeRequest(URL, Method.GET);
+			fail("Exception expected");
+		} catch (MambuApiException e) {
+			assertTrue(e.getCause() instanceof RejectedExecutionException);
+		}
+		verify(delegate, times(1)).executeRequest(URL, Method.GET);
+	}
+
+	@Test
+	public void rejectsAsyncRequestWaitingBeyondItsTimeout() throws Exception {
+
+		RateLimitSettings settings = new RateLimitSettings(1.0, 1);
+		TimeoutSettings timeoutSettings = new TimeoutSettings();
+		timeoutSettings.setDefaultRequestTimeoutMillis(100L);
+		ApiDefinition getClients = new ApiDefinition(ApiType.GET_LIST, Client.class);
+		AsyncRequestExecutor delegate = mock(AsyncRequestExecutor.class);
+		when(delegate.executeRequestAsync(eq(URL), any(ParamsMap.class), eq(getClients),
+				Matchers.<MambuApiCallback<Client>> any())).thenReturn(new BasicFuture<Client>(null));
+		AsyncRequestExecutor executor = (AsyncRequestExecutor) RateLimitingRequestExecutor.decorate(delegate,
+				new RateLimiter("demo.mambu.com", settings), timeoutSettings);
+
+		executor.executeRequestAsync(URL, null, getClients, null);
+		// The next token is available in a second, after the request timeout
+		Future<Client> rejected = executor.executeRequestAsync(URL, null, getClients, null);
+		try {
+			rejected.get(1, TimeUnit.SECONDS);
+			fail("Exception expected");
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause().getCause() instanceof TimeoutException);
+		}
+		verify(delegate, times(1)).executeRequestAsync(eq(URL), any(ParamsMap.class), eq(getClients),
+				Matchers.<MambuApiCallback<Client>> any());
+	}
+
+	@Test
+	public void rejectsSyncRequestWaitingBeyondItsTimeout() throws Exception {
+
+		RateLimitSettings settings = new RateLimitSettings(1.0, 1);
+		TimeoutSettings timeoutSettings = new TimeoutSettings();
+		timeoutSettings.setDefaultRequestTimeoutMillis(100L);
+		ApiDefinition getClients = new ApiDefinition(ApiType.GET_LIST, Client.class);
+		RequestExecutor delegate = mock(RequestExecutor.class);
+		RequestExecutor executor = RateLimitingRequestExecutor.decorate(delegate, new RateLimiter("demo.mambu.com",
+				settings), timeoutSettings);
+
+		executor.executeRequest(URL, null, getClients);
+		// The next token is available in a second, after the request timeout. The request fails without waiting
+		long start = System.nanoTime();
+		try {
+			executor.executeRequest(URL, null, getClients);
+			fail("Exception expected");
+		} catch (MambuApiException e) {
+			assertTrue(e.getCause() instanceof TimeoutException);
+		}
+		assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(500L));
+		verify(delegate, times(1)).executeRequest(URL, null, getClients);
+	}
+
+	@Test
+	public void sharesLimiterPerDomain() {
+
+		RateLimitSettings settings = new RateLimitSettings();
+		RateLimiter rateLimiter = RateLimiter.getTenantLimiter("shared.mambu.com", settings);
+		assertTrue(rateLimiter == RateLimiter.getTenantLimiter("shared.mambu.com", new RateLimitSettings()));
+		assertTrue(rateLimiter == RateLimiter.getTenantLimiter("shared.mambu.com"));
+
+		// Other settings don't change the tenant's limiter until it is removed
+		assertTrue(rateLimiter == RateLimiter.getTenantLimiter("shared.mambu.com", new RateLimitSettings(1.0, 1)));
+		assertTrue(rateLimiter == RateLimiter.removeTenantLimiter("shared.mambu.com"));
+		assertNull(RateLimiter.getTenantLimiter("shared.mambu.com"));
+		RateLimiter created = RateLimiter.getTenantLimiter("shared.mambu.com", new RateLimitSettings(1.0, 1));
+		assertTrue(rateLimiter != created);
+		RateLimiter.removeTenantLimiter("shared.mambu.com");
+	}
+}
@@ -0,0 +1,215 @@
+package com.mambu.apisdk.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.http.concurrent.BasicFuture;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Matchers;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import com.mambu.apisdk.exception.MambuApiException;
+import com.mambu.apisdk.util.ApiDefinition.ApiType;
+import com.mambu.apisdk.util.RequestExecutor.Method;
+import com.mambu.clients.shared.model.Client;
+
+public class RequestCoalescerTest {
+
+	private static final String URL = "https://demo.mambu.com/api/clients/123";
+	private static final String USER = "user";
+	private static final String CLIENT = "{\"id\":\"123\",\"firstName\":\"Jane\",\"lastName\":\"Doe\"}";
+
+	private RequestCoalescer coalescer;
+	private ApiDefinition getClient;
+
+	@Before
+	public void setUp() {
+		coalescer = new RequestCoalescer();
+		getClient = new ApiDefinition(ApiType.GET_ENTITY, Client.class);
+	}
+
+	@Test
+	public void coalescesConcurrentRequests() throws Exception {
+
+		final CountDownLatch requestStarted = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+
+		RequestExecutor delegate = mock(RequestExecutor.class);
+		when(delegate.executeRequest(eq(URL), any(ParamsMap.class), any(ApiDefinition.class))).thenAnswer(
+				new Answer<String>() {
+					@Override
+					public String answer(InvocationOnMock invocation) throws Throwable {
+						requestStarted.countDown();
+						release.await();
+						return CLIENT;
+					}
+				});
+		final RequestExecutor executor = CoalescingRequestExecutor.decorate(delegate, coalescer);
+
+		final List<Client> results = new ArrayList<Client>();
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int i = 0; i < 5; i++) {
+			Thread thread = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						Client result = executor.executeRequest(URL, null, getClient);
+						synchronized (results) {
+							results.add(result);
+						}
+					} catch (MambuApiException e) {
+						// Missing result fails the test
+					}
+				}
+			});
+			threads.add(thread);
+			thread.start();
+			if (i == 0) {
+				assertTrue(requestStarted.await(5, TimeUnit.SECONDS));
+			}
+		}
+		// Wait until all other threads are waiting for the request in flight
+		while (coalescer.getCoalescedRequests() < 4) {
+			Thread.sleep(5);
+		}
+		release.countDown();
+		for (Thread thread : threads) {
+			thread.join(5000);
+		}
+
+		// Each caller gets its own client, modifying it doesn't change the others
+		assertEquals(5, results.size());
+		results.get(0).setFirstName("Modified");
+		for (int i = 1; i < results.size(); i++) {
+			assertNotSame(results.get(0), results.get(i));
+			assertEquals("Jane", results.get(i).getFirstName());
+		}
+		verify(delegate, times(1)).executeRequest(eq(URL), any(ParamsMap.class), any(ApiDefinition.class));
+		assertEquals(1L, coalescer.getExecutedRequests());
+		assertEquals(4L, coalescer.getCoalescedRequests());
+		assertEquals(0, coalescer.getInFlightRequests());
+	}
+
+	@Test
+	public void doesNotCoalesceOtherMethods() throws MambuApiException {
+
+		RequestExecutor delegate = mock(RequestExecutor.class);
+		when(delegate.executeRequest(URL, Method.DELETE)).thenReturn("deleted");
+		RequestExecutor executor = CoalescingRequestExecutor.decorate(delegate, coalescer);
+
+		assertEquals("deleted", executor.executeRequest(URL, Method.DELETE));
+		assertEquals(0L, coalescer.getExecutedRequests());
+	}
+
+	@Test
+	public void canonicalizesParams() {
+
+		ParamsMap params = new ParamsMap();
+		params.put(APIData.OFFSET, "0");
+		params.put(APIData.LIMIT, "50");
+		ParamsMap reordered = new ParamsMap();
+		reordered.put(APIData.LIMIT, "50");
+		reordered.put(APIData.OFFSET, "0");
+		reordered.put(APIData.FULL_DETAILS, null);
+
+		assertEquals(RequestCoalescer.makeKey(USER, Method.GET, URL, params, null, getClient),
+				RequestCoalescer.makeKey(USER, Method.GET, URL, reordered, null, getClient));
+		assertFalse(RequestCoalescer.makeKey(USER, Method.GET, URL, params, null, getClient).equals(
+				RequestCoalescer.makeKey(USER, Method.GET, URL, params, null, null)));
+
+		// Requests of different users or with different headers are not identical
+		assertFalse(RequestCoalescer.makeKey(USER, Method.GET, URL, params, null, getClient).equals(
+				RequestCoalescer.makeKey("other", Method.GET, URL, params, null, getClient)));
+		reordered.setHeader("X-Tenant", "demo");
+		assertFalse(RequestCoalescer.makeKey(USER, Method.GET, URL, params, null, getClient).equals(
+				RequestCoalescer.makeKey(USER, Method.GET, URL, reordered, null, getClient)));
+	}
+
+	@Test
+	public void doesNotCoalesceRequestsOfDifferentUsers() throws Exception {
+
+		final List<MambuApiCallback<String>> pendingCallbacks = new ArrayList<MambuApiCallback<String>>();
+		AsyncRequestExecutor delegate = mock(AsyncRequestExecutor.class);
+		when(delegate.executeRequestAsync(anyString(), any(ParamsMap.class), any(ApiDefinition.class),
+				Matchers.<MambuApiCallback<String>> any())).thenAnswer(new Answer<Future<String>>() {
+			@Override
+			public Future<String> answer(InvocationOnMock invocation) {
+				pendingCallbacks.add(RequestCoalescerTest.<String> getCallback(invocation));
+				return new BasicFuture<String>(null);
+			}
+		});
+		AsyncRequestExecutor user = (AsyncRequestExecutor) CoalescingRequestExecutor.decorate(delegate, coalescer);
+		user.setAuthorization("user", "password");
+		AsyncRequestExecutor otherUser = (AsyncRequestExecutor) CoalescingRequestExecutor.decorate(delegate,
+				coalescer);
+		otherUser.setAuthorization("other", "password");
+
+		Future<Client> userResult = user.executeRequestAsync(URL, null, getClient, null);
+		Future<Client> otherResult = otherUser.executeRequestAsync(URL, null, getClient, null);
+
+		// Both requests are sent although they were in flight at the same time
+		assertEquals(2, pendingCallbacks.size());
+		assertEquals(2L, coalescer.getExecutedRequests());
+		assertEquals(0L, coalescer.getCoalescedRequests());
+		pendingCallbacks.get(1).onSuccess(CLIENT);
+		assertTrue(otherResult.isDone());
+		assertFalse(userResult.isDone());
+	}
+
+	@Test
+	public void coalescesAsyncRequests() throws Exception {
+
+		final AtomicReference<MambuApiCallback<String>> pendingCallback;
+		pendingCallback = new AtomicReference<MambuApiCallback<String>>();
+		AsyncRequestExecutor delegate = mock(AsyncRequestExecutor.class);
+		when(delegate.executeRequestAsync(anyString(), any(ParamsMap.class), any(ApiDefinition.class),
+				Matchers.<MambuApiCallback<String>> any())).thenAnswer(new Answer<Future<String>>() {
+			@Override
+			public Future<String> answer(InvocationOnMock invocation) {
+				pendingCallback.set(RequestCoalescerTest.<String> getCallback(invocation));
+				return new BasicFuture<String>(null);
+			}
+		});
+		AsyncRequestExecutor executor = (AsyncRequestExecutor) CoalescingRequestExecutor.decorate(delegate, coalescer);
+
+		Future<Client> first = executor.executeRequestAsync(URL, null, getClient, null);
+		Future<Client> second = executor.executeRequestAsync(URL, null, getClient, null);
+		assertFalse(first.isDone());
+
+		pendingCallback.get().onSuccess(CLIENT);
+		Client firstClient = first.get(5, TimeUnit.SECONDS);
+		Client secondClient = second.get(5, TimeUnit.SECONDS);
+		assertEquals("123", firstClient.getId());
+		assertEquals("123", secondClient.getId());
+		assertNotSame(firstClient, secondClient);
+		assertEquals(1L, coalescer.getExecutedRequests());
+		assertEquals(1L, coalescer.getCoalescedRequests());
+
+		// The completed request is not reused
+		executor.executeRequestAsync(URL, null, getClient, null);
+		assertEquals(2L, coalescer.getExecutedRequests());
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <R> MambuApiCallback<R> getCallback(InvocationOnMock invocation) {
+		return (MambuApiCallback<R>) invocation.getArguments()[3];
+	}
+}
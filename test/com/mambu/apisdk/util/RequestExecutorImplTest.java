@@ -0,0 +1,129 @@
+package com.mambu.apisdk.util;
+
+import static com.mambu.apisdk.util.LocalServer.respond;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.mambu.apisdk.MambuAPIModule;
+import com.mambu.apisdk.exception.MambuApiException;
+import com.mambu.apisdk.util.ApiDefinition.ApiType;
+import com.mambu.clients.shared.model.Client;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+public class RequestExecutorImplTest {
+
+	private final ApiDefinition getClient = new ApiDefinition(ApiType.GET_ENTITY, Client.class);
+
+	private LocalServer server;
+	private String clientsUrl;
+	private RequestExecutorImpl executor;
+	// Client connections accepted by the server
+	private final Set<InetSocketAddress> connections = Collections.synchronizedSet(new HashSet<InetSocketAddress>());
+
+	@Before
+	public void setUp() throws Exception {
+		server = new LocalServer();
+		server.handle("/api/clients/", new HttpHandler() {
+
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				connections.add(exchange.getRemoteAddress());
+				String path = exchange.getRequestURI().getPath();
+				if (path.endsWith("/abc123")) {
+					respond(exchange, 200, "{\"id\":\"abc123\",\"firstName\":\"John\"}");
+				} else if (path.endsWith("/error")) {
+					respond(exchange, 500, "{\"returnCode\":-1,\"returnStatus\":\"INTERNAL_SERVER_ERROR\"}");
+				} else {
+					respond(exchange, 404, "{\"returnCode\":301,\"returnStatus\":\"INVALID_CLIENT_ID\"}");
+				}
+			}
+		});
+		server.start();
+		clientsUrl = server.getApiUrl() + "clients/";
+
+		ConnectionPoolSettings poolSettings = new ConnectionPoolSettings();
+		poolSettings.setMaxConnectionsPerRoute(1);
+		executor = new RequestExecutorImpl(new URLHelper("127.0.0.1"), poolSettings);
+		executor.setAuthorization("user", "password");
+	}
+
+	@After
+	public void tearDown() {
+		executor.shutdown();
+		server.stop();
+	}
+
+	@Test
+	public void moduleSharesOneExecutor() {
+
+		Injector injector = Guice.createInjector(new MambuAPIModule("demo.mambu.com", "user", "password"));
+		RequestExecutor requestExecutor = injector.getInstance(RequestExecutor.class);
+		try {
+			// All services of the module use the same executor and its connection pool
+			assertTrue(requestExecutor instanceof RequestExecutorImpl);
+			assertSame(requestExecutor, injector.getInstance(RequestExecutor.class));
+			assertSame(requestExecutor, injector.getInstance(RequestExecutorImpl.class));
+		} finally {
+			requestExecutor.shutdown();
+		}
+	}
+
+	@Test
+	public void returnsConnectionToPoolAfterErrorResponses() throws Exception {
+
+		// With one connection per route a leaked connection would block the following requests
+		for (String id : new String[] { "missing", "error", "missing" }) {
+			try {
+				executor.executeRequest(clientsUrl + id, null, getClient);
+				fail("Expected MambuApiException");
+			} catch (MambuApiException e) {
+				assertEquals(id.equals("error") ? 500 : 404, e.getErrorCode().intValue());
+			}
+			assertEquals(0, executor.getPoolStats().getLeased());
+		}
+		Client client = executor.executeRequest(clientsUrl + "abc123", null, getClient);
+
+		assertEquals("abc123", client.getId());
+		assertEquals(0, executor.getPoolStats().getLeased());
+		assertEquals(1, executor.getPoolStats().getAvailable());
+		// The pooled connection was reused by all requests
+		assertEquals(1, connections.size());
+	}
+
+	@Test
+	public void shutdownClosesPoolAndIdleConnectionMonitor() throws Exception {
+
+		executor.executeRequest(clientsUrl + "abc123", null, getClient);
+		assertEquals(1, executor.getPoolStats().getAvailable());
+		ScheduledExecutorService monitor = executor.getIdleConnectionMonitor();
+		assertNotNull(monitor);
+
+		executor.shutdown();
+
+		assertTrue(monitor.isShutdown());
+		assertEquals(0, executor.getPoolStats().getAvailable());
+		try {
+			executor.executeRequest(clientsUrl + "abc123", null, getClient);
+			fail("Expected IllegalStateException");
+		} catch (IllegalStateException e) {
+			// The pool is shut down
+		}
+	}
+}
@@ -0,0 +1,238 @@
+package com.mambu.apisdk.util;
+
+import static com.mambu.apisdk.util.LocalServer.respond;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.mambu.apisdk.util.ApiDefinition.ApiType;
+import com.mambu.apisdk.util.RequestExecutor.Method;
+import com.mambu.clients.shared.model.Client;
+import com.mambu.organization.shared.model.Branch;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+public class ResponseCacheTest {
+
+	private static final String CLIENT_JSON = "{\"id\":\"abc123\",\"firstName\":\"John\"}";
+	private static final String ETAG = "\"v1\"";
+
+	private LocalServer server;
+	private String baseUrl;
+	private final AtomicInteger fullResponses = new AtomicInteger();
+	private final AtomicInteger notModifiedResponses = new AtomicInteger();
+
+	private RequestExecutorImpl executor;
+	private ResponseCache cache;
+
+	private final ApiDefinition getClient = new ApiDefinition(ApiType.GET_ENTITY, Client.class);
+	private final ApiDefinition getBranch = new ApiDefinition(ApiType.GET_ENTITY, Branch.class);
+
+	@Before
+	public void setUp() throws Exception {
+		server = new LocalServer();
+		// Clients have an ETag
+		server.handle("/api/clients/", new HttpHandler() {
+
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				if (ETAG.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+					notModifiedResponses.incrementAndGet();
+					exchange.getResponseHeaders().set("ETag", ETAG);
+					exchange.sendResponseHeaders(304, -1);
+					exchange.close();
+					return;
+				}
+				fullResponses.incrementAndGet();
+				exchange.getResponseHeaders().set("ETag", ETAG);
+				respond(exchange, 200, CLIENT_JSON);
+			}
+		});
+		// Branches have no validators
+		server.handle("/api/branches/", new HttpHandler() {
+
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				fullResponses.incrementAndGet();
+				respond(exchange, 200, "{\"id\":\"branch1\",\"name\":\"Main\"}");
+			}
+		});
+		server.start();
+		baseUrl = server.getApiUrl();
+
+		executor = new RequestExecutorImpl(new URLHelper("127.0.0.1"));
+		executor.setAuthorization("user", "password");
+		cache = new ResponseCache();
+		executor.setResponseCache(cache);
+	}
+
+	@After
+	public void tearDown() {
+		executor.shutdown();
+		server.stop();
+	}
+
+	@Test
+	public void revalidatesResponsesWithETag() throws Exception {
+
+		Client first = executor.executeRequest(baseUrl + "clients/abc123", null, getClient);
+		Client second = executor.executeRequest(baseUrl + "clients/abc123", null, getClient);
+
+		assertEquals("John", first.getFirstName());
+		assertEquals("John", second.getFirstName());
+		assertEquals(1, fullResponses.get());
+		assertEquals(1, notModifiedResponses.get());
+
+		ResponseCache.Statistics stats = cache.getStatistics(getClient);
+		assertEquals(1L, stats.getMisses());
+		assertEquals(1L, stats.getRevalidations());
+		assertEquals(CLIENT_JSON.length(), stats.getBytesSaved());
+		assertTrue(cache.getStatistics().containsKey("GET_ENTITY clients"));
+	}
+
+	@Test
+	public void servesFreshResponsesWithoutRequest() throws Exception {
+
+		cache.setTimeToLive(APIData.BRANCHES, TimeUnit.MINUTES.toMillis(1));
+
+		Branch first = executor.executeRequest(baseUrl + "branches/branch1", null, getBranch);
+		Branch second = executor.executeRequest(baseUrl + "branches/branch1", null, getBranch);
+
+		assertEquals("Main", first.getName());
+		assertEquals("Main", second.getName());
+		assertEquals(1, fullResponses.get());
+		assertEquals(1L, cache.getStatistics(getBranch).getHits());
+	}
+
+	@Test
+	public void doesNotShareResponsesBetweenUsers() throws Exception {
+
+		cache.setTimeToLive(APIData.BRANCHES, TimeUnit.MINUTES.toMillis(1));
+		RequestExecutorImpl otherUser = new RequestExecutorImpl(new URLHelper("127.0.0.1"));
+		otherUser.setAuthorization("other", "secret");
+		otherUser.setResponseCache(cache);
+		try {
+			executor.executeRequest(baseUrl + "branches/branch1", null, getBranch);
+			otherUser.executeRequest(baseUrl + "branches/branch1", null, getBranch);
+			otherUser.executeRequest(baseUrl + "branches/branch1", null, getBranch);
+		} finally {
+			otherUser.shutdown();
+		}
+
+		// Each user gets the response to their own request, then the cached one
+		assertEquals(2, fullResponses.get());
+		assertEquals(2, cache.getEntryCount());
+		assertEquals(1L, cache.getStatistics(getBranch).getHits());
+	}
+
+	@Test
+	public void doesNotCacheResponsesWithoutValidatorsByDefault() throws Exception {
+
+		executor.executeRequest(baseUrl + "branches/branch1", null, getBranch);
+		executor.executeRequest(baseUrl + "branches/branch1", null, getBranch);
+
+		assertEquals(2, fullResponses.get());
+		assertEquals(0, cache.getEntryCount());
+		// Requests without an ApiDefinition are cached as well
+		executor.executeRequest(baseUrl + "clients/abc123", Method.GET);
+		assertEquals(1, cache.getEntryCount());
+	}
+
+	@Test
+	public void evictsLeastRecentlyUsedResponses() throws Exception {
+
+		cache = new ResponseCache(CLIENT_JSON.length() * 2);
+		executor.setResponseCache(cache);
+
+		executor.executeRequest(baseUrl + "clients/abc123", null, getClient);
+		executor.executeRequest(baseUrl + "clients/abc124", null, getClient);
+		assertEquals(2, cache.getEntryCount());
+
+		executor.executeRequest(baseUrl + "clients/abc125", null, getClient);
+		assertEquals(2, cache.getEntryCount());
+		assertTrue(cache.getCachedBytes() <= cache.getMaxBytes());
+
+		// The first response was evicted, it is requested in full again
+		executor.executeRequest(baseUrl + "clients/abc123", null, getClient);
+		assertEquals(4, fullResponses.get());
+	}
+
+	@Test
+	public void doesNotMeterFreshResponsesAsCalls() throws Exception {
+
+		cache.setTimeToLive(APIData.BRANCHES, TimeUnit.MINUTES.toMillis(1));
+		MetricsRegistry registry = new MetricsRegistry();
+		executor.setMetricsRegistry(registry);
+
+		executor.executeRequest(baseUrl + "branches/branch1", null, getBranch);
+		executor.executeRequest(baseUrl + "branches/branch1", null, getBranch);
+
+		// The cache hit is counted by the cache statistics only
+		assertEquals(1, registry.getMetrics("127.0.0.1", getBranch).getCalls());
+		assertEquals(1L, cache.getStatistics(getBranch).getHits());
+	}
+
+	@Test
+	public void checksHeadersBeforeBufferingResponse() {
+
+		HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+		response.setEntity(new StringEntity(CLIENT_JSON, ContentType.APPLICATION_JSON));
+		// No validators and no time to live
+		assertFalse(cache.isCacheable(response, getBranch));
+		cache.setTimeToLive(APIData.BRANCHES, TimeUnit.MINUTES.toMillis(1));
+		assertTrue(cache.isCacheable(response, getBranch));
+		response.setHeader("Cache-Control", "max-age=0");
+		assertFalse(cache.isCacheable(response, getBranch));
+
+		response.setHeader("ETag", ETAG);
+		assertTrue(cache.isCacheable(response, getClient));
+		response.setHeader("Cache-Control", "no-store");
+		assertFalse(cache.isCacheable(response, getClient));
+
+		// Larger than the whole cache
+		response.removeHeaders("Cache-Control");
+		assertFalse(new ResponseCache(CLIENT_JSON.length() - 1).isCacheable(response, getClient));
+	}
+
+	@Test
+	public void replacesStaleResponseWithResponseWhichCannotBeCached() throws Exception {
+
+		cache.setTimeToLive(APIData.BRANCHES, 1L);
+		executor.executeRequest(baseUrl + "branches/branch1", null, getBranch);
+		assertEquals(1, cache.getEntryCount());
+		Thread.sleep(10L);
+
+		cache.setTimeToLive(APIData.BRANCHES, 0L);
+		Branch branch = executor.executeRequest(baseUrl + "branches/branch1", null, getBranch);
+
+		assertEquals("Main", branch.getName());
+		assertEquals(0, cache.getEntryCount());
+		assertEquals(0L, cache.getCachedBytes());
+	}
+
+	@Test
+	public void countsResponseSizeInUtf8Bytes() throws Exception {
+
+		String body = "{\"name\":\"a\u00e9\u20ac\ud83d\ude00\ud83d\"}";
+		HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+		response.setHeader("ETag", ETAG);
+
+		ResponseCache.Entry entry = cache.put("key", body, response, getClient);
+
+		assertEquals(body.getBytes("UTF-8").length, entry.size);
+		assertEquals(entry.size, cache.getCachedBytes());
+	}
+}
@@ -0,0 +1,319 @@
+package com.mambu.apisdk.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.util.Date;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.concurrent.BasicFuture;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.impl.cookie.DateUtils;
+import org.apache.http.message.BasicHttpResponse;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Matchers;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import com.mambu.apisdk.exception.MambuApiException;
+import com.mambu.apisdk.util.ApiDefinition.ApiType;
+import com.mambu.apisdk.util.RequestExecutor.Method;
+import com.mambu.clients.shared.model.Client;
+
+public class RetryingRequestExecutorTest {
+
+	private static final String URL = "https://demo.mambu.com/api/clients";
+
+	private RequestExecutor delegate;
+	private RetryingRequestExecutor executor;
+
+	@Before
+	public void setUp() {
+		delegate = mock(RequestExecutor.class);
+		executor = new RetryingRequestExecutor(delegate, new RetryPolicy(3, 1L));
+	}
+
+	@Test
+	public void retriesServerErrors() throws MambuApiException {
+
+		when(delegate.executeRequest(URL, Method.GET)).thenThrow(new MambuApiException(503, "Service Unavailable"))
+				.thenReturn("response");
+
+		assertEquals("response", executor.executeRequest(URL, Method.GET));
+		verify(delegate, times(2)).executeRequest(URL, Method.GET);
+	}
+
+	@Test
+	public void retriesIOErrors() throws MambuApiException {
+
+		ApiDefinition apiDefinition = new ApiDefinition(ApiType.GET_ENTITY, Client.class);
+		when(delegate.executeRequest(eq(URL), any(ParamsMap.class), eq(apiDefinition))).thenThrow(
+				new MambuApiException(new IOException("Connection refused"))).thenReturn("client");
+
+		assertEquals("client", executor.<String> executeRequest(URL, null, apiDefinition));
+	}
+
+	@Test
+	public void doesNotRetryPost() throws MambuApiException {
+
+		when(delegate.executeRequest(URL, Method.POST)).thenThrow(new MambuApiException(503, "Service Unavailable"))
+				.thenReturn("response");
+		try {
+			executor.executeRequest(URL, Method.POST);
+			fail("Exception expected");
+		} catch (MambuApiException e) {
+			assertEquals(Integer.valueOf(503), e.getErrorCode());
+		}
+		verify(delegate, times(1)).executeRequest(URL, Method.POST);
+	}
+
+	@Test
+	public void doesNotRetryClientErrors() throws MambuApiException {
+
+		when(delegate.executeRequest(URL, Method.GET)).thenThrow(new MambuApiException(404, "Not Found"));
+		try {
+			executor.executeRequest(URL, Method.GET);
+			fail("Exception expected");
+		} catch (MambuApiException e) {
+			assertEquals(Integer.valueOf(404), e.getErrorCode());
+		}
+		verify(delegate, times(1)).executeRequest(URL, Method.GET);
+	}
+
+	@Test
+	public void stopsAfterMaxAttempts() throws MambuApiException {
+
+		when(delegate.executeRequest(URL, Method.DELETE)).thenThrow(new MambuApiException(429, "Too Many Requests"));
+		try {
+			executor.executeRequest(URL, Method.DELETE);
+			fail("Exception expected");
+		} catch (MambuApiException e) {
+			assertEquals(Integer.valueOf(429), e.getErrorCode());
+		}
+		verify(delegate, times(3)).executeRequest(URL, Method.DELETE);
+	}
+
+	@Test
+	public void stopsWhenBudgetIsExhausted() throws MambuApiException {
+
+		RetryPolicy policy = new RetryPolicy(10, 1000L);
+		policy.setRetryBudgetMillis(0L);
+		executor = new RetryingRequestExecutor(delegate, policy);
+
+		when(delegate.executeRequest(URL, Method.GET)).thenThrow(new MambuApiException(500, "Internal Server Error"));
+		long start = System.currentTimeMillis();
+		try {
+			executor.executeRequest(URL, Method.GET);
+			fail("Exception expected");
+		} catch (MambuApiException e) {
+			assertEquals(Integer.valueOf(500), e.getErrorCode());
+		}
+		assertTrue(System.currentTimeMillis() - start < 1000L);
+	}
+
+	@Test
+	public void backoffIsBounded() {
+
+		RetryPolicy policy = new RetryPolicy(10, 100L);
+		policy.setMaxBackoffMillis(300L);
+		Random random = new Random(42);
+		for (int retry = 1; retry < 10; retry++) {
+			long backoff = policy.getBackoffMillis(retry, random);
+			assertTrue(backoff >= 0L && backoff <= 300L);
+		}
+	}
+
+	@Test
+	public void backoffHonorsRetryAfter() {
+
+		RetryPolicy policy = new RetryPolicy(3, 100L);
+		MambuApiException tooManyRequests = new MambuApiException(429, "Too Many Requests");
+		tooManyRequests.setRetryAfterMillis(5000L);
+		Random random = new Random(42);
+
+		assertEquals(5000L, policy.getBackoffMillis(1, tooManyRequests, random));
+		policy.setHonorRetryAfter(false);
+		assertTrue(policy.getBackoffMillis(1, tooManyRequests, random) <= 100L);
+	}
+
+	@Test
+	public void readsRetryAfterHeader() {
+
+		HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 429, "Too Many Requests");
+		assertNull(AbstractRequestExecutor.getRetryAfterMillis(response));
+		response.setHeader("Retry-After", "120");
+		assertEquals(Long.valueOf(120000L), AbstractRequestExecutor.getRetryAfterMillis(response));
+		response.setHeader("Retry-After", DateUtils.formatDate(new Date(System.currentTimeMillis() + 60000L)));
+		long delay = AbstractRequestExecutor.getRetryAfterMillis(response);
+		assertTrue(delay > 55000L && delay <= 60000L);
+		response.setHeader("Retry-After", "soon");
+		assertNull(AbstractRequestExecutor.getRetryAfterMillis(response));
+	}
+
+	@Test
+	public void stopsWhenRetryAfterExceedsRequestTimeout() throws MambuApiException {
+
+		ApiDefinition apiDefinition = new ApiDefinition(ApiType.GET_ENTITY, Client.class);
+		TimeoutSettings timeoutSettings = new TimeoutSettings();
+		timeoutSettings.setRequestTimeout(apiDefinition, 1000L);
+		executor = new RetryingRequestExecutor(delegate, new RetryPolicy(3, 1L), timeoutSettings);
+		MambuApiException tooManyRequests = new MambuApiException(429, "Too Many Requests");
+		tooManyRequests.setRetryAfterMillis(5000L);
+		when(delegate.executeRequest(eq(URL), any(ParamsMap.class), eq(apiDefinition))).thenThrow(tooManyRequests);
+
+		long start = System.currentTimeMillis();
+		try {
+			executor.executeRequest(URL, null, apiDefinition);
+			fail("Exception expected");
+		} catch (MambuApiException e) {
+			assertSame(tooManyRequests, e);
+		}
+		assertTrue(System.currentTimeMillis() - start < 1000L);
+		verify(delegate, times(1)).executeRequest(eq(URL), any(ParamsMap.class), eq(apiDefinition));
+	}
+
+	@Test
+	public void retriesAsyncRequests() throws Exception {
+
+		AsyncRequestExecutor asyncDelegate = mock(AsyncRequestExecutor.class);
+		RetryingRequestExecutor retrying = RetryingRequestExecutor.decorate(asyncDelegate, new RetryPolicy(3, 1L));
+		assertTrue(retrying instanceof AsyncRequestExecutor);
+
+		// Fail the first attempt with 503, complete the second one
+		when(asyncDelegate.executeRequestAsync(anyString(), any(ParamsMap.class), any(ApiDefinition.class),
+				Matchers.<MambuApiCallback<String>> any())).thenAnswer(new Answer<Future<String>>() {
+			private int attempts;
+
+			@SuppressWarnings("unchecked")
+			@Override
+			public Future<String> answer(InvocationOnMock invocation) {
+				MambuApiCallback<String> callback = (MambuApiCallback<String>) invocation.getArguments()[3];
+				BasicFuture<String> future = new BasicFuture<String>(null);
+				if (++attempts == 1) {
+					callback.onFailure(new MambuApiException(503, "Service Unavailable"));
+				} else {
+					callback.onSuccess("client");
+				}
+				return future;
+			}
+		});
+
+		ApiDefinition apiDefinition = new ApiDefinition(ApiType.GET_ENTITY, Client.class);
+		Future<String> result = ((AsyncRequestExecutor) retrying).executeRequestAsync(URL, null, apiDefinition, null);
+		assertEquals("client", result.get(5, TimeUnit.SECONDS));
+		assertFalse(result.isCancelled());
+		retrying.shutdown();
+	}
+
+	@Test
+	public void stopsAsyncRetriesAtRequestTimeout() throws Exception {
+
+		ApiDefinition apiDefinition = new ApiDefinition(ApiType.GET_ENTITY, Client.class);
+		TimeoutSettings timeoutSettings = new TimeoutSettings();
+		timeoutSettings.setRequestTimeout(apiDefinition, 1000L);
+		AsyncRequestExecutor asyncDelegate = mock(AsyncRequestExecutor.class);
+		RetryingRequestExecutor retrying = RetryingRequestExecutor.decorate(asyncDelegate, new RetryPolicy(3, 1L),
+				timeoutSettings);
+		final MambuApiException tooManyRequests = new MambuApiException(429, "Too Many Requests");
+		tooManyRequests.setRetryAfterMillis(5000L);
+
+		when(asyncDelegate.executeRequestAsync(anyString(), any(ParamsMap.class), any(ApiDefinition.class),
+				Matchers.<MambuApiCallback<String>> any())).thenAnswer(new Answer<Future<String>>() {
+
+			@SuppressWarnings("unchecked")
+			@Override
+			public Future<String> answer(InvocationOnMock invocation) {
+				MambuApiCallback<String> callback = (MambuApiCallback<String>) invocation.getArguments()[3];
+				BasicFuture<String> future = new BasicFuture<String>(null);
+				callback.onFailure(tooManyRequests);
+				future.failed(tooManyRequests);
+				return future;
+			}
+		});
+
+		Future<String> result = ((AsyncRequestExecutor) retrying).executeRequestAsync(URL, null, apiDefinition, null);
+		try {
+			// Fails with the 429 at once instead of retrying after the request timeout expired
+			result.get(500, TimeUnit.MILLISECONDS);
+			fail("Exception expected");
+		} catch (ExecutionException e) {
+			assertSame(tooManyRequests, e.getCause());
+		}
+		verify(asyncDelegate, times(1)).executeRequestAsync(anyString(), any(ParamsMap.class),
+				any(ApiDefinition.class), Matchers.<MambuApiCallback<String>> any());
+		retrying.shutdown();
+	}
+
+	@Test
+	public void cancelsRetryStartedWhileCancelling() throws Exception {
+
+		AsyncRequestExecutor asyncDelegate = mock(AsyncRequestExecutor.class);
+		RetryingRequestExecutor retrying = RetryingRequestExecutor.decorate(asyncDelegate, new RetryPolicy(3, 1L));
+		final AtomicReference<Future<String>> result = new AtomicReference<Future<String>>();
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch retryCancelled = new CountDownLatch(1);
+		final BasicFuture<String> retry = new BasicFuture<String>(new FutureCallback<String>() {
+
+			@Override
+			public void completed(String response) {
+			}
+
+			@Override
+			public void failed(Exception e) {
+			}
+
+			@Override
+			public void cancelled() {
+				retryCancelled.countDown();
+			}
+		});
+
+		// Fail the first attempt with 503. The request is cancelled while the delegate starts the retry
+		when(asyncDelegate.executeRequestAsync(anyString(), any(ParamsMap.class), any(ApiDefinition.class),
+				Matchers.<MambuApiCallback<String>> any())).thenAnswer(new Answer<Future<String>>() {
+			private int attempts;
+
+			@SuppressWarnings("unchecked")
+			@Override
+			public Future<String> answer(InvocationOnMock invocation) throws InterruptedException {
+				if (++attempts == 1) {
+					MambuApiCallback<String> callback = (MambuApiCallback<String>) invocation.getArguments()[3];
+					callback.onFailure(new MambuApiException(503, "Service Unavailable"));
+					return new BasicFuture<String>(null);
+				}
+				started.await(5, TimeUnit.SECONDS);
+				result.get().cancel(true);
+				return retry;
+			}
+		});
+
+		ApiDefinition apiDefinition = new ApiDefinition(ApiType.GET_ENTITY, Client.class);
+		result.set(((AsyncRequestExecutor) retrying).<String> executeRequestAsync(URL, null, apiDefinition, null));
+		started.countDown();
+
+		// The retry returned after the cancellation is cancelled as well
+		assertTrue(retryCancelled.await(5, TimeUnit.SECONDS));
+		assertTrue(result.get().isCancelled());
+		retrying.shutdown();
+	}
+}
@@ -0,0 +1,237 @@
+package com.mambu.apisdk.util;
+
+import static com.mambu.apisdk.util.LocalServer.respond;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.mambu.apisdk.MambuAPIService;
+import com.mambu.apisdk.exception.MambuApiException;
+import com.mambu.apisdk.util.ApiDefinition.ApiType;
+import com.mambu.clients.shared.model.Client;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+public class TracingTest {
+
+	private final static String CLIENT = "{\"id\":\"123\",\"firstName\":\"Jane\",\"lastName\":\"Doe\"}";
+	private final static String ERROR = "{\"returnCode\":3,\"returnStatus\":\"INVALID_CLIENT_ID\"}";
+
+	private final ApiDefinition getClient = new ApiDefinition(ApiType.GET_ENTITY, Client.class);
+
+	private LocalServer server;
+	private RequestExecutorImpl transport;
+	private AsyncExecutor asyncExecutor;
+	private ServiceExecutor serviceExecutor;
+	// Number of the server errors to respond with before responding with the client
+	private final AtomicInteger serverErrors = new AtomicInteger();
+
+	private final RingBufferSpanExporter exporter = new RingBufferSpanExporter(100);
+	private final Tracer tracer = new Tracer(exporter);
+
+	@Before
+	public void setUp() throws Exception {
+		server = new LocalServer();
+		server.handle("/api/clients", new HttpHandler() {
+
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				int status = 200;
+				String response = CLIENT;
+				if (exchange.getRequestURI().getPath().endsWith("/missing")) {
+					status = 400;
+					response = ERROR;
+				} else if (serverErrors.getAndDecrement() > 0) {
+					status = 500;
+					response = "{\"returnCode\":-1}";
+				}
+				respond(exchange, status, response);
+			}
+		});
+		server.start();
+		final String baseUrl = server.getApiUrl();
+
+		URLHelper urlHelper = new URLHelper("127.0.0.1") {
+
+			@Override
+			public String createUrl(String details) {
+				return baseUrl + details;
+			}
+		};
+		transport = new RequestExecutorImpl(urlHelper);
+		transport.setAuthorization("user", "password");
+		RequestExecutor executor = RetryingRequestExecutor.decorate(transport, new RetryPolicy(2, 1L));
+		asyncExecutor = new AsyncExecutor(new AsyncExecutionSettings());
+		serviceExecutor = new ServiceExecutor(new MambuAPIService("127.0.0.1", "user", "password", executor,
+				urlHelper, asyncExecutor));
+	}
+
+	@After
+	public void tearDown() {
+		TraceContext.attach(null);
+		asyncExecutor.shutdown();
+		transport.shutdown();
+		server.stop();
+	}
+
+	@Test
+	public void tracesServiceCallAndHttpRequest() throws Exception {
+
+		Span root = tracer.startSpan("onboard client");
+		Span previous = TraceContext.attach(root);
+		try {
+			serviceExecutor.execute(getClient, "123");
+		} finally {
+			TraceContext.detach(previous);
+			root.end();
+		}
+		assertNull(TraceContext.current());
+
+		List<Span> spans = exporter.getSpans(root.getTraceId());
+		assertEquals(3, spans.size());
+		Span request = spans.get(0);
+		Span serviceCall = spans.get(1);
+		assertSame(root, spans.get(2));
+
+		assertNull(root.getParentSpanId());
+		assertEquals(getClient.toString(), serviceCall.getName());
+		assertEquals(root.getSpanId(), serviceCall.getParentSpanId());
+		assertEquals("GET_ENTITY", serviceCall.getAttributes().get("apiType"));
+		assertEquals("/api/clients/123", serviceCall.getAttributes().get("url"));
+		assertTrue(serviceCall.getPhaseNanos(Span.Phase.URL_BUILD) > 0);
+		assertFalse(serviceCall.isError());
+
+		assertEquals("HTTP GET", request.getName());
+		assertEquals(serviceCall.getSpanId(), request.getParentSpanId());
+		assertEquals("/api/clients/123", request.getAttributes().get("http.url"));
+		assertEquals("200", request.getAttributes().get("http.status"));
+		assertTrue(request.getPhaseNanos(Span.Phase.SERIALIZATION) > 0);
+		assertTrue(request.getPhaseNanos(Span.Phase.NETWORK) > 0);
+		assertTrue(request.getPhaseNanos(Span.Phase.PARSE) > 0);
+		assertTrue(request.getDurationNanos() <= serviceCall.getDurationNanos());
+		assertTrue(serviceCall.getDurationNanos() <= root.getDurationNanos());
+	}
+
+	@Test
+	public void tracesEachRetryAndFailures() throws Exception {
+
+		serverErrors.set(1);
+		Span root = tracer.startSpan("retry");
+		Span previous = TraceContext.attach(root);
+		try {
+			serviceExecutor.execute(getClient, "123");
+			try {
+				serviceExecutor.execute(getClient, "missing");
+				fail("Expected MambuApiException");
+			} catch (MambuApiException e) {
+				// expected
+			}
+		} finally {
+			TraceContext.detach(previous);
+		}
+
+		List<Span> spans = exporter.getSpans(root.getTraceId());
+		assertEquals(5, spans.size());
+		Span retriedCall = spans.get(2);
+		assertEquals(retriedCall.getSpanId(), spans.get(0).getParentSpanId());
+		assertEquals(retriedCall.getSpanId(), spans.get(1).getParentSpanId());
+		assertEquals("500", spans.get(0).getAttributes().get("http.status"));
+		assertTrue(spans.get(0).isError());
+		assertFalse(retriedCall.isError());
+
+		Span failedCall = spans.get(4);
+		assertEquals(failedCall.getSpanId(), spans.get(3).getParentSpanId());
+		assertTrue(failedCall.isError());
+		assertEquals("400", failedCall.getAttributes().get("error"));
+	}
+
+	@Test
+	public void carriesSpanOverToAsyncRequests() throws Exception {
+
+		Span root = tracer.startSpan("async");
+		Span previous = TraceContext.attach(root);
+		Future<Client> future;
+		try {
+			future = serviceExecutor.executeAsync(getClient, "123", (MambuApiCallback<Client>) null);
+		} finally {
+			TraceContext.detach(previous);
+		}
+		assertEquals("123", future.get(5, TimeUnit.SECONDS).getId());
+
+		List<Span> spans = exporter.getSpans(root.getTraceId());
+		assertEquals(2, spans.size());
+		Span serviceCall = spans.get(1);
+		assertEquals(root.getSpanId(), serviceCall.getParentSpanId());
+		assertEquals(serviceCall.getSpanId(), spans.get(0).getParentSpanId());
+		assertTrue(serviceCall.isEnded());
+	}
+
+	@Test
+	public void wrapsApplicationTasks() throws Exception {
+
+		Span root = tracer.startSpan("task");
+		Callable<Span> task = new Callable<Span>() {
+
+			@Override
+			public Span call() {
+				return TraceContext.current();
+			}
+		};
+		assertSame(task, TraceContext.wrap(task));
+
+		Span previous = TraceContext.attach(root);
+		Callable<Span> wrapped;
+		try {
+			wrapped = TraceContext.wrap(task);
+		} finally {
+			TraceContext.detach(previous);
+		}
+		assertSame(root, wrapped.call());
+		assertNull(TraceContext.current());
+	}
+
+	@Test
+	public void doesNotTraceWithoutCurrentSpan() throws Exception {
+
+		serviceExecutor.execute(getClient, "123");
+
+		assertEquals(0, exporter.getExportedSpans());
+	}
+
+	@Test
+	public void ringBufferKeepsMostRecentSpans() {
+
+		RingBufferSpanExporter buffer = new RingBufferSpanExporter(3);
+		Tracer bufferTracer = new Tracer(buffer);
+		for (int i = 0; i < 5; i++) {
+			bufferTracer.startSpan("span" + i, null).end();
+		}
+
+		List<Span> spans = buffer.getSpans();
+		assertEquals(3, spans.size());
+		assertEquals("span2", spans.get(0).getName());
+		assertEquals("span4", spans.get(2).getName());
+		assertEquals(5, buffer.getExportedSpans());
+
+		// Ending a span again does not export it again
+		spans.get(2).end();
+		assertEquals(5, buffer.getExportedSpans());
+
+		buffer.clear();
+		assertTrue(buffer.getSpans().isEmpty());
+	}
+}